@@ -0,0 +1,61 @@
+package com.vimeo.sample.model;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.vimeo.sample.stag.generated.Stag;
+import com.vimeo.sample_java_model.ExternalModel1;
+import com.vimeo.stag.StagRegistry;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StagRegistryTest {
+
+    private static void verifyGeneratedAdapter(StagRegistry registry, Class<?> clazz) {
+        TypeAdapter<?> typeAdapter = registry.create(new Gson(), TypeToken.get(clazz));
+        assertNotNull(typeAdapter);
+        assertTrue(typeAdapter.getClass().getName().endsWith("$TypeAdapter"));
+    }
+
+    @Test
+    public void registryResolvesClassesOfEveryModule() {
+        StagRegistry registry = new StagRegistry(new Stag.Factory(),
+                                                 new com.vimeo.sample_java_model.stag.generated.Stag.Factory());
+
+        verifyGeneratedAdapter(registry, ExternalModelExample.class);
+        verifyGeneratedAdapter(registry, ExternalModel1.class);
+        assertNull(registry.create(new Gson(), TypeToken.get(String.class)));
+    }
+
+    @Test
+    public void registryLoadsFactoriesFromClassPath() {
+        StagRegistry registry = StagRegistry.load(StagRegistryTest.class.getClassLoader());
+
+        verifyGeneratedAdapter(registry, ExternalModelExample.class);
+        verifyGeneratedAdapter(registry, ExternalModel1.class);
+    }
+
+    @Test
+    public void registryRoundTripsCrossModuleModel() {
+        Gson gson = new GsonBuilder()
+                .registerTypeAdapterFactory(StagRegistry.load(StagRegistryTest.class.getClassLoader()))
+                .create();
+
+        ExternalModelExample<String> model = new ExternalModelExample<>();
+        model.mStringField = "string";
+        model.mExternalModel = new ExternalModel1();
+        model.mExternalModel.setField1("field");
+
+        TypeToken<ExternalModelExample<String>> typeToken = new TypeToken<ExternalModelExample<String>>() {};
+        ExternalModelExample<String> result = gson.fromJson(gson.toJson(model, typeToken.getType()), typeToken.getType());
+
+        assertEquals("string", result.mStringField);
+        assertEquals("field", result.mExternalModel.getField1());
+    }
+}
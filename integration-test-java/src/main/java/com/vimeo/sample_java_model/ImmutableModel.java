@@ -0,0 +1,77 @@
+package com.vimeo.sample_java_model;
+
+import com.google.gson.annotations.SerializedName;
+import com.vimeo.stag.StagConstructor;
+import com.vimeo.stag.UseStag;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * A test case for a model with final fields
+ * that is created through its constructor.
+ */
+@UseStag
+public class ImmutableModel {
+
+    @NotNull
+    @SerializedName("id")
+    private final String mId;
+
+    private final int mCount;
+
+    public final List<String> tags;
+
+    private String mDescription;
+
+    public long timestamp = 42;
+
+    @StagConstructor
+    public ImmutableModel(@NotNull String id, int count, List<String> tags) {
+        mId = id;
+        mCount = count;
+        this.tags = tags;
+    }
+
+    @NotNull
+    public String getId() {
+        return mId;
+    }
+
+    public int getCount() {
+        return mCount;
+    }
+
+    public String getDescription() {
+        return mDescription;
+    }
+
+    public void setDescription(String description) {
+        mDescription = description;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) { return true; }
+        if (o == null || getClass() != o.getClass()) { return false; }
+
+        ImmutableModel that = (ImmutableModel) o;
+
+        if (mCount != that.mCount) { return false; }
+        if (timestamp != that.timestamp) { return false; }
+        if (!mId.equals(that.mId)) { return false; }
+        if (tags != null ? !tags.equals(that.tags) : that.tags != null) { return false; }
+        return mDescription != null ? mDescription.equals(that.mDescription) : that.mDescription == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mId.hashCode();
+        result = 31 * result + mCount;
+        result = 31 * result + (tags != null ? tags.hashCode() : 0);
+        result = 31 * result + (mDescription != null ? mDescription.hashCode() : 0);
+        result = 31 * result + (int) (timestamp ^ (timestamp >>> 32));
+        return result;
+    }
+}
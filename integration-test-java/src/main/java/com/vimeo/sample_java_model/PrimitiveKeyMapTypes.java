@@ -0,0 +1,18 @@
+package com.vimeo.sample_java_model;
+
+import com.vimeo.stag.IntList;
+import com.vimeo.stag.IntObjectMap;
+import com.vimeo.stag.LongObjectMap;
+import com.vimeo.stag.UseStag;
+
+/**
+ * An integration test for the maps with primitive keys.
+ */
+@UseStag
+public class PrimitiveKeyMapTypes {
+
+    public IntObjectMap<String> mNames;
+
+    public LongObjectMap<IntList> mLists;
+
+}
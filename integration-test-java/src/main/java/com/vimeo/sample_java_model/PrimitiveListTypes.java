@@ -0,0 +1,20 @@
+package com.vimeo.sample_java_model;
+
+import com.vimeo.stag.DoubleList;
+import com.vimeo.stag.IntList;
+import com.vimeo.stag.LongList;
+import com.vimeo.stag.UseStag;
+
+/**
+ * An integration test for the primitive list types.
+ */
+@UseStag
+public class PrimitiveListTypes {
+
+    public IntList mInts;
+
+    public LongList mLongs;
+
+    public DoubleList mDoubles;
+
+}
@@ -0,0 +1,43 @@
+package com.vimeo.sample_java_model;
+
+import com.vimeo.stag.UseStag;
+
+import java.util.List;
+
+/**
+ * A test case for a model that contains itself, both
+ * directly and in a list, and another model.
+ */
+@UseStag
+public class RecursiveModel {
+
+    public String name;
+
+    public RecursiveModel parent;
+
+    public List<RecursiveModel> children;
+
+    public AlternateNameModel nested;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) { return true; }
+        if (o == null || getClass() != o.getClass()) { return false; }
+
+        RecursiveModel that = (RecursiveModel) o;
+
+        if (name != null ? !name.equals(that.name) : that.name != null) { return false; }
+        if (parent != null ? !parent.equals(that.parent) : that.parent != null) { return false; }
+        if (children != null ? !children.equals(that.children) : that.children != null) { return false; }
+        return nested != null ? nested.equals(that.nested) : that.nested == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = name != null ? name.hashCode() : 0;
+        result = 31 * result + (parent != null ? parent.hashCode() : 0);
+        result = 31 * result + (children != null ? children.hashCode() : 0);
+        result = 31 * result + (nested != null ? nested.hashCode() : 0);
+        return result;
+    }
+}
@@ -0,0 +1,52 @@
+package com.vimeo.sample_java_model;
+
+import com.google.gson.annotations.SerializedName;
+import com.vimeo.stag.UseStag;
+
+/**
+ * A test case where the JSON names share lengths and prefixes,
+ * so that field lookup has to look past the first character.
+ */
+@UseStag
+public class SimilarFieldNamesModel {
+
+    @SerializedName(value = "alpha", alternate = {"ALPHA", "alpha_v1"})
+    public String alpha;
+
+    public String alpho;
+
+    public String omega;
+
+    public int count;
+
+    public String a;
+
+    @SerializedName(value = "it's", alternate = {"na\u00efve"})
+    public String quoted;
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) { return true; }
+        if (o == null || getClass() != o.getClass()) { return false; }
+
+        SimilarFieldNamesModel that = (SimilarFieldNamesModel) o;
+
+        if (count != that.count) { return false; }
+        if (alpha != null ? !alpha.equals(that.alpha) : that.alpha != null) { return false; }
+        if (alpho != null ? !alpho.equals(that.alpho) : that.alpho != null) { return false; }
+        if (omega != null ? !omega.equals(that.omega) : that.omega != null) { return false; }
+        if (a != null ? !a.equals(that.a) : that.a != null) { return false; }
+        return quoted != null ? quoted.equals(that.quoted) : that.quoted == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = alpha != null ? alpha.hashCode() : 0;
+        result = 31 * result + (alpho != null ? alpho.hashCode() : 0);
+        result = 31 * result + (omega != null ? omega.hashCode() : 0);
+        result = 31 * result + count;
+        result = 31 * result + (a != null ? a.hashCode() : 0);
+        result = 31 * result + (quoted != null ? quoted.hashCode() : 0);
+        return result;
+    }
+}
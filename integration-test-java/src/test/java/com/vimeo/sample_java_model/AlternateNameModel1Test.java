@@ -1,9 +1,20 @@
 package com.vimeo.sample_java_model;
 
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.vimeo.sample_java_model.stag.generated.Stag;
+import com.vimeo.stag.StagJsonWriter;
+
 import org.junit.Test;
 
+import java.io.StringWriter;
+
 import verification.Utils;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
 /**
  * Created by restainoa on 2/2/17.
  */
@@ -18,4 +29,35 @@ public class AlternateNameModel1Test {
     public void verifyTypeAdapterCorrectness() {
         Utils.verifyTypeAdapterCorrectness(AlternateNameModel1.class);
     }
+
+    @Test
+    public void readsNamesAndAlternateNames() throws Exception {
+        Gson gson = new GsonBuilder().registerTypeAdapterFactory(new Stag.Factory()).create();
+        TypeAdapter<AlternateNameModel1> typeAdapter = gson.getAdapter(AlternateNameModel1.class);
+
+        assertEquals(AlternateNameModel1.ANDROID_VERSION, typeAdapter.fromJson("\"7.0\""));
+        assertEquals(AlternateNameModel1.ANDROID_VERSION, typeAdapter.fromJson("\"5.0\""));
+        assertEquals(AlternateNameModel1.ANDROID_VERSION_NAME, typeAdapter.fromJson("\"Lollipop\""));
+        assertNull(typeAdapter.fromJson("\"6.0\""));
+        assertNull(typeAdapter.fromJson("\"ANDROID_VERSION\""));
+        assertNull(typeAdapter.fromJson("null"));
+    }
+
+    @Test
+    public void writesNames() throws Exception {
+        Gson gson = new GsonBuilder().registerTypeAdapterFactory(new Stag.Factory()).create();
+        TypeAdapter<AlternateNameModel1> typeAdapter = gson.getAdapter(AlternateNameModel1.class);
+
+        assertEquals("\"Nougat\"", typeAdapter.toJson(AlternateNameModel1.ANDROID_VERSION_NAME));
+        assertEquals("7.0", gson.toJsonTree(AlternateNameModel1.ANDROID_VERSION).getAsString());
+
+        StringWriter stringWriter = new StringWriter();
+        StagJsonWriter writer = new StagJsonWriter(stringWriter);
+        writer.beginArray();
+        typeAdapter.write(writer, AlternateNameModel1.ANDROID_VERSION);
+        typeAdapter.write(writer, null);
+        writer.endArray();
+        writer.flush();
+        assertEquals("[\"7.0\",null]", stringWriter.toString());
+    }
 }
@@ -1,9 +1,20 @@
 package com.vimeo.sample_java_model;
 
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.vimeo.sample_java_model.stag.generated.Stag;
+
 import org.junit.Test;
 
+import java.io.IOException;
+
 import verification.Utils;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
 /**
  * Unit tests for {@link BooleanFields}.
  * <p>
@@ -11,9 +22,41 @@ import verification.Utils;
  */
 public class BooleanFieldsTest {
 
+    private final TypeAdapter<BooleanFields> mTypeAdapter =
+            new Stag.Factory().create(new Gson(), TypeToken.get(BooleanFields.class));
+
     @Test
     public void typeAdapterWasGenerated() throws Exception {
         Utils.verifyTypeAdapterGeneration(BooleanFields.class);
     }
 
+    @Test
+    public void nonNullFieldsAreRead() throws Exception {
+        BooleanFields booleanFields = mTypeAdapter.fromJson(
+                "{\"test3\":true,\"test4\":false,\"test7\":true,\"test8\":false}");
+
+        assertTrue(booleanFields.isTest3());
+        assertTrue(booleanFields.isTest7());
+    }
+
+    @Test
+    public void allMissingNonNullFieldsAreReported() {
+        try {
+            mTypeAdapter.fromJson("{\"test4\":false,\"test8\":false}");
+            fail("Reading a model without its @NotNull fields should fail");
+        } catch (IOException exception) {
+            assertEquals("isTest3(), isTest7() cannot be null", exception.getMessage());
+        }
+    }
+
+    @Test
+    public void explicitNullNonNullFieldIsReported() {
+        try {
+            mTypeAdapter.fromJson("{\"test3\":null,\"test4\":false,\"test7\":true,\"test8\":false}");
+            fail("Reading a model with a null @NotNull field should fail");
+        } catch (IOException exception) {
+            assertEquals("isTest3() cannot be null", exception.getMessage());
+        }
+    }
+
 }
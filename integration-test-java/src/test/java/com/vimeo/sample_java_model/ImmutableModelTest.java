@@ -0,0 +1,65 @@
+package com.vimeo.sample_java_model;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.vimeo.sample_java_model.stag.generated.Stag;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import verification.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class ImmutableModelTest {
+
+    private final TypeAdapter<ImmutableModel> mTypeAdapter =
+            new Stag.Factory().create(new Gson(), TypeToken.get(ImmutableModel.class));
+
+    @Test
+    public void typeAdapterWasGenerated() throws Exception {
+        Utils.verifyTypeAdapterGeneration(ImmutableModel.class);
+    }
+
+    @Test
+    public void verifyTypeAdapterCorrectness() {
+        Utils.verifyTypeAdapterCorrectness(ImmutableModel.class);
+    }
+
+    @Test
+    public void modelIsCreatedThroughConstructor() throws Exception {
+        ImmutableModel model = mTypeAdapter.fromJson(
+                "{\"tags\":[\"a\",\"b\"],\"mDescription\":\"description\",\"id\":\"id\",\"mCount\":3}");
+
+        assertEquals("id", model.getId());
+        assertEquals(3, model.getCount());
+        assertEquals(Arrays.asList("a", "b"), model.tags);
+        assertEquals("description", model.getDescription());
+        assertEquals(42, model.timestamp);
+    }
+
+    @Test
+    public void missingValuesUseDefaults() throws Exception {
+        ImmutableModel model = mTypeAdapter.fromJson("{\"id\":\"id\"}");
+
+        assertEquals("id", model.getId());
+        assertEquals(0, model.getCount());
+        assertNull(model.tags);
+        assertNull(model.getDescription());
+        assertEquals(42, model.timestamp);
+    }
+
+    @Test
+    public void missingNotNullValueFails() {
+        try {
+            mTypeAdapter.fromJson("{\"mCount\":3}");
+            fail("Reading a model without its @NotNull field should fail");
+        } catch (IOException expected) {
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.vimeo.sample_java_model;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.vimeo.sample_java_model.stag.generated.Stag;
+import com.vimeo.stag.IntList;
+import com.vimeo.stag.IntObjectMap;
+import com.vimeo.stag.LongObjectMap;
+
+import org.junit.Test;
+
+import verification.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for {@link PrimitiveKeyMapTypes}.
+ */
+public class PrimitiveKeyMapTypesTest {
+
+    @Test
+    public void verifyTypeAdapterWasGenerated() {
+        Utils.verifyTypeAdapterGeneration(PrimitiveKeyMapTypes.class);
+    }
+
+    @Test
+    public void primitiveKeyMapsRoundTrip() throws Exception {
+        Gson gson = new GsonBuilder().registerTypeAdapterFactory(new Stag.Factory()).create();
+        TypeAdapter<PrimitiveKeyMapTypes> typeAdapter = gson.getAdapter(PrimitiveKeyMapTypes.class);
+
+        PrimitiveKeyMapTypes model = new PrimitiveKeyMapTypes();
+        model.mNames = new IntObjectMap<>();
+        model.mNames.put(-7, "seven");
+        model.mLists = new LongObjectMap<>();
+        model.mLists.put(Long.MAX_VALUE, IntList.copyOf(new int[]{1, 2}));
+
+        String json = typeAdapter.toJson(model);
+        assertEquals("{\"mNames\":{\"-7\":\"seven\"},\"mLists\":{\"9223372036854775807\":[1,2]}}", json);
+
+        PrimitiveKeyMapTypes read = typeAdapter.fromJson(json);
+        assertEquals(model.mNames, read.mNames);
+        assertEquals(model.mLists, read.mLists);
+    }
+
+    @Test
+    public void nullPrimitiveKeyMapsAreRead() throws Exception {
+        Gson gson = new GsonBuilder().registerTypeAdapterFactory(new Stag.Factory()).create();
+        PrimitiveKeyMapTypes read = gson.getAdapter(PrimitiveKeyMapTypes.class).fromJson("{\"mNames\":null}");
+        assertNull(read.mNames);
+        assertNull(read.mLists);
+    }
+}
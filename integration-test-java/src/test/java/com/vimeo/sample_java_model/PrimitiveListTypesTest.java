@@ -0,0 +1,56 @@
+package com.vimeo.sample_java_model;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.vimeo.sample_java_model.stag.generated.Stag;
+import com.vimeo.stag.DoubleList;
+import com.vimeo.stag.IntList;
+import com.vimeo.stag.LongList;
+
+import org.junit.Test;
+
+import verification.Utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for {@link PrimitiveListTypes}.
+ */
+public class PrimitiveListTypesTest {
+
+    @Test
+    public void verifyTypeAdapterWasGenerated() {
+        Utils.verifyTypeAdapterGeneration(PrimitiveListTypes.class);
+    }
+
+    @Test
+    public void primitiveListsRoundTrip() throws Exception {
+        Gson gson = new GsonBuilder().registerTypeAdapterFactory(new Stag.Factory()).create();
+        TypeAdapter<PrimitiveListTypes> typeAdapter = gson.getAdapter(PrimitiveListTypes.class);
+
+        PrimitiveListTypes model = new PrimitiveListTypes();
+        model.mInts = IntList.copyOf(new int[]{1, -2, Integer.MAX_VALUE});
+        model.mLongs = LongList.copyOf(new long[]{Long.MIN_VALUE, 0L});
+        model.mDoubles = new DoubleList();
+
+        String json = typeAdapter.toJson(model);
+        assertEquals("{\"mInts\":[1,-2,2147483647],\"mLongs\":[-9223372036854775808,0],\"mDoubles\":[]}", json);
+
+        PrimitiveListTypes read = typeAdapter.fromJson(json);
+        assertArrayEquals(model.mInts.toIntArray(), read.mInts.toIntArray());
+        assertArrayEquals(model.mLongs.toLongArray(), read.mLongs.toLongArray());
+        assertEquals(0, read.mDoubles.size());
+    }
+
+    @Test
+    public void nullPrimitiveListsAreRead() throws Exception {
+        Gson gson = new GsonBuilder().registerTypeAdapterFactory(new Stag.Factory()).create();
+        PrimitiveListTypes read = gson.getAdapter(PrimitiveListTypes.class).fromJson("{\"mInts\":null,\"mDoubles\":[1.5]}");
+        assertNull(read.mInts);
+        assertNull(read.mLongs);
+        assertEquals(1.5, read.mDoubles.getDouble(0), 0);
+    }
+}
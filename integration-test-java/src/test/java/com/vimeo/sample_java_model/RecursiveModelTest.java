@@ -0,0 +1,71 @@
+package com.vimeo.sample_java_model;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.vimeo.sample_java_model.stag.generated.Stag;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import verification.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RecursiveModelTest {
+
+    @Test
+    public void typeAdapterWasGenerated() throws Exception {
+        Utils.verifyTypeAdapterGeneration(RecursiveModel.class);
+    }
+
+    @Test
+    public void verifyTypeAdapterCorrectness() {
+        Utils.verifyTypeAdapterCorrectness(RecursiveModel.class);
+    }
+
+    @Test
+    public void nestedModelsAreRead() throws Exception {
+        TypeAdapter<RecursiveModel> typeAdapter = new Stag.Factory().create(new Gson(), TypeToken.get(RecursiveModel.class));
+
+        RecursiveModel model = typeAdapter.fromJson("{\"name\":\"a\",\"parent\":{\"name\":\"b\",\"parent\":{\"name\":\"c\"}}," +
+                                                    "\"children\":[{\"name\":\"d\",\"children\":[{\"name\":\"e\"}]}]}");
+
+        assertEquals("a", model.name);
+        assertEquals("b", model.parent.name);
+        assertEquals("c", model.parent.parent.name);
+        assertNull(model.parent.parent.parent);
+        assertEquals("d", model.children.get(0).name);
+        assertEquals("e", model.children.get(0).children.get(0).name);
+        assertNull(model.nested);
+    }
+
+    @Test
+    public void nestedAdaptersAreCreatedWhenFirstUsed() throws Exception {
+        final List<TypeToken<?>> requestedTypes = new ArrayList<>();
+        Gson gson = new GsonBuilder()
+                .registerTypeAdapterFactory(new Stag.Factory())
+                .registerTypeAdapterFactory(new TypeAdapterFactory() {
+                    @Override
+                    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+                        requestedTypes.add(type);
+                        return null;
+                    }
+                })
+                .create();
+
+        TypeAdapter<RecursiveModel> typeAdapter = gson.getAdapter(RecursiveModel.class);
+        assertFalse(requestedTypes.contains(TypeToken.get(AlternateNameModel.class)));
+
+        RecursiveModel model = typeAdapter.fromJson("{\"nested\":{\"Nougat\":\"value\"}}");
+        assertEquals("value", model.nested.getAndroidVersions());
+        assertTrue(requestedTypes.contains(TypeToken.get(AlternateNameModel.class)));
+    }
+}
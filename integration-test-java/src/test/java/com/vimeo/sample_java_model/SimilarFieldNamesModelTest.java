@@ -0,0 +1,43 @@
+package com.vimeo.sample_java_model;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.vimeo.sample_java_model.stag.generated.Stag;
+
+import org.junit.Test;
+
+import verification.Utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SimilarFieldNamesModelTest {
+
+    @Test
+    public void typeAdapterWasGenerated() throws Exception {
+        Utils.verifyTypeAdapterGeneration(SimilarFieldNamesModel.class);
+    }
+
+    @Test
+    public void verifyTypeAdapterCorrectness() {
+        Utils.verifyTypeAdapterCorrectness(SimilarFieldNamesModel.class);
+    }
+
+    @Test
+    public void alternateAndUnknownNamesAreResolved() throws Exception {
+        TypeAdapter<SimilarFieldNamesModel> typeAdapter =
+                new Stag.Factory().create(new Gson(), TypeToken.get(SimilarFieldNamesModel.class));
+
+        SimilarFieldNamesModel model = typeAdapter.fromJson(
+                "{\"alpha_v1\":\"1\",\"alphx\":\"2\",\"omega\":\"3\",\"b\":\"4\",\"a\":\"5\",\"count\":6," +
+                        "\"na\u00efve\":\"7\",\"\":\"8\",\"omegaa\":\"9\"}");
+
+        assertEquals("1", model.alpha);
+        assertNull(model.alpho);
+        assertEquals("3", model.omega);
+        assertEquals("5", model.a);
+        assertEquals(6, model.count);
+        assertEquals("7", model.quoted);
+    }
+}
@@ -0,0 +1,37 @@
+package com.vimeo.sample_java_model;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.vimeo.sample_java_model.stag.generated.Stag;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StagFactoryPreloadTest {
+
+    @Test
+    public void preloadCachesGeneratedAdapters() throws Exception {
+        Gson gson = new GsonBuilder().registerTypeAdapterFactory(new Stag.Factory()).create();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<Void> future = Stag.Factory.preload(gson, executor);
+            future.get(10, TimeUnit.SECONDS);
+            assertTrue(future.isDone());
+        } finally {
+            executor.shutdown();
+        }
+
+        TypeAdapter<RecursiveModel> typeAdapter = gson.getAdapter(RecursiveModel.class);
+        assertTrue(typeAdapter instanceof RecursiveModel$TypeAdapter);
+        assertSame(typeAdapter, gson.getAdapter(RecursiveModel.class));
+        assertTrue(gson.getAdapter(BooleanFields.class) instanceof BooleanFields$TypeAdapter);
+    }
+}
@@ -27,10 +27,14 @@ import com.google.gson.Gson;
 import com.google.gson.TypeAdapter;
 import com.google.gson.reflect.TypeToken;
 import com.vimeo.sample_java_model.stag.generated.Stag;
+import com.vimeo.stag.StagJsonWriter;
+import com.vimeo.stag.Utf8JsonReader;
+import com.vimeo.stag.Utf8JsonWriter;
 
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
+import java.io.StringWriter;
 
 import uk.co.jemos.podam.api.PodamFactory;
 import uk.co.jemos.podam.api.PodamFactoryImpl;
@@ -80,7 +84,9 @@ public final class Utils {
     /**
      * Verifies that the type adapter for a class is correct. It does this by manufacturing an
      * instance of the class, writing it to JSON, and then reading that object back out of JSON
-     * and comparing the two instances.
+     * and comparing the two instances. It also checks that writing the instance to a
+     * {@link StagJsonWriter} or a {@link Utf8JsonWriter} produces the same JSON, and that
+     * reading the JSON with a {@link Utf8JsonReader} produces an equal instance.
      *
      * @param clazz the {@link Class} to use to get the {@link TypeAdapter}.
      */
@@ -96,6 +102,16 @@ public final class Utils {
             final String json = typeAdapter.toJson(object);
             try {
                 newObject = typeAdapter.fromJson(json);
+
+                StringWriter stringWriter = new StringWriter();
+                typeAdapter.write(new StagJsonWriter(stringWriter), object);
+                assertEquals(json, stringWriter.toString());
+
+                Utf8JsonWriter utf8JsonWriter = new Utf8JsonWriter();
+                typeAdapter.write(utf8JsonWriter, object);
+                assertEquals(json, new String(utf8JsonWriter.toByteArray(), "UTF-8"));
+
+                assertEquals(object, typeAdapter.read(new Utf8JsonReader(utf8JsonWriter.toByteArray())));
             } catch (IOException ignored) {}
         }
 
@@ -0,0 +1,20 @@
+package com.vimeo.dummy.sample_kotlin
+
+import com.google.gson.annotations.SerializedName
+import com.vimeo.stag.UseStag
+
+/**
+ * Test kotlin model with read only properties, which is
+ * created through its primary constructor.
+ */
+@UseStag
+data class ImmutableKotlinSamples(
+        @SerializedName("string_field") val stringField: String? = null,
+        @SerializedName("non_null_string_field") val nonNullStringField: String = "default",
+        @SerializedName("int_field") val intField: Int = 3,
+        @SerializedName("long_field") val longField: Long = 1,
+        @SerializedName("double_field") val doubleField: Double = 0.5,
+        @SerializedName("list_field") val listField: List<String>? = null
+) {
+    var mutableField: Int? = null
+}
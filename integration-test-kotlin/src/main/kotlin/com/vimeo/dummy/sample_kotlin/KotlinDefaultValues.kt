@@ -0,0 +1,15 @@
+package com.vimeo.dummy.sample_kotlin
+
+import com.google.gson.annotations.SerializedName
+import com.vimeo.stag.UseStag
+
+/**
+ * Test kotlin model whose default values must be
+ * evaluated again for every object that is read.
+ */
+@UseStag
+data class KotlinDefaultValues(
+        @SerializedName("name") val name: String = "default",
+        @SerializedName("tags") val tags: MutableList<String> = mutableListOf(),
+        @SerializedName("count") val count: Int = 7
+)
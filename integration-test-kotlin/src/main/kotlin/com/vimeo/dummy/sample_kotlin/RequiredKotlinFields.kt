@@ -0,0 +1,15 @@
+package com.vimeo.dummy.sample_kotlin
+
+import com.google.gson.annotations.SerializedName
+import com.vimeo.stag.UseStag
+
+/**
+ * Test kotlin model with read only properties
+ * that do not have default values.
+ */
+@UseStag
+data class RequiredKotlinFields(
+        @SerializedName("name") val name: String,
+        @SerializedName("count") val count: Int,
+        @SerializedName("description") val description: String?
+)
@@ -0,0 +1,44 @@
+package com.vimeo.dummy.sample_kotlin
+
+import com.google.gson.Gson
+import com.google.gson.reflect.TypeToken
+import com.vimeo.sample_kotlin.stag.generated.Stag
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+import verification.Utils
+
+/**
+ * Unit tests for [ImmutableKotlinSamples].
+ */
+class ImmutableKotlinSamplesTest {
+
+    private val typeAdapter = Stag.Factory().create(Gson(), TypeToken.get(ImmutableKotlinSamples::class.java))
+
+    @Test
+    fun verifyTypeAdapterGenerated() {
+        Utils.verifyTypeAdapterGeneration(ImmutableKotlinSamples::class)
+    }
+
+    @Test
+    fun verifyTypeAdapterCorrectness() {
+        Utils.verifyTypeAdapterCorrectness(ImmutableKotlinSamples::class)
+    }
+
+    @Test
+    fun modelIsCreatedThroughPrimaryConstructor() {
+        val model = typeAdapter.fromJson("{\"string_field\":\"string\",\"int_field\":5,\"double_field\":1.5," +
+                "\"list_field\":[\"a\"],\"mutableField\":2}")
+
+        assertEquals(ImmutableKotlinSamples(stringField = "string", intField = 5, doubleField = 1.5, listField = listOf("a")), model)
+        assertEquals(2, model.mutableField)
+    }
+
+    @Test
+    fun missingValuesKeepDefaults() {
+        val model = typeAdapter.fromJson("{}")
+
+        assertEquals(ImmutableKotlinSamples(), model)
+        assertNull(model.mutableField)
+    }
+}
@@ -0,0 +1,46 @@
+package com.vimeo.dummy.sample_kotlin
+
+import com.google.gson.Gson
+import com.google.gson.reflect.TypeToken
+import com.vimeo.sample_kotlin.stag.generated.Stag
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotSame
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import verification.Utils
+
+/**
+ * Unit tests for [KotlinDefaultValues].
+ */
+class KotlinDefaultValuesTest {
+
+    private val typeAdapter = Stag.Factory().create(Gson(), TypeToken.get(KotlinDefaultValues::class.java))
+
+    @Test
+    fun verifyTypeAdapterGenerated() {
+        Utils.verifyTypeAdapterGeneration(KotlinDefaultValues::class)
+    }
+
+    @Test
+    fun verifyTypeAdapterCorrectness() {
+        Utils.verifyTypeAdapterCorrectness(KotlinDefaultValues::class)
+    }
+
+    @Test
+    fun objectsDoNotShareMutableDefaults() {
+        val first = typeAdapter.fromJson("{\"name\":\"first\"}")
+        val second = typeAdapter.fromJson("{\"name\":\"second\"}")
+
+        assertNotSame(first.tags, second.tags)
+        first.tags.add("tag")
+        assertEquals(listOf("tag"), first.tags)
+        assertTrue(second.tags.isEmpty())
+    }
+
+    @Test
+    fun presentValuesAreNotReplacedByDefaults() {
+        val model = typeAdapter.fromJson("{\"tags\":[\"a\"],\"count\":null}")
+
+        assertEquals(KotlinDefaultValues(tags = mutableListOf("a")), model)
+    }
+}
@@ -0,0 +1,39 @@
+package com.vimeo.dummy.sample_kotlin
+
+import com.google.gson.Gson
+import com.google.gson.reflect.TypeToken
+import com.vimeo.sample_kotlin.stag.generated.Stag
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import verification.Utils
+import java.io.IOException
+
+/**
+ * Unit tests for [RequiredKotlinFields].
+ */
+class RequiredKotlinFieldsTest {
+
+    private val typeAdapter = Stag.Factory().create(Gson(), TypeToken.get(RequiredKotlinFields::class.java))
+
+    @Test
+    fun verifyTypeAdapterGenerated() {
+        Utils.verifyTypeAdapterGeneration(RequiredKotlinFields::class)
+    }
+
+    @Test
+    fun verifyTypeAdapterCorrectness() {
+        Utils.verifyTypeAdapterCorrectness(RequiredKotlinFields::class)
+    }
+
+    @Test
+    fun modelIsCreatedThroughPrimaryConstructor() {
+        val model = typeAdapter.fromJson("{\"count\":2,\"name\":\"name\"}")
+
+        assertEquals(RequiredKotlinFields("name", 2, null), model)
+    }
+
+    @Test(expected = IOException::class)
+    fun missingNonNullValueFails() {
+        typeAdapter.fromJson("{\"count\":2}")
+    }
+}
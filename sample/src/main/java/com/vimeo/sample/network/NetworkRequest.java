@@ -32,18 +32,15 @@ import android.util.Log;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import com.google.gson.TypeAdapter;
 import com.vimeo.sample.model.DateParser;
 import com.vimeo.sample.model.Video;
 import com.vimeo.sample.model.VideoList;
 import com.vimeo.sample.model.VideoList$TypeAdapter;
 import com.vimeo.sample.stag.generated.Stag;
+import com.vimeo.stag.Utf8JsonReader;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.ArrayList;
@@ -103,34 +100,23 @@ public final class NetworkRequest {
             String token = "bearer b8e31bd89ba1ee093dc6ab0f863db1bd";
             ArrayList<Video> videos = new ArrayList<>();
 
-            StringBuilder builder = new StringBuilder();
-            BufferedReader stream = null;
+            Utf8JsonReader stream = null;
             try {
 
                 URL uri = new URL(url);
                 HttpURLConnection connection = (HttpURLConnection) uri.openConnection();
                 connection.setRequestProperty("Authorization", token);
                 connection.setRequestMethod("GET");
-                stream = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-
-                String line;
-
-                while ((line = stream.readLine()) != null) {
-                    builder.append(line);
-                }
-
+                stream = new Utf8JsonReader(connection.getInputStream());
 
                 Stag.Factory factory = new Stag.Factory();
                 Gson gson = new GsonBuilder().registerTypeAdapter(Date.class, new DateParser())
                         .registerTypeAdapterFactory(factory)
                         .create();
 
-                JsonObject jsonObject = new JsonParser().parse(builder.toString()).getAsJsonObject();
-
-
                 long time = System.currentTimeMillis();
                 TypeAdapter<VideoList> videoListTypeAdapter = gson.getAdapter(VideoList$TypeAdapter.TYPE_TOKEN);
-                videos.addAll(videoListTypeAdapter.fromJsonTree(jsonObject).data);
+                videos.addAll(videoListTypeAdapter.read(stream).data);
                 Log.d(TAG, "Time elapsed while parsing: " + (System.currentTimeMillis() - time) + " ms");
 
             } catch (IOException e) {
@@ -29,9 +29,7 @@ import com.squareup.javapoet.TypeSpec;
 import com.vimeo.stag.UseStag;
 import com.vimeo.stag.processor.generators.AdapterGenerator;
 import com.vimeo.stag.processor.generators.EnumTypeAdapterGenerator;
-import com.vimeo.stag.processor.generators.StagFactoryGenerator;
 import com.vimeo.stag.processor.generators.StagGenerator;
-import com.vimeo.stag.processor.generators.StagGenerator.SubFactoriesInfo;
 import com.vimeo.stag.processor.generators.TypeAdapterGenerator;
 import com.vimeo.stag.processor.generators.model.AnnotatedClass;
 import com.vimeo.stag.processor.generators.model.ClassInfo;
@@ -51,6 +49,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -72,7 +71,7 @@ import javax.lang.model.type.TypeMirror;
 
 @AutoService(Processor.class)
 @SupportedAnnotationTypes(value = {"com.vimeo.stag.UseStag"})
-@SupportedOptions(value = {StagProcessor.OPTION_PACKAGE_NAME, StagProcessor.OPTION_DEBUG, StagProcessor.OPTION_HUNGARIAN_NOTATION, StagProcessor.OPTION_SERIALIZE_NULLS})
+@SupportedOptions(value = {StagProcessor.OPTION_PACKAGE_NAME, StagProcessor.OPTION_DEBUG, StagProcessor.OPTION_HUNGARIAN_NOTATION, StagProcessor.OPTION_SERIALIZE_NULLS, StagProcessor.OPTION_SPECULATIVE_FIELD_ORDER, StagProcessor.OPTION_DIRECT_ADAPTERS, StagProcessor.OPTION_SHARED_ADAPTERS, StagProcessor.OPTION_COMPACT_DYNAMIC_TYPES})
 @SupportedSourceVersion(SourceVersion.RELEASE_7)
 public final class StagProcessor extends AbstractProcessor {
 
@@ -80,6 +79,10 @@ public final class StagProcessor extends AbstractProcessor {
     static final String OPTION_PACKAGE_NAME = "stagGeneratedPackageName";
     static final String OPTION_HUNGARIAN_NOTATION = "stagAssumeHungarianNotation";
     static final String OPTION_SERIALIZE_NULLS = "stag.serializeNulls";
+    static final String OPTION_SPECULATIVE_FIELD_ORDER = "stag.speculativeFieldOrder";
+    static final String OPTION_DIRECT_ADAPTERS = "stag.directAdapters";
+    static final String OPTION_SHARED_ADAPTERS = "stag.sharedAdapters";
+    static final String OPTION_COMPACT_DYNAMIC_TYPES = "stag.compactDynamicTypes";
     private static final String DEFAULT_GENERATED_PACKAGE_NAME = "com.vimeo.stag.generated";
     private boolean mHasBeenProcessed;
 
@@ -107,6 +110,38 @@ public final class StagProcessor extends AbstractProcessor {
         return false;
     }
 
+    private static boolean isSpeculativeFieldOrderEnabled(@NotNull ProcessingEnvironment processingEnvironment) {
+        String speculativeString = processingEnvironment.getOptions().get(OPTION_SPECULATIVE_FIELD_ORDER);
+        if (speculativeString != null) {
+            return Boolean.valueOf(speculativeString);
+        }
+        return false;
+    }
+
+    private static boolean isDirectAdaptersEnabled(@NotNull ProcessingEnvironment processingEnvironment) {
+        String directAdaptersString = processingEnvironment.getOptions().get(OPTION_DIRECT_ADAPTERS);
+        if (directAdaptersString != null) {
+            return Boolean.valueOf(directAdaptersString);
+        }
+        return false;
+    }
+
+    private static boolean isSharedAdaptersEnabled(@NotNull ProcessingEnvironment processingEnvironment) {
+        String sharedAdaptersString = processingEnvironment.getOptions().get(OPTION_SHARED_ADAPTERS);
+        if (sharedAdaptersString != null) {
+            return Boolean.valueOf(sharedAdaptersString);
+        }
+        return false;
+    }
+
+    private static boolean isCompactDynamicTypesEnabled(@NotNull ProcessingEnvironment processingEnvironment) {
+        String compactDynamicTypesString = processingEnvironment.getOptions().get(OPTION_COMPACT_DYNAMIC_TYPES);
+        if (compactDynamicTypesString != null) {
+            return Boolean.valueOf(compactDynamicTypesString);
+        }
+        return false;
+    }
+
     @NotNull
     private static String getOptionalPackageName(@NotNull ProcessingEnvironment processingEnvironment) {
         String packageName = processingEnvironment.getOptions().get(OPTION_PACKAGE_NAME);
@@ -169,6 +204,10 @@ public final class StagProcessor extends AbstractProcessor {
 
         boolean assumeHungarianNotation = getAssumeHungarianNotation(processingEnv);
         boolean enableSerializeNulls = isSerializeNullsEnabled(processingEnv);
+        boolean enableSpeculativeFieldOrder = isSpeculativeFieldOrderEnabled(processingEnv);
+        boolean enableDirectAdapters = isDirectAdaptersEnabled(processingEnv);
+        boolean enableSharedAdapters = isSharedAdaptersEnabled(processingEnv);
+        boolean enableCompactDynamicTypes = isCompactDynamicTypesEnabled(processingEnv);
 
         TypeUtils.initialize(processingEnv.getTypeUtils());
         ElementUtils.initialize(processingEnv.getElementUtils());
@@ -195,34 +234,57 @@ public final class StagProcessor extends AbstractProcessor {
 
             StagGenerator stagFactoryGenerator = new StagGenerator(supportedTypes);
 
-            Map<String, List<ClassInfo>> adapterFactoryMap = new LinkedHashMap<>();
+            List<TypeElement> adapterElements = new ArrayList<>();
+            Set<String> sharedTypes = new HashSet<>();
 
             for (AnnotatedClass annotatedClass : supportedTypesModel.getSupportedTypes()) {
                 TypeElement element = annotatedClass.getElement();
                 if ((TypeUtils.isConcreteType(element) || TypeUtils.isParameterizedType(element)) && !TypeUtils.isAbstract(element)) {
-                    generateTypeAdapter(supportedTypesModel, element, stagFactoryGenerator, enableSerializeNulls);
+                    adapterElements.add(element);
+                    if (enableSharedAdapters && TypeUtils.isConcreteType(element)) {
+                        sharedTypes.add(element.asType().toString());
+                    }
+                }
+            }
 
-                    ClassInfo classInfo = new ClassInfo(element.asType());
-                    ArrayList<ClassInfo> result = new ArrayList<>();
-                    result.add(classInfo);
+            // Create the adapters assuming that every non generic adapter can be shared, then
+            // drop the adapters that need Gson, or that use an adapter that was dropped, and
+            // create the adapters that relied on them again.
+            Map<TypeElement, AdapterGenerator> adapterGenerators = new LinkedHashMap<>();
+            Map<TypeElement, TypeSpec> adapterSpecs = new LinkedHashMap<>();
+            for (TypeElement element : adapterElements) {
+                AdapterGenerator adapterGenerator = createAdapterGenerator(supportedTypesModel, element, enableSerializeNulls,
+                        enableSpeculativeFieldOrder, enableDirectAdapters, enableCompactDynamicTypes, sharedTypes);
+                adapterSpecs.put(element, adapterGenerator.createTypeAdapterSpec(stagFactoryGenerator));
+                adapterGenerators.put(element, adapterGenerator);
+            }
 
-                    List<ClassInfo> classInfos = adapterFactoryMap.get(classInfo.getPackageName());
-                    if (classInfos != null && !classInfos.isEmpty()) {
-                        result.addAll(classInfos);
+            if (enableSharedAdapters) {
+                sharedTypes = resolveSharedTypes(adapterGenerators);
+                for (TypeElement element : adapterElements) {
+                    AdapterGenerator adapterGenerator = adapterGenerators.get(element);
+                    boolean isShared = sharedTypes.contains(element.asType().toString());
+                    if (adapterGenerator.hasSharedInstance() != isShared ||
+                            !sharedTypes.containsAll(adapterGenerator.getSharedDependencies())) {
+                        adapterGenerator = createAdapterGenerator(supportedTypesModel, element, enableSerializeNulls,
+                                enableSpeculativeFieldOrder, enableDirectAdapters, enableCompactDynamicTypes, sharedTypes);
+                        adapterSpecs.put(element, adapterGenerator.createTypeAdapterSpec(stagFactoryGenerator));
                     }
-                    adapterFactoryMap.put(classInfo.getPackageName(), result);
                 }
             }
 
-            List<StagGenerator.SubFactoriesInfo> generatedStagFactoryWrappers = new ArrayList<>();
-            for (Map.Entry<String, List<ClassInfo>> stringListEntry : adapterFactoryMap.entrySet()) {
-                List<ClassInfo> classInfos = stringListEntry.getValue();
-                generateAdapterFactory(classInfos, stringListEntry.getKey());
-                generatedStagFactoryWrappers.add(new StagGenerator.SubFactoriesInfo(classInfos.get(0), stringListEntry.getKey() + "." + StagFactoryGenerator.NAME));
+            List<ClassInfo> allClassInfos = new ArrayList<>(adapterElements.size());
+            for (TypeElement element : adapterElements) {
+                ClassInfo classInfo = new ClassInfo(element.asType());
+
+                // Write the type spec to a file
+                writeTypeSpecToFile(adapterSpecs.get(element), classInfo.getPackageName());
+                allClassInfos.add(classInfo);
             }
 
-            generateStagFactory(packageName, generatedStagFactoryWrappers);
+            generateStagFactory(packageName, allClassInfos, sharedTypes);
             KnownTypeAdapterFactoriesUtils.writeKnownTypes(processingEnv, packageName, supportedTypes);
+            KnownTypeAdapterFactoriesUtils.writeModuleFactoryService(processingEnv, packageName);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -232,39 +294,53 @@ public final class StagProcessor extends AbstractProcessor {
         return true;
     }
 
-    private void generateAdapterFactory(@NotNull List<ClassInfo> classInfos, @NotNull String packageName) throws IOException {
-        StagFactoryGenerator stagFactoryGenerator = new StagFactoryGenerator(classInfos, StagFactoryGenerator.NAME);
-
-        // Create the type spec
-        TypeSpec typeAdapterSpec = stagFactoryGenerator.getTypeAdapterFactorySpec();
-
-        // Write the type spec to a file
-        writeTypeSpecToFile(typeAdapterSpec, packageName);
-    }
-
-    private void generateStagFactory(@NotNull String packageName, List<SubFactoriesInfo> generatedStagFactoryWrappers) throws IOException {
+    private void generateStagFactory(@NotNull String packageName, @NotNull List<ClassInfo> classInfos,
+                                     @NotNull Set<String> sharedTypes) throws IOException {
         // Create the type spec
-        TypeSpec typeSpec = StagGenerator.createStagSpec(generatedStagFactoryWrappers);
+        TypeSpec typeSpec = StagGenerator.createStagSpec(classInfos, sharedTypes);
 
         // Write the type spec to a file
         writeTypeSpecToFile(typeSpec, packageName);
     }
 
-    private void generateTypeAdapter(@NotNull SupportedTypesModel supportedTypesModel,
-                                     @NotNull TypeElement element,
-                                     @NotNull StagGenerator stagGenerator, boolean enableSerializeNulls) throws IOException {
-
+    @NotNull
+    private static AdapterGenerator createAdapterGenerator(@NotNull SupportedTypesModel supportedTypesModel,
+                                                           @NotNull TypeElement element, boolean enableSerializeNulls,
+                                                           boolean enableSpeculativeFieldOrder, boolean enableDirectAdapters,
+                                                           boolean enableCompactDynamicTypes, @NotNull Set<String> sharedTypes) {
         ClassInfo classInfo = new ClassInfo(element.asType());
 
-        AdapterGenerator independentAdapter = element.getKind() == ElementKind.ENUM ?
-                new EnumTypeAdapterGenerator(classInfo, element) :
-                new TypeAdapterGenerator(supportedTypesModel, classInfo, enableSerializeNulls);
+        return element.getKind() == ElementKind.ENUM ?
+                new EnumTypeAdapterGenerator(classInfo, element, sharedTypes.contains(element.asType().toString())) :
+                new TypeAdapterGenerator(supportedTypesModel, classInfo, enableSerializeNulls, enableSpeculativeFieldOrder,
+                        enableDirectAdapters, enableCompactDynamicTypes, sharedTypes);
+    }
 
-        // Create the type spec
-        TypeSpec typeAdapterSpec = independentAdapter.createTypeAdapterSpec(stagGenerator);
+    /**
+     * Returns the types whose adapters have a shared instance and only use
+     * the shared instances of other adapters, in addition to known adapters.
+     */
+    @NotNull
+    private static Set<String> resolveSharedTypes(@NotNull Map<TypeElement, AdapterGenerator> adapterGenerators) {
+        Map<String, Set<String>> sharedDependencies = new LinkedHashMap<>();
+        for (Map.Entry<TypeElement, AdapterGenerator> entry : adapterGenerators.entrySet()) {
+            if (entry.getValue().hasSharedInstance()) {
+                sharedDependencies.put(entry.getKey().asType().toString(), entry.getValue().getSharedDependencies());
+            }
+        }
 
-        // Write the type spec to a file
-        writeTypeSpecToFile(typeAdapterSpec, classInfo.getPackageName());
+        Set<String> sharedTypes = new HashSet<>(sharedDependencies.keySet());
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Map.Entry<String, Set<String>> entry : sharedDependencies.entrySet()) {
+                if (sharedTypes.contains(entry.getKey()) && !sharedTypes.containsAll(entry.getValue())) {
+                    sharedTypes.remove(entry.getKey());
+                    changed = true;
+                }
+            }
+        }
+        return sharedTypes;
     }
 
     private void writeTypeSpecToFile(@NotNull TypeSpec typeSpec, @NotNull String packageName) throws IOException {
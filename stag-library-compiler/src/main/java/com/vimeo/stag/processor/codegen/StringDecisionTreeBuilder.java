@@ -0,0 +1,146 @@
+package com.vimeo.stag.processor.codegen;
+
+import com.squareup.javapoet.CodeBlock;
+import com.vimeo.stag.processor.utils.StringUtils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Creates code that maps a {@link String} variable to one of a fixed set of results
+ * without hashing it. Candidates are grouped by length, each group is split on the
+ * character position that best separates it, and the single candidate left at the
+ * end of a branch is confirmed with one {@link String#equals(Object)} call.
+ * <p>
+ * Every branch of the generated code returns, so the code block is meant to be used
+ * as the body of a method.
+ */
+public class StringDecisionTreeBuilder {
+
+    @NotNull
+    private final String mVariable;
+    @NotNull
+    private final Map<String, String> mCases = new LinkedHashMap<>();
+
+    /**
+     * @param variable the name of the {@link String} variable to match.
+     */
+    public StringDecisionTreeBuilder(@NotNull String variable) {
+        mVariable = variable;
+    }
+
+    /**
+     * Adds a value that should be matched. If the same
+     * value is added twice, the first result wins.
+     *
+     * @param value  the string to match.
+     * @param result the code returned when the variable equals the value.
+     * @return the builder.
+     */
+    public StringDecisionTreeBuilder addCase(@NotNull String value, @NotNull String result) {
+        if (!mCases.containsKey(value)) {
+            mCases.put(value, result);
+        }
+        return this;
+    }
+
+    /**
+     * Builds the code block.
+     *
+     * @param defaultResult the code returned when no value matches.
+     * @return the {@link CodeBlock}.
+     */
+    @NotNull
+    public CodeBlock build(@NotNull String defaultResult) {
+        CodeBlock.Builder builder = CodeBlock.builder();
+
+        Map<Integer, List<String>> valuesByLength = new TreeMap<>();
+        for (String value : mCases.keySet()) {
+            List<String> values = valuesByLength.get(value.length());
+            if (values == null) {
+                values = new ArrayList<>();
+                valuesByLength.put(value.length(), values);
+            }
+            values.add(value);
+        }
+
+        if (!valuesByLength.isEmpty()) {
+            builder.beginControlFlow("switch ($L.length())", mVariable);
+            for (Map.Entry<Integer, List<String>> entry : valuesByLength.entrySet()) {
+                builder.add("case $L:\n", entry.getKey()).indent();
+                addNode(builder, entry.getValue(), defaultResult);
+                builder.unindent();
+            }
+            builder.endControlFlow();
+        }
+        builder.addStatement("return $L", defaultResult);
+
+        return builder.build();
+    }
+
+    private void addNode(@NotNull CodeBlock.Builder builder, @NotNull List<String> values, @NotNull String defaultResult) {
+        if (values.size() == 1) {
+            String value = values.get(0);
+            builder.addStatement("return $L.equals($L) ? $L : $L", StringUtils.toJavaStringLiteral(value), mVariable, mCases.get(value), defaultResult);
+            return;
+        }
+
+        int position = getMostSelectivePosition(values);
+        Map<Character, List<String>> valuesByChar = new TreeMap<>();
+        for (String value : values) {
+            List<String> branch = valuesByChar.get(value.charAt(position));
+            if (branch == null) {
+                branch = new ArrayList<>();
+                valuesByChar.put(value.charAt(position), branch);
+            }
+            branch.add(value);
+        }
+
+        builder.beginControlFlow("switch ($L.charAt($L))", mVariable, position);
+        for (Map.Entry<Character, List<String>> entry : valuesByChar.entrySet()) {
+            builder.add("case $L:\n", getCharLiteral(entry.getKey())).indent();
+            addNode(builder, entry.getValue(), defaultResult);
+            builder.unindent();
+        }
+        builder.endControlFlow();
+        builder.addStatement("return $L", defaultResult);
+    }
+
+    /**
+     * Finds the character position that splits the values into
+     * the most branches. The values all have the same length and
+     * are distinct, so at least one position tells them apart.
+     */
+    private static int getMostSelectivePosition(@NotNull List<String> values) {
+        int length = values.get(0).length();
+        int bestPosition = 0;
+        int bestCount = 0;
+        Set<Character> chars = new HashSet<>();
+        for (int position = 0; position < length; position++) {
+            chars.clear();
+            for (String value : values) {
+                chars.add(value.charAt(position));
+            }
+            if (chars.size() > bestCount) {
+                bestCount = chars.size();
+                bestPosition = position;
+            }
+        }
+        return bestPosition;
+    }
+
+    @NotNull
+    private static String getCharLiteral(char c) {
+        if (c >= ' ' && c <= '~' && c != '\'' && c != '\\') {
+            return "'" + c + "'";
+        }
+        return String.valueOf((int) c);
+    }
+}
@@ -69,6 +69,14 @@ public class SwitchCodeBlockBuilder {
         return this;
     }
 
+    /**
+     * @see CodeBlock.Builder#nextControlFlow(String, Object...)
+     */
+    public SwitchCodeBlockBuilder nextControlFlow(@NotNull String caseCode, @NotNull Object... args) {
+        mCodeBlockBuilder.nextControlFlow(caseCode, args);
+        return this;
+    }
+
     /**
      * @see Builder#endControlFlow()
      */
@@ -34,12 +34,18 @@ import com.squareup.javapoet.TypeVariableName;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collections;
+import java.util.Set;
+
 import javax.lang.model.element.Element;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.type.TypeMirror;
 
 public abstract class AdapterGenerator {
 
+    @NotNull
+    public static final String FIELD_SHARED_INSTANCE = "SHARED_INSTANCE";
+
     /**
      * Gets the JSON name for the element the name passed to
      * {@link SerializedName} will be used. If the element is
@@ -84,6 +90,25 @@ public abstract class AdapterGenerator {
     @NotNull
     public abstract TypeSpec createTypeAdapterSpec(@NotNull StagGenerator stagGenerator);
 
+    /**
+     * Returns true if the last adapter created by {@link #createTypeAdapterSpec(StagGenerator)}
+     * has an instance that is shared by every Gson instance.
+     *
+     * @return true if the adapter has a shared instance.
+     */
+    public abstract boolean hasSharedInstance();
+
+    /**
+     * Returns the types whose shared adapter instances are used by the last
+     * adapter created by {@link #createTypeAdapterSpec(StagGenerator)}.
+     *
+     * @return the names of the types.
+     */
+    @NotNull
+    public Set<String> getSharedDependencies() {
+        return Collections.emptySet();
+    }
+
     /**
      * Creates a TypeToken field in the generated adapter factory
      *
@@ -97,4 +122,19 @@ public abstract class AdapterGenerator {
         typeTokenBuilder.initializer("TypeToken.get(" + typeMirror.toString() + ".class)");
         return typeTokenBuilder.build();
     }
+
+    /**
+     * Creates the field holding the instance of the adapter that is shared by every Gson
+     * instance, which is only possible if the adapter never uses the Gson instance.
+     *
+     * @param adapterClassName the simple name of the adapter class.
+     * @return {@link FieldSpec}
+     */
+    @NotNull
+    static FieldSpec createSharedInstanceSpec(@NotNull String adapterClassName) {
+        return FieldSpec.builder(TypeVariableName.get(adapterClassName), FIELD_SHARED_INSTANCE,
+                                 Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                .initializer("new $L(null)", adapterClassName)
+                .build();
+    }
 }
@@ -28,20 +28,24 @@ import com.google.gson.TypeAdapter;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
 import com.squareup.javapoet.ClassName;
-import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 import com.squareup.javapoet.TypeVariableName;
+import com.vimeo.stag.StagJsonWriter;
+import com.vimeo.stag.processor.codegen.StringDecisionTreeBuilder;
 import com.vimeo.stag.processor.generators.model.ClassInfo;
 import com.vimeo.stag.processor.utils.FileGenUtils;
+import com.vimeo.stag.processor.utils.StringUtils;
 
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.lang.model.element.Element;
@@ -52,28 +56,60 @@ import javax.lang.model.type.TypeMirror;
 
 public class EnumTypeAdapterGenerator extends AdapterGenerator {
 
+    /**
+     * The JSON names of the constants, indexed by their ordinals.
+     */
+    private static final String FIELD_NAMES = "NAMES";
+
+    /**
+     * The JSON names quoted ahead of time, indexed by the ordinals of the constants.
+     * Only generated if none of the names has to be escaped.
+     */
+    private static final String FIELD_TOKENS = "TOKENS";
+
+    private static final String METHOD_FROM_NAME = "fromName";
+
+    /**
+     * The printable ASCII characters that are escaped by JsonWriter, in HTML safe mode or otherwise.
+     */
+    private static final String UNSAFE_CHARACTERS = "\"\\<>&='";
+
     @NotNull
     private final ClassInfo mInfo;
 
     @NotNull
     private final TypeElement mElement;
 
-    public EnumTypeAdapterGenerator(@NotNull ClassInfo info, @NotNull TypeElement element) {
+    private final boolean mEnableSharedInstance;
+
+    public EnumTypeAdapterGenerator(@NotNull ClassInfo info, @NotNull TypeElement element,
+                                    boolean enableSharedInstance) {
         mInfo = info;
         mElement = element;
+        mEnableSharedInstance = enableSharedInstance;
     }
 
     @NotNull
-    private static MethodSpec getWriteMethodSpec(@NotNull TypeName typeName) {
-        return MethodSpec.methodBuilder("write")
+    private static MethodSpec getWriteMethodSpec(@NotNull TypeName typeName, boolean hasTokens) {
+        MethodSpec.Builder builder = MethodSpec.methodBuilder("write")
                 .addParameter(JsonWriter.class, "writer")
                 .addParameter(typeName, "object")
                 .returns(void.class)
                 .addModifiers(Modifier.PUBLIC)
                 .addAnnotation(Override.class)
-                .addException(IOException.class)
-                .addStatement("writer.value(object == null ? null : CONSTANT_TO_NAME.get(object))")
-                .build();
+                .addException(IOException.class);
+        if (hasTokens) {
+            builder.beginControlFlow("if (object == null)")
+                    .addStatement("writer.nullValue()")
+                    .nextControlFlow("else if (writer instanceof $T)", StagJsonWriter.class)
+                    .addStatement("writer.jsonValue($L[object.ordinal()])", FIELD_TOKENS)
+                    .nextControlFlow("else")
+                    .addStatement("writer.value($L[object.ordinal()])", FIELD_NAMES)
+                    .endControlFlow();
+        } else {
+            builder.addStatement("writer.value(object == null ? null : $L[object.ordinal()])", FIELD_NAMES);
+        }
+        return builder.build();
     }
 
     @NotNull
@@ -88,10 +124,57 @@ public class EnumTypeAdapterGenerator extends AdapterGenerator {
                 .addStatement("reader.nextNull()")
                 .addStatement("return null")
                 .endControlFlow()
-                .addStatement("return NAME_TO_CONSTANT.get(reader.nextString())")
+                .addStatement("return $L(reader.nextString())", METHOD_FROM_NAME)
                 .build();
     }
 
+    /**
+     * Returns the method that maps a JSON name to its constant, or to null if no constant
+     * has that name, by switching on the length and characters of the name.
+     */
+    @NotNull
+    private static MethodSpec getFromNameMethodSpec(@NotNull TypeName typeName,
+                                                    @NotNull Map<String, Element> nameToConstant) {
+        StringDecisionTreeBuilder decisionTreeBuilder = new StringDecisionTreeBuilder("name");
+        for (Map.Entry<String, Element> entry : nameToConstant.entrySet()) {
+            decisionTreeBuilder.addCase(entry.getKey(), typeName + "." + entry.getValue().getSimpleName());
+        }
+        return MethodSpec.methodBuilder(METHOD_FROM_NAME)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(String.class, "name")
+                .returns(typeName)
+                .addCode(decisionTreeBuilder.build("null"))
+                .build();
+    }
+
+    @NotNull
+    private static FieldSpec getStringArrayFieldSpec(@NotNull String name, @NotNull List<String> literals) {
+        StringBuilder initializer = new StringBuilder();
+        for (String literal : literals) {
+            if (initializer.length() > 0) {
+                initializer.append(", ");
+            }
+            initializer.append(literal);
+        }
+        return FieldSpec.builder(String[].class, name, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .initializer("{$L}", initializer)
+                .build();
+    }
+
+    /**
+     * Returns true if the name is written the same way whether or not the writer is HTML safe,
+     * and without any escaping, so that it can be written as a token quoted ahead of time.
+     */
+    private static boolean isWrittenUnescaped(@NotNull String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c < 0x20 || c > 0x7e || UNSAFE_CHARACTERS.indexOf(c) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Generates the TypeSpec for the TypeAdapter
      * that this enum generates.
@@ -116,13 +199,18 @@ public class EnumTypeAdapterGenerator extends AdapterGenerator {
 
 
         Map<String, Element> nameToConstant = new LinkedHashMap<>();
-        Map<Element, String> constantToName = new LinkedHashMap<>();
+        List<String> names = new ArrayList<>();
+        List<String> tokens = new ArrayList<>();
+        boolean hasTokens = true;
 
+        // The constants are enclosed in the order of their ordinals
         for (Element enclosingElement : mElement.getEnclosedElements()) {
             if (enclosingElement.getKind() == ElementKind.ENUM_CONSTANT) {
                 String name = getJsonName(enclosingElement);
                 nameToConstant.put(name, enclosingElement);
-                constantToName.put(enclosingElement, name);
+                names.add(StringUtils.toJavaStringLiteral(name));
+                tokens.add(StringUtils.toJavaStringLiteral('"' + name + '"'));
+                hasTokens &= isWrittenUnescaped(name);
 
                 String[] alternateJsonNames = getAlternateJsonNames(enclosingElement);
                 if (alternateJsonNames != null && alternateJsonNames.length > 0) {
@@ -134,44 +222,29 @@ public class EnumTypeAdapterGenerator extends AdapterGenerator {
         }
 
 
-        MethodSpec writeMethod = getWriteMethodSpec(typeVariableName);
+        MethodSpec writeMethod = getWriteMethodSpec(typeVariableName, hasTokens);
         MethodSpec readMethod = getReadMethodSpec(typeVariableName);
 
         adapterBuilder.addField(createTypeTokenSpec(typeMirror));
-
-        TypeName typeName =
-                ParameterizedTypeName.get(ClassName.get(HashMap.class), TypeVariableName.get(String.class),
-                                          TypeVariableName.get(typeMirror));
-        adapterBuilder.addField(typeName, "NAME_TO_CONSTANT", Modifier.PRIVATE, Modifier.STATIC,
-                                Modifier.FINAL);
-
-        typeName = ParameterizedTypeName.get(ClassName.get(HashMap.class), TypeVariableName.get(typeMirror),
-                                             TypeVariableName.get(String.class));
-        adapterBuilder.addField(typeName, "CONSTANT_TO_NAME", Modifier.PRIVATE, Modifier.STATIC,
-                                Modifier.FINAL);
-
-        CodeBlock.Builder staticBlockBuilder = CodeBlock.builder();
-        staticBlockBuilder.addStatement("NAME_TO_CONSTANT = new HashMap<>(" + nameToConstant.size() + ")");
-        for (Map.Entry<String, Element> entry : nameToConstant.entrySet()) {
-            staticBlockBuilder.addStatement(
-                    "NAME_TO_CONSTANT.put(\"" + entry.getKey() + "\", " + typeVariableName + "." +
-                    entry.getValue().getSimpleName().toString() + ")");
+        if (mEnableSharedInstance) {
+            adapterBuilder.addField(createSharedInstanceSpec(className));
         }
 
-        staticBlockBuilder.add("\n");
-        staticBlockBuilder.addStatement("CONSTANT_TO_NAME = new HashMap<>(" + constantToName.size() + ")");
-        for (Map.Entry<Element, String> entry : constantToName.entrySet()) {
-            staticBlockBuilder.addStatement("CONSTANT_TO_NAME.put(" + typeVariableName + "." +
-                                            entry.getKey().getSimpleName().toString() + ", \"" +
-                                            entry.getValue() + "\")");
+        adapterBuilder.addField(getStringArrayFieldSpec(FIELD_NAMES, names));
+        if (hasTokens) {
+            adapterBuilder.addField(getStringArrayFieldSpec(FIELD_TOKENS, tokens));
         }
 
-        adapterBuilder.addStaticBlock(staticBlockBuilder.build());
-
         adapterBuilder.addMethod(constructorBuilder.build());
         adapterBuilder.addMethod(writeMethod);
         adapterBuilder.addMethod(readMethod);
+        adapterBuilder.addMethod(getFromNameMethodSpec(typeVariableName, nameToConstant));
 
         return adapterBuilder.build();
     }
+
+    @Override
+    public boolean hasSharedInstance() {
+        return mEnableSharedInstance;
+    }
 }
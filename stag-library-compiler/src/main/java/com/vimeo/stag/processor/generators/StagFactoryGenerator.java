@@ -6,43 +6,69 @@ import com.google.gson.TypeAdapterFactory;
 import com.google.gson.reflect.TypeToken;
 import com.squareup.javapoet.AnnotationSpec;
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterizedTypeName;
-import com.squareup.javapoet.TypeSpec;
 import com.squareup.javapoet.TypeVariableName;
+import com.vimeo.stag.ClassIndex;
+import com.vimeo.stag.Types;
+import com.vimeo.stag.processor.codegen.SwitchCodeBlockBuilder;
 import com.vimeo.stag.processor.generators.model.ClassInfo;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import javax.lang.model.element.Modifier;
 import javax.lang.model.type.TypeMirror;
 
-public class StagFactoryGenerator {
+/**
+ * Creates the members of {@code Stag.Factory} that look up the adapter
+ * of a class, which is the only factory generated for a module.
+ */
+public final class StagFactoryGenerator {
 
-    @NotNull public static final String NAME = "StagFactory";
-    @NotNull private final List<ClassInfo> mClassInfoList;
-    @NotNull private final String mFileName;
+    @NotNull static final String FIELD_CLASS_INDEX = "CLASS_INDEX";
 
-    public StagFactoryGenerator(@NotNull List<ClassInfo> classInfoList, @NotNull String fileName) {
-        mClassInfoList = new ArrayList<>(classInfoList);
-        mFileName = fileName;
+    private StagFactoryGenerator() {
+        throw new UnsupportedOperationException("This class is not instantiable");
     }
 
+    /**
+     * Creates the {@link ClassIndex} field that maps each of the classes
+     * to its position in the list, used by {@link #getCreateMethodSpec(List, Set)}.
+     *
+     * @param classInfoList the classes that the factory creates type adapters for.
+     * @return the field spec.
+     */
     @NotNull
-    public TypeSpec getTypeAdapterFactorySpec() {
-        TypeSpec.Builder adapterBuilder = TypeSpec.classBuilder(mFileName)
-                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
-                .addSuperinterface(TypeAdapterFactory.class)
-                .addMethod(getCreateMethodSpec());
+    static FieldSpec getClassIndexFieldSpec(@NotNull List<ClassInfo> classInfoList) {
+        StringBuilder initializer = new StringBuilder("new $T(");
+        for (int index = 0; index < classInfoList.size(); index++) {
+            if (index > 0) {
+                initializer.append(", ");
+            }
+            initializer.append(classInfoList.get(index).getClassAndPackage()).append(".class");
+        }
+        initializer.append(')');
 
-        return adapterBuilder.build();
+        return FieldSpec.builder(ClassIndex.class, FIELD_CLASS_INDEX, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .initializer(initializer.toString(), ClassIndex.class)
+                .build();
     }
 
+    /**
+     * Creates the {@code create} method of a {@link TypeAdapterFactory}, which
+     * looks up the raw type in the class index and switches on its position.
+     *
+     * @param classInfoList the classes that the factory creates type adapters for.
+     * @param sharedTypes   the classes whose adapters have a shared instance,
+     *                      which is returned instead of a new adapter.
+     * @return the method spec.
+     */
     @NotNull
-    private MethodSpec getCreateMethodSpec() {
+    static MethodSpec getCreateMethodSpec(@NotNull List<ClassInfo> classInfoList, @NotNull Set<String> sharedTypes) {
         TypeVariableName genericType = TypeVariableName.get("T");
         AnnotationSpec suppressedWarnings = AnnotationSpec.builder(SuppressWarnings.class)
                 .addMember("value", "\"unchecked\"")
@@ -55,43 +81,30 @@ public class StagFactoryGenerator {
                 .returns(ParameterizedTypeName.get(ClassName.get(TypeAdapter.class), genericType))
                 .addAnnotation(suppressedWarnings)
                 .addAnnotation(Override.class)
-                .addModifiers(Modifier.PUBLIC)
-                .addCode("Class<? super T> clazz = type.getRawType();\n");
+                .addModifiers(Modifier.PUBLIC);
+
+        SwitchCodeBlockBuilder switchBuilder = new SwitchCodeBlockBuilder()
+                .beginSwitch("switch (" + FIELD_CLASS_INDEX + ".indexOf(type.getRawType()))");
 
-        for (ClassInfo classInfo : mClassInfoList) {
-            builder.beginControlFlow("if (clazz == " + classInfo.getClassAndPackage() + ".class)");
+        for (int index = 0; index < classInfoList.size(); index++) {
+            ClassInfo classInfo = classInfoList.get(index);
+            switchBuilder.beginCase("case $L", index);
             List<? extends TypeMirror> typeArguments = classInfo.getTypeArguments();
-            if (typeArguments == null || typeArguments.isEmpty()) {
-                builder.addStatement("return (TypeAdapter<T>) new " + classInfo.getTypeAdapterQualifiedClassName() + "(gson)");
+            if (sharedTypes.contains(classInfo.getType().toString())) {
+                switchBuilder.addStatement("return (TypeAdapter<T>) " + classInfo.getTypeAdapterQualifiedClassName() +
+                                           "." + AdapterGenerator.FIELD_SHARED_INSTANCE);
+            } else if (typeArguments == null || typeArguments.isEmpty()) {
+                switchBuilder.addStatement("return (TypeAdapter<T>) new " + classInfo.getTypeAdapterQualifiedClassName() + "(gson)");
             } else {
-                builder.addStatement("java.lang.reflect.Type parameters = type.getType()");
-                builder.beginControlFlow("if (parameters instanceof java.lang.reflect.ParameterizedType)");
-                builder.addStatement(
-                        "java.lang.reflect.ParameterizedType parameterizedType = (java.lang.reflect.ParameterizedType) parameters");
-                builder.addStatement(
-                        "java.lang.reflect.Type[] parametersType = parameterizedType.getActualTypeArguments()");
-                String statement = "return (TypeAdapter<T>) new " + classInfo.getTypeAdapterQualifiedClassName() + "(gson";
-                for (int idx = 0; idx < typeArguments.size(); idx++) {
-                    statement += ", parametersType[" + idx + "]";
-                }
-                statement += ")";
-                builder.addStatement(statement);
-                builder.endControlFlow();
-                builder.beginControlFlow("else");
-                builder.addStatement("TypeToken objectToken = TypeToken.get(Object.class)");
-                statement = "return (TypeAdapter<T>) new " + classInfo.getTypeAdapterQualifiedClassName() + "(gson";
-                for (int idx = 0; idx < typeArguments.size(); idx++) {
-                    statement += ", objectToken.getType()";
-                }
-                statement += ")";
-                builder.addStatement(statement);
-                builder.endControlFlow();
+                switchBuilder.addStatement("return (TypeAdapter<T>) new " + classInfo.getTypeAdapterQualifiedClassName() +
+                                           "(gson, $T.getTypeArguments(type.getType(), $L))", Types.class, typeArguments.size());
             }
-            builder.endControlFlow();
         }
 
-        builder.addCode("return null;\n");
+        switchBuilder.beginCase("default")
+                .addStatement("return null")
+                .endSwitch();
 
-        return builder.build();
+        return builder.addCode(switchBuilder.build()).build();
     }
 }
@@ -24,28 +24,26 @@
 package com.vimeo.stag.processor.generators;
 
 import com.google.gson.Gson;
-import com.google.gson.TypeAdapter;
-import com.google.gson.TypeAdapterFactory;
-import com.google.gson.reflect.TypeToken;
-import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.ClassName;
-import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeSpec;
-import com.squareup.javapoet.TypeVariableName;
-import com.vimeo.stag.processor.codegen.SwitchCodeBlockBuilder;
+import com.squareup.javapoet.WildcardTypeName;
+import com.vimeo.stag.StagModuleFactory;
+import com.vimeo.stag.StagPreloader;
 import com.vimeo.stag.processor.generators.model.ClassInfo;
 import com.vimeo.stag.processor.utils.TypeUtils;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 
 import javax.lang.model.element.Modifier;
 import javax.lang.model.type.TypeMirror;
@@ -56,6 +54,8 @@ public class StagGenerator {
     private static final String CLASS_STAG = "Stag";
     @NotNull
     private static final String CLASS_TYPE_ADAPTER_FACTORY = "Factory";
+    @NotNull
+    public static final String CLASS_STAG_FACTORY = CLASS_STAG + '$' + CLASS_TYPE_ADAPTER_FACTORY;
 
     @NotNull
     private final Map<String, ClassInfo> mKnownClasses;
@@ -80,166 +80,47 @@ public class StagGenerator {
      * Generates the public API in the form of the {@code Stag.Factory} type adapter factory
      * for the annotated classes. Creates the spec for the class.
      *
-     * @param generatedStagFactoryWrappers List of Sub Factories that have been created
+     * @param classInfoList the classes that type adapters have been generated for.
+     * @param sharedTypes   the classes whose adapters have a shared instance.
      * @return A non null TypeSpec for the factory class.
      */
     @NotNull
-    public static TypeSpec createStagSpec(List<SubFactoriesInfo> generatedStagFactoryWrappers) {
+    public static TypeSpec createStagSpec(@NotNull List<ClassInfo> classInfoList, @NotNull Set<String> sharedTypes) {
         TypeSpec.Builder stagBuilder =
                 TypeSpec.classBuilder(CLASS_STAG).addModifiers(Modifier.PUBLIC, Modifier.FINAL);
-        stagBuilder.addType(getAdapterFactorySpec(generatedStagFactoryWrappers));
+        stagBuilder.addType(getAdapterFactorySpec(classInfoList, sharedTypes));
 
         return stagBuilder.build();
     }
 
     @NotNull
-    private static TypeSpec getAdapterFactorySpec(@NotNull List<SubFactoriesInfo> generatedStagFactoryWrappers) {
-        TypeVariableName genericTypeName = TypeVariableName.get("T");
-
-        TypeSpec.Builder adapterFactoryBuilder = TypeSpec.classBuilder(CLASS_TYPE_ADAPTER_FACTORY)
-                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
-                .addSuperinterface(TypeAdapterFactory.class);
-
-        ParameterizedTypeName hashMapOfStringToInteger = ParameterizedTypeName.get(HashMap.class, String.class, Integer.class);
-        FieldSpec.Builder packageToIndexMapField = FieldSpec.builder(hashMapOfStringToInteger,
-                                                                     "packageToIndexMap", Modifier.FINAL, Modifier.PRIVATE).initializer("new " + hashMapOfStringToInteger.toString() + "( " + generatedStagFactoryWrappers.size() + ")");
-        adapterFactoryBuilder.addField(packageToIndexMapField.build());
-
-        TypeVariableName typeAdapterFactoryArray = TypeVariableName.get("TypeAdapterFactory[]");
-        FieldSpec.Builder typeAdapterFactoryArrayField = FieldSpec.builder(typeAdapterFactoryArray,
-                                                                           "typeAdapterFactoryArray", Modifier.FINAL, Modifier.PRIVATE).initializer("new TypeAdapterFactory[" + generatedStagFactoryWrappers.size() + "]");
-        adapterFactoryBuilder.addField(typeAdapterFactoryArrayField.build());
-
-        MethodSpec.Builder getPackageNameMethodBuilder = MethodSpec.methodBuilder("getPackageName")
-                .addTypeVariable(genericTypeName)
-                .returns(String.class)
-                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
-                .addParameter(ParameterizedTypeName.get(ClassName.get(Class.class), genericTypeName), "clazz")
-                .addStatement("String name = clazz.getName()")
-                .addStatement("int last = name.lastIndexOf('.')")
-                .addStatement("return last == -1 ? null : name.substring(0, last)");
-        adapterFactoryBuilder.addMethod(getPackageNameMethodBuilder.build());
-
-        MethodSpec.Builder createTypeAdapterFactoryMethodBuilder = MethodSpec.methodBuilder("createTypeAdapterFactory")
-                .returns(TypeAdapterFactory.class)
-                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
-                .addParameter(int.class, "index")
-                .addStatement("TypeAdapterFactory result = null");
-
-        SwitchCodeBlockBuilder factorySwitchBuilder = new SwitchCodeBlockBuilder()
-                .beginSwitch("switch(index)");
-
-        for (int index = 0; index < generatedStagFactoryWrappers.size(); index++) {
-            factorySwitchBuilder
-                    .beginCase("case $L", index)
-                    .addStatement("result = new $L()", generatedStagFactoryWrappers.get(index).classAndPackageName)
-                    .endCase();
-        }
-
-        factorySwitchBuilder.endSwitch();
-
-        createTypeAdapterFactoryMethodBuilder
-                .addCode(factorySwitchBuilder.build())
-                .addStatement("return result");
-        adapterFactoryBuilder.addMethod(createTypeAdapterFactoryMethodBuilder.build());
-
-        MethodSpec.Builder getTypeAdapterFactoryMethodBuilder = MethodSpec.methodBuilder("getTypeAdapterFactory")
-                .returns(TypeAdapterFactory.class)
-                .addModifiers(Modifier.PRIVATE)
-                .addParameter(int.class, "index")
-                .addStatement("TypeAdapterFactory typeAdapterFactory = typeAdapterFactoryArray[index]")
-                .beginControlFlow("if (typeAdapterFactory == null)")
-                .addStatement("typeAdapterFactory = createTypeAdapterFactory(index)")
-                .addStatement("typeAdapterFactoryArray[index] = typeAdapterFactory")
-                .endControlFlow()
-                .addStatement("return typeAdapterFactory");
-        adapterFactoryBuilder.addMethod(getTypeAdapterFactoryMethodBuilder.build());
-
-        MethodSpec.Builder getTypeAdapterMethodBuilder = MethodSpec.methodBuilder("getTypeAdapterFactory")
-                .returns(ClassName.get(TypeAdapterFactory.class))
-                .addModifiers(Modifier.PRIVATE)
-                .addParameter(ParameterizedTypeName.get(ClassName.get(Class.class), TypeVariableName.get("?")), "clazz")
-                .addParameter(String.class, "currentPackageName")
-                .addParameter(int.class, "index")
-                .addStatement("String packageName = getPackageName(clazz)")
-                .addStatement("packageToIndexMap.put(packageName, index)")
-                .beginControlFlow("if (currentPackageName.equals(packageName))")
-                .addStatement("return getTypeAdapterFactory(index)")
-                .endControlFlow()
-                .addStatement("return null");
-        adapterFactoryBuilder.addMethod(getTypeAdapterMethodBuilder.build());
-
-        MethodSpec.Builder getSubTypeAdapterMethodBuilder = MethodSpec.methodBuilder("getSubFactory")
-                .returns(ClassName.get(TypeAdapterFactory.class))
-                .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
-                                       .addMember("value", "\"fallthrough\"")
-                                       .build())
-                .addModifiers(Modifier.PRIVATE, Modifier.SYNCHRONIZED)
-                .addParameter(String.class, "currentPackageName")
-                .addStatement("Integer index = packageToIndexMap.get(currentPackageName);")
-                .beginControlFlow("if (index != null)")
-                .addStatement("TypeAdapterFactory typeAdapterFactory = getTypeAdapterFactory(index)")
-                .addStatement("return typeAdapterFactory")
-                .endControlFlow()
-                .addStatement("TypeAdapterFactory result = null");
-
-        SwitchCodeBlockBuilder subFactorySwitchBuilder = new SwitchCodeBlockBuilder()
-                .beginSwitch("switch(packageToIndexMap.size())");
-
-        for (int index = 0; index < generatedStagFactoryWrappers.size(); index++) {
-            subFactorySwitchBuilder
-                    .beginCase("case $L", index)
-                    .addStatement("result = getTypeAdapterFactory($L.class, currentPackageName, $L)", generatedStagFactoryWrappers.get(index).representativeClassInfo.getClassAndPackage(), index)
-                    .beginControlFlow("if (result != null)")
-                    .addStatement("return result")
-                    .endControlFlow();
-        }
-
-        subFactorySwitchBuilder
-                .beginCase("default")
-                .addStatement("return null")
-                .endSwitch();
-
-        getSubTypeAdapterMethodBuilder.addCode(subFactorySwitchBuilder.build());
-
-        adapterFactoryBuilder.addMethod(getSubTypeAdapterMethodBuilder.build());
-
-        String suppressWarningValue = "value";
-        MethodSpec.Builder createMethodBuilder = MethodSpec.methodBuilder("create")
+    private static TypeSpec getAdapterFactorySpec(@NotNull List<ClassInfo> classInfoList, @NotNull Set<String> sharedTypes) {
+        MethodSpec getSupportedClassesMethod = MethodSpec.methodBuilder("getSupportedClasses")
                 .addModifiers(Modifier.PUBLIC)
                 .addAnnotation(Override.class)
-                .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
-                                       .addMember(suppressWarningValue, "\"unchecked\"")
-                                       .addMember(suppressWarningValue, "\"rawtypes\"")
-                                       .build())
-                .addTypeVariable(genericTypeName)
-                .returns(ParameterizedTypeName.get(ClassName.get(TypeAdapter.class), genericTypeName))
-                .addParameter(Gson.class, "gson")
-                .addParameter(ParameterizedTypeName.get(ClassName.get(TypeToken.class), genericTypeName),
-                              "type")
-
-                .addStatement("Class<? super T> clazz = type.getRawType()")
-                .addStatement("String currentPackageName = getPackageName(clazz)")
-                .beginControlFlow("if (currentPackageName == null)")
-                .addStatement("return null")
-                .endControlFlow()
-                .addStatement("TypeAdapterFactory typeAdapterFactory = getSubFactory(currentPackageName)")
-                .addStatement("return typeAdapterFactory != null ? typeAdapterFactory.create(gson, type) : null");
+                .returns(ArrayTypeName.of(ParameterizedTypeName.get(ClassName.get(Class.class),
+                                                                     WildcardTypeName.subtypeOf(Object.class))))
+                .addStatement("return $L.getClasses()", StagFactoryGenerator.FIELD_CLASS_INDEX)
+                .build();
 
-        adapterFactoryBuilder.addMethod(createMethodBuilder.build());
-
-        return adapterFactoryBuilder.build();
-    }
-
-    public static class SubFactoriesInfo {
-
-        @NotNull final ClassInfo representativeClassInfo;
-
-        @NotNull final String classAndPackageName;
-
-        public SubFactoriesInfo(@NotNull ClassInfo classInfo, @NotNull String classAndPackageName) {
-            this.representativeClassInfo = classInfo;
-            this.classAndPackageName = classAndPackageName;
-        }
+        MethodSpec preloadMethod = MethodSpec.methodBuilder("preload")
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .returns(ParameterizedTypeName.get(Future.class, Void.class))
+                .addParameter(Gson.class, "gson")
+                .addParameter(Executor.class, "executor")
+                .addStatement("return $T.preload(gson, executor, $L.getClasses())", StagPreloader.class,
+                              StagFactoryGenerator.FIELD_CLASS_INDEX)
+                .build();
+
+        // A single table over every class of the module avoids resolving the
+        // package of the requested class and dispatching on it on each call
+        return TypeSpec.classBuilder(CLASS_TYPE_ADAPTER_FACTORY)
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addSuperinterface(StagModuleFactory.class)
+                .addField(StagFactoryGenerator.getClassIndexFieldSpec(classInfoList))
+                .addMethod(StagFactoryGenerator.getCreateMethodSpec(classInfoList, sharedTypes))
+                .addMethod(getSupportedClassesMethod)
+                .addMethod(preloadMethod)
+                .build();
     }
 }
@@ -29,6 +29,7 @@ import com.google.gson.internal.bind.TreeTypeAdapter;
 import com.google.gson.reflect.TypeToken;
 import com.squareup.javapoet.AnnotationSpec;
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
@@ -52,9 +53,15 @@ import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
@@ -73,11 +80,30 @@ public class TypeAdapterGenerator extends AdapterGenerator {
     @NotNull
     private final SupportedTypesModel mSupportedTypesModel;
     private boolean mEnableSerializeNulls;
+    private boolean mEnableSpeculativeFieldOrder;
+    private boolean mEnableDirectAdapters;
+    private boolean mEnableCompactDynamicTypes;
+    @NotNull
+    private final Set<String> mSharedTypes;
+    @NotNull
+    private final Set<String> mSharedDependencies = new LinkedHashSet<>();
+    private boolean mHasSharedInstance;
 
-    public TypeAdapterGenerator(@NotNull SupportedTypesModel supportedTypesModel, @NotNull ClassInfo info, boolean enableSerializeNulls) {
+    /**
+     * @param sharedTypes the types whose adapters are assumed to have a shared instance, which
+     *                    this adapter uses directly instead of looking them up in Gson.
+     */
+    public TypeAdapterGenerator(@NotNull SupportedTypesModel supportedTypesModel, @NotNull ClassInfo info,
+                                boolean enableSerializeNulls, boolean enableSpeculativeFieldOrder,
+                                boolean enableDirectAdapters, boolean enableCompactDynamicTypes,
+                                @NotNull Set<String> sharedTypes) {
         mSupportedTypesModel = supportedTypesModel;
         mInfo = info;
         mEnableSerializeNulls = enableSerializeNulls;
+        mEnableSpeculativeFieldOrder = enableSpeculativeFieldOrder;
+        mEnableDirectAdapters = enableDirectAdapters;
+        mEnableCompactDynamicTypes = enableCompactDynamicTypes;
+        mSharedTypes = sharedTypes;
     }
 
     @NotNull
@@ -186,19 +212,19 @@ public class TypeAdapterGenerator extends AdapterGenerator {
     private static String getInitializationCodeForKnownJsonAdapterType(@NotNull ExecutableElement adapterType,
                                                                        @NotNull StagGenerator stagGenerator,
                                                                        @NotNull Map<TypeMirror, String> typeVarsMap,
-                                                                       @NotNull MethodSpec.Builder constructorBuilder,
+                                                                       @NotNull List<String> statements,
                                                                        @NotNull TypeMirror fieldType,
                                                                        @NotNull TypeUtils.JsonAdapterType jsonAdapterType,
                                                                        @NotNull AdapterFieldInfo adapterFieldInfo,
-                                                                       boolean isNullSafe,
-                                                                       @NotNull String keyFieldName) {
+                                                                       boolean isNullSafe) {
         String fieldAdapterAccessor = "new " + FileGenUtils.escapeStringForCodeBlock(adapterType.getEnclosingElement().toString());
         if (jsonAdapterType == TypeUtils.JsonAdapterType.TYPE_ADAPTER) {
             ArrayList<String> constructorParameters = new ArrayList<>();
             if (!adapterType.getParameters().isEmpty()) {
                 for (VariableElement parameter : adapterType.getParameters()) {
                     if (parameter.asType().toString().equals(TypeUtils.className(Gson.class))) {
-                        constructorParameters.add("gson");
+                        constructorParameters.add("mGson");
+                        adapterFieldInfo.markUsesGson();
                     } else {
                         throw new IllegalStateException("Not supported " + parameter.asType() + "parameter for @JsonAdapter value");
                     }
@@ -217,17 +243,18 @@ public class TypeAdapterGenerator extends AdapterGenerator {
             fieldAdapterAccessor += constructorParameterStr;
         } else if (jsonAdapterType == TypeUtils.JsonAdapterType.TYPE_ADAPTER_FACTORY) {
             String typeTokenAccessorCode = getTypeTokenCode(fieldType, stagGenerator, typeVarsMap, adapterFieldInfo);
-            fieldAdapterAccessor += "().create(gson, " + typeTokenAccessorCode + ")";
+            fieldAdapterAccessor += "().create(mGson, " + typeTokenAccessorCode + ")";
+            adapterFieldInfo.markUsesGson();
         } else if (jsonAdapterType == TypeUtils.JsonAdapterType.JSON_SERIALIZER
                 || jsonAdapterType == TypeUtils.JsonAdapterType.JSON_DESERIALIZER
                 || jsonAdapterType == TypeUtils.JsonAdapterType.JSON_SERIALIZER_DESERIALIZER) {
             String serializer = null, deserializer = null;
 
             if (jsonAdapterType == TypeUtils.JsonAdapterType.JSON_SERIALIZER_DESERIALIZER) {
-                String varName = keyFieldName + "SerializerDeserializer";
+                String varName = "serializerDeserializer";
                 String initializer = adapterType.getEnclosingElement().toString() + " " + varName + " = " +
                         "new " + adapterType;
-                constructorBuilder.addStatement(initializer);
+                statements.add(initializer);
                 serializer = varName;
                 deserializer = varName;
             } else if (jsonAdapterType == TypeUtils.JsonAdapterType.JSON_SERIALIZER) {
@@ -236,7 +263,8 @@ public class TypeAdapterGenerator extends AdapterGenerator {
                 deserializer = "new " + adapterType;
             }
             String typeTokenAccessorCode = getTypeTokenCode(fieldType, stagGenerator, typeVarsMap, adapterFieldInfo);
-            fieldAdapterAccessor = "new " + TypeVariableName.get(TreeTypeAdapter.class) + "(" + serializer + ", " + deserializer + ", gson, " + typeTokenAccessorCode + ", null)";
+            fieldAdapterAccessor = "new " + TypeVariableName.get(TreeTypeAdapter.class) + "(" + serializer + ", " + deserializer + ", mGson, " + typeTokenAccessorCode + ", null)";
+            adapterFieldInfo.markUsesGson();
         } else {
             throw new IllegalArgumentException(
                     "@JsonAdapter value must be TypeAdapter, TypeAdapterFactory, "
@@ -250,34 +278,89 @@ public class TypeAdapterGenerator extends AdapterGenerator {
     }
 
     private static String getCleanedFieldInitializer(String code) {
-        return code.replace("mStagFactory", "stagFactory").replace("mGson", "gson");
+        return code.replace("mStagFactory", "stagFactory");
     }
 
     /**
      * Returns the adapter code for the unknown types.
      */
-    private static String getAdapterForUnknownGenericType(@NotNull TypeMirror fieldType,
-                                                          @NotNull StagGenerator stagGenerator,
-                                                          @NotNull Map<TypeMirror, String> typeVarsMap,
-                                                          @NotNull AdapterFieldInfo adapterFieldInfo) {
-
-        String fieldName = adapterFieldInfo.getFieldName(fieldType);
-        if (fieldName == null) {
-            fieldName = TYPE_ADAPTER_FIELD_PREFIX + adapterFieldInfo.size();
-            String fieldInitializationCode = "gson.getAdapter(" +
-                    getTypeTokenCode(fieldType, stagGenerator, typeVarsMap, adapterFieldInfo) + ")";
+    private String getAdapterForUnknownGenericType(@NotNull TypeMirror fieldType,
+                                                   @NotNull StagGenerator stagGenerator,
+                                                   @NotNull Map<TypeMirror, String> typeVarsMap,
+                                                   @NotNull AdapterFieldInfo adapterFieldInfo) {
+        if (isAdaptedType(fieldType)) {
+            return "this";
+        }
+
+        String accessor = adapterFieldInfo.getAccessor(fieldType);
+        if (accessor == null) {
+            String fieldName = TYPE_ADAPTER_FIELD_PREFIX + adapterFieldInfo.size();
+            String fieldInitializationCode = getDirectAdapterCode(fieldType, stagGenerator, adapterFieldInfo);
+            if (fieldInitializationCode == null) {
+                fieldInitializationCode = "mGson.getAdapter(" +
+                        getTypeTokenCode(fieldType, stagGenerator, typeVarsMap, adapterFieldInfo) + ")";
+                adapterFieldInfo.markUsesGson();
+            }
             adapterFieldInfo.addField(fieldType, fieldName, fieldInitializationCode);
+            accessor = AdapterFieldInfo.getGetterCall(fieldName);
+        }
+        return accessor;
+    }
+
+    /**
+     * Returns true if the type is the type that this adapter reads and writes, which is
+     * the case for recursive models, so that the adapter can be used for it directly.
+     */
+    private boolean isAdaptedType(@NotNull TypeMirror fieldType) {
+        List<? extends TypeMirror> typeArguments = mInfo.getTypeArguments();
+        return (typeArguments == null || typeArguments.isEmpty()) &&
+                fieldType.toString().equals(mInfo.getType().toString());
+    }
+
+    /**
+     * Returns the code that uses the shared instance of the generated adapter of a model from
+     * the same compilation, or creates the adapter, without looking it up in Gson, if that is enabled.
+     * Otherwise the adapter is looked up in Gson, even if it is shared, as a factory registered
+     * after Stag may return a different adapter for the model.
+     */
+    @Nullable
+    private String getDirectAdapterCode(@NotNull TypeMirror fieldType, @NotNull StagGenerator stagGenerator,
+                                        @NotNull AdapterFieldInfo adapterFieldInfo) {
+        if (!mEnableDirectAdapters || !(fieldType instanceof DeclaredType) ||
+                !TypeUtils.isConcreteType(((DeclaredType) fieldType).asElement()) ||
+                mSupportedTypesModel.getSupportedType(fieldType) == null) {
+            return null;
+        }
+        ClassInfo classInfo = stagGenerator.getKnownClass(fieldType);
+        if (classInfo == null) {
+            return null;
+        }
+        if (mSharedTypes.contains(fieldType.toString())) {
+            mSharedDependencies.add(fieldType.toString());
+            return classInfo.getTypeAdapterQualifiedClassName() + "." + FIELD_SHARED_INSTANCE;
         }
-        return fieldName;
+        adapterFieldInfo.markUsesGson();
+        return "new " + classInfo.getTypeAdapterQualifiedClassName() + "(mGson)";
+    }
+
+    /**
+     * Returns the code that creates the adapter for values of unknown types, which
+     * reads them into the compact representations if that is enabled.
+     */
+    @NotNull
+    private String getObjectTypeAdapterCode(@NotNull AdapterFieldInfo adapterFieldInfo) {
+        adapterFieldInfo.markUsesGson();
+        return "new " + TypeUtils.className(KnownTypeAdapters.ObjectTypeAdapter.class) + "(mGson" +
+                (mEnableCompactDynamicTypes ? ", true)" : ")");
     }
 
     /**
      * Returns the adapter code for the known types.
      */
-    private static String getAdapterAccessor(@NotNull TypeMirror fieldType,
-                                             @NotNull StagGenerator stagGenerator,
-                                             @NotNull Map<TypeMirror, String> typeVarsMap,
-                                             @NotNull AdapterFieldInfo adapterFieldInfo) {
+    private String getAdapterAccessor(@NotNull TypeMirror fieldType,
+                                      @NotNull StagGenerator stagGenerator,
+                                      @NotNull Map<TypeMirror, String> typeVarsMap,
+                                      @NotNull AdapterFieldInfo adapterFieldInfo) {
 
         String knownTypeAdapter = KnownTypeAdapterUtils.getKnownTypeAdapterForType(fieldType);
 
@@ -285,9 +368,15 @@ public class TypeAdapterGenerator extends AdapterGenerator {
             return knownTypeAdapter;
         }
 
-        String fieldName = adapterFieldInfo.getFieldName(fieldType);
-        if (fieldName != null) {
-            return fieldName;
+        String accessor = adapterFieldInfo.getAccessor(fieldType);
+        if (accessor != null) {
+            return accessor;
+        }
+
+        if (mEnableCompactDynamicTypes && fieldType.toString().equals(Object.class.getName())) {
+            String fieldName = TYPE_ADAPTER_FIELD_PREFIX + adapterFieldInfo.size();
+            adapterFieldInfo.addField(fieldType, fieldName, getObjectTypeAdapterCode(adapterFieldInfo));
+            return AdapterFieldInfo.getGetterCall(fieldName);
         }
 
         if (TypeUtils.isNativeArray(fieldType)) {
@@ -316,10 +405,28 @@ public class TypeAdapterGenerator extends AdapterGenerator {
                     "new " + TypeUtils.className(KnownTypeAdapters.ListTypeAdapter.class) + "<" + param.toString() + "," +
                             fieldType.toString() + ">" +
                             "(" + paramAdapterAccessor + ", " + listInstantiator + ")";
-            fieldName = TYPE_ADAPTER_FIELD_PREFIX + adapterFieldInfo.size();
+            String fieldName = TYPE_ADAPTER_FIELD_PREFIX + adapterFieldInfo.size();
             adapterFieldInfo.addField(fieldType, fieldName, adapterCode);
-            return fieldName;
+            return AdapterFieldInfo.getGetterCall(fieldName);
+
+        } else if (KnownTypeAdapterUtils.getPrimitiveKeyMapTypeAdapter(fieldType) != null) {
+            DeclaredType declaredType = (DeclaredType) fieldType;
+            List<? extends TypeMirror> typeArguments = declaredType.getTypeArguments();
+            String valueAdapterAccessor;
+            String arguments = "";
+            if (typeArguments != null && typeArguments.size() == 1) {
+                TypeMirror valueType = typeArguments.get(0);
+                valueAdapterAccessor = getAdapterAccessor(valueType, stagGenerator, typeVarsMap, adapterFieldInfo);
+                arguments = "<" + valueType.toString() + ">";
+            } else {
+                valueAdapterAccessor = getObjectTypeAdapterCode(adapterFieldInfo);
+            }
 
+            String adapterCode = "new " + KnownTypeAdapterUtils.getPrimitiveKeyMapTypeAdapter(fieldType) + arguments +
+                    "(" + valueAdapterAccessor + ")";
+            String fieldName = TYPE_ADAPTER_FIELD_PREFIX + adapterFieldInfo.size();
+            adapterFieldInfo.addField(fieldType, fieldName, adapterCode);
+            return AdapterFieldInfo.getGetterCall(fieldName);
         } else if (TypeUtils.isSupportedMap(fieldType)) {
             DeclaredType declaredType = (DeclaredType) fieldType;
             String mapInstantiator = KnownTypeAdapterUtils.getMapInstantiator(fieldType);
@@ -330,32 +437,44 @@ public class TypeAdapterGenerator extends AdapterGenerator {
             if (typeArguments != null && typeArguments.size() == 2) {
                 TypeMirror keyType = typeArguments.get(0);
                 TypeMirror valueType = typeArguments.get(1);
+                String scalarKeyMapTypeAdapter = KnownTypeAdapterUtils.getScalarKeyMapTypeAdapter(keyType);
+                if (scalarKeyMapTypeAdapter != null) {
+                    /*
+                     * String and boxed number keys are written directly as names, so the
+                     * key type adapter is not needed.
+                     */
+                    valueAdapterAccessor = getAdapterAccessor(valueType, stagGenerator, typeVarsMap, adapterFieldInfo);
+                    String adapterCode = "new " + scalarKeyMapTypeAdapter + "<" + valueType.toString() + ", " +
+                            fieldType.toString() + ">(" + valueAdapterAccessor + ", " + mapInstantiator + ")";
+                    String fieldName = TYPE_ADAPTER_FIELD_PREFIX + adapterFieldInfo.size();
+                    adapterFieldInfo.addField(fieldType, fieldName, adapterCode);
+                    return AdapterFieldInfo.getGetterCall(fieldName);
+                }
                 keyAdapterAccessor = getAdapterAccessor(keyType, stagGenerator, typeVarsMap, adapterFieldInfo);
                 valueAdapterAccessor = getAdapterAccessor(valueType, stagGenerator, typeVarsMap, adapterFieldInfo);
                 arguments = "<" + keyType.toString() + ", " + valueType.toString() + ", " +
                         fieldType.toString() + ">";
             } else {
                 // If the map does not have any type arguments, use Object as type params in this case
-                keyAdapterAccessor = "new com.vimeo.stag.KnownTypeAdapters.ObjectTypeAdapter(mGson)";
+                keyAdapterAccessor = getObjectTypeAdapterCode(adapterFieldInfo);
                 valueAdapterAccessor = keyAdapterAccessor;
             }
 
             String adapterCode = "new " + TypeUtils.className(KnownTypeAdapters.MapTypeAdapter.class) + arguments +
                     "(" + keyAdapterAccessor + ", " + valueAdapterAccessor + ", " +
                     mapInstantiator + ")";
-            fieldName = TYPE_ADAPTER_FIELD_PREFIX + adapterFieldInfo.size();
+            String fieldName = TYPE_ADAPTER_FIELD_PREFIX + adapterFieldInfo.size();
             adapterFieldInfo.addField(fieldType, fieldName, adapterCode);
-            return fieldName;
+            return AdapterFieldInfo.getGetterCall(fieldName);
         } else {
             return getAdapterForUnknownGenericType(fieldType, stagGenerator, typeVarsMap, adapterFieldInfo);
         }
     }
 
     @NotNull
-    private static AdapterFieldInfo addAdapterFields(@NotNull StagGenerator stagGenerator,
-                                                     @NotNull MethodSpec.Builder constructorBuilder,
-                                                     @NotNull Map<FieldAccessor, TypeMirror> memberVariables,
-                                                     @NotNull Map<TypeMirror, String> typeVarsMap) {
+    private AdapterFieldInfo addAdapterFields(@NotNull StagGenerator stagGenerator,
+                                              @NotNull Map<FieldAccessor, TypeMirror> memberVariables,
+                                              @NotNull Map<TypeMirror, String> typeVarsMap) {
 
         AdapterFieldInfo result = new AdapterFieldInfo(memberVariables.size());
         for (Map.Entry<FieldAccessor, TypeMirror> entry : memberVariables.entrySet()) {
@@ -368,12 +487,13 @@ public class TypeAdapterGenerator extends AdapterGenerator {
                 ExecutableElement constructor = ElementUtils.getFirstConstructor(optionalJsonAdapter);
                 if (constructor != null) {
                     TypeUtils.JsonAdapterType jsonAdapterType1 = TypeUtils.getJsonAdapterType(optionalJsonAdapter);
+                    List<String> statements = new ArrayList<>();
                     String initiazationCode = getInitializationCodeForKnownJsonAdapterType(constructor, stagGenerator,
-                            typeVarsMap, constructorBuilder, fieldType,
-                            jsonAdapterType1, result, fieldAccessor.isJsonAdapterNullSafe(), fieldAccessor.getJsonName());
+                            typeVarsMap, statements, fieldType,
+                            jsonAdapterType1, result, fieldAccessor.isJsonAdapterNullSafe());
 
                     String fieldName = TYPE_ADAPTER_FIELD_PREFIX + result.size();
-                    result.addFieldToAccessor(fieldAccessor.getJsonName(), fieldName, fieldType, initiazationCode);
+                    result.addFieldToAccessor(fieldAccessor.getJsonName(), fieldName, fieldType, initiazationCode, statements);
                 } else {
                     throw new IllegalStateException("Unsupported @JsonAdapter value: " + optionalJsonAdapter);
                 }
@@ -430,7 +550,7 @@ public class TypeAdapterGenerator extends AdapterGenerator {
                     String simpleName = typeVariable.asElement().getSimpleName().toString();
                     adapterBuilder.addTypeVariable(TypeVariableName.get(simpleName, TypeVariableName.get(typeVariable.getUpperBound())));
                     //If the classInfo has unknown types, pass type... as param in constructor.
-                    String paramName = "type[" + String.valueOf(idx) + "]";
+                    String paramName = "mTypes[" + String.valueOf(idx) + "]";
                     typeVarsMap.put(typeVariable, paramName);
                     idx++;
                 }
@@ -452,42 +572,94 @@ public class TypeAdapterGenerator extends AdapterGenerator {
         }
         Map<FieldAccessor, TypeMirror> memberVariables = annotatedClass.getMemberVariables();
 
+        mSharedDependencies.clear();
         AdapterFieldInfo adapterFieldInfo =
-                addAdapterFields(stagGenerator, constructorBuilder, memberVariables, typeVarsMap);
+                addAdapterFields(stagGenerator, memberVariables, typeVarsMap);
 
-        MethodSpec writeMethod = WriteSpecGenerator.getWriteMethodSpec(typeVariableName, memberVariables, adapterFieldInfo, mEnableSerializeNulls);
-        MethodSpec readMethod = ReadSpecGenerator.getReadMethodSpec(typeVariableName, memberVariables, adapterFieldInfo);
+        // An adapter that never uses Gson does not need an instance per Gson instance
+        mHasSharedInstance = idx == 0 && mSharedTypes.contains(typeMirror.toString()) &&
+                !adapterFieldInfo.usesGson();
 
-        adapterBuilder.addField(Gson.class, "mGson", Modifier.FINAL, Modifier.PRIVATE);
-        constructorBuilder.addStatement("this.mGson = gson");
+        MethodSpec writeMethod = WriteSpecGenerator.getWriteMethodSpec(typeVariableName, memberVariables, adapterFieldInfo, mEnableSerializeNulls);
+        MethodSpec readMethod = ReadSpecGenerator.getReadMethodSpec(typeVariableName, memberVariables, adapterFieldInfo,
+                annotatedClass.getConstructorParameters(), annotatedClass.hasDefaultValue(), mEnableSpeculativeFieldOrder);
 
-        for (Map.Entry<String, FieldInfo> fieldInfo : adapterFieldInfo.mTypeTokenAccessorFields.entrySet()) {
-            String originalFieldName = FileGenUtils.unescapeEscapedString(fieldInfo.getValue().accessorVariable);
-            TypeName typeName = getTypeTokenFieldTypeName(fieldInfo.getValue().type);
-            constructorBuilder.addStatement(typeName.toString() + " " + originalFieldName + " = " + fieldInfo.getValue().initializationCode);
+        adapterBuilder.addFields(WriteSpecGenerator.getFieldNameFieldSpecs(memberVariables));
+        if (mEnableSpeculativeFieldOrder) {
+            adapterBuilder.addField(ReadSpecGenerator.getFieldNamesFieldSpec(memberVariables));
         }
-
-        for (Map.Entry<String, FieldInfo> fieldInfo : adapterFieldInfo.mFieldAdapterAccessor.entrySet()) {
-            String originalFieldName = FileGenUtils.unescapeEscapedString(fieldInfo.getValue().accessorVariable);
-            TypeName typeName = getAdapterFieldTypeName(fieldInfo.getValue().type);
-            adapterBuilder.addField(typeName, originalFieldName, Modifier.PRIVATE, Modifier.FINAL);
-            constructorBuilder.addStatement("this." + originalFieldName + " = " + fieldInfo.getValue().initializationCode);
+        if (mHasSharedInstance) {
+            adapterBuilder.addField(createSharedInstanceSpec(className));
+        } else {
+            adapterBuilder.addField(Gson.class, "mGson", Modifier.FINAL, Modifier.PRIVATE);
+            constructorBuilder.addStatement("this.mGson = gson");
+        }
+        if (idx > 0) {
+            adapterBuilder.addField(Type[].class, "mTypes", Modifier.FINAL, Modifier.PRIVATE);
+            constructorBuilder.addStatement("this.mTypes = type");
         }
 
-        for (Map.Entry<String, FieldInfo> fieldInfo : adapterFieldInfo.mAdapterFields.entrySet()) {
-            String originalFieldName = FileGenUtils.unescapeEscapedString(fieldInfo.getValue().accessorVariable);
-            TypeName typeName = getAdapterFieldTypeName(fieldInfo.getValue().type);
-            adapterBuilder.addField(typeName, originalFieldName, Modifier.PRIVATE, Modifier.FINAL);
-            constructorBuilder.addStatement("this." + originalFieldName + " = " + fieldInfo.getValue().initializationCode);
+        List<FieldInfo> adapterFields = new ArrayList<>(adapterFieldInfo.mFieldAdapterAccessor.values());
+        adapterFields.addAll(adapterFieldInfo.mAdapterFields.values());
+        List<MethodSpec> adapterGetters = new ArrayList<>(adapterFields.size());
+        for (FieldInfo fieldInfo : adapterFields) {
+            String originalFieldName = FileGenUtils.unescapeEscapedString(fieldInfo.accessorVariable);
+            TypeName typeName = getAdapterFieldTypeName(fieldInfo.type);
+            adapterBuilder.addField(FieldSpec.builder(typeName, originalFieldName, Modifier.PRIVATE, Modifier.VOLATILE).build());
+            adapterGetters.add(getAdapterGetterSpec(originalFieldName, typeName, fieldInfo, adapterFieldInfo));
         }
 
         adapterBuilder.addMethod(constructorBuilder.build());
         adapterBuilder.addMethod(writeMethod);
         adapterBuilder.addMethod(readMethod);
+        adapterBuilder.addMethod(ReadSpecGenerator.getFieldIndexMethodSpec(memberVariables));
+        adapterBuilder.addMethods(adapterGetters);
 
         return adapterBuilder.build();
     }
 
+    @Override
+    public boolean hasSharedInstance() {
+        return mHasSharedInstance;
+    }
+
+    @NotNull
+    @Override
+    public Set<String> getSharedDependencies() {
+        return Collections.unmodifiableSet(mSharedDependencies);
+    }
+
+    /**
+     * Creates the method that creates the adapter of a field when it is first used, so
+     * that creating an adapter does not create the adapters of every model it can reach.
+     * Two threads may both create the adapter the first time, which is harmless, and the
+     * field is volatile so that the adapter is safely published.
+     */
+    @NotNull
+    private static MethodSpec getAdapterGetterSpec(@NotNull String fieldName, @NotNull TypeName typeName,
+                                                   @NotNull FieldInfo fieldInfo,
+                                                   @NotNull AdapterFieldInfo adapterFieldInfo) {
+        MethodSpec.Builder builder = MethodSpec.methodBuilder(AdapterFieldInfo.getGetterName(fieldName))
+                .addModifiers(Modifier.PRIVATE)
+                .returns(typeName);
+
+        builder.addStatement("$T result = $L", typeName, fieldName);
+        builder.beginControlFlow("if (result == null)");
+        for (FieldInfo typeToken : adapterFieldInfo.getTypeTokensUsedBy(fieldInfo)) {
+            TypeName typeTokenTypeName = getTypeTokenFieldTypeName(typeToken.type);
+            builder.addStatement(typeTokenTypeName.toString() + " " + typeToken.accessorVariable + " = " + typeToken.initializationCode);
+        }
+        for (String statement : fieldInfo.statements) {
+            builder.addStatement(statement);
+        }
+        builder.addStatement("result = " + fieldInfo.initializationCode);
+        builder.addStatement("$L = result", fieldName);
+        builder.endControlFlow();
+        builder.addStatement("return result");
+
+        return builder.build();
+    }
+
     private static class FieldInfo {
 
         @NotNull
@@ -496,16 +668,26 @@ public class TypeAdapterGenerator extends AdapterGenerator {
         final String initializationCode;
         @NotNull
         final String accessorVariable;
+        @NotNull
+        final List<String> statements;
 
         FieldInfo(@NotNull TypeMirror type, @NotNull String initializationCode, @NotNull String accessorVariable) {
+            this(type, initializationCode, accessorVariable, Collections.<String>emptyList());
+        }
+
+        FieldInfo(@NotNull TypeMirror type, @NotNull String initializationCode, @NotNull String accessorVariable,
+                  @NotNull List<String> statements) {
             this.type = type;
             this.initializationCode = initializationCode;
             this.accessorVariable = accessorVariable;
+            this.statements = statements;
         }
     }
 
     public static class AdapterFieldInfo {
 
+        private static final Pattern TYPE_TOKEN_PATTERN = Pattern.compile("\\btypeToken\\d+\\b");
+
         //FieldName -> Accessor Map
         @NotNull
         final Map<String, FieldInfo> mFieldAdapterAccessor;
@@ -518,6 +700,7 @@ public class TypeAdapterGenerator extends AdapterGenerator {
         //Type.toString -> Accessor Map
         @NotNull
         private final Map<String, String> mAdapterAccessor;
+        private boolean mUsesGson;
 
         AdapterFieldInfo(int capacity) {
             mAdapterFields = new LinkedHashMap<>(capacity);
@@ -526,9 +709,19 @@ public class TypeAdapterGenerator extends AdapterGenerator {
             mTypeTokenAccessorFields = new LinkedHashMap<>();
         }
 
+        @NotNull
+        static String getGetterName(@NotNull String fieldName) {
+            return "get" + fieldName.substring(1);
+        }
+
+        @NotNull
+        static String getGetterCall(@NotNull String fieldName) {
+            return getGetterName(fieldName) + "()";
+        }
+
         public String getAdapterAccessor(@NotNull TypeMirror typeMirror, @NotNull String fieldName) {
             FieldInfo adapterAccessor = mFieldAdapterAccessor.get(fieldName);
-            return adapterAccessor != null ? adapterAccessor.accessorVariable : mAdapterAccessor.get(typeMirror.toString());
+            return adapterAccessor != null ? getGetterCall(adapterAccessor.accessorVariable) : mAdapterAccessor.get(typeMirror.toString());
         }
 
         String updateAndGetTypeTokenFieldName(@NotNull TypeMirror fieldType, @NotNull String initializationCode) {
@@ -540,9 +733,52 @@ public class TypeAdapterGenerator extends AdapterGenerator {
             return result.accessorVariable;
         }
 
-        String getFieldName(@NotNull TypeMirror fieldType) {
+        /**
+         * Records that the code of one of the adapters uses the Gson instance.
+         */
+        void markUsesGson() {
+            mUsesGson = true;
+        }
+
+        /**
+         * Returns true if any of the adapters uses the Gson instance.
+         */
+        boolean usesGson() {
+            return mUsesGson;
+        }
+
+        /**
+         * Returns the type tokens that the initialization of the field uses, including
+         * the type tokens they use in turn, in the order they need to be declared.
+         */
+        @NotNull
+        List<FieldInfo> getTypeTokensUsedBy(@NotNull FieldInfo fieldInfo) {
+            Map<String, FieldInfo> typeTokens = new LinkedHashMap<>(mTypeTokenAccessorFields.size());
+            for (FieldInfo typeToken : mTypeTokenAccessorFields.values()) {
+                typeTokens.put(typeToken.accessorVariable, typeToken);
+            }
+
+            Map<Integer, FieldInfo> result = new TreeMap<>();
+            List<String> pending = new ArrayList<>(fieldInfo.statements);
+            pending.add(fieldInfo.initializationCode);
+            while (!pending.isEmpty()) {
+                Matcher matcher = TYPE_TOKEN_PATTERN.matcher(pending.remove(pending.size() - 1));
+                while (matcher.find()) {
+                    FieldInfo typeToken = typeTokens.get(matcher.group());
+                    int index = Integer.parseInt(matcher.group().substring("typeToken".length()));
+                    if (typeToken != null && !result.containsKey(index)) {
+                        result.put(index, typeToken);
+                        pending.add(typeToken.initializationCode);
+                    }
+                }
+            }
+            return new ArrayList<>(result.values());
+        }
+
+        @Nullable
+        String getAccessor(@NotNull TypeMirror fieldType) {
             FieldInfo fieldInfo = mAdapterFields.get(fieldType.toString());
-            return fieldInfo != null ? fieldInfo.accessorVariable : null;
+            return fieldInfo != null ? getGetterCall(fieldInfo.accessorVariable) : null;
         }
 
         int size() {
@@ -557,8 +793,9 @@ public class TypeAdapterGenerator extends AdapterGenerator {
             mAdapterAccessor.put(typeMirror.toString(), accessorCode);
         }
 
-        void addFieldToAccessor(@NotNull String fieldName, @NotNull String variableName, TypeMirror fieldType, @NotNull String fieldInitializationCode) {
-            mFieldAdapterAccessor.put(fieldName, new FieldInfo(fieldType, fieldInitializationCode, variableName));
+        void addFieldToAccessor(@NotNull String fieldName, @NotNull String variableName, TypeMirror fieldType,
+                                @NotNull String fieldInitializationCode, @NotNull List<String> statements) {
+            mFieldAdapterAccessor.put(fieldName, new FieldInfo(fieldType, fieldInitializationCode, variableName, statements));
         }
     }
 }
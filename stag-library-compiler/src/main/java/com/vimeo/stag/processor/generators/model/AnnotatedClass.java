@@ -24,27 +24,35 @@
 package com.vimeo.stag.processor.generators.model;
 
 import com.google.gson.annotations.SerializedName;
+import com.vimeo.stag.StagConstructor;
 import com.vimeo.stag.UseStag;
 import com.vimeo.stag.UseStag.FieldOption;
 import com.vimeo.stag.processor.generators.model.accessor.DirectFieldAccessor;
 import com.vimeo.stag.processor.generators.model.accessor.FieldAccessor;
 import com.vimeo.stag.processor.generators.model.accessor.MethodFieldAccessor;
 import com.vimeo.stag.processor.generators.model.accessor.MethodFieldAccessor.Notation;
+import com.vimeo.stag.processor.utils.ElementUtils;
+import com.vimeo.stag.processor.utils.KotlinMetadataUtils;
 import com.vimeo.stag.processor.utils.MessagerUtils;
 import com.vimeo.stag.processor.utils.Preconditions;
+import com.vimeo.stag.processor.utils.StringUtils;
 import com.vimeo.stag.processor.utils.TypeUtils;
 import com.vimeo.stag.processor.utils.logging.DebugLog;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
@@ -68,6 +76,9 @@ public class AnnotatedClass {
     @NotNull private final TypeElement mElement;
     @NotNull private final LinkedHashMap<FieldAccessor, TypeMirror> mMemberVariables;
     @NotNull private final Notation mNamingNotation;
+    @Nullable private final ExecutableElement mConstructor;
+    @Nullable private final List<FieldAccessor> mConstructorParameters;
+    private final boolean mHasDefaultValue;
 
     AnnotatedClass(@NotNull SupportedTypesModel supportedTypesModel,
                    @NotNull TypeElement element,
@@ -98,6 +109,7 @@ public class AnnotatedClass {
         Preconditions.checkNotNull(fieldOption);
 
         mMemberVariables = new LinkedHashMap<>();
+        mConstructor = TypeUtils.isEnum(element) ? null : findConstructor(element);
 
         if (inheritedType != null) {
             DebugLog.log(TAG, "\t\tInherited Type - " + inheritedType.toString());
@@ -113,14 +125,231 @@ public class AnnotatedClass {
             }
         }
 
+        List<FieldAccessor> declaredMembers = new ArrayList<>();
         if (!TypeUtils.isEnum(element)) {
             for (Element enclosedElement : element.getEnclosedElements()) {
-                if (enclosedElement instanceof VariableElement) {
-                    addToSupportedTypes((VariableElement) enclosedElement, fieldOption, variableNames);
+                // Record components are variable elements as well, but
+                // are backed by the private fields of the record
+                if (enclosedElement.getKind() == ElementKind.FIELD) {
+                    FieldAccessor fieldAccessor = addToSupportedTypes((VariableElement) enclosedElement, fieldOption, variableNames);
+                    if (fieldAccessor != null) {
+                        declaredMembers.add(fieldAccessor);
+                    }
+                }
+            }
+        }
+
+        mConstructorParameters = mConstructor != null ? getConstructorParameters(mConstructor, declaredMembers) : null;
+        mHasDefaultValue = mConstructor != null && hasNoArgumentConstructor(element);
+
+        if (mConstructor != null && !mHasDefaultValue && ElementUtils.isKotlinClass(element) &&
+            mConstructor.getAnnotation(StagConstructor.class) == null) {
+            checkKotlinDefaultValues(element);
+        }
+    }
+
+    /**
+     * Warns if some parameters of the primary constructor of a Kotlin class
+     * have default values, since the type adapter can only take default values
+     * from the no argument constructor that Kotlin generates when every
+     * parameter has one. Missing values would otherwise silently be null or 0.
+     */
+    private static void checkKotlinDefaultValues(@NotNull TypeElement element) {
+        boolean[] defaultValues = KotlinMetadataUtils.getPrimaryConstructorDefaultValues(element);
+        if (defaultValues == null) {
+            return;
+        }
+        for (boolean defaultValue : defaultValues) {
+            if (defaultValue) {
+                MessagerUtils.reportWarning("Default values of the primary constructor of class " + element.asType() +
+                                            " are not used for values missing from the JSON, since only some of" +
+                                            " its parameters have a default value. Give every parameter a default" +
+                                            " value, or none.", element);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Finds the constructor that should be used to create instances
+     * of the class, which is either the constructor annotated with
+     * {@link StagConstructor}, the canonical constructor of a record or
+     * the primary constructor of a Kotlin class.
+     *
+     * @return the constructor, or null if the no argument constructor
+     * should be used.
+     */
+    @Nullable
+    private static ExecutableElement findConstructor(@NotNull TypeElement element) {
+        ExecutableElement constructor = null;
+        for (Element enclosedElement : element.getEnclosedElements()) {
+            if (enclosedElement.getKind() == ElementKind.CONSTRUCTOR &&
+                enclosedElement.getAnnotation(StagConstructor.class) != null) {
+                if (constructor != null) {
+                    MessagerUtils.reportError("Only one constructor in class " + element.asType() +
+                                              " may be annotated with @StagConstructor.", enclosedElement);
+                }
+                constructor = (ExecutableElement) enclosedElement;
+            }
+        }
+
+        if (constructor == null && ElementUtils.isRecord(element)) {
+            constructor = findCanonicalConstructor(element);
+        }
+
+        if (constructor == null && ElementUtils.isKotlinClass(element) &&
+            !element.getModifiers().contains(Modifier.ABSTRACT)) {
+            constructor = findPrimaryConstructor(element);
+        }
+
+        if (constructor != null && constructor.getModifiers().contains(Modifier.PRIVATE)) {
+            MessagerUtils.reportError("Unable to access constructor in class " + element.asType() +
+                                      ", constructor must not be private.", constructor);
+        }
+
+        return constructor;
+    }
+
+    /**
+     * Finds the canonical constructor of a record, which
+     * takes the record components in declaration order.
+     */
+    @Nullable
+    private static ExecutableElement findCanonicalConstructor(@NotNull TypeElement element) {
+        List<TypeMirror> componentTypes = new ArrayList<>();
+        for (Element enclosedElement : element.getEnclosedElements()) {
+            if (enclosedElement.getKind() == ElementKind.FIELD &&
+                !enclosedElement.getModifiers().contains(Modifier.STATIC)) {
+                componentTypes.add(enclosedElement.asType());
+            }
+        }
+
+        for (Element enclosedElement : element.getEnclosedElements()) {
+            if (enclosedElement.getKind() == ElementKind.CONSTRUCTOR) {
+                List<? extends VariableElement> parameters = ((ExecutableElement) enclosedElement).getParameters();
+                boolean isCanonical = parameters.size() == componentTypes.size();
+                for (int index = 0; isCanonical && index < parameters.size(); index++) {
+                    isCanonical = TypeUtils.areEqual(parameters.get(index).asType(), componentTypes.get(index));
+                }
+                if (isCanonical) {
+                    return (ExecutableElement) enclosedElement;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Finds the primary constructor of a Kotlin class, which is the constructor
+     * with the number of parameters that the Kotlin metadata gives the primary
+     * constructor, and whose parameters all declare a property, since every
+     * {@code val} and {@code var} in the primary constructor is a field with
+     * the same name and type. If the metadata can't be read, the constructor
+     * with the most such parameters is taken.
+     *
+     * @return the primary constructor, or null if it has no parameters, in
+     * which case the no argument constructor should be used.
+     */
+    @Nullable
+    private static ExecutableElement findPrimaryConstructor(@NotNull TypeElement element) {
+        Map<String, TypeMirror> fieldTypes = new LinkedHashMap<>();
+        for (Element enclosedElement : element.getEnclosedElements()) {
+            if (enclosedElement.getKind() == ElementKind.FIELD &&
+                !enclosedElement.getModifiers().contains(Modifier.STATIC)) {
+                fieldTypes.put(enclosedElement.getSimpleName().toString(), enclosedElement.asType());
+            }
+        }
+
+        boolean[] defaultValues = KotlinMetadataUtils.getPrimaryConstructorDefaultValues(element);
+
+        ExecutableElement primaryConstructor = null;
+        for (Element enclosedElement : element.getEnclosedElements()) {
+            if (enclosedElement.getKind() != ElementKind.CONSTRUCTOR ||
+                enclosedElement.getModifiers().contains(Modifier.PRIVATE)) {
+                continue;
+            }
+            ExecutableElement constructor = (ExecutableElement) enclosedElement;
+            if (defaultValues != null && constructor.getParameters().size() != defaultValues.length) {
+                continue;
+            }
+            boolean declaresProperties = true;
+            for (VariableElement parameter : constructor.getParameters()) {
+                TypeMirror fieldType = fieldTypes.get(parameter.getSimpleName().toString());
+                if (fieldType == null || !TypeUtils.areEqual(fieldType, parameter.asType())) {
+                    declaresProperties = false;
+                    break;
+                }
+            }
+            if (declaresProperties && !constructor.getParameters().isEmpty() &&
+                (primaryConstructor == null ||
+                 constructor.getParameters().size() > primaryConstructor.getParameters().size())) {
+                primaryConstructor = constructor;
+            }
+        }
+
+        return primaryConstructor;
+    }
+
+    /**
+     * Determines if the class has a constructor without parameters that
+     * the type adapter can call. Kotlin generates one when every parameter
+     * of the primary constructor has a default value.
+     */
+    private static boolean hasNoArgumentConstructor(@NotNull TypeElement element) {
+        for (Element enclosedElement : element.getEnclosedElements()) {
+            if (enclosedElement.getKind() == ElementKind.CONSTRUCTOR &&
+                !enclosedElement.getModifiers().contains(Modifier.PRIVATE) &&
+                ((ExecutableElement) enclosedElement).getParameters().isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Maps each parameter of the constructor to the member variable
+     * with the same name and type, and makes sure that every member
+     * variable declared by the class that cannot be assigned after
+     * the object is created is populated by the constructor.
+     */
+    @NotNull
+    private List<FieldAccessor> getConstructorParameters(@NotNull ExecutableElement constructor,
+                                                         @NotNull List<FieldAccessor> declaredMembers) {
+        List<FieldAccessor> constructorParameters = new ArrayList<>();
+        for (VariableElement parameter : constructor.getParameters()) {
+            FieldAccessor parameterField = null;
+            for (Map.Entry<FieldAccessor, TypeMirror> member : mMemberVariables.entrySet()) {
+                if (isParameterForField(parameter, member.getKey())) {
+                    parameterField = member.getKey();
+                    if (!TypeUtils.areEqual(member.getValue(), parameter.asType())) {
+                        MessagerUtils.reportError("Constructor parameter \"" + parameter.getSimpleName() +
+                                                  "\" in class " + mElement.asType() + " must have the type " +
+                                                  member.getValue() + " of the member variable with the same name.",
+                                                  parameter);
+                    }
+                    break;
                 }
             }
+
+            if (parameterField == null) {
+                MessagerUtils.reportError("Unable to find a member variable for constructor parameter \"" +
+                                          parameter.getSimpleName() + "\" in class " + mElement.asType() +
+                                          ", the parameter must have the same name as the member variable.", parameter);
+            } else {
+                constructorParameters.add(parameterField);
+            }
+        }
+
+        for (FieldAccessor member : declaredMembers) {
+            if (!member.hasSetter() && !constructorParameters.contains(member)) {
+                MessagerUtils.reportError("Unable to access field \"" + member.getVariableName() + "\" in class " +
+                                          mElement.asType() + ", field must not be final or must be a parameter " +
+                                          "of the constructor.", mElement);
+            }
         }
 
+        return constructorParameters;
     }
 
     private void addMemberVariable(@NotNull FieldAccessor element, @NotNull TypeMirror typeMirror,
@@ -134,9 +363,29 @@ public class AnnotatedClass {
         mMemberVariables.put(element, typeMirror);
     }
 
-    private static boolean checkPrivateFinalModifiers(@NotNull VariableElement variableElement, @NotNull Set<Modifier> modifiers) {
+    /**
+     * Determines if the constructor parameter populates the field. The names must
+     * match, except that the prefix of a field using Hungarian notation may be
+     * left out of the parameter name, so that mName matches both mName and name.
+     */
+    private boolean isParameterForField(@NotNull VariableElement parameter, @NotNull FieldAccessor field) {
+        String parameterName = parameter.getSimpleName().toString();
+        String variableName = field.getVariableName();
+        if (variableName.equals(parameterName)) {
+            return true;
+        }
+        return mNamingNotation == Notation.HUNGARIAN && variableName.length() > 1 &&
+               StringUtils.convertCharAtToLowerCase(variableName.substring(1), 0).equals(parameterName);
+    }
+
+    private boolean checkPrivateFinalModifiers(@NotNull VariableElement variableElement, @NotNull Set<Modifier> modifiers) {
         Preconditions.checkTrue(!modifiers.contains(Modifier.STATIC));
 
+        if (mConstructor != null) {
+            // Fields that cannot be assigned must be populated by the constructor, which is checked later
+            return modifiers.contains(Modifier.PRIVATE);
+        }
+
         if (modifiers.contains(Modifier.FINAL)) {
             MessagerUtils.reportError("Unable to access field \"" +
                                       variableElement.getSimpleName().toString() + "\" in class " +
@@ -147,25 +396,31 @@ public class AnnotatedClass {
         return modifiers.contains(Modifier.FINAL) || modifiers.contains(Modifier.PRIVATE);
     }
 
-    private void addToSupportedTypes(@NotNull VariableElement element, @NotNull FieldOption fieldOption,
-                                     @NotNull Map<String, FieldAccessor> variableNames) {
+    @Nullable
+    private FieldAccessor addToSupportedTypes(@NotNull VariableElement element, @NotNull FieldOption fieldOption,
+                                              @NotNull Map<String, FieldAccessor> variableNames) {
         if (shouldIncludeField(element, fieldOption)) {
             Set<Modifier> modifiers = element.getModifiers();
             if (!modifiers.contains(Modifier.STATIC) && !modifiers.contains(Modifier.TRANSIENT)) {
 
                 DebugLog.log(TAG, "\t\tMember variables - " + element.asType().toString());
 
+                FieldAccessor fieldAccessor;
                 if (checkPrivateFinalModifiers(element, modifiers)) {
                     try {
-                        addMemberVariable(new MethodFieldAccessor(element, mNamingNotation), element.asType(), variableNames);
+                        fieldAccessor = new MethodFieldAccessor(element, mNamingNotation, mConstructor == null);
                     } catch (UnsupportedOperationException exception) {
                         MessagerUtils.reportError(exception.getMessage(), element);
+                        return null;
                     }
                 } else {
-                    addMemberVariable(new DirectFieldAccessor(element), element.asType(), variableNames);
+                    fieldAccessor = new DirectFieldAccessor(element);
                 }
+                addMemberVariable(fieldAccessor, element.asType(), variableNames);
+                return fieldAccessor;
             }
         }
+        return null;
     }
 
     private boolean shouldIncludeField(@NotNull Element element, @NotNull FieldOption fieldOption) {
@@ -207,4 +462,31 @@ public class AnnotatedClass {
     public LinkedHashMap<FieldAccessor, TypeMirror> getMemberVariables() {
         return new LinkedHashMap<>(mMemberVariables);
     }
+
+    /**
+     * Returns the member variables that are passed to the constructor
+     * used to create instances of this class, in parameter order. The
+     * accessors are the same as the keys of {@link #getMemberVariables()}.
+     *
+     * @return the constructor parameters, or null if instances are
+     * created with the no argument constructor.
+     */
+    @Nullable
+    public List<FieldAccessor> getConstructorParameters() {
+        return mConstructorParameters;
+    }
+
+    /**
+     * Determines if an instance created with the no argument constructor
+     * can supply the values of member variables that are missing from the
+     * JSON, when instances are otherwise created with the constructor
+     * returned by {@link #getConstructorParameters()}. This keeps the
+     * default values of Kotlin constructor parameters without calling
+     * the synthetic constructor Kotlin generates for them.
+     *
+     * @return true if a default instance can be created, false otherwise.
+     */
+    public boolean hasDefaultValue() {
+        return mHasDefaultValue;
+    }
 }
@@ -28,4 +28,9 @@ public class DirectFieldAccessor extends FieldAccessor {
     public String createSetterCode(@NotNull String assignment) {
         return getVariableName() + " = " + assignment;
     }
+
+    @Override
+    public boolean hasSetter() {
+        return !isFinal();
+    }
 }
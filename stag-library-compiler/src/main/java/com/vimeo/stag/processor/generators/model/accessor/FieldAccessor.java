@@ -9,6 +9,7 @@ import org.jetbrains.annotations.Nullable;
 
 import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
 import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.MirroredTypeException;
 import javax.lang.model.type.TypeMirror;
@@ -58,16 +59,34 @@ public abstract class FieldAccessor {
     @NotNull
     public abstract String createSetterCode(@NotNull String assignment);
 
+    /**
+     * Determines if {@link #createSetterCode(String)}
+     * can be used to assign this field.
+     *
+     * @return true if the field can be assigned after
+     * the object is created, false otherwise.
+     */
+    public abstract boolean hasSetter();
+
     /**
      * The variable name of this field.
      *
      * @return the variable name of this field.
      */
     @NotNull
-    protected final String getVariableName() {
+    public final String getVariableName() {
         return mVariableElement.getSimpleName().toString();
     }
 
+    /**
+     * Determines if this field was declared final.
+     *
+     * @return true if the field is final, false otherwise.
+     */
+    public final boolean isFinal() {
+        return mVariableElement.getModifiers().contains(Modifier.FINAL);
+    }
+
     /**
      * Determines if this field was marked with
      * a not null annotation that requires the
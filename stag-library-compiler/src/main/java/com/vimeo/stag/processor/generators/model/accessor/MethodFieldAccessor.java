@@ -6,6 +6,7 @@ import com.vimeo.stag.processor.utils.StringUtils;
 import com.vimeo.stag.processor.utils.TypeUtils;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -36,14 +37,33 @@ public class MethodFieldAccessor extends FieldAccessor {
         HUNGARIAN
     }
 
-    @NotNull private final String mSetterName;
+    @Nullable private final String mSetterName;
     @NotNull private final String mGetterName;
 
     public MethodFieldAccessor(@NotNull final VariableElement element,
                                @NotNull final Notation notation) throws UnsupportedOperationException {
+        this(element, notation, true);
+    }
+
+    /**
+     * @param requireSetter false if the field is populated through a
+     *                      constructor, in which case a missing setter
+     *                      is not an error.
+     */
+    public MethodFieldAccessor(@NotNull final VariableElement element,
+                               @NotNull final Notation notation,
+                               final boolean requireSetter) throws UnsupportedOperationException {
         super(element);
 
-        mSetterName = findSetterMethodName(element, notation);
+        String setterName = null;
+        try {
+            setterName = findSetterMethodName(element, notation);
+        } catch (UnsupportedOperationException exception) {
+            if (requireSetter) {
+                throw exception;
+            }
+        }
+        mSetterName = setterName;
         mGetterName = findGetterMethodName(element, notation);
     }
 
@@ -56,9 +76,17 @@ public class MethodFieldAccessor extends FieldAccessor {
     @NotNull
     @Override
     public String createSetterCode(@NotNull final String assignment) {
+        if (mSetterName == null) {
+            throw new UnsupportedOperationException("Unable to find setter for variable: " + getVariableName());
+        }
         return mSetterName + '(' + assignment + ')';
     }
 
+    @Override
+    public boolean hasSetter() {
+        return mSetterName != null;
+    }
+
     @NotNull
     private static List<ExecutableElement> getSiblingMethods(@NotNull final VariableElement variableElement) {
         final List<ExecutableElement> methodElements = new ArrayList<>();
@@ -122,6 +150,11 @@ public class MethodFieldAccessor extends FieldAccessor {
 
         final boolean variableNameBeginsWithIs = variableNameBeginsWithIs(variableNameMethodComponent);
 
+        // Records expose their components through accessors named after the component
+        if (ElementUtils.isRecord(variableElement.getEnclosingElement())) {
+            return methodName.equals(variableElement.getSimpleName().toString());
+        }
+
         return (isBoolean(returnType)
                 && (methodName.equals(variableNameBeginsWithIs
                                               ? StringUtils.convertCharAtToLowerCase(variableNameMethodComponent, 0)
@@ -1,13 +1,19 @@
 package com.vimeo.stag.processor.generators.typeadapter;
 
 import com.google.gson.stream.JsonReader;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.TypeName;
+import com.vimeo.stag.processor.codegen.StringDecisionTreeBuilder;
+import com.vimeo.stag.processor.codegen.SwitchCodeBlockBuilder;
 import com.vimeo.stag.processor.generators.TypeAdapterGenerator;
 import com.vimeo.stag.processor.generators.model.accessor.FieldAccessor;
+import com.vimeo.stag.processor.utils.StringUtils;
 import com.vimeo.stag.processor.utils.TypeUtils;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -18,10 +24,80 @@ import javax.lang.model.element.Modifier;
 import javax.lang.model.type.TypeMirror;
 
 public class ReadSpecGenerator {
+
+    private static final String FIELD_INDEX_METHOD_NAME = "getFieldIndex";
+    private static final String FIELD_NAMES_FIELD_NAME = "FIELD_NAMES";
+    private static final String DEFAULT_VALUE_VARIABLE_NAME = "defaultValue";
+
+    /**
+     * Generates a static array of the primary JSON names of the member
+     * variables, indexed the same way as {@link #getFieldIndexMethodSpec}.
+     * It is used to guess the next name when reading in speculative field
+     * order.
+     */
+    @NotNull
+    public static FieldSpec getFieldNamesFieldSpec(@NotNull Map<FieldAccessor, TypeMirror> elements) {
+        CodeBlock.Builder initializer = CodeBlock.builder().add("{");
+        int index = 0;
+        for (FieldAccessor fieldAccessor : elements.keySet()) {
+            initializer.add(index == 0 ? "$L" : ", $L", StringUtils.toJavaStringLiteral(fieldAccessor.getJsonName()));
+            index++;
+        }
+        initializer.add("}");
+
+        return FieldSpec.builder(String[].class, FIELD_NAMES_FIELD_NAME, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .initializer(initializer.build())
+                .build();
+    }
+
+    /**
+     * Generates a method that maps a JSON name to the index of the
+     * member variable it populates, or -1 if the name is unknown.
+     * The index is the position of the field in the member variables,
+     * which is the same order {@link #getReadMethodSpec} switches on.
+     */
+    @NotNull
+    public static MethodSpec getFieldIndexMethodSpec(@NotNull Map<FieldAccessor, TypeMirror> elements) {
+        StringDecisionTreeBuilder decisionTreeBuilder = new StringDecisionTreeBuilder("name");
+
+        int index = 0;
+        for (FieldAccessor fieldAccessor : elements.keySet()) {
+            decisionTreeBuilder.addCase(fieldAccessor.getJsonName(), String.valueOf(index));
+
+            String[] alternateJsonNames = fieldAccessor.getAlternateJsonNames();
+            if (alternateJsonNames != null) {
+                for (String alternateJsonName : alternateJsonNames) {
+                    decisionTreeBuilder.addCase(alternateJsonName, String.valueOf(index));
+                }
+            }
+            index++;
+        }
+
+        return MethodSpec.methodBuilder(FIELD_INDEX_METHOD_NAME)
+                .addParameter(String.class, "name")
+                .returns(int.class)
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addCode(decisionTreeBuilder.build("-1"))
+                .build();
+    }
+
+    /**
+     * Generates the read method of the type adapter. If constructor parameters are provided,
+     * the values of all the member variables are read into local variables first, and the
+     * object is then created by calling the constructor once with the parameter values.
+     * Otherwise, the object is created with its no argument constructor and each member
+     * variable is assigned as soon as it is read. If the class has a default value, an
+     * instance is created with the no argument constructor for every object that misses
+     * a constructor parameter in the JSON, and the missing parameters take its values,
+     * so that they are evaluated once per object the way Kotlin default arguments are.
+     */
     @NotNull
     public static MethodSpec getReadMethodSpec(@NotNull TypeName typeName,
                                                @NotNull Map<FieldAccessor, TypeMirror> elements,
-                                               @NotNull TypeAdapterGenerator.AdapterFieldInfo adapterFieldInfo) {
+                                               @NotNull TypeAdapterGenerator.AdapterFieldInfo adapterFieldInfo,
+                                               @Nullable List<FieldAccessor> constructorParameters,
+                                               boolean hasDefaultValue,
+                                               boolean speculativeFieldOrder) {
         MethodSpec.Builder builder = MethodSpec.methodBuilder("read")
                 .addParameter(JsonReader.class, "reader")
                 .returns(typeName)
@@ -43,68 +119,300 @@ public class ReadSpecGenerator {
         builder.endControlFlow();
 
         builder.addStatement("reader.beginObject()");
-        builder.addStatement(typeName + " object = new " + typeName + "()");
-
-        builder.beginControlFlow("while (reader.hasNext())");
-        builder.addStatement("String name = reader.nextName()");
-        builder.beginControlFlow("switch (name)");
-
+        if (constructorParameters == null) {
+            builder.addStatement(typeName + " object = new " + typeName + "()");
+        } else {
+            int fieldIndex = 0;
+            for (Map.Entry<FieldAccessor, TypeMirror> element : elements.entrySet()) {
+                String variableType = element.getValue().toString();
+                builder.addStatement(variableType + " " + getLocalVariableName(fieldIndex) + " = " + getDefaultValue(variableType));
+                if (tracksPresence(element.getKey(), constructorParameters, hasDefaultValue)) {
+                    builder.addStatement("boolean " + getPresenceVariableName(fieldIndex) + " = false");
+                }
+                fieldIndex++;
+            }
+        }
 
         final List<FieldAccessor> nonNullFields = new ArrayList<>();
+        for (Map.Entry<FieldAccessor, TypeMirror> element : elements.entrySet()) {
+            if (element.getKey().doesRequireNotNull() && !TypeUtils.isSupportedPrimitive(element.getValue().toString())) {
+                nonNullFields.add(element.getKey());
+            }
+        }
+        boolean isLongMask = nonNullFields.size() > Integer.SIZE;
+        for (int maskIndex = 0; maskIndex < getMaskCount(nonNullFields.size(), isLongMask); maskIndex++) {
+            builder.addStatement((isLongMask ? "long " : "int ") + getMaskVariableName(maskIndex) + " = 0");
+        }
+
+        SwitchCodeBlockBuilder switchBuilder = new SwitchCodeBlockBuilder();
+        if (speculativeFieldOrder) {
+            /*
+             * Guess that the next name is the field declared after the last one that was read,
+             * which is the order the write method produces, and only walk the full dispatch on a miss.
+             */
+            builder.addStatement("int expectedIndex = 0");
+            builder.beginControlFlow("while (reader.hasNext())");
+            builder.addStatement("String name = reader.nextName()");
+            builder.addStatement("int index = expectedIndex < " + FIELD_NAMES_FIELD_NAME + ".length && " +
+                    FIELD_NAMES_FIELD_NAME + "[expectedIndex].equals(name) ? expectedIndex : " +
+                    FIELD_INDEX_METHOD_NAME + "(name)");
+            builder.beginControlFlow("if (index >= 0)");
+            builder.addStatement("expectedIndex = index + 1");
+            builder.endControlFlow();
+            switchBuilder.beginSwitch("switch (index)");
+        } else {
+            builder.beginControlFlow("while (reader.hasNext())");
+            switchBuilder.beginSwitch("switch (" + FIELD_INDEX_METHOD_NAME + "(reader.nextName()))");
+        }
 
+        int index = 0;
         for (Map.Entry<FieldAccessor, TypeMirror> element : elements.entrySet()) {
             final FieldAccessor fieldAccessor = element.getKey();
             String name = fieldAccessor.getJsonName();
 
             final TypeMirror elementValue = element.getValue();
 
-            builder.addCode("case \"" + name + "\":\n");
-
-            String[] alternateJsonNames = fieldAccessor.getAlternateJsonNames();
-            if (alternateJsonNames != null && alternateJsonNames.length > 0) {
-                for (String alternateJsonName : alternateJsonNames) {
-                    builder.addCode("case \"" + alternateJsonName + "\":\n");
-                }
-            }
+            switchBuilder.beginCase("case " + index);
 
             String variableType = element.getValue().toString();
             boolean isPrimitive = TypeUtils.isSupportedPrimitive(variableType);
 
-            if (isPrimitive) {
-                builder.addStatement("\tobject." +
-                        fieldAccessor.createSetterCode(adapterFieldInfo.getAdapterAccessor(elementValue, name) +
-                                ".read(reader, object." + fieldAccessor.createGetterCode() + ")"));
+            boolean isDefaultedPrimitive = isPrimitive && hasDefaultValue && constructorParameters != null &&
+                    constructorParameters.contains(fieldAccessor);
+            if (isDefaultedPrimitive) {
+                // A null keeps the default value, as it does for primitives that are not constructor parameters
+                switchBuilder.beginControlFlow("if (reader.peek() == com.google.gson.stream.JsonToken.NULL)");
+                switchBuilder.addStatement("reader.nextNull()");
+                switchBuilder.nextControlFlow("else");
+            }
 
+            String readCode;
+            if (isPrimitive) {
+                readCode = adapterFieldInfo.getAdapterAccessor(elementValue, name) + ".read(reader, " +
+                        (constructorParameters == null ? "object." + fieldAccessor.createGetterCode() : getLocalVariableName(index)) + ")";
             } else {
-                builder.addStatement("\tobject." + fieldAccessor.createSetterCode(adapterFieldInfo.getAdapterAccessor(elementValue, name) +
-                        ".read(reader)"));
+                readCode = adapterFieldInfo.getAdapterAccessor(elementValue, name) + ".read(reader)";
             }
 
+            int nonNullIndex = nonNullFields.indexOf(fieldAccessor);
+            if (constructorParameters == null && nonNullIndex < 0) {
+                switchBuilder.addStatement("object." + fieldAccessor.createSetterCode(readCode));
+            } else {
+                switchBuilder.addStatement((constructorParameters == null ? variableType + " " : "") +
+                        getLocalVariableName(index) + " = " + readCode);
+            }
 
-            builder.addStatement("\tbreak");
-            if (fieldAccessor.doesRequireNotNull()) {
-                if (!TypeUtils.isSupportedPrimitive(elementValue.toString())) {
-                    nonNullFields.add(fieldAccessor);
+            if (nonNullIndex >= 0) {
+                // Only a non null value marks the field as present, so that an explicit null fails
+                switchBuilder.beginControlFlow("if (" + getLocalVariableName(index) + " != null)");
+                switchBuilder.addStatement(getMaskVariableName(nonNullIndex, isLongMask) + " |= " + getMaskBit(nonNullIndex, isLongMask));
+                switchBuilder.endControlFlow();
+                if (constructorParameters == null) {
+                    switchBuilder.addStatement("object." + fieldAccessor.createSetterCode(getLocalVariableName(index)));
                 }
             }
+
+            if (constructorParameters != null && tracksPresence(fieldAccessor, constructorParameters, hasDefaultValue)) {
+                switchBuilder.addStatement(getPresenceVariableName(index) + " = true");
+            }
+            if (isDefaultedPrimitive) {
+                switchBuilder.endControlFlow();
+            }
+
+            switchBuilder.endCase();
+            index++;
         }
 
-        builder.addCode("default:\n");
-        builder.addStatement("reader.skipValue()");
-        builder.addStatement("break");
-        builder.endControlFlow();
+        switchBuilder.beginCase("default")
+                .addStatement("reader.skipValue()")
+                .endCase()
+                .endSwitch();
+        builder.addCode(switchBuilder.build());
         builder.endControlFlow();
 
         builder.addStatement("reader.endObject()");
 
-        for (FieldAccessor nonNullField : nonNullFields) {
-            builder.beginControlFlow("if (object." + nonNullField.createGetterCode() + " == null)");
-            builder.addStatement("throw new java.io.IOException(\"" + nonNullField.createGetterCode() + " cannot be null\")");
-            builder.endControlFlow();
+        List<FieldAccessor> fields = new ArrayList<>(elements.keySet());
+        if (constructorParameters != null && hasDefaultValue) {
+            addDefaultValues(builder, typeName, fields, constructorParameters);
+        }
+        addNonNullCheck(builder, fields, nonNullFields, isLongMask, constructorParameters == null);
+
+        if (constructorParameters != null) {
+            StringBuilder arguments = new StringBuilder();
+            for (FieldAccessor constructorParameter : constructorParameters) {
+                if (arguments.length() > 0) {
+                    arguments.append(", ");
+                }
+                arguments.append(getLocalVariableName(fields.indexOf(constructorParameter)));
+            }
+            builder.addStatement(typeName + " object = new " + typeName + "(" + arguments + ")");
+
+            for (int fieldIndex = 0; fieldIndex < fields.size(); fieldIndex++) {
+                FieldAccessor field = fields.get(fieldIndex);
+                if (!constructorParameters.contains(field)) {
+                    builder.beginControlFlow("if (" + getPresenceVariableName(fieldIndex) + ")");
+                    builder.addStatement("object." + field.createSetterCode(getLocalVariableName(fieldIndex)));
+                    builder.endControlFlow();
+                }
+            }
         }
 
         builder.addStatement("return object");
 
         return builder.build();
     }
+
+    /**
+     * Adds the code that takes the constructor parameters that were missing from the JSON
+     * from a new instance created with the no argument constructor. The instance is only
+     * created if a parameter is missing, and a new one is created for every object, so
+     * that objects never share a mutable default value.
+     */
+    private static void addDefaultValues(@NotNull MethodSpec.Builder builder,
+                                         @NotNull TypeName typeName,
+                                         @NotNull List<FieldAccessor> fields,
+                                         @NotNull List<FieldAccessor> constructorParameters) {
+        StringBuilder condition = new StringBuilder();
+        for (FieldAccessor constructorParameter : constructorParameters) {
+            if (condition.length() > 0) {
+                condition.append(" || ");
+            }
+            condition.append("!").append(getPresenceVariableName(fields.indexOf(constructorParameter)));
+        }
+
+        builder.beginControlFlow("if (" + condition + ")");
+        builder.addStatement("$T " + DEFAULT_VALUE_VARIABLE_NAME + " = new $T()", typeName, typeName);
+        for (FieldAccessor constructorParameter : constructorParameters) {
+            int fieldIndex = fields.indexOf(constructorParameter);
+            builder.beginControlFlow("if (!" + getPresenceVariableName(fieldIndex) + ")");
+            builder.addStatement(getLocalVariableName(fieldIndex) + " = " + DEFAULT_VALUE_VARIABLE_NAME + "." +
+                    constructorParameter.createGetterCode());
+            builder.endControlFlow();
+        }
+        builder.endControlFlow();
+    }
+
+    /**
+     * Returns true if the read method remembers whether the field was present in the JSON,
+     * which is needed for the fields that are set after the constructor is called, and for
+     * the constructor parameters that take a default value when they are missing.
+     */
+    private static boolean tracksPresence(@NotNull FieldAccessor fieldAccessor,
+                                          @NotNull List<FieldAccessor> constructorParameters,
+                                          boolean hasDefaultValue) {
+        return hasDefaultValue || !constructorParameters.contains(fieldAccessor);
+    }
+
+    /**
+     * Adds the check that every non null field was read. The bits of the masks are
+     * compared first, so that when all the fields were present in the JSON no value
+     * is looked at again. Fields whose bit is missing may still have a non null
+     * default value, so only the fields that are actually null are reported.
+     */
+    private static void addNonNullCheck(@NotNull MethodSpec.Builder builder,
+                                        @NotNull List<FieldAccessor> fields,
+                                        @NotNull List<FieldAccessor> nonNullFields,
+                                        boolean isLongMask,
+                                        boolean readsIntoObject) {
+        if (nonNullFields.isEmpty()) {
+            return;
+        }
+
+        StringBuilder condition = new StringBuilder();
+        int maskCount = getMaskCount(nonNullFields.size(), isLongMask);
+        int maskSize = isLongMask ? Long.SIZE : Integer.SIZE;
+        for (int maskIndex = 0; maskIndex < maskCount; maskIndex++) {
+            int lastIndex = Math.min(nonNullFields.size(), (maskIndex + 1) * maskSize) - 1;
+            long fullMask = (getMaskBitValue(lastIndex, isLongMask) << 1) - 1;
+            if (condition.length() > 0) {
+                condition.append(" || ");
+            }
+            condition.append(getMaskVariableName(maskIndex)).append(" != ").append(getMaskLiteral(fullMask, isLongMask));
+        }
+
+        builder.beginControlFlow("if (" + condition + ")");
+        builder.addStatement("StringBuilder missingFields = new StringBuilder()");
+        for (int nonNullIndex = 0; nonNullIndex < nonNullFields.size(); nonNullIndex++) {
+            FieldAccessor nonNullField = nonNullFields.get(nonNullIndex);
+            String value = readsIntoObject ? "object." + nonNullField.createGetterCode() :
+                    getLocalVariableName(fields.indexOf(nonNullField));
+            builder.beginControlFlow("if ((" + getMaskVariableName(nonNullIndex, isLongMask) + " & " +
+                    getMaskBit(nonNullIndex, isLongMask) + ") == 0 && " + value + " == null)");
+            builder.addStatement("missingFields.append(\", " + nonNullField.createGetterCode() + "\")");
+            builder.endControlFlow();
+        }
+        builder.beginControlFlow("if (missingFields.length() > 0)");
+        builder.addStatement("throw new java.io.IOException(missingFields.substring(2) + \" cannot be null\")");
+        builder.endControlFlow();
+        builder.endControlFlow();
+    }
+
+    private static int getMaskCount(int nonNullFieldCount, boolean isLongMask) {
+        int maskSize = isLongMask ? Long.SIZE : Integer.SIZE;
+        return (nonNullFieldCount + maskSize - 1) / maskSize;
+    }
+
+    @NotNull
+    private static String getMaskVariableName(int maskIndex) {
+        return "presentFields" + maskIndex;
+    }
+
+    @NotNull
+    private static String getMaskVariableName(int nonNullIndex, boolean isLongMask) {
+        return getMaskVariableName(nonNullIndex / (isLongMask ? Long.SIZE : Integer.SIZE));
+    }
+
+    private static long getMaskBitValue(int nonNullIndex, boolean isLongMask) {
+        return 1L << (nonNullIndex % (isLongMask ? Long.SIZE : Integer.SIZE));
+    }
+
+    @NotNull
+    private static String getMaskBit(int nonNullIndex, boolean isLongMask) {
+        return getMaskLiteral(getMaskBitValue(nonNullIndex, isLongMask), isLongMask);
+    }
+
+    @NotNull
+    private static String getMaskLiteral(long mask, boolean isLongMask) {
+        return isLongMask ? "0x" + Long.toHexString(mask) + "L" : "0x" + Integer.toHexString((int) mask);
+    }
+
+    @NotNull
+    private static String getLocalVariableName(int index) {
+        return "value" + index;
+    }
+
+    @NotNull
+    private static String getPresenceVariableName(int index) {
+        return "hasValue" + index;
+    }
+
+    /**
+     * Returns the value a local variable of the
+     * type holds before anything is read into it,
+     * which is the same default a field would have.
+     */
+    @NotNull
+    private static String getDefaultValue(@NotNull String variableType) {
+        switch (variableType) {
+            case "boolean":
+                return "false";
+            case "byte":
+                return "(byte) 0";
+            case "short":
+                return "(short) 0";
+            case "char":
+                return "(char) 0";
+            case "int":
+                return "0";
+            case "long":
+                return "0L";
+            case "float":
+                return "0f";
+            case "double":
+                return "0d";
+            default:
+                return "null";
+        }
+    }
 }
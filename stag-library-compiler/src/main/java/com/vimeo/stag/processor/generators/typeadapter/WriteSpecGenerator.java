@@ -1,15 +1,21 @@
 package com.vimeo.stag.processor.generators.typeadapter;
 
 import com.google.gson.stream.JsonWriter;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.TypeName;
+import com.vimeo.stag.JsonFieldName;
+import com.vimeo.stag.StagJsonWriter;
 import com.vimeo.stag.processor.generators.TypeAdapterGenerator;
 import com.vimeo.stag.processor.generators.model.accessor.FieldAccessor;
+import com.vimeo.stag.processor.utils.StringUtils;
 import com.vimeo.stag.processor.utils.TypeUtils;
 
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import javax.lang.model.element.Modifier;
@@ -17,6 +23,26 @@ import javax.lang.model.type.TypeMirror;
 
 public class WriteSpecGenerator {
 
+    /**
+     * Generates a static {@link JsonFieldName} for the JSON name of each member
+     * variable, so that the name is escaped once instead of every time an object
+     * is written to a {@link StagJsonWriter}.
+     */
+    @NotNull
+    public static List<FieldSpec> getFieldNameFieldSpecs(@NotNull Map<FieldAccessor, TypeMirror> memberVariables) {
+        List<FieldSpec> fieldSpecs = new ArrayList<>();
+        int index = 0;
+        for (FieldAccessor fieldAccessor : memberVariables.keySet()) {
+            fieldSpecs.add(FieldSpec.builder(JsonFieldName.class, getFieldNameFieldName(index),
+                                             Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                                   .initializer("new $T($L)", JsonFieldName.class,
+                                                StringUtils.toJavaStringLiteral(fieldAccessor.getJsonName()))
+                                   .build());
+            index++;
+        }
+        return fieldSpecs;
+    }
+
     @NotNull
     public static MethodSpec getWriteMethodSpec(@NotNull TypeName typeName, @NotNull Map<FieldAccessor, TypeMirror> memberVariables,
                                                 @NotNull TypeAdapterGenerator.AdapterFieldInfo adapterFieldInfo, boolean serializeNulls) {
@@ -34,6 +60,7 @@ public class WriteSpecGenerator {
         methodBuilder.endControlFlow();
         methodBuilder.addStatement("writer.beginObject()");
 
+        int index = 0;
         for (Map.Entry<FieldAccessor, TypeMirror> element : memberVariables.entrySet()) {
             FieldAccessor fieldAccessor = element.getKey();
             final String getterCode = fieldAccessor.createGetterCode();
@@ -42,11 +69,20 @@ public class WriteSpecGenerator {
             String variableType = element.getValue().toString();
 
             boolean isPrimitive = TypeUtils.isSupportedPrimitive(variableType);
+            String value = "object." + getterCode;
+            if (!isPrimitive) {
+                // The value is checked for null before it is written, so it is only read from the object once
+                methodBuilder.addCode("\n");
+                value = "value" + index;
+                methodBuilder.addStatement(variableType + " " + value + " = object." + getterCode);
+            }
+            String nameCode = TypeUtils.className(StagJsonWriter.class) + ".name(writer, " + getFieldNameFieldName(index) + ")";
             if (serializeNulls) {
-                specForSerializedNullsEnabled(methodBuilder, element, adapterFieldInfo, fieldAccessor, getterCode, name, isPrimitive);
+                specForSerializedNullsEnabled(methodBuilder, element, adapterFieldInfo, fieldAccessor, getterCode, value, name, nameCode, isPrimitive);
             } else {
-                specForSerializedNullsDisabled(methodBuilder, element, adapterFieldInfo, fieldAccessor, getterCode, name, isPrimitive);
+                specForSerializedNullsDisabled(methodBuilder, element, adapterFieldInfo, fieldAccessor, getterCode, value, name, nameCode, isPrimitive);
             }
+            index++;
         }
 
         methodBuilder.addCode("\n");
@@ -56,43 +92,47 @@ public class WriteSpecGenerator {
 
     private static void specForSerializedNullsDisabled(@NotNull MethodSpec.Builder methodBuilder, @NotNull Map.Entry<FieldAccessor, TypeMirror> element,
                                                        @NotNull TypeAdapterGenerator.AdapterFieldInfo adapterFieldInfo, @NotNull FieldAccessor fieldAccessor,
-                                                       @NotNull String getterCode, @NotNull String name, boolean isPrimitive) {
-        methodBuilder.addCode("\n");
+                                                       @NotNull String getterCode, @NotNull String value,
+                                                       @NotNull String name, @NotNull String nameCode, boolean isPrimitive) {
         if (!isPrimitive) {
-            methodBuilder.beginControlFlow("if (object." + getterCode + " != null) ");
+            methodBuilder.beginControlFlow("if (" + value + " != null) ");
+        } else {
+            methodBuilder.addCode("\n");
         }
-        methodBuilder.addStatement("writer.name(\"" + name + "\")");
+        methodBuilder.addStatement(nameCode);
         if (!isPrimitive) {
             methodBuilder.addStatement(
-                    adapterFieldInfo.getAdapterAccessor(element.getValue(), name) + ".write(writer, object." +
-                            getterCode + ")");
+                    adapterFieldInfo.getAdapterAccessor(element.getValue(), name) + ".write(writer, " + value + ")");
             /*
              * If the element is annotated with NotNull annotation, throw {@link IOException} if it is null.
              */
             if (fieldAccessor.doesRequireNotNull()) {
                 methodBuilder.endControlFlow();
-                methodBuilder.beginControlFlow("else if (object." + getterCode + " == null)");
+                methodBuilder.beginControlFlow("else");
                 methodBuilder.addStatement("throw new java.io.IOException(\"" + getterCode +
                         " cannot be null\")");
             }
             methodBuilder.endControlFlow();
         } else {
-            methodBuilder.addStatement("writer.value(object." + getterCode + ")");
+            methodBuilder.addStatement("writer.value(" + value + ")");
         }
     }
 
     private static void specForSerializedNullsEnabled(@NotNull MethodSpec.Builder methodBuilder, @NotNull Map.Entry<FieldAccessor, TypeMirror> element,
                                                       @NotNull TypeAdapterGenerator.AdapterFieldInfo adapterFieldInfo,
-                                                      @NotNull FieldAccessor fieldAccessor, @NotNull String getterCode, @NotNull String name, boolean isPrimitive) {
-        methodBuilder.addCode("\n");
-        methodBuilder.addStatement("writer.name(\"" + name + "\")");
+                                                      @NotNull FieldAccessor fieldAccessor, @NotNull String getterCode,
+                                                      @NotNull String value, @NotNull String name, @NotNull String nameCode,
+                                                      boolean isPrimitive) {
+        if (isPrimitive) {
+            methodBuilder.addCode("\n");
+        }
+        methodBuilder.addStatement(nameCode);
         if (!isPrimitive) {
-            methodBuilder.beginControlFlow("if (object." + getterCode + " != null) ");
+            methodBuilder.beginControlFlow("if (" + value + " != null) ");
         }
         if (!isPrimitive) {
             methodBuilder.addStatement(
-                    adapterFieldInfo.getAdapterAccessor(element.getValue(), name) + ".write(writer, object." +
-                            getterCode + ")");
+                    adapterFieldInfo.getAdapterAccessor(element.getValue(), name) + ".write(writer, " + value + ")");
             /*
              * If the element is annotated with NotNull annotation, throw {@link IOException} if it is null.
              */
@@ -107,7 +147,12 @@ public class WriteSpecGenerator {
             }
             methodBuilder.endControlFlow();
         } else {
-            methodBuilder.addStatement("writer.value(object." + getterCode + ")");
+            methodBuilder.addStatement("writer.value(" + value + ")");
         }
     }
+
+    @NotNull
+    private static String getFieldNameFieldName(int index) {
+        return "NAME_" + index;
+    }
 }
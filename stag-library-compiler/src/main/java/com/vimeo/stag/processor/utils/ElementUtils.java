@@ -30,6 +30,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.lang.annotation.Annotation;
 
+import javax.lang.model.element.AnnotationMirror;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
@@ -41,6 +42,8 @@ import javax.lang.model.util.Elements;
 
 public final class ElementUtils {
 
+    private static final String KOTLIN_METADATA = "kotlin.Metadata";
+
     @Nullable private static Elements sElementUtils;
 
     private ElementUtils() {
@@ -107,10 +110,41 @@ public final class ElementUtils {
             return false;
         }
         ElementKind elementKind = element.getKind();
-        return (elementKind == ElementKind.CLASS || elementKind == ElementKind.ENUM)
+        return (elementKind == ElementKind.CLASS || elementKind == ElementKind.ENUM || isRecord(element))
                && isAnnotatedWith(UseStag.class, element);
     }
 
+    /**
+     * Determines if an element is a Java record. The kind is compared
+     * by name so that the check also works on a JDK without records.
+     *
+     * @param element the element to check.
+     * @return true if the element is a record, false otherwise.
+     */
+    public static boolean isRecord(@Nullable Element element) {
+        return element != null && "RECORD".equals(element.getKind().name());
+    }
+
+    /**
+     * Determines if an element was declared in Kotlin, which is the case
+     * when it carries the {@code kotlin.Metadata} annotation that the Kotlin
+     * compiler and kapt add to every class.
+     *
+     * @param element the element to check.
+     * @return true if the element is a Kotlin class, false otherwise.
+     */
+    public static boolean isKotlinClass(@Nullable Element element) {
+        if (element == null) {
+            return false;
+        }
+        for (AnnotationMirror annotationMirror : element.getAnnotationMirrors()) {
+            if (KOTLIN_METADATA.equals(annotationMirror.getAnnotationType().toString())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Nullable
     public static ExecutableElement getFirstConstructor(@Nullable TypeMirror typeMirror) {
         Element typeElement = typeMirror != null ? TypeUtils.unsafeTypeMirrorToTypeElement(typeMirror) : null;
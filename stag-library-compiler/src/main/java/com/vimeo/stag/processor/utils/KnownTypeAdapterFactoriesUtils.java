@@ -23,6 +23,9 @@
  */
 package com.vimeo.stag.processor.utils;
 
+import com.vimeo.stag.StagModuleFactory;
+import com.vimeo.stag.processor.generators.StagGenerator;
+
 import org.jetbrains.annotations.NotNull;
 
 import java.io.BufferedReader;
@@ -44,6 +47,7 @@ import javax.lang.model.util.Elements;
 public final class KnownTypeAdapterFactoriesUtils {
 
     private static final String KNOWN_FACTORIES_RESOURCE = "StagTypeAdapterFactory.list";
+    private static final String MODULE_FACTORY_SERVICE_RESOURCE = "META-INF/services/" + StagModuleFactory.class.getName();
 
     private KnownTypeAdapterFactoriesUtils() {
         throw new UnsupportedOperationException("This class is not instantiable");
@@ -81,6 +85,20 @@ public final class KnownTypeAdapterFactoriesUtils {
                                      knownTypesBuilder.toString());
     }
 
+    /**
+     * Registers the generated {@code Stag.Factory} as a {@link StagModuleFactory} service,
+     * so that {@link com.vimeo.stag.StagRegistry#load(ClassLoader)} can find it.
+     *
+     * @param processingEnv        the processing environment.
+     * @param generatedPackageName the package of the generated {@code Stag} class.
+     * @throws IOException if the service file cannot be written.
+     */
+    public static void writeModuleFactoryService(@NotNull ProcessingEnvironment processingEnv,
+                                                 @NotNull String generatedPackageName) throws IOException {
+        FileGenUtils.writeToResource(processingEnv.getFiler(), "", MODULE_FACTORY_SERVICE_RESOURCE,
+                                     generatedPackageName + "." + StagGenerator.CLASS_STAG_FACTORY + "\n");
+    }
+
     private static void loadKnownTypesFromFiler(@NotNull Elements elementUtils, @NotNull Filer filer,
                                                 @NotNull String generatedPackageName,
                                                 @NotNull Set<TypeMirror> resultSet) throws IOException {
@@ -6,7 +6,12 @@ import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
 import com.google.gson.internal.bind.TypeAdapters;
+import com.vimeo.stag.DoubleList;
+import com.vimeo.stag.IntList;
+import com.vimeo.stag.IntObjectMap;
 import com.vimeo.stag.KnownTypeAdapters;
+import com.vimeo.stag.LongList;
+import com.vimeo.stag.LongObjectMap;
 import com.vimeo.stag.processor.utils.logging.DebugLog;
 
 import org.jetbrains.annotations.NotNull;
@@ -48,6 +53,8 @@ public final class KnownTypeAdapterUtils {
     @NotNull private static final HashMap<String, String> SUPPORTED_MAP_INSTANTIATORS = new HashMap<>();
     @NotNull private static final HashMap<String, String> KNOWN_PRIMITIVE_ARRAY_TYPE_ADAPTERS = new HashMap<>();
     @NotNull private static final HashMap<String, String> KNOWN_PRIMITIVE_TYPE_ADAPTERS = new HashMap<>();
+    @NotNull private static final HashMap<String, String> SCALAR_KEY_MAP_TYPE_ADAPTERS = new HashMap<>();
+    @NotNull private static final HashMap<String, String> PRIMITIVE_KEY_MAP_TYPE_ADAPTERS = new HashMap<>();
 
     static {
         KNOWN_TYPE_ADAPTERS.put(BitSet.class.getName(), typeAdapters(TypeAdapters.BIT_SET));
@@ -81,6 +88,9 @@ public final class KnownTypeAdapterUtils {
         KNOWN_TYPE_ADAPTERS.put(JsonArray.class.getName(), knownTypeAdapters(KnownTypeAdapters.JSON_ARRAY));
         KNOWN_TYPE_ADAPTERS.put(JsonPrimitive.class.getName(), knownTypeAdapters(KnownTypeAdapters.JSON_PRIMITIVE));
         KNOWN_TYPE_ADAPTERS.put(JsonNull.class.getName(), knownTypeAdapters(KnownTypeAdapters.JSON_NULL));
+        KNOWN_TYPE_ADAPTERS.put(IntList.class.getName(), knownTypeAdapters(KnownTypeAdapters.INT_LIST));
+        KNOWN_TYPE_ADAPTERS.put(LongList.class.getName(), knownTypeAdapters(KnownTypeAdapters.LONG_LIST));
+        KNOWN_TYPE_ADAPTERS.put(DoubleList.class.getName(), knownTypeAdapters(KnownTypeAdapters.DOUBLE_LIST));
 
         KNOWN_PRIMITIVE_ARRAY_TYPE_ADAPTERS.put(int[].class.getSimpleName(), className(KnownTypeAdapters.PrimitiveIntegerArrayAdapter.class));
         KNOWN_PRIMITIVE_ARRAY_TYPE_ADAPTERS.put(long[].class.getSimpleName(), className(KnownTypeAdapters.PrimitiveLongArrayAdapter.class));
@@ -104,6 +114,13 @@ public final class KnownTypeAdapterUtils {
         SUPPORTED_COLLECTION_INSTANTIATORS.put(List.class.getName(), className(KnownTypeAdapters.ListInstantiator.class));
         SUPPORTED_COLLECTION_INSTANTIATORS.put(Collection.class.getName(), className(KnownTypeAdapters.CollectionInstantiator.class));
 
+        SCALAR_KEY_MAP_TYPE_ADAPTERS.put(String.class.getName(), className(KnownTypeAdapters.StringKeyMapTypeAdapter.class));
+        SCALAR_KEY_MAP_TYPE_ADAPTERS.put(Integer.class.getName(), className(KnownTypeAdapters.IntegerKeyMapTypeAdapter.class));
+        SCALAR_KEY_MAP_TYPE_ADAPTERS.put(Long.class.getName(), className(KnownTypeAdapters.LongKeyMapTypeAdapter.class));
+
+        PRIMITIVE_KEY_MAP_TYPE_ADAPTERS.put(IntObjectMap.class.getName(), className(KnownTypeAdapters.IntObjectMapTypeAdapter.class));
+        PRIMITIVE_KEY_MAP_TYPE_ADAPTERS.put(LongObjectMap.class.getName(), className(KnownTypeAdapters.LongObjectMapTypeAdapter.class));
+
         SUPPORTED_MAP_INSTANTIATORS.put(Map.class.getName(), className(KnownTypeAdapters.MapInstantiator.class));
         SUPPORTED_MAP_INSTANTIATORS.put(HashMap.class.getName(), className(KnownTypeAdapters.HashMapInstantiator.class));
         SUPPORTED_MAP_INSTANTIATORS.put(LinkedHashMap.class.getName(), className(KnownTypeAdapters.LinkedHashMapInstantiator.class));
@@ -141,6 +158,29 @@ public final class KnownTypeAdapterUtils {
         return KNOWN_TYPE_ADAPTERS.get(typeMirror.toString());
     }
 
+    /**
+     * Get the map type adapter that writes keys of the given type
+     * directly as JSON names, without going through a key type adapter.
+     *
+     * @param keyType TypeMirror of the map key
+     * @return the class name of the type adapter, or null if the keys need the generic adapter
+     */
+    @Nullable
+    public static String getScalarKeyMapTypeAdapter(@NotNull TypeMirror keyType) {
+        return SCALAR_KEY_MAP_TYPE_ADAPTERS.get(keyType.toString());
+    }
+
+    /**
+     * Get the type adapter for maps with primitive keys, such as {@link IntObjectMap}.
+     *
+     * @param typeMirror TypeMirror of the map
+     * @return the class name of the type adapter, or null if the type is not a primitive key map
+     */
+    @Nullable
+    public static String getPrimitiveKeyMapTypeAdapter(@NotNull TypeMirror typeMirror) {
+        return PRIMITIVE_KEY_MAP_TYPE_ADAPTERS.get(TypeUtils.getOuterClassType(typeMirror));
+    }
+
     /**
      * Get the instantiator for {@link List} types
      *
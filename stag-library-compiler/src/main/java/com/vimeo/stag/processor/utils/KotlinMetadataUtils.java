@@ -0,0 +1,261 @@
+/*
+ * The MIT License (MIT)
+ * <p/>
+ * Copyright (c) 2016 Vimeo
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.vimeo.stag.processor.utils;
+
+import com.vimeo.stag.processor.utils.logging.DebugLog;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+
+/**
+ * Reads the parts of the {@code kotlin.Metadata} annotation that are not
+ * visible in the Java view of a Kotlin class, such as which constructor is
+ * the primary constructor and which of its parameters have default values.
+ * The annotation is kept in the stubs that kapt generates, so this works
+ * during annotation processing as well as on compiled classes.
+ */
+public final class KotlinMetadataUtils {
+
+    private static final String KOTLIN_METADATA = "kotlin.Metadata";
+    private static final int KIND_CLASS = 1;
+    private static final char UTF8_MODE_MARKER = '\u0000';
+
+    // Field numbers of the Class, Constructor and ValueParameter protocol buffer messages
+    private static final int CLASS_CONSTRUCTOR = 8;
+    private static final int CONSTRUCTOR_FLAGS = 1;
+    private static final int CONSTRUCTOR_VALUE_PARAMETER = 2;
+    private static final int VALUE_PARAMETER_FLAGS = 1;
+
+    private static final int CONSTRUCTOR_DEFAULT_FLAGS = 6;
+    private static final int FLAG_IS_SECONDARY = 1 << 4;
+    private static final int FLAG_DECLARES_DEFAULT_VALUE = 1 << 1;
+
+    private static final int WIRE_TYPE_VARINT = 0;
+    private static final int WIRE_TYPE_FIXED_64 = 1;
+    private static final int WIRE_TYPE_LENGTH_DELIMITED = 2;
+    private static final int WIRE_TYPE_FIXED_32 = 5;
+
+    private KotlinMetadataUtils() {
+        throw new UnsupportedOperationException("This class is not instantiable");
+    }
+
+    /**
+     * Determines which parameters of the primary constructor of a Kotlin
+     * class declare a default value.
+     *
+     * @param element the Kotlin class.
+     * @return one entry for each parameter of the primary constructor that is
+     * true if the parameter has a default value, or null if the element is not
+     * a Kotlin class, has no primary constructor or the metadata can't be read.
+     */
+    @Nullable
+    public static boolean[] getPrimaryConstructorDefaultValues(@NotNull Element element) {
+        for (AnnotationMirror annotationMirror : element.getAnnotationMirrors()) {
+            if (!KOTLIN_METADATA.equals(annotationMirror.getAnnotationType().toString())) {
+                continue;
+            }
+
+            int kind = KIND_CLASS;
+            List<String> data = null;
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+                    annotationMirror.getElementValues().entrySet()) {
+                String name = entry.getKey().getSimpleName().toString();
+                Object value = entry.getValue().getValue();
+                if ("k".equals(name) && value instanceof Integer) {
+                    kind = (Integer) value;
+                } else if ("d1".equals(name) && value instanceof List) {
+                    data = new ArrayList<>();
+                    for (Object string : (List<?>) value) {
+                        data.add(String.valueOf(((AnnotationValue) string).getValue()));
+                    }
+                }
+            }
+            return kind == KIND_CLASS && data != null ? getPrimaryConstructorDefaultValues(data) : null;
+        }
+        return null;
+    }
+
+    /**
+     * Determines which parameters of the primary constructor declare a default
+     * value from the {@code d1} strings of the metadata of a class, which encode
+     * the string table of the class followed by the class itself.
+     */
+    @Nullable
+    static boolean[] getPrimaryConstructorDefaultValues(@NotNull List<String> data) {
+        // Metadata in the older 8 to 7 bit encoding is not read
+        if (data.isEmpty() || data.get(0).isEmpty() || data.get(0).charAt(0) != UTF8_MODE_MARKER) {
+            return null;
+        }
+
+        StringBuilder bytes = new StringBuilder();
+        for (String string : data) {
+            bytes.append(string);
+        }
+        ProtoReader reader = new ProtoReader(bytes.substring(1));
+
+        try {
+            reader.readMessage();
+            while (reader.hasNext()) {
+                int tag = reader.readVarint();
+                if (tag >>> 3 == CLASS_CONSTRUCTOR && (tag & 7) == WIRE_TYPE_LENGTH_DELIMITED) {
+                    boolean[] defaultValues = readPrimaryConstructor(reader.readMessage());
+                    if (defaultValues != null) {
+                        return defaultValues;
+                    }
+                } else {
+                    reader.skipField(tag);
+                }
+            }
+        } catch (IllegalStateException e) {
+            DebugLog.log("Unable to read the Kotlin metadata: " + e.getMessage());
+        }
+        return null;
+    }
+
+    @Nullable
+    private static boolean[] readPrimaryConstructor(@NotNull ProtoReader reader) {
+        int flags = CONSTRUCTOR_DEFAULT_FLAGS;
+        List<Boolean> defaultValues = new ArrayList<>();
+        while (reader.hasNext()) {
+            int tag = reader.readVarint();
+            if (tag >>> 3 == CONSTRUCTOR_FLAGS && (tag & 7) == WIRE_TYPE_VARINT) {
+                flags = reader.readVarint();
+            } else if (tag >>> 3 == CONSTRUCTOR_VALUE_PARAMETER && (tag & 7) == WIRE_TYPE_LENGTH_DELIMITED) {
+                defaultValues.add((readValueParameterFlags(reader.readMessage()) & FLAG_DECLARES_DEFAULT_VALUE) != 0);
+            } else {
+                reader.skipField(tag);
+            }
+        }
+
+        if ((flags & FLAG_IS_SECONDARY) != 0) {
+            return null;
+        }
+        boolean[] result = new boolean[defaultValues.size()];
+        for (int index = 0; index < result.length; index++) {
+            result[index] = defaultValues.get(index);
+        }
+        return result;
+    }
+
+    private static int readValueParameterFlags(@NotNull ProtoReader reader) {
+        int flags = 0;
+        while (reader.hasNext()) {
+            int tag = reader.readVarint();
+            if (tag >>> 3 == VALUE_PARAMETER_FLAGS && (tag & 7) == WIRE_TYPE_VARINT) {
+                flags = reader.readVarint();
+            } else {
+                reader.skipField(tag);
+            }
+        }
+        return flags;
+    }
+
+    /**
+     * Reads the protocol buffer messages of the metadata, whose
+     * bytes are stored as one character per byte.
+     */
+    private static final class ProtoReader {
+
+        @NotNull private final String mBytes;
+        private int mPosition;
+        private final int mEnd;
+
+        ProtoReader(@NotNull String bytes) {
+            this(bytes, 0, bytes.length());
+        }
+
+        private ProtoReader(@NotNull String bytes, int start, int end) {
+            mBytes = bytes;
+            mPosition = start;
+            mEnd = end;
+        }
+
+        boolean hasNext() {
+            return mPosition < mEnd;
+        }
+
+        int readVarint() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int value = readByte();
+                result |= (long) (value & 0x7F) << shift;
+                if ((value & 0x80) == 0) {
+                    return (int) result;
+                }
+            }
+            throw new IllegalStateException("Malformed varint at " + mPosition);
+        }
+
+        @NotNull
+        ProtoReader readMessage() {
+            int length = readVarint();
+            int start = mPosition;
+            skip(length);
+            return new ProtoReader(mBytes, start, mPosition);
+        }
+
+        void skipField(int tag) {
+            switch (tag & 7) {
+                case WIRE_TYPE_VARINT:
+                    readVarint();
+                    break;
+                case WIRE_TYPE_FIXED_64:
+                    skip(8);
+                    break;
+                case WIRE_TYPE_LENGTH_DELIMITED:
+                    skip(readVarint());
+                    break;
+                case WIRE_TYPE_FIXED_32:
+                    skip(4);
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected wire type " + (tag & 7) + " at " + mPosition);
+            }
+        }
+
+        private int readByte() {
+            if (mPosition >= mEnd) {
+                throw new IllegalStateException("Unexpected end of message at " + mPosition);
+            }
+            return mBytes.charAt(mPosition++) & 0xFF;
+        }
+
+        private void skip(int length) {
+            if (length < 0 || length > mEnd - mPosition) {
+                throw new IllegalStateException("Unexpected length " + length + " at " + mPosition);
+            }
+            mPosition += length;
+        }
+    }
+
+}
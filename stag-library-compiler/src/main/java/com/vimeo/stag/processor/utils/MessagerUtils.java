@@ -64,4 +64,14 @@ public final class MessagerUtils {
         getMessager().printMessage(Kind.ERROR, message, element);
     }
 
+    /**
+     * Report a warning to the compiler. Compilation continues.
+     *
+     * @param message the message to display in the compilation output.
+     * @param element the offending element.
+     */
+    public static void reportWarning(@NotNull String message, @NotNull Element element) {
+        getMessager().printMessage(Kind.WARNING, message, element);
+    }
+
 }
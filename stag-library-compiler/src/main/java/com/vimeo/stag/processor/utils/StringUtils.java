@@ -29,4 +29,33 @@ public final class StringUtils {
         return String.valueOf(chars);
     }
 
+    /**
+     * Creates a Java string literal, including the surrounding quotes, for the
+     * specified string. Characters outside of printable ASCII are written as
+     * unicode escapes so that generated code does not depend on the encoding
+     * of the source file.
+     *
+     * @param string the string to convert.
+     * @return a valid Java string literal.
+     */
+    @NotNull
+    public static String toJavaStringLiteral(@NotNull String string) {
+        StringBuilder literal = new StringBuilder(string.length() + 2).append('"');
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c == '"' || c == '\\') {
+                literal.append('\\').append(c);
+            } else if (c == '\n') {
+                literal.append("\\n");
+            } else if (c == '\r') {
+                literal.append("\\r");
+            } else if (c < ' ' || c > '~') {
+                literal.append(String.format("\\u%04x", (int) c));
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.append('"').toString();
+    }
+
 }
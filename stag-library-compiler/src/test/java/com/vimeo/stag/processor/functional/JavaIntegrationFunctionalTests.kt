@@ -151,6 +151,67 @@ class JavaIntegrationFunctionalTests {
         assertThatClassCompilationIsSuccessful(WrapperTypeAdapterModel::class)
     }
 
+    @Test
+    fun `SimilarFieldNamesModel compiles successfully`() {
+        assertThatClassCompilationIsSuccessful(SimilarFieldNamesModel::class)
+    }
+
+    @Test
+    fun `ImmutableModel compiles successfully`() {
+        assertThatClassCompilationIsSuccessful(ImmutableModel::class)
+    }
+
+    @Test
+    fun `RecursiveModel compiles successfully`() {
+        assertThatClassCompilationIsSuccessful(RecursiveModel::class)
+    }
+
+    @Test
+    fun `Models compile successfully with direct adapters`() {
+        val processorTesterWithDirectAdapters = ProcessorTester({ StagProcessor() },
+                "-AstagAssumeHungarianNotation=true", "-Astag.directAdapters=true")
+        assertThat(processorTesterWithDirectAdapters.compileClassesInModule(module,
+                RecursiveModel::class,
+                AlternateNameModel::class,
+                WrapperTypeAdapterModel::class,
+                ExternalModel1::class,
+                ExternalModelGeneric::class).isSuccessful()).isTrue()
+    }
+
+    @Test
+    fun `Models compile successfully with shared adapters`() {
+        val processorTesterWithSharedAdapters = ProcessorTester({ StagProcessor() },
+                "-AstagAssumeHungarianNotation=true", "-Astag.sharedAdapters=true")
+        assertThat(processorTesterWithSharedAdapters.compileClassesInModule(module,
+                RecursiveModel::class,
+                AlternateNameModel::class,
+                AlternateNameModel1::class,
+                NullFields::class,
+                ExternalModel1::class,
+                ExternalModelGeneric::class).isSuccessful()).isTrue()
+    }
+
+    @Test
+    fun `Models compile successfully with compact dynamic types`() {
+        val processorTesterWithCompactDynamicTypes = ProcessorTester({ StagProcessor() },
+                "-AstagAssumeHungarianNotation=true", "-Astag.compactDynamicTypes=true")
+        assertThat(processorTesterWithCompactDynamicTypes.compileClassesInModule(module,
+                PrivateMembers::class,
+                RawGenericField::class,
+                ExternalModel1::class).isSuccessful()).isTrue()
+    }
+
+    @Test
+    fun `Models compile successfully with speculative field order`() {
+        val processorTesterWithSpeculativeOrder = ProcessorTester({ StagProcessor() },
+                "-AstagAssumeHungarianNotation=true", "-Astag.speculativeFieldOrder=true")
+        assertThat(processorTesterWithSpeculativeOrder.compileClassesInModule(module,
+                SimilarFieldNamesModel::class,
+                AlternateNameModel::class,
+                NullFields::class,
+                ConcreteDataList::class).isSuccessful()).isTrue()
+    }
+
     @Test
     fun `Verify that compilation is deterministic`() {
         val classes = arrayOf(
@@ -27,7 +27,10 @@ import com.vimeo.stag.processor.ProcessorTester
 import com.vimeo.stag.processor.StagProcessor
 import com.vimeo.stag.processor.isSuccessful
 import org.assertj.core.api.Assertions.assertThat
+import org.junit.Assume.assumeTrue
 import org.junit.Test
+import javax.lang.model.SourceVersion
+import javax.tools.StandardLocation
 
 class StagProcessorFunctionalTest {
 
@@ -51,4 +54,28 @@ class StagProcessorFunctionalTest {
         assertThat(processorTester.compileResource("testcase/PrivateFields.java").isSuccessful()).isFalse()
     }
 
+    /**
+     * Ensure that constructor parameters without a matching member variable result in compile-time
+     * errors, since the value could not be read from or written to the JSON.
+     */
+    @Test
+    fun constructorParameterWithoutFieldReportsAsAnError() {
+        assertThat(processorTester.compileResource("testcase/ConstructorParameterWithoutField.java").isSuccessful()).isFalse()
+    }
+
+    /**
+     * Ensure that records compile, since their components are variable elements next to the
+     * private fields that back them. Only runs on a JDK that supports records.
+     */
+    @Test
+    fun recordIsCreatedThroughCanonicalConstructor() {
+        assumeTrue(SourceVersion.latest().ordinal >= 16)
+
+        val compilation = processorTester.compileResource("testcase/RecordModel.java")
+
+        assertThat(compilation.isSuccessful()).isTrue()
+        assertThat(compilation.generatedFile(StandardLocation.SOURCE_OUTPUT,
+                "com/vimeo/stag/processor/testcase/RecordModel\$TypeAdapter.java").isPresent).isTrue()
+    }
+
 }
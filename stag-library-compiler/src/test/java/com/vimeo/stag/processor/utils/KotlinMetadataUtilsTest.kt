@@ -0,0 +1,50 @@
+package com.vimeo.stag.processor.utils
+
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+
+class KotlinMetadataUtilsTest {
+
+    class PartialDefaults(val name: String, val count: Int = 3, val description: String? = null) {
+        constructor(name: String, count: Int, description: String?, extra: Long) : this(name, count, description)
+    }
+
+    class AllDefaults(val name: String = "default", val count: Int = 3)
+
+    class SecondaryConstructor(val name: String) {
+        constructor(name: String, count: Int, description: String?) : this(name)
+    }
+
+    /**
+     * Returns the `d1` strings of the Kotlin metadata of the class, found by name since the
+     * annotation is not public in every Kotlin version.
+     */
+    private fun Class<*>.metadata(): List<String> {
+        val metadata = annotations.first { it.annotationClass.java.name == "kotlin.Metadata" }
+        @Suppress("UNCHECKED_CAST")
+        return (metadata.annotationClass.java.getMethod("d1").invoke(metadata) as Array<String>).toList()
+    }
+
+    @Test
+    fun primaryConstructorDefaultValuesAreRead() {
+        assertArrayEquals(booleanArrayOf(false, true, true),
+                KotlinMetadataUtils.getPrimaryConstructorDefaultValues(PartialDefaults::class.java.metadata()))
+        assertArrayEquals(booleanArrayOf(true, true),
+                KotlinMetadataUtils.getPrimaryConstructorDefaultValues(AllDefaults::class.java.metadata()))
+    }
+
+    @Test
+    fun secondaryConstructorsAreIgnored() {
+        assertArrayEquals(booleanArrayOf(false),
+                KotlinMetadataUtils.getPrimaryConstructorDefaultValues(SecondaryConstructor::class.java.metadata()))
+    }
+
+    @Test
+    fun unreadableMetadataIsIgnored() {
+        assertNull(KotlinMetadataUtils.getPrimaryConstructorDefaultValues(emptyList()))
+        assertNull(KotlinMetadataUtils.getPrimaryConstructorDefaultValues(listOf("\u0000\u0005\u0001")))
+        assertNull(KotlinMetadataUtils.getPrimaryConstructorDefaultValues(listOf("not in the utf-8 mode")))
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.vimeo.stag.processor.testcase;
+
+import com.vimeo.stag.StagConstructor;
+import com.vimeo.stag.UseStag;
+
+@UseStag
+public class ConstructorParameterWithoutField {
+
+    public final String finalString;
+
+    @StagConstructor
+    public ConstructorParameterWithoutField(String finalString, String otherString) {
+        this.finalString = finalString + otherString;
+    }
+
+}
@@ -0,0 +1,8 @@
+package com.vimeo.stag.processor.testcase;
+
+import com.vimeo.stag.UseStag;
+
+@UseStag
+public record RecordModel(String name, int count) {
+
+}
@@ -0,0 +1,193 @@
+/*
+ * The MIT License (MIT)
+ * <p/>
+ * Copyright (c) 2018 Vimeo
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.vimeo.stag;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Growable arrays that the array adapters in {@link KnownTypeAdapters} read the elements
+ * of a JSON array into before they know its length, kept per thread so that reading
+ * an array only allocates the array that is returned.
+ * <p>
+ * A buffer is taken out of the pool while it is in use, so an array read while another
+ * one of the same type is being read, such as the elements of a {@code String[][]},
+ * gets a buffer of its own. Buffers that grew larger than {@link #MAX_POOLED_LENGTH}
+ * are not returned to the pool, so that a single large array is not kept in memory.
+ */
+final class ArrayBuffers {
+
+    static final int INITIAL_LENGTH = 16;
+    static final int MAX_POOLED_LENGTH = 16 * 1024;
+
+    private static final ThreadLocal<ArrayBuffers> POOL = new ThreadLocal<ArrayBuffers>() {
+        @Override
+        protected ArrayBuffers initialValue() {
+            return new ArrayBuffers();
+        }
+    };
+
+    private int[] mInts;
+    private long[] mLongs;
+    private double[] mDoubles;
+    private float[] mFloats;
+    private short[] mShorts;
+    private byte[] mBytes;
+    private boolean[] mBooleans;
+    private Object[] mObjects;
+
+    private ArrayBuffers() {
+    }
+
+    /**
+     * @return the buffers of the current thread.
+     */
+    @NotNull
+    static ArrayBuffers get() {
+        return POOL.get();
+    }
+
+    /**
+     * Returns the length that a full buffer of the provided length grows to.
+     */
+    static int grow(int length) {
+        int newLength = length + (length >> 1) + 1;
+        if (newLength < 0) {
+            throw new OutOfMemoryError("Array is too large");
+        }
+        return newLength;
+    }
+
+    @NotNull
+    int[] takeInts() {
+        int[] buffer = mInts;
+        mInts = null;
+        return buffer != null ? buffer : new int[INITIAL_LENGTH];
+    }
+
+    void recycle(@NotNull int[] buffer) {
+        if (buffer.length <= MAX_POOLED_LENGTH) {
+            mInts = buffer;
+        }
+    }
+
+    @NotNull
+    long[] takeLongs() {
+        long[] buffer = mLongs;
+        mLongs = null;
+        return buffer != null ? buffer : new long[INITIAL_LENGTH];
+    }
+
+    void recycle(@NotNull long[] buffer) {
+        if (buffer.length <= MAX_POOLED_LENGTH) {
+            mLongs = buffer;
+        }
+    }
+
+    @NotNull
+    double[] takeDoubles() {
+        double[] buffer = mDoubles;
+        mDoubles = null;
+        return buffer != null ? buffer : new double[INITIAL_LENGTH];
+    }
+
+    void recycle(@NotNull double[] buffer) {
+        if (buffer.length <= MAX_POOLED_LENGTH) {
+            mDoubles = buffer;
+        }
+    }
+
+    @NotNull
+    float[] takeFloats() {
+        float[] buffer = mFloats;
+        mFloats = null;
+        return buffer != null ? buffer : new float[INITIAL_LENGTH];
+    }
+
+    void recycle(@NotNull float[] buffer) {
+        if (buffer.length <= MAX_POOLED_LENGTH) {
+            mFloats = buffer;
+        }
+    }
+
+    @NotNull
+    short[] takeShorts() {
+        short[] buffer = mShorts;
+        mShorts = null;
+        return buffer != null ? buffer : new short[INITIAL_LENGTH];
+    }
+
+    void recycle(@NotNull short[] buffer) {
+        if (buffer.length <= MAX_POOLED_LENGTH) {
+            mShorts = buffer;
+        }
+    }
+
+    @NotNull
+    byte[] takeBytes() {
+        byte[] buffer = mBytes;
+        mBytes = null;
+        return buffer != null ? buffer : new byte[INITIAL_LENGTH];
+    }
+
+    void recycle(@NotNull byte[] buffer) {
+        if (buffer.length <= MAX_POOLED_LENGTH) {
+            mBytes = buffer;
+        }
+    }
+
+    @NotNull
+    boolean[] takeBooleans() {
+        boolean[] buffer = mBooleans;
+        mBooleans = null;
+        return buffer != null ? buffer : new boolean[INITIAL_LENGTH];
+    }
+
+    void recycle(@NotNull boolean[] buffer) {
+        if (buffer.length <= MAX_POOLED_LENGTH) {
+            mBooleans = buffer;
+        }
+    }
+
+    @NotNull
+    Object[] takeObjects() {
+        Object[] buffer = mObjects;
+        mObjects = null;
+        return buffer != null ? buffer : new Object[INITIAL_LENGTH];
+    }
+
+    /**
+     * Clears the references to the elements that were read and returns the buffer to the pool.
+     *
+     * @param buffer the buffer.
+     * @param size   the number of elements that were read into the buffer.
+     */
+    void recycle(@NotNull Object[] buffer, int size) {
+        if (buffer.length <= MAX_POOLED_LENGTH) {
+            Arrays.fill(buffer, 0, size, null);
+            mObjects = buffer;
+        }
+    }
+}
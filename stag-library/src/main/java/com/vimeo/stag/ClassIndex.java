@@ -0,0 +1,101 @@
+/*
+ * The MIT License (MIT)
+ * <p/>
+ * Copyright (c) 2018 Vimeo
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.vimeo.stag;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A fixed set of classes that finds the position of a class in the set in constant time.
+ * Classes are compared by identity and hashed with {@link System#identityHashCode(Object)},
+ * so a lookup neither takes a lock nor uses class names, which may be obfuscated.
+ * <p>
+ * The generated {@code Stag.Factory} uses it to find the type adapter for a class.
+ */
+public final class ClassIndex {
+
+    @NotNull private final Class<?>[] mOrderedClasses;
+    @NotNull private final Class<?>[] mClasses;
+    @NotNull private final int[] mIndices;
+    private final int mMask;
+
+    /**
+     * @param classes the classes, whose positions are returned by {@link #indexOf(Class)}.
+     */
+    public ClassIndex(@NotNull Class<?>... classes) {
+        mOrderedClasses = classes.clone();
+
+        // Keep the table at most half full, so that probe sequences stay short
+        int capacity = 2;
+        while (capacity < classes.length * 2) {
+            capacity <<= 1;
+        }
+        mClasses = new Class<?>[capacity];
+        mIndices = new int[capacity];
+        mMask = capacity - 1;
+
+        for (int index = 0; index < classes.length; index++) {
+            int slot = hash(classes[index]) & mMask;
+            while (mClasses[slot] != null) {
+                slot = (slot + 1) & mMask;
+            }
+            mClasses[slot] = classes[index];
+            mIndices[slot] = index;
+        }
+    }
+
+    private static int hash(@NotNull Class<?> clazz) {
+        int hash = System.identityHashCode(clazz);
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * @return a copy of the classes in this index, in the order that they were provided.
+     */
+    @NotNull
+    public Class<?>[] getClasses() {
+        return mOrderedClasses.clone();
+    }
+
+    /**
+     * Returns the position of the class in the classes that this index was created with.
+     *
+     * @param clazz the class to find.
+     * @return the position of the class, or -1 if the class is not in the index.
+     */
+    public int indexOf(@Nullable Class<?> clazz) {
+        if (clazz == null) {
+            return -1;
+        }
+        int slot = hash(clazz) & mMask;
+        Class<?> candidate;
+        while ((candidate = mClasses[slot]) != null) {
+            if (candidate == clazz) {
+                return mIndices[slot];
+            }
+            slot = (slot + 1) & mMask;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * The MIT License (MIT)
+ * <p/>
+ * Copyright (c) 2018 Vimeo
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.vimeo.stag;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A {@link Map} from {@link String} keys to values that keeps its mappings in two
+ * parallel arrays, in insertion order, instead of allocating a node per mapping.
+ * Small maps are searched linearly. Once a map grows past a few mappings, lookups
+ * go through an index of the keys' hash codes, which is built when it is first
+ * needed. Null keys are not permitted.
+ * <p>
+ * {@link KnownTypeAdapters.ObjectTypeAdapter} reads JSON objects as this type when
+ * the compact dynamic types are enabled.
+ * <p>
+ * This class is not thread safe.
+ */
+public final class CompactMap extends AbstractMap<String, Object> {
+
+    private static final int LINEAR_SEARCH_LIMIT = 8;
+    private static final String[] EMPTY_KEYS = new String[0];
+    private static final Object[] EMPTY_VALUES = new Object[0];
+
+    @NotNull
+    private String[] mKeys;
+    @NotNull
+    private Object[] mValues;
+    private int mSize;
+    private int mModCount;
+
+    /**
+     * Open addressing table of the positions of the keys plus one, zero marks an empty slot.
+     * Null until a lookup needs it, and dropped when a mapping is removed.
+     */
+    @Nullable
+    private int[] mIndex;
+
+    @Nullable
+    private Set<Entry<String, Object>> mEntrySet;
+
+    public CompactMap() {
+        mKeys = EMPTY_KEYS;
+        mValues = EMPTY_VALUES;
+    }
+
+    public CompactMap(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+        }
+        mKeys = initialCapacity == 0 ? EMPTY_KEYS : new String[initialCapacity];
+        mValues = initialCapacity == 0 ? EMPTY_VALUES : new Object[initialCapacity];
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    @Override
+    public boolean containsKey(@Nullable Object key) {
+        return key instanceof String && indexOf((String) key) >= 0;
+    }
+
+    @Override
+    public Object get(@Nullable Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        int position = indexOf((String) key);
+        return position < 0 ? null : mValues[position];
+    }
+
+    @Override
+    public Object put(@NotNull String key, @Nullable Object value) {
+        if (key == null) {
+            throw new NullPointerException("CompactMap does not permit null keys");
+        }
+        int position = indexOf(key);
+        if (position >= 0) {
+            Object previous = mValues[position];
+            mValues[position] = value;
+            return previous;
+        }
+        if (mSize == mKeys.length) {
+            int length = ArrayBuffers.grow(mSize);
+            mKeys = Arrays.copyOf(mKeys, length);
+            mValues = Arrays.copyOf(mValues, length);
+        }
+        mKeys[mSize] = key;
+        mValues[mSize] = value;
+        mSize++;
+        mModCount++;
+        if (mIndex != null) {
+            if (mSize * 2 > mIndex.length) {
+                mIndex = null;
+            } else {
+                addToIndex(mIndex, key, mSize);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Object remove(@Nullable Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        int position = indexOf((String) key);
+        if (position < 0) {
+            return null;
+        }
+        Object previous = mValues[position];
+        removeAt(position);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(mKeys, 0, mSize, null);
+        Arrays.fill(mValues, 0, mSize, null);
+        mSize = 0;
+        mModCount++;
+        mIndex = null;
+    }
+
+    @NotNull
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        Set<Entry<String, Object>> entrySet = mEntrySet;
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+            mEntrySet = entrySet;
+        }
+        return entrySet;
+    }
+
+    private void removeAt(int position) {
+        int moved = mSize - position - 1;
+        System.arraycopy(mKeys, position + 1, mKeys, position, moved);
+        System.arraycopy(mValues, position + 1, mValues, position, moved);
+        mSize--;
+        mKeys[mSize] = null;
+        mValues[mSize] = null;
+        mModCount++;
+        mIndex = null;
+    }
+
+    private int indexOf(@NotNull String key) {
+        if (mSize <= LINEAR_SEARCH_LIMIT) {
+            for (int i = 0; i < mSize; i++) {
+                if (key.equals(mKeys[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int[] index = mIndex;
+        if (index == null) {
+            index = buildIndex();
+        }
+        int mask = index.length - 1;
+        int slot = hash(key) & mask;
+        int entry;
+        while ((entry = index[slot]) != 0) {
+            if (key.equals(mKeys[entry - 1])) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    @NotNull
+    private int[] buildIndex() {
+        int length = Integer.highestOneBit(mSize) << 2;
+        int[] index = new int[length];
+        for (int i = 0; i < mSize; i++) {
+            addToIndex(index, mKeys[i], i + 1);
+        }
+        mIndex = index;
+        return index;
+    }
+
+    private static void addToIndex(@NotNull int[] index, @NotNull String key, int entry) {
+        int mask = index.length - 1;
+        int slot = hash(key) & mask;
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = entry;
+    }
+
+    private static int hash(@NotNull String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<String, Object>> {
+
+        @Override
+        public int size() {
+            return mSize;
+        }
+
+        @Override
+        public void clear() {
+            CompactMap.this.clear();
+        }
+
+        @NotNull
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+            return new EntryIterator();
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Entry<String, Object>> {
+
+        private int mNext;
+        private int mLast = -1;
+        private int mExpectedModCount = mModCount;
+
+        @Override
+        public boolean hasNext() {
+            return mNext < mSize;
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if (mModCount != mExpectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (mNext >= mSize) {
+                throw new NoSuchElementException();
+            }
+            mLast = mNext++;
+            return new MapEntry(mLast);
+        }
+
+        @Override
+        public void remove() {
+            if (mLast < 0) {
+                throw new IllegalStateException();
+            }
+            if (mModCount != mExpectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(mLast);
+            mNext = mLast;
+            mLast = -1;
+            mExpectedModCount = mModCount;
+        }
+    }
+
+    private final class MapEntry extends SimpleEntry<String, Object> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int mPosition;
+
+        MapEntry(int position) {
+            super(mKeys[position], mValues[position]);
+            mPosition = position;
+        }
+
+        @Override
+        public Object setValue(@Nullable Object value) {
+            mValues[mPosition] = value;
+            return super.setValue(value);
+        }
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * The MIT License (MIT)
+ * <p/>
+ * Copyright (c) 2018 Vimeo
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.vimeo.stag;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A map from {@code int} keys to values that does not box its keys or allocate an
+ * entry per mapping. The keys and values are kept in two parallel arrays and looked
+ * up with linear probing, so a map of {@code n} entries holds on to little more than
+ * the two arrays. Null values are permitted.
+ * <p>
+ * Stag reads and writes fields of this type through {@link KnownTypeAdapters.IntObjectMapTypeAdapter},
+ * as a JSON object whose names are the keys.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @param <V> the type of the values.
+ */
+public final class IntObjectMap<V> {
+
+    /**
+     * Stored in place of null values, since a null slot marks an empty slot.
+     */
+    private static final Object NULL_VALUE = new Object();
+    private static final int MIN_CAPACITY = 4;
+
+    @NotNull
+    private int[] mKeys;
+    @NotNull
+    private Object[] mValues;
+    private int mSize;
+    private int mThreshold;
+
+    public IntObjectMap() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize the number of mappings the map can hold before it has to grow.
+     */
+    public IntObjectMap(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Illegal size: " + expectedSize);
+        }
+        int capacity = MIN_CAPACITY;
+        while (capacity - (capacity >>> 2) < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        mKeys = new int[capacity];
+        mValues = new Object[capacity];
+        mThreshold = capacity - (capacity >>> 2);
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the slot holding the key, or the empty slot it would be inserted into.
+     */
+    private int findSlot(int key) {
+        int mask = mValues.length - 1;
+        int slot = hash(key) & mask;
+        while (mValues[slot] != null && mKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    private static <V> V unmask(@NotNull Object value) {
+        return value == NULL_VALUE ? null : (V) value;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    public boolean containsKey(int key) {
+        return mValues[findSlot(key)] != null;
+    }
+
+    /**
+     * @return the value mapped to the key, or null if there is none.
+     */
+    @Nullable
+    public V get(int key) {
+        Object value = mValues[findSlot(key)];
+        return value == null ? null : IntObjectMap.<V>unmask(value);
+    }
+
+    /**
+     * Maps the key to the value.
+     *
+     * @return the value previously mapped to the key, or null if there was none.
+     */
+    @Nullable
+    public V put(int key, @Nullable V value) {
+        int slot = findSlot(key);
+        Object previous = mValues[slot];
+        mValues[slot] = value == null ? NULL_VALUE : value;
+        if (previous != null) {
+            return unmask(previous);
+        }
+        mKeys[slot] = key;
+        if (++mSize > mThreshold) {
+            rehash(mValues.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Removes the mapping of the key.
+     *
+     * @return the value that was mapped to the key, or null if there was none.
+     */
+    @Nullable
+    public V remove(int key) {
+        int slot = findSlot(key);
+        Object previous = mValues[slot];
+        if (previous == null) {
+            return null;
+        }
+        // Shift the following entries of the probe sequence back so that no lookup
+        // stops at the freed slot before reaching its key.
+        int mask = mValues.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        Object value;
+        while ((value = mValues[next]) != null) {
+            int ideal = hash(mKeys[next]) & mask;
+            if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+                mKeys[gap] = mKeys[next];
+                mValues[gap] = value;
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        mValues[gap] = null;
+        mSize--;
+        return unmask(previous);
+    }
+
+    public void clear() {
+        for (int i = 0; i < mValues.length; i++) {
+            mValues[i] = null;
+        }
+        mSize = 0;
+    }
+
+    private void rehash(int capacity) {
+        int[] keys = mKeys;
+        Object[] values = mValues;
+        allocate(capacity);
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                int slot = findSlot(keys[i]);
+                mKeys[slot] = keys[i];
+                mValues[slot] = values[i];
+            }
+        }
+    }
+
+    /**
+     * Returns a cursor over the mappings, in no particular order. The map must
+     * not be modified while the cursor is in use.
+     */
+    @NotNull
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Iterates over the mappings of the map without allocating per mapping.
+     */
+    public final class Cursor {
+
+        private int mSlot = -1;
+
+        Cursor() {
+        }
+
+        /**
+         * Moves to the next mapping.
+         *
+         * @return false if there are no more mappings.
+         */
+        public boolean moveToNext() {
+            while (++mSlot < mValues.length) {
+                if (mValues[mSlot] != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public int key() {
+            checkSlot();
+            return mKeys[mSlot];
+        }
+
+        @Nullable
+        public V value() {
+            checkSlot();
+            return unmask(mValues[mSlot]);
+        }
+
+        private void checkSlot() {
+            if (mSlot < 0 || mSlot >= mValues.length) {
+                throw new NoSuchElementException();
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IntObjectMap)) {
+            return false;
+        }
+        IntObjectMap<?> other = (IntObjectMap<?>) o;
+        if (mSize != other.mSize) {
+            return false;
+        }
+        for (int i = 0; i < mValues.length; i++) {
+            Object value = mValues[i];
+            if (value != null) {
+                Object otherValue = other.mValues[other.findSlot(mKeys[i])];
+                if (otherValue == null || !(value == NULL_VALUE ? otherValue == NULL_VALUE : value.equals(otherValue))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 0;
+        for (int i = 0; i < mValues.length; i++) {
+            Object value = mValues[i];
+            if (value != null) {
+                result += mKeys[i] ^ (value == NULL_VALUE ? 0 : value.hashCode());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder().append('{');
+        for (int i = 0; i < mValues.length; i++) {
+            Object value = mValues[i];
+            if (value != null) {
+                if (builder.length() > 1) {
+                    builder.append(", ");
+                }
+                builder.append(mKeys[i]).append('=').append(value == NULL_VALUE ? null : value);
+            }
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * The MIT License (MIT)
+ * <p/>
+ * Copyright (c) 2018 Vimeo
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.vimeo.stag;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the elements of a JSON array one at a time, so that only the element
+ * being read is held in memory rather than the whole array.
+ * <p>
+ * The array is read from the current position of the reader, which can be the start
+ * of the document or the value of a member of an enclosing object. Once the end of
+ * the array has been reached, the reader is left positioned after it. A JSON null
+ * is read as an empty array.
+ * <p>
+ * Like {@link com.google.gson.JsonStreamParser}, errors are thrown as
+ * {@link JsonSyntaxException} if the JSON is malformed and as {@link JsonIOException}
+ * if it could not be read.
+ *
+ * @param <T> the type of the elements.
+ */
+public final class JsonArrayIterator<T> implements Iterator<T>, Closeable {
+
+    @NotNull
+    private final JsonReader mReader;
+    @NotNull
+    private final TypeAdapter<T> mTypeAdapter;
+    private boolean mStarted;
+    private boolean mFinished;
+
+    /**
+     * @param reader      the reader, positioned at the array.
+     * @param typeAdapter the adapter that reads each element.
+     */
+    public JsonArrayIterator(@NotNull JsonReader reader, @NotNull TypeAdapter<T> typeAdapter) {
+        mReader = reader;
+        mTypeAdapter = typeAdapter;
+    }
+
+    /**
+     * Creates an iterator that reads the elements with the adapter Gson has for the class,
+     * which is the generated type adapter for models when the Stag factory is registered.
+     *
+     * @param gson   the Gson instance that provides the adapter.
+     * @param reader the reader, positioned at the array.
+     * @param clazz  the class of the elements.
+     * @param <T>    the type of the elements.
+     * @return a new iterator.
+     */
+    @NotNull
+    public static <T> JsonArrayIterator<T> create(@NotNull Gson gson, @NotNull JsonReader reader,
+                                                  @NotNull Class<T> clazz) {
+        return new JsonArrayIterator<>(reader, gson.getAdapter(clazz));
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (mFinished) {
+            return false;
+        }
+        try {
+            if (!mStarted) {
+                mStarted = true;
+                if (mReader.peek() == JsonToken.NULL) {
+                    mReader.nextNull();
+                    mFinished = true;
+                    return false;
+                }
+                mReader.beginArray();
+            }
+            if (mReader.hasNext()) {
+                return true;
+            }
+            mReader.endArray();
+            mFinished = true;
+            return false;
+        } catch (IOException e) {
+            throw wrap(e);
+        }
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            return mTypeAdapter.read(mReader);
+        } catch (IOException e) {
+            throw wrap(e);
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("JsonArrayIterator does not support remove");
+    }
+
+    /**
+     * Closes the reader.
+     */
+    @Override
+    public void close() throws IOException {
+        mReader.close();
+    }
+
+    @NotNull
+    private static RuntimeException wrap(@NotNull IOException e) {
+        if (e instanceof MalformedJsonException) {
+            return new JsonSyntaxException(e);
+        }
+        return new JsonIOException(e);
+    }
+}
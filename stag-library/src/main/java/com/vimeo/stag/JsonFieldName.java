@@ -0,0 +1,92 @@
+/*
+ * The MIT License (MIT)
+ * <p/>
+ * Copyright (c) 2018 Vimeo
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.vimeo.stag;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.Charset;
+
+/**
+ * The name of a JSON object member that is known ahead of time, such as the name of a
+ * field in a generated type adapter. The name is quoted and escaped once, when the
+ * instance is created, and encoded to UTF-8, so that a {@link StagJsonWriter} can write
+ * it as it is instead of escaping it every time it is written.
+ * <p>
+ * Instances are immutable and are meant to be stored in static fields.
+ */
+public final class JsonFieldName {
+
+    @NotNull private final String mName;
+    @NotNull private final char[] mToken;
+    @NotNull private final char[] mHtmlSafeToken;
+    @NotNull private final byte[] mUtf8Token;
+    @NotNull private final byte[] mHtmlSafeUtf8Token;
+
+    /**
+     * @param name the unescaped name of the member.
+     */
+    public JsonFieldName(@NotNull String name) {
+        mName = name;
+        mToken = (StagJsonWriter.quote(name, false) + ':').toCharArray();
+        mHtmlSafeToken = (StagJsonWriter.quote(name, true) + ':').toCharArray();
+        Charset utf8 = Charset.forName("UTF-8");
+        mUtf8Token = new String(mToken).getBytes(utf8);
+        mHtmlSafeUtf8Token = new String(mHtmlSafeToken).getBytes(utf8);
+    }
+
+    /**
+     * @return the unescaped name of the member.
+     */
+    @NotNull
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * Returns the quoted and escaped name followed by the name separator.
+     *
+     * @param htmlSafe true if HTML characters must be escaped as well.
+     * @return the token, which must not be modified.
+     */
+    @NotNull
+    char[] getToken(boolean htmlSafe) {
+        return htmlSafe ? mHtmlSafeToken : mToken;
+    }
+
+    /**
+     * Returns the UTF-8 encoding of {@link #getToken(boolean)}.
+     *
+     * @param htmlSafe true if HTML characters must be escaped as well.
+     * @return the encoded token, which must not be modified.
+     */
+    @NotNull
+    byte[] getUtf8Token(boolean htmlSafe) {
+        return htmlSafe ? mHtmlSafeUtf8Token : mUtf8Token;
+    }
+
+    @Override
+    public String toString() {
+        return mName;
+    }
+}
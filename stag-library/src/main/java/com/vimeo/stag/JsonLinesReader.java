@@ -0,0 +1,142 @@
+/*
+ * The MIT License (MIT)
+ * <p/>
+ * Copyright (c) 2018 Vimeo
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.vimeo.stag;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads newline delimited JSON, also known as JSON Lines, where every line of a UTF-8
+ * stream holds one JSON value. The whole stream is read with one {@link Utf8JsonReader},
+ * so the buffer and the names that were decoded before are reused from line to line
+ * rather than creating a reader for every line. Blank lines are skipped.
+ * <p>
+ * Like {@link JsonArrayIterator}, errors are thrown as {@link JsonSyntaxException} if
+ * the JSON is malformed, including when a line holds more than one value, and as
+ * {@link JsonIOException} if it could not be read. To decode the lines on several
+ * threads, see {@link PipelinedJsonLinesReader}.
+ *
+ * @param <T> the type of the values.
+ */
+public final class JsonLinesReader<T> implements Iterator<T>, Closeable {
+
+    @NotNull
+    private final Utf8JsonReader mReader;
+    @NotNull
+    private final TypeAdapter<T> mTypeAdapter;
+    private int mLastLine = -1;
+
+    /**
+     * @param in          the stream, which should not be buffered.
+     * @param typeAdapter the adapter that reads each value.
+     */
+    public JsonLinesReader(@NotNull InputStream in, @NotNull TypeAdapter<T> typeAdapter) {
+        this(new Utf8JsonReader(in), typeAdapter);
+    }
+
+    JsonLinesReader(@NotNull Utf8JsonReader reader, @NotNull TypeAdapter<T> typeAdapter) {
+        mReader = reader;
+        mReader.setMultipleValues(true);
+        mTypeAdapter = typeAdapter;
+    }
+
+    /**
+     * Creates a reader that reads the values with the adapter Gson has for the class,
+     * which is the generated type adapter for models when the Stag factory is registered.
+     *
+     * @param gson  the Gson instance that provides the adapter.
+     * @param in    the stream, which should not be buffered.
+     * @param clazz the class of the values.
+     * @param <T>   the type of the values.
+     * @return a new reader.
+     */
+    @NotNull
+    public static <T> JsonLinesReader<T> create(@NotNull Gson gson, @NotNull InputStream in,
+                                                @NotNull Class<T> clazz) {
+        return new JsonLinesReader<>(in, gson.getAdapter(clazz));
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            if (mReader.peek() == JsonToken.END_DOCUMENT) {
+                return false;
+            }
+            if (mReader.getLineNumber() == mLastLine) {
+                throw new JsonSyntaxException("Expected a new line before the value at line "
+                                              + (mLastLine + 1));
+            }
+            return true;
+        } catch (IOException e) {
+            throw wrap(e);
+        }
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            T value = mTypeAdapter.read(mReader);
+            mLastLine = mReader.getLineNumber();
+            return value;
+        } catch (IOException e) {
+            throw wrap(e);
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("JsonLinesReader does not support remove");
+    }
+
+    /**
+     * Closes the reader and the stream.
+     */
+    @Override
+    public void close() throws IOException {
+        mReader.close();
+    }
+
+    @NotNull
+    static RuntimeException wrap(@NotNull IOException e) {
+        if (e instanceof MalformedJsonException) {
+            return new JsonSyntaxException(e);
+        }
+        return new JsonIOException(e);
+    }
+}
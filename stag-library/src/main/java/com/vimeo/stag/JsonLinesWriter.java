@@ -0,0 +1,128 @@
+/*
+ * The MIT License (MIT)
+ * <p/>
+ * Copyright (c) 2018 Vimeo
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.vimeo.stag;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes newline delimited JSON, also known as JSON Lines, where every value is
+ * written on a line of its own to a UTF-8 stream.
+ * <p>
+ * The values are written with one {@link Utf8JsonWriter}, whose buffer is written to
+ * the stream when it is full. The stream itself is only flushed every
+ * {@code linesPerFlush} lines, when {@link #flush()} is called and when the writer
+ * is closed, so that consumers of the stream see complete lines without paying
+ * for a flush after every one.
+ *
+ * @param <T> the type of the values.
+ */
+public final class JsonLinesWriter<T> implements Closeable, Flushable {
+
+    @NotNull
+    private final OutputStream mOut;
+    @NotNull
+    private final Utf8JsonWriter mWriter;
+    @NotNull
+    private final TypeAdapter<T> mTypeAdapter;
+    private final int mLinesPerFlush;
+    private int mUnflushedLines;
+
+    /**
+     * @param out           the stream, which is not buffered by the writer
+     *                      beyond its own buffer.
+     * @param typeAdapter   the adapter that writes each value.
+     * @param linesPerFlush the number of lines after which the stream is flushed,
+     *                      or 0 to only flush it when asked to.
+     */
+    public JsonLinesWriter(@NotNull OutputStream out, @NotNull TypeAdapter<T> typeAdapter, int linesPerFlush) {
+        if (linesPerFlush < 0) {
+            throw new IllegalArgumentException("linesPerFlush < 0: " + linesPerFlush);
+        }
+        mOut = out;
+        mWriter = new Utf8JsonWriter(out);
+        mTypeAdapter = typeAdapter;
+        mLinesPerFlush = linesPerFlush;
+    }
+
+    /**
+     * Creates a writer that writes the values with the adapter Gson has for the class,
+     * and with the null serialization and HTML escaping settings of the Gson instance.
+     *
+     * @param gson          the Gson instance that provides the adapter.
+     * @param out           the stream.
+     * @param clazz         the class of the values.
+     * @param linesPerFlush the number of lines after which the stream is flushed,
+     *                      or 0 to only flush it when asked to.
+     * @param <T>           the type of the values.
+     * @return a new writer.
+     */
+    @NotNull
+    public static <T> JsonLinesWriter<T> create(@NotNull Gson gson, @NotNull OutputStream out,
+                                                @NotNull Class<T> clazz, int linesPerFlush) {
+        JsonLinesWriter<T> writer = new JsonLinesWriter<>(out, gson.getAdapter(clazz), linesPerFlush);
+        writer.mWriter.setSerializeNulls(gson.serializeNulls());
+        writer.mWriter.setHtmlSafe(gson.htmlSafe());
+        return writer;
+    }
+
+    /**
+     * Writes the value on a line of its own.
+     *
+     * @param value the value, which is written as null if it is null.
+     * @throws IOException if the value could not be written.
+     */
+    public void write(T value) throws IOException {
+        mTypeAdapter.write(mWriter, value);
+        mWriter.endLine();
+        if (mLinesPerFlush > 0 && ++mUnflushedLines >= mLinesPerFlush) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the lines that are buffered to the stream and flushes it.
+     */
+    @Override
+    public void flush() throws IOException {
+        mWriter.flush();
+        mUnflushedLines = 0;
+    }
+
+    /**
+     * Writes the lines that are buffered to the stream and closes it.
+     */
+    @Override
+    public void close() throws IOException {
+        mWriter.flush();
+        mOut.close();
+    }
+}
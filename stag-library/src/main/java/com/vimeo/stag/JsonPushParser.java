@@ -0,0 +1,425 @@
+/*
+ * The MIT License (MIT)
+ * <p/>
+ * Copyright (c) 2018 Vimeo
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.vimeo.stag;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Parses UTF-8 JSON that arrives in chunks, such as from a non-blocking channel, without
+ * blocking a thread while waiting for the rest of it. The chunks are passed to
+ * {@link #feed(ByteBuffer)} as they arrive, and every value that is complete is read with
+ * the type adapter and passed to the {@link Listener} before the method returns.
+ * <p>
+ * Between chunks, the parser keeps the bytes of the value that is not complete yet, and
+ * the state of a scan that tracks nesting and strings. Since the scan finds out when a
+ * value is complete without reading it, the type adapters read each value in one go from
+ * memory, and do not need to be able to stop in the middle of a value. The values are
+ * either top-level values separated by whitespace, as in JSON Lines, or the elements of
+ * a top-level array, see {@link #forValues(TypeAdapter, Listener)} and
+ * {@link #forArrayElements(TypeAdapter, Listener)}.
+ * <p>
+ * The parser reads as much as it is fed and no more, so a caller that cannot keep up
+ * with the values can stop feeding it until it can. Once the parser has thrown an
+ * exception, it cannot be used anymore.
+ *
+ * @param <T> the type of the values.
+ */
+public final class JsonPushParser<T> {
+
+    /**
+     * Receives the values as they are parsed.
+     *
+     * @param <T> the type of the values.
+     */
+    public interface Listener<T> {
+
+        /**
+         * Called on the thread that fed the parser, once for each value in order.
+         *
+         * @param value the value that was read.
+         * @throws IOException if the value could not be handled, which
+         *                     is thrown by the method that fed the parser.
+         */
+        void onValue(@Nullable T value) throws IOException;
+    }
+
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+
+    private static final int STATE_BEFORE_ARRAY = 0;
+    private static final int STATE_BEFORE_VALUE = 1;
+    private static final int STATE_IN_VALUE = 2;
+    private static final int STATE_IN_SCALAR = 3;
+    private static final int STATE_AFTER_VALUE = 4;
+    private static final int STATE_AFTER_ARRAY = 5;
+    private static final int STATE_FAILED = 6;
+
+    @NotNull
+    private final TypeAdapter<T> mTypeAdapter;
+    @NotNull
+    private final Listener<T> mListener;
+    private final boolean mArrayElements;
+
+    @NotNull
+    private byte[] mBuffer = new byte[INITIAL_BUFFER_SIZE];
+    private int mCount;
+    private int mPos;
+    private int mValueStart = -1;
+    private long mDiscarded;
+
+    private int mState;
+    private int mDepth;
+    private boolean mInString;
+    private boolean mEscaped;
+    private boolean mEmptyArray = true;
+
+    private JsonPushParser(@NotNull TypeAdapter<T> typeAdapter, @NotNull Listener<T> listener,
+                           boolean arrayElements) {
+        mTypeAdapter = typeAdapter;
+        mListener = listener;
+        mArrayElements = arrayElements;
+        mState = arrayElements ? STATE_BEFORE_ARRAY : STATE_BEFORE_VALUE;
+    }
+
+    /**
+     * Creates a parser for top-level values that are separated by whitespace.
+     *
+     * @param typeAdapter the adapter that reads each value.
+     * @param listener    the listener the values are passed to.
+     * @param <T>         the type of the values.
+     * @return a new parser.
+     */
+    @NotNull
+    public static <T> JsonPushParser<T> forValues(@NotNull TypeAdapter<T> typeAdapter,
+                                                  @NotNull Listener<T> listener) {
+        return new JsonPushParser<>(typeAdapter, listener, false);
+    }
+
+    /**
+     * Creates a parser for the elements of a top-level array, which are passed to the
+     * listener one at a time while the rest of the array has not arrived yet.
+     *
+     * @param typeAdapter the adapter that reads each element.
+     * @param listener    the listener the elements are passed to.
+     * @param <T>         the type of the elements.
+     * @return a new parser.
+     */
+    @NotNull
+    public static <T> JsonPushParser<T> forArrayElements(@NotNull TypeAdapter<T> typeAdapter,
+                                                         @NotNull Listener<T> listener) {
+        return new JsonPushParser<>(typeAdapter, listener, true);
+    }
+
+    /**
+     * Creates a parser for top-level values that reads them with the adapter Gson has for
+     * the class, which is the generated type adapter for models when the Stag factory is
+     * registered.
+     *
+     * @param gson     the Gson instance that provides the adapter.
+     * @param clazz    the class of the values.
+     * @param listener the listener the values are passed to.
+     * @param <T>      the type of the values.
+     * @return a new parser.
+     */
+    @NotNull
+    public static <T> JsonPushParser<T> forValues(@NotNull Gson gson, @NotNull Class<T> clazz,
+                                                  @NotNull Listener<T> listener) {
+        return forValues(gson.getAdapter(clazz), listener);
+    }
+
+    /**
+     * Creates a parser for the elements of a top-level array that reads them with the
+     * adapter Gson has for the class.
+     *
+     * @param gson     the Gson instance that provides the adapter.
+     * @param clazz    the class of the elements.
+     * @param listener the listener the elements are passed to.
+     * @param <T>      the type of the elements.
+     * @return a new parser.
+     */
+    @NotNull
+    public static <T> JsonPushParser<T> forArrayElements(@NotNull Gson gson, @NotNull Class<T> clazz,
+                                                         @NotNull Listener<T> listener) {
+        return forArrayElements(gson.getAdapter(clazz), listener);
+    }
+
+    /**
+     * Parses the remaining bytes of the buffer, and passes the values they complete to the
+     * listener. The position of the buffer is moved to its limit.
+     *
+     * @param buffer the next bytes of the JSON.
+     * @throws IOException if the JSON is malformed, or if the listener threw it.
+     */
+    public void feed(@NotNull ByteBuffer buffer) throws IOException {
+        checkNotFailed();
+        int length = buffer.remaining();
+        require(length);
+        buffer.get(mBuffer, mCount, length);
+        mCount += length;
+        parse();
+    }
+
+    /**
+     * Parses a range of the bytes, and passes the values they complete to the listener.
+     *
+     * @param bytes  the next bytes of the JSON.
+     * @param offset the index of the first byte.
+     * @param length the number of bytes.
+     * @throws IOException if the JSON is malformed, or if the listener threw it.
+     */
+    public void feed(@NotNull byte[] bytes, int offset, int length) throws IOException {
+        checkNotFailed();
+        require(length);
+        System.arraycopy(bytes, offset, mBuffer, mCount, length);
+        mCount += length;
+        parse();
+    }
+
+    /**
+     * Reads the bytes that are available from the channel without waiting for more, and
+     * passes the values they complete to the listener. At the end of the stream, the
+     * parser is {@link #finish() finished}.
+     *
+     * @param channel the channel, which would usually be in non-blocking mode.
+     * @return the number of bytes read, or -1 at the end of the stream.
+     * @throws IOException if the channel could not be read, if the JSON
+     *                     is malformed, or if the listener threw it.
+     */
+    public int readFrom(@NotNull ReadableByteChannel channel) throws IOException {
+        checkNotFailed();
+        require(INITIAL_BUFFER_SIZE);
+        int read = channel.read(ByteBuffer.wrap(mBuffer, mCount, mBuffer.length - mCount));
+        if (read == -1) {
+            finish();
+        } else if (read > 0) {
+            mCount += read;
+            parse();
+        }
+        return read;
+    }
+
+    /**
+     * Tells the parser that there are no more bytes, which completes
+     * a top-level number or literal that was not followed by anything.
+     *
+     * @throws IOException if the JSON ended in the middle of a value or of the array,
+     *                     or if the listener threw it.
+     */
+    public void finish() throws IOException {
+        checkNotFailed();
+        if (mState == STATE_IN_SCALAR && !mArrayElements) {
+            try {
+                emit();
+            } catch (IOException | RuntimeException e) {
+                mState = STATE_FAILED;
+                throw e;
+            }
+        }
+        if (mArrayElements ? mState != STATE_AFTER_ARRAY
+                : mState != STATE_BEFORE_VALUE && mState != STATE_AFTER_VALUE) {
+            throw fail("End of input");
+        }
+    }
+
+    private void parse() throws IOException {
+        try {
+            scan();
+        } catch (IOException | RuntimeException e) {
+            mState = STATE_FAILED;
+            throw e;
+        }
+        compact();
+    }
+
+    /**
+     * Moves the position over the bytes that were fed, and reads each value that ends.
+     */
+    private void scan() throws IOException {
+        byte[] buffer = mBuffer;
+        int count = mCount;
+        int baseDepth = mArrayElements ? 1 : 0;
+        while (mPos < count) {
+            byte b = buffer[mPos];
+            switch (mState) {
+                case STATE_IN_VALUE:
+                    mPos++;
+                    if (mInString) {
+                        if (mEscaped) {
+                            mEscaped = false;
+                        } else if (b == '\\') {
+                            mEscaped = true;
+                        } else if (b == '"') {
+                            mInString = false;
+                            if (mDepth == baseDepth) {
+                                emit();
+                            }
+                        }
+                    } else if (b == '"') {
+                        mInString = true;
+                    } else if (b == '{' || b == '[') {
+                        mDepth++;
+                    } else if (b == '}' || b == ']') {
+                        if (--mDepth == baseDepth) {
+                            emit();
+                        }
+                    }
+                    break;
+
+                case STATE_IN_SCALAR:
+                    if (isWhitespace(b) || b == ',' || b == ']' || b == '}'
+                            || b == '[' || b == '{' || b == '"') {
+                        // the delimiter is parsed again after the value
+                        emit();
+                    } else {
+                        mPos++;
+                    }
+                    break;
+
+                case STATE_BEFORE_VALUE:
+                    if (isWhitespace(b)) {
+                        mPos++;
+                    } else if (mArrayElements && b == ']' && mEmptyArray) {
+                        mPos++;
+                        mState = STATE_AFTER_ARRAY;
+                    } else if (b == ',' || b == ']' || b == '}') {
+                        throw fail("Expected a value");
+                    } else {
+                        mValueStart = mPos++;
+                        mEmptyArray = false;
+                        if (b == '{' || b == '[') {
+                            mDepth++;
+                            mState = STATE_IN_VALUE;
+                        } else if (b == '"') {
+                            mInString = true;
+                            mState = STATE_IN_VALUE;
+                        } else {
+                            mState = STATE_IN_SCALAR;
+                        }
+                    }
+                    break;
+
+                case STATE_AFTER_VALUE:
+                    if (isWhitespace(b)) {
+                        mPos++;
+                    } else if (!mArrayElements) {
+                        mState = STATE_BEFORE_VALUE;
+                    } else if (b == ',') {
+                        mPos++;
+                        mState = STATE_BEFORE_VALUE;
+                    } else if (b == ']') {
+                        mPos++;
+                        mState = STATE_AFTER_ARRAY;
+                    } else {
+                        throw fail("Expected ',' or ']'");
+                    }
+                    break;
+
+                case STATE_BEFORE_ARRAY:
+                    if (isWhitespace(b)) {
+                        mPos++;
+                    } else if (b == '[') {
+                        mPos++;
+                        mDepth = 1;
+                        mState = STATE_BEFORE_VALUE;
+                    } else {
+                        throw fail("Expected an array");
+                    }
+                    break;
+
+                case STATE_AFTER_ARRAY:
+                    if (!isWhitespace(b)) {
+                        throw fail("Expected the end of the input after the array");
+                    }
+                    mPos++;
+                    break;
+
+                default:
+                    throw new IllegalStateException("Unexpected state " + mState);
+            }
+        }
+    }
+
+    /**
+     * Reads the value that ends before the current position and passes it to the listener.
+     */
+    private void emit() throws IOException {
+        int start = mValueStart;
+        mValueStart = -1;
+        mState = STATE_AFTER_VALUE;
+        Utf8JsonReader reader = new Utf8JsonReader(mBuffer, start, mPos - start);
+        T value = mTypeAdapter.read(reader);
+        if (reader.peek() != JsonToken.END_DOCUMENT) {
+            throw new MalformedJsonException("Expected a single value at offset " + (mDiscarded + start));
+        }
+        mListener.onValue(value);
+    }
+
+    /**
+     * Drops the bytes that were parsed and are not part of the value that is not complete.
+     */
+    private void compact() {
+        int discard = mValueStart >= 0 ? mValueStart : mPos;
+        if (discard > 0) {
+            System.arraycopy(mBuffer, discard, mBuffer, 0, mCount - discard);
+            mCount -= discard;
+            mPos -= discard;
+            mDiscarded += discard;
+            if (mValueStart >= 0) {
+                mValueStart -= discard;
+            }
+        }
+    }
+
+    private void require(int length) {
+        if (mCount + length > mBuffer.length) {
+            mBuffer = Arrays.copyOf(mBuffer, Math.max(mBuffer.length * 2, mCount + length));
+        }
+    }
+
+    private void checkNotFailed() {
+        if (mState == STATE_FAILED) {
+            throw new IllegalStateException("The parser failed and cannot be used anymore");
+        }
+    }
+
+    @NotNull
+    private MalformedJsonException fail(@NotNull String message) {
+        mState = STATE_FAILED;
+        return new MalformedJsonException(message + " at offset " + (mDiscarded + mPos));
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * The MIT License (MIT)
+ * <p/>
+ * Copyright (c) 2018 Vimeo
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.vimeo.stag;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+/**
+ * The destination a {@link StagJsonWriter} writes to. The writer takes
+ * care of the structure of the document and the sink only encodes it.
+ */
+abstract class JsonSink {
+
+    /**
+     * Writes an ASCII character.
+     */
+    abstract void write(char c) throws IOException;
+
+    /**
+     * Writes a string that only contains ASCII characters.
+     */
+    abstract void write(@NotNull String value) throws IOException;
+
+    /**
+     * Writes the decimal digits of the value.
+     */
+    abstract void writeLong(long value) throws IOException;
+
+    /**
+     * Writes the string as it is, without quoting or escaping it.
+     */
+    abstract void writeRaw(@NotNull String value) throws IOException;
+
+    /**
+     * Writes the string quoted, replacing each ASCII character that has an entry in
+     * the replacements, as well as the line and paragraph separators.
+     */
+    abstract void writeQuoted(@NotNull String value, @NotNull String[] replacements) throws IOException;
+
+    /**
+     * Writes the escaped name of an object member, followed by the name separator.
+     */
+    abstract void writeName(@NotNull JsonFieldName name, boolean htmlSafe) throws IOException;
+
+    abstract void flush() throws IOException;
+
+    abstract void close() throws IOException;
+}
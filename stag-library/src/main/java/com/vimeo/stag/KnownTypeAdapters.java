@@ -23,7 +23,6 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.TypeAdapter;
-import com.google.gson.internal.JsonReaderInternalAccess;
 import com.google.gson.internal.LinkedTreeMap;
 import com.google.gson.internal.ObjectConstructor;
 import com.google.gson.internal.Streams;
@@ -37,6 +36,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -406,6 +406,69 @@ public final class KnownTypeAdapters {
     public static final TypeAdapter<ArrayList<Boolean>> BOOLEAN_ARRAY_LIST_ADAPTER = new ListTypeAdapter<>(TypeAdapters.BOOLEAN, new ArrayListInstantiator<Boolean>());
     public static final TypeAdapter<ArrayList<Byte>> BYTE_ARRAY_LIST_ADAPTER = new ListTypeAdapter<>(BYTE, new ArrayListInstantiator<Byte>());
 
+    /**
+     * Type Adapter for {@link IntList}, reads and writes the values without boxing them.
+     */
+    public static final TypeAdapter<IntList> INT_LIST = new TypeAdapter<IntList>() {
+
+        @Override
+        public IntList read(JsonReader in) throws IOException {
+            int[] values = PrimitiveIntegerArrayAdapter.read(in);
+            return values == null ? null : new IntList(values, values.length);
+        }
+
+        @Override
+        public void write(JsonWriter out, IntList value) throws IOException {
+            out.beginArray();
+            for (int i = 0, size = value.size(); i < size; i++) {
+                out.value(value.getInt(i));
+            }
+            out.endArray();
+        }
+    }.nullSafe();
+
+    /**
+     * Type Adapter for {@link LongList}, reads and writes the values without boxing them.
+     */
+    public static final TypeAdapter<LongList> LONG_LIST = new TypeAdapter<LongList>() {
+
+        @Override
+        public LongList read(JsonReader in) throws IOException {
+            long[] values = PrimitiveLongArrayAdapter.read(in);
+            return values == null ? null : new LongList(values, values.length);
+        }
+
+        @Override
+        public void write(JsonWriter out, LongList value) throws IOException {
+            out.beginArray();
+            for (int i = 0, size = value.size(); i < size; i++) {
+                out.value(value.getLong(i));
+            }
+            out.endArray();
+        }
+    }.nullSafe();
+
+    /**
+     * Type Adapter for {@link DoubleList}, reads and writes the values without boxing them.
+     */
+    public static final TypeAdapter<DoubleList> DOUBLE_LIST = new TypeAdapter<DoubleList>() {
+
+        @Override
+        public DoubleList read(JsonReader in) throws IOException {
+            double[] values = PrimitiveDoubleArrayAdapter.read(in);
+            return values == null ? null : new DoubleList(values, values.length);
+        }
+
+        @Override
+        public void write(JsonWriter out, DoubleList value) throws IOException {
+            out.beginArray();
+            for (int i = 0, size = value.size(); i < size; i++) {
+                out.value(value.getDouble(i));
+            }
+            out.endArray();
+        }
+    }.nullSafe();
+
     /**
      * An interface that defines the construction spec
      * of a primitive array.
@@ -462,15 +525,25 @@ public final class KnownTypeAdapters {
             }
             reader.beginArray();
 
-            ArrayList<T> object = new ArrayList<>();
-            while (reader.hasNext()) {
-                object.add(mValueTypeAdapter.read(reader));
-            }
+            ArrayBuffers buffers = ArrayBuffers.get();
+            Object[] buffer = buffers.takeObjects();
+            int size = 0;
+            try {
+                while (reader.hasNext()) {
+                    if (size == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, ArrayBuffers.grow(size));
+                    }
+                    buffer[size++] = mValueTypeAdapter.read(reader);
+                }
 
-            reader.endArray();
+                reader.endArray();
 
-            T[] result = this.mObjectCreator.construct(object.size());
-            return object.toArray(result);
+                T[] result = this.mObjectCreator.construct(size);
+                System.arraycopy(buffer, 0, result, 0, size);
+                return result;
+            } finally {
+                buffers.recycle(buffer, size);
+            }
         }
     }
 
@@ -497,15 +570,34 @@ public final class KnownTypeAdapters {
 
         @Nullable
         public static int[] read(@NotNull JsonReader reader) throws IOException {
-            ArrayList<Integer> arrayList = INTEGER_ARRAY_LIST_ADAPTER.read(reader);
-            int[] result = null;
-            if (arrayList != null) {
-                result = new int[arrayList.size()];
-                for (int idx = 0; idx < arrayList.size(); idx++) {
-                    result[idx] = arrayList.get(idx);
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            ArrayBuffers buffers = ArrayBuffers.get();
+            int[] buffer = buffers.takeInts();
+            try {
+                int size = 0;
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (size == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, ArrayBuffers.grow(size));
+                    }
+                    buffer[size++] = readElement(reader);
                 }
+                reader.endArray();
+                return Arrays.copyOf(buffer, size);
+            } finally {
+                buffers.recycle(buffer);
+            }
+        }
+
+        static int readElement(@NotNull JsonReader reader) throws IOException {
+            try {
+                return reader.nextInt();
+            } catch (NumberFormatException e) {
+                throw new JsonSyntaxException(e);
             }
-            return result;
         }
     }
 
@@ -532,15 +624,34 @@ public final class KnownTypeAdapters {
 
         @Nullable
         public static long[] read(@NotNull JsonReader reader) throws IOException {
-            ArrayList<Long> arrayList = LONG_ARRAY_LIST_ADAPTER.read(reader);
-            long[] result = null;
-            if (arrayList != null) {
-                result = new long[arrayList.size()];
-                for (int idx = 0; idx < arrayList.size(); idx++) {
-                    result[idx] = arrayList.get(idx);
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            ArrayBuffers buffers = ArrayBuffers.get();
+            long[] buffer = buffers.takeLongs();
+            try {
+                int size = 0;
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (size == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, ArrayBuffers.grow(size));
+                    }
+                    buffer[size++] = readElement(reader);
                 }
+                reader.endArray();
+                return Arrays.copyOf(buffer, size);
+            } finally {
+                buffers.recycle(buffer);
+            }
+        }
+
+        static long readElement(@NotNull JsonReader reader) throws IOException {
+            try {
+                return reader.nextLong();
+            } catch (NumberFormatException e) {
+                throw new JsonSyntaxException(e);
             }
-            return result;
         }
     }
 
@@ -567,15 +678,30 @@ public final class KnownTypeAdapters {
 
         @Nullable
         public static double[] read(@NotNull JsonReader reader) throws IOException {
-            ArrayList<Double> arrayList = DOUBLE_ARRAY_LIST_ADAPTER.read(reader);
-            double[] result = null;
-            if (arrayList != null) {
-                result = new double[arrayList.size()];
-                for (int idx = 0; idx < arrayList.size(); idx++) {
-                    result[idx] = arrayList.get(idx);
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            ArrayBuffers buffers = ArrayBuffers.get();
+            double[] buffer = buffers.takeDoubles();
+            try {
+                int size = 0;
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (size == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, ArrayBuffers.grow(size));
+                    }
+                    buffer[size++] = readElement(reader);
                 }
+                reader.endArray();
+                return Arrays.copyOf(buffer, size);
+            } finally {
+                buffers.recycle(buffer);
             }
-            return result;
+        }
+
+        private static double readElement(@NotNull JsonReader reader) throws IOException {
+            return reader.nextDouble();
         }
     }
 
@@ -602,15 +728,34 @@ public final class KnownTypeAdapters {
 
         @Nullable
         public static short[] read(@NotNull JsonReader reader) throws IOException {
-            ArrayList<Short> arrayList = SHORT_ARRAY_LIST_ADAPTER.read(reader);
-            short[] result = null;
-            if (arrayList != null) {
-                result = new short[arrayList.size()];
-                for (int idx = 0; idx < arrayList.size(); idx++) {
-                    result[idx] = arrayList.get(idx);
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            ArrayBuffers buffers = ArrayBuffers.get();
+            short[] buffer = buffers.takeShorts();
+            try {
+                int size = 0;
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (size == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, ArrayBuffers.grow(size));
+                    }
+                    buffer[size++] = readElement(reader);
                 }
+                reader.endArray();
+                return Arrays.copyOf(buffer, size);
+            } finally {
+                buffers.recycle(buffer);
+            }
+        }
+
+        private static short readElement(@NotNull JsonReader reader) throws IOException {
+            try {
+                return (short) reader.nextInt();
+            } catch (NumberFormatException e) {
+                throw new JsonSyntaxException(e);
             }
-            return result;
         }
     }
 
@@ -637,15 +782,30 @@ public final class KnownTypeAdapters {
 
         @Nullable
         public static float[] read(@NotNull JsonReader reader) throws IOException {
-            ArrayList<Float> arrayList = FLOAT_ARRAY_LIST_ADAPTER.read(reader);
-            float[] result = null;
-            if (arrayList != null) {
-                result = new float[arrayList.size()];
-                for (int idx = 0; idx < arrayList.size(); idx++) {
-                    result[idx] = arrayList.get(idx);
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            ArrayBuffers buffers = ArrayBuffers.get();
+            float[] buffer = buffers.takeFloats();
+            try {
+                int size = 0;
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (size == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, ArrayBuffers.grow(size));
+                    }
+                    buffer[size++] = readElement(reader);
                 }
+                reader.endArray();
+                return Arrays.copyOf(buffer, size);
+            } finally {
+                buffers.recycle(buffer);
             }
-            return result;
+        }
+
+        private static float readElement(@NotNull JsonReader reader) throws IOException {
+            return (float) reader.nextDouble();
         }
     }
 
@@ -672,15 +832,34 @@ public final class KnownTypeAdapters {
 
         @Nullable
         public static boolean[] read(@NotNull JsonReader reader) throws IOException {
-            ArrayList<Boolean> arrayList = BOOLEAN_ARRAY_LIST_ADAPTER.read(reader);
-            boolean[] result = null;
-            if (arrayList != null) {
-                result = new boolean[arrayList.size()];
-                for (int idx = 0; idx < arrayList.size(); idx++) {
-                    result[idx] = arrayList.get(idx);
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            ArrayBuffers buffers = ArrayBuffers.get();
+            boolean[] buffer = buffers.takeBooleans();
+            try {
+                int size = 0;
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (size == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, ArrayBuffers.grow(size));
+                    }
+                    buffer[size++] = readElement(reader);
                 }
+                reader.endArray();
+                return Arrays.copyOf(buffer, size);
+            } finally {
+                buffers.recycle(buffer);
             }
-            return result;
+        }
+
+        private static boolean readElement(@NotNull JsonReader reader) throws IOException {
+            if (reader.peek() == JsonToken.STRING) {
+                // support strings for compatibility with GSON 1.7
+                return Boolean.parseBoolean(reader.nextString());
+            }
+            return reader.nextBoolean();
         }
     }
 
@@ -707,15 +886,34 @@ public final class KnownTypeAdapters {
 
         @Nullable
         public static byte[] read(@NotNull JsonReader reader) throws IOException {
-            ArrayList<Byte> byteArrayList = BYTE_ARRAY_LIST_ADAPTER.read(reader);
-            byte[] result = null;
-            if (byteArrayList != null) {
-                result = new byte[byteArrayList.size()];
-                for (int idx = 0; idx < byteArrayList.size(); idx++) {
-                    result[idx] = byteArrayList.get(idx);
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                return null;
+            }
+            ArrayBuffers buffers = ArrayBuffers.get();
+            byte[] buffer = buffers.takeBytes();
+            try {
+                int size = 0;
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (size == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, ArrayBuffers.grow(size));
+                    }
+                    buffer[size++] = readElement(reader);
                 }
+                reader.endArray();
+                return Arrays.copyOf(buffer, size);
+            } finally {
+                buffers.recycle(buffer);
+            }
+        }
+
+        private static byte readElement(@NotNull JsonReader reader) throws IOException {
+            try {
+                return (byte) reader.nextInt();
+            } catch (NumberFormatException e) {
+                throw new JsonSyntaxException(e);
             }
-            return result;
         }
     }
 
@@ -951,7 +1149,7 @@ public final class KnownTypeAdapters {
             } else {
                 in.beginObject();
                 while (in.hasNext()) {
-                    JsonReaderInternalAccess.INSTANCE.promoteNameToValue(in);
+                    Utf8JsonReader.promoteNameToValue(in);
                     K key = keyTypeAdapter.read(in);
                     V value = valueTypeAdapter.read(in);
                     V replaced = map.put(key, value);
@@ -985,6 +1183,300 @@ public final class KnownTypeAdapters {
         }
     }
 
+    /**
+     * Base Type Adapter for {@link Map} types whose keys are always written as JSON names.
+     * Unlike {@link MapTypeAdapter}, it writes each key straight to the {@link JsonWriter}
+     * without converting it to a {@link JsonElement} first. Maps written in the array form
+     * are still read.
+     */
+    public abstract static class ScalarKeyMapTypeAdapter<K, V, T extends Map<K, V>> extends TypeAdapter<T> {
+
+        private final ObjectConstructor<T> objectConstructor;
+        private final TypeAdapter<V> valueTypeAdapter;
+        private final TypeAdapter<K> keyTypeAdapter;
+
+        ScalarKeyMapTypeAdapter(@NotNull TypeAdapter<K> keyTypeAdapter,
+                                @NotNull TypeAdapter<V> valueTypeAdapter,
+                                @NotNull ObjectConstructor<T> objectConstructor) {
+            this.keyTypeAdapter = keyTypeAdapter;
+            this.valueTypeAdapter = valueTypeAdapter;
+            this.objectConstructor = objectConstructor;
+        }
+
+        /**
+         * Converts a non null key to the JSON name it is written as.
+         */
+        @NotNull
+        abstract String toName(@NotNull K key);
+
+        /**
+         * Reads a key from the next JSON name.
+         */
+        abstract K readName(@NotNull JsonReader in) throws IOException;
+
+        @Override
+        public void write(JsonWriter writer, T value) throws IOException {
+            if (value == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            for (Map.Entry<K, V> entry : value.entrySet()) {
+                K key = entry.getKey();
+                writer.name(key == null ? "null" : toName(key));
+                valueTypeAdapter.write(writer, entry.getValue());
+            }
+            writer.endObject();
+        }
+
+        @Override
+        public T read(JsonReader in) throws IOException {
+            JsonToken peek = in.peek();
+            if (peek == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            T map = objectConstructor.construct();
+
+            if (peek == JsonToken.BEGIN_ARRAY) {
+                in.beginArray();
+                while (in.hasNext()) {
+                    in.beginArray(); // entry array
+                    K key = keyTypeAdapter.read(in);
+                    V value = valueTypeAdapter.read(in);
+                    V replaced = map.put(key, value);
+                    if (replaced != null) {
+                        throw new JsonSyntaxException("duplicate key: " + key);
+                    }
+                    in.endArray();
+                }
+                in.endArray();
+            } else {
+                in.beginObject();
+                while (in.hasNext()) {
+                    K key = readName(in);
+                    V value = valueTypeAdapter.read(in);
+                    V replaced = map.put(key, value);
+                    if (replaced != null) {
+                        throw new JsonSyntaxException("duplicate key: " + key);
+                    }
+                }
+                in.endObject();
+            }
+            return map;
+        }
+    }
+
+    /**
+     * Type Adapter for {@link Map} types with {@link String} keys. The names are read
+     * with {@link JsonReader#nextName()}.
+     */
+    public static final class StringKeyMapTypeAdapter<V, T extends Map<String, V>> extends ScalarKeyMapTypeAdapter<String, V, T> {
+
+        public StringKeyMapTypeAdapter(@NotNull TypeAdapter<V> valueTypeAdapter,
+                                       @NotNull ObjectConstructor<T> objectConstructor) {
+            super(TypeAdapters.STRING, valueTypeAdapter, objectConstructor);
+        }
+
+        @NotNull
+        @Override
+        String toName(@NotNull String key) {
+            return key;
+        }
+
+        @Override
+        String readName(@NotNull JsonReader in) throws IOException {
+            return in.nextName();
+        }
+    }
+
+    /**
+     * Type Adapter for {@link Map} types with {@link Integer} keys.
+     */
+    public static final class IntegerKeyMapTypeAdapter<V, T extends Map<Integer, V>> extends ScalarKeyMapTypeAdapter<Integer, V, T> {
+
+        public IntegerKeyMapTypeAdapter(@NotNull TypeAdapter<V> valueTypeAdapter,
+                                        @NotNull ObjectConstructor<T> objectConstructor) {
+            super(INTEGER, valueTypeAdapter, objectConstructor);
+        }
+
+        @NotNull
+        @Override
+        String toName(@NotNull Integer key) {
+            return Integer.toString(key);
+        }
+
+        @Override
+        Integer readName(@NotNull JsonReader in) throws IOException {
+            Utf8JsonReader.promoteNameToValue(in);
+            try {
+                return in.nextInt();
+            } catch (NumberFormatException e) {
+                throw new JsonSyntaxException(e);
+            }
+        }
+    }
+
+    /**
+     * Type Adapter for {@link Map} types with {@link Long} keys.
+     */
+    public static final class LongKeyMapTypeAdapter<V, T extends Map<Long, V>> extends ScalarKeyMapTypeAdapter<Long, V, T> {
+
+        public LongKeyMapTypeAdapter(@NotNull TypeAdapter<V> valueTypeAdapter,
+                                     @NotNull ObjectConstructor<T> objectConstructor) {
+            super(LONG, valueTypeAdapter, objectConstructor);
+        }
+
+        @NotNull
+        @Override
+        String toName(@NotNull Long key) {
+            return Long.toString(key);
+        }
+
+        @Override
+        Long readName(@NotNull JsonReader in) throws IOException {
+            Utf8JsonReader.promoteNameToValue(in);
+            try {
+                return in.nextLong();
+            } catch (NumberFormatException e) {
+                throw new JsonSyntaxException(e);
+            }
+        }
+    }
+
+    /**
+     * Type Adapter for {@link IntObjectMap}. The map is written as a JSON object
+     * whose names are the keys, and the keys are never boxed.
+     */
+    public static final class IntObjectMapTypeAdapter<V> extends TypeAdapter<IntObjectMap<V>> {
+
+        private final TypeAdapter<V> valueTypeAdapter;
+
+        public IntObjectMapTypeAdapter(@NotNull TypeAdapter<V> valueTypeAdapter) {
+            this.valueTypeAdapter = valueTypeAdapter;
+        }
+
+        @Override
+        public void write(JsonWriter writer, IntObjectMap<V> value) throws IOException {
+            if (value == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            IntObjectMap<V>.Cursor cursor = value.cursor();
+            while (cursor.moveToNext()) {
+                writer.name(Integer.toString(cursor.key()));
+                valueTypeAdapter.write(writer, cursor.value());
+            }
+            writer.endObject();
+        }
+
+        @Override
+        public IntObjectMap<V> read(JsonReader in) throws IOException {
+            JsonToken peek = in.peek();
+            if (peek == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            IntObjectMap<V> map = new IntObjectMap<>();
+            boolean entryArrays = peek == JsonToken.BEGIN_ARRAY;
+            if (entryArrays) {
+                in.beginArray();
+            } else {
+                in.beginObject();
+            }
+            while (in.hasNext()) {
+                if (entryArrays) {
+                    in.beginArray(); // entry array
+                } else {
+                    Utf8JsonReader.promoteNameToValue(in);
+                }
+                int key = PrimitiveIntegerArrayAdapter.readElement(in);
+                if (map.containsKey(key)) {
+                    throw new JsonSyntaxException("duplicate key: " + key);
+                }
+                map.put(key, valueTypeAdapter.read(in));
+                if (entryArrays) {
+                    in.endArray();
+                }
+            }
+            if (entryArrays) {
+                in.endArray();
+            } else {
+                in.endObject();
+            }
+            return map;
+        }
+    }
+
+    /**
+     * Type Adapter for {@link LongObjectMap}. The map is written as a JSON object
+     * whose names are the keys, and the keys are never boxed.
+     */
+    public static final class LongObjectMapTypeAdapter<V> extends TypeAdapter<LongObjectMap<V>> {
+
+        private final TypeAdapter<V> valueTypeAdapter;
+
+        public LongObjectMapTypeAdapter(@NotNull TypeAdapter<V> valueTypeAdapter) {
+            this.valueTypeAdapter = valueTypeAdapter;
+        }
+
+        @Override
+        public void write(JsonWriter writer, LongObjectMap<V> value) throws IOException {
+            if (value == null) {
+                writer.nullValue();
+                return;
+            }
+            writer.beginObject();
+            LongObjectMap<V>.Cursor cursor = value.cursor();
+            while (cursor.moveToNext()) {
+                writer.name(Long.toString(cursor.key()));
+                valueTypeAdapter.write(writer, cursor.value());
+            }
+            writer.endObject();
+        }
+
+        @Override
+        public LongObjectMap<V> read(JsonReader in) throws IOException {
+            JsonToken peek = in.peek();
+            if (peek == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+
+            LongObjectMap<V> map = new LongObjectMap<>();
+            boolean entryArrays = peek == JsonToken.BEGIN_ARRAY;
+            if (entryArrays) {
+                in.beginArray();
+            } else {
+                in.beginObject();
+            }
+            while (in.hasNext()) {
+                if (entryArrays) {
+                    in.beginArray(); // entry array
+                } else {
+                    Utf8JsonReader.promoteNameToValue(in);
+                }
+                long key = PrimitiveLongArrayAdapter.readElement(in);
+                if (map.containsKey(key)) {
+                    throw new JsonSyntaxException("duplicate key: " + key);
+                }
+                map.put(key, valueTypeAdapter.read(in));
+                if (entryArrays) {
+                    in.endArray();
+                }
+            }
+            if (entryArrays) {
+                in.endArray();
+            } else {
+                in.endObject();
+            }
+            return map;
+        }
+    }
+
     /**
      * Type Adapter for {@link Object}
      */
@@ -992,12 +1484,40 @@ public final class KnownTypeAdapters {
 
         private final Gson gson;
 
+        /**
+         * The adapters of the classes written so far, so that {@link Gson#getAdapter(Class)}
+         * is called once per class rather than once per value.
+         */
+        private final ConcurrentHashMap<Class<?>, TypeAdapter<?>> adapters = new ConcurrentHashMap<>();
+
+        /**
+         * The class written last and its adapter, checked before {@link #adapters}
+         * since dynamic lists and maps often hold values of one class.
+         */
+        @Nullable
+        private volatile CachedAdapter lastAdapter;
+
+        private final boolean compact;
+
         public ObjectTypeAdapter(@NotNull Gson gson) {
+            this(gson, false);
+        }
+
+        /**
+         * @param compact true to read JSON objects as {@link CompactMap}, integers that fit into an
+         *                {@code int} as {@link Integer} and other numbers as {@link LazyNumber},
+         *                instead of {@link LinkedTreeMap} and {@link Double}.
+         */
+        public ObjectTypeAdapter(@NotNull Gson gson, boolean compact) {
             this.gson = gson;
+            this.compact = compact;
         }
 
         @Override
         public Object read(JsonReader in) throws IOException {
+            if (compact) {
+                return readCompact(in);
+            }
             JsonToken token = in.peek();
             switch (token) {
                 case BEGIN_ARRAY:
@@ -1034,6 +1554,78 @@ public final class KnownTypeAdapters {
             }
         }
 
+        @Nullable
+        private Object readCompact(@NotNull JsonReader in) throws IOException {
+            JsonToken token = in.peek();
+            switch (token) {
+                case BEGIN_ARRAY:
+                    ArrayList<Object> list = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        list.add(readCompact(in));
+                    }
+                    in.endArray();
+                    list.trimToSize();
+                    return list;
+                case BEGIN_OBJECT:
+                    CompactMap map = new CompactMap();
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        map.put(in.nextName(), readCompact(in));
+                    }
+                    in.endObject();
+                    return map;
+                case STRING:
+                    return in.nextString();
+                case NUMBER:
+                    return readCompactNumber(in.nextString());
+                case BOOLEAN:
+                    return in.nextBoolean();
+                case NULL:
+                    in.nextNull();
+                    return null;
+                case NAME:
+                case END_OBJECT:
+                case END_ARRAY:
+                case END_DOCUMENT:
+                default:
+                    throw new IllegalStateException();
+            }
+        }
+
+        /**
+         * Returns an {@link Integer} if the number is an integer that fits into
+         * an {@code int}, and a {@link LazyNumber} otherwise, which includes
+         * {@code -0} since an {@link Integer} cannot keep its sign.
+         */
+        @NotNull
+        private static Number readCompactNumber(@NotNull String number) {
+            int length = number.length();
+            int start = length > 0 && number.charAt(0) == '-' ? 1 : 0;
+            // at most ten digits, which cannot overflow a long
+            if (length == start || length - start > 10) {
+                return new LazyNumber(number);
+            }
+            long value = 0;
+            for (int i = start; i < length; i++) {
+                char c = number.charAt(i);
+                if (c < '0' || c > '9') {
+                    return new LazyNumber(number);
+                }
+                value = value * 10 + (c - '0');
+            }
+            if (start == 1) {
+                if (value == 0) {
+                    return new LazyNumber(number);
+                }
+                value = -value;
+            }
+            if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                return new LazyNumber(number);
+            }
+            return (int) value;
+        }
+
         @SuppressWarnings("unchecked")
         @Override
         public void write(JsonWriter out, Object value) throws IOException {
@@ -1042,7 +1634,7 @@ public final class KnownTypeAdapters {
                 return;
             }
 
-            TypeAdapter<Object> typeAdapter = (TypeAdapter<Object>) gson.getAdapter(value.getClass());
+            TypeAdapter<Object> typeAdapter = (TypeAdapter<Object>) getAdapter(value.getClass());
             if (typeAdapter instanceof ObjectTypeAdapter) {
                 out.beginObject();
                 out.endObject();
@@ -1051,6 +1643,32 @@ public final class KnownTypeAdapters {
 
             typeAdapter.write(out, value);
         }
+
+        @NotNull
+        private TypeAdapter<?> getAdapter(@NotNull Class<?> clazz) {
+            CachedAdapter cachedAdapter = lastAdapter;
+            if (cachedAdapter != null && cachedAdapter.clazz == clazz) {
+                return cachedAdapter.adapter;
+            }
+            TypeAdapter<?> typeAdapter = adapters.get(clazz);
+            if (typeAdapter == null) {
+                typeAdapter = gson.getAdapter(clazz);
+                adapters.put(clazz, typeAdapter);
+            }
+            lastAdapter = new CachedAdapter(clazz, typeAdapter);
+            return typeAdapter;
+        }
+
+        private static final class CachedAdapter {
+
+            @NotNull final Class<?> clazz;
+            @NotNull final TypeAdapter<?> adapter;
+
+            CachedAdapter(@NotNull Class<?> clazz, @NotNull TypeAdapter<?> adapter) {
+                this.clazz = clazz;
+                this.adapter = adapter;
+            }
+        }
     }
 
     public static final TypeAdapter<JsonElement> JSON_ELEMENT =
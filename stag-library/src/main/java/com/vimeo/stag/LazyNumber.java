@@ -0,0 +1,121 @@
+/*
+ * The MIT License (MIT)
+ * <p/>
+ * Copyright (c) 2018 Vimeo
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.vimeo.stag;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * A number that keeps the text it was read from and only parses
+ * it when one of its values is asked for. It is written back as
+ * the same text.
+ * <p>
+ * {@link KnownTypeAdapters.ObjectTypeAdapter} reads numbers that do not fit into
+ * an {@code int} as this type when the compact dynamic types are enabled.
+ */
+@JsonAdapter(LazyNumber.Adapter.class)
+public final class LazyNumber extends Number {
+
+    private static final long serialVersionUID = 1L;
+
+    @NotNull
+    private final String mValue;
+
+    public LazyNumber(@NotNull String value) {
+        mValue = value;
+    }
+
+    @Override
+    public int intValue() {
+        try {
+            return Integer.parseInt(mValue);
+        } catch (NumberFormatException e) {
+            return (int) longValue();
+        }
+    }
+
+    @Override
+    public long longValue() {
+        try {
+            return Long.parseLong(mValue);
+        } catch (NumberFormatException e) {
+            return new BigDecimal(mValue).longValue();
+        }
+    }
+
+    @Override
+    public float floatValue() {
+        return Float.parseFloat(mValue);
+    }
+
+    @Override
+    public double doubleValue() {
+        return Double.parseDouble(mValue);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+        return this == o || (o instanceof LazyNumber && mValue.equals(((LazyNumber) o).mValue));
+    }
+
+    @Override
+    public int hashCode() {
+        return mValue.hashCode();
+    }
+
+    @NotNull
+    @Override
+    public String toString() {
+        return mValue;
+    }
+
+    /**
+     * Writes the number as it was read.
+     */
+    public static final class Adapter extends TypeAdapter<LazyNumber> {
+
+        @Override
+        public void write(JsonWriter out, LazyNumber value) throws IOException {
+            out.value(value);
+        }
+
+        @Override
+        public LazyNumber read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return new LazyNumber(in.nextString());
+        }
+    }
+}
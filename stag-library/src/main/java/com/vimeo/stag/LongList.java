@@ -0,0 +1,203 @@
+/*
+ * The MIT License (MIT)
+ * <p/>
+ * Copyright (c) 2018 Vimeo
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.vimeo.stag;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * A growable list of {@code long} values backed by a primitive array.
+ * <p>
+ * The list implements {@link java.util.List} of {@link Long} so it can be
+ * used wherever a list is expected, but the values are stored unboxed. Use
+ * {@link #getLong(int)} and {@link #addLong(long)} to avoid boxing on the hot path.
+ * Stag reads and writes fields of this type through {@link KnownTypeAdapters#LONG_LIST}.
+ * <p>
+ * This class is not thread safe. Null elements are not permitted.
+ */
+public final class LongList extends AbstractList<Long> implements RandomAccess {
+
+    private static final long[] EMPTY = new long[0];
+
+    @NotNull
+    private long[] mValues;
+    private int mSize;
+
+    public LongList() {
+        mValues = EMPTY;
+    }
+
+    public LongList(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+        }
+        mValues = initialCapacity == 0 ? EMPTY : new long[initialCapacity];
+    }
+
+    /**
+     * Takes ownership of the array, which must not be modified afterwards.
+     */
+    LongList(@NotNull long[] values, int size) {
+        mValues = values;
+        mSize = size;
+    }
+
+    /**
+     * Creates a list holding a copy of the values.
+     *
+     * @param values the values to copy.
+     * @return a new list.
+     */
+    @NotNull
+    public static LongList copyOf(@NotNull long[] values) {
+        return new LongList(Arrays.copyOf(values, values.length), values.length);
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    public long getLong(int index) {
+        checkIndex(index);
+        return mValues[index];
+    }
+
+    /**
+     * @return the previous value at the index.
+     */
+    public long setLong(int index, long value) {
+        checkIndex(index);
+        long previous = mValues[index];
+        mValues[index] = value;
+        return previous;
+    }
+
+    public void addLong(long value) {
+        if (mSize == mValues.length) {
+            mValues = Arrays.copyOf(mValues, ArrayBuffers.grow(mSize));
+        }
+        mValues[mSize++] = value;
+        modCount++;
+    }
+
+    public void addLong(int index, long value) {
+        if (index < 0 || index > mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+        if (mSize == mValues.length) {
+            mValues = Arrays.copyOf(mValues, ArrayBuffers.grow(mSize));
+        }
+        System.arraycopy(mValues, index, mValues, index + 1, mSize - index);
+        mValues[index] = value;
+        mSize++;
+        modCount++;
+    }
+
+    public long removeLongAt(int index) {
+        checkIndex(index);
+        long previous = mValues[index];
+        System.arraycopy(mValues, index + 1, mValues, index, mSize - index - 1);
+        mSize--;
+        modCount++;
+        return previous;
+    }
+
+    /**
+     * @return a new array holding the values of this list.
+     */
+    @NotNull
+    public long[] toLongArray() {
+        return Arrays.copyOf(mValues, mSize);
+    }
+
+    @Override
+    public Long get(int index) {
+        return getLong(index);
+    }
+
+    @Override
+    public Long set(int index, @NotNull Long element) {
+        return setLong(index, element);
+    }
+
+    @Override
+    public boolean add(@NotNull Long element) {
+        addLong(element);
+        return true;
+    }
+
+    @Override
+    public void add(int index, @NotNull Long element) {
+        addLong(index, element);
+    }
+
+    @Override
+    public Long remove(int index) {
+        return removeLongAt(index);
+    }
+
+    @Override
+    public void clear() {
+        mSize = 0;
+        modCount++;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (o instanceof LongList) {
+            LongList other = (LongList) o;
+            if (mSize != other.mSize) {
+                return false;
+            }
+            for (int i = 0; i < mSize; i++) {
+                if (mValues[i] != other.mValues[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < mSize; i++) {
+            long value = mValues[i];
+            result = 31 * result + (int) (value ^ (value >>> 32));
+        }
+        return result;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * The MIT License (MIT)
+ * <p/>
+ * Copyright (c) 2018 Vimeo
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.vimeo.stag;
+
+import com.google.gson.TypeAdapter;
+import com.vimeo.stag.KnownTypeAdapters.ArrayListInstantiator;
+import com.vimeo.stag.KnownTypeAdapters.ListTypeAdapter;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Reads a large JSON array encoded as UTF-8 on several threads.
+ * <p>
+ * The bytes are first scanned for the elements of the array, which only tracks nesting
+ * and strings and does not create any objects, and the elements are split into contiguous
+ * chunks of about the same size in bytes. Each chunk is read in place on the executor, by
+ * a reader that starts inside the array at the first element of the chunk. The elements of
+ * the chunks are joined in order, so the result is the same list a {@link ListTypeAdapter}
+ * would read from the whole document.
+ * <p>
+ * Small documents, and documents the scan cannot split, are read on the calling thread.
+ * Malformed JSON in a chunk is reported with the line, column and path it has in the
+ * whole document, and the error of the first malformed chunk is the one thrown, so the
+ * errors are the same as those of a sequential read.
+ */
+public final class ParallelArrayReader {
+
+    /**
+     * Documents smaller than this are read on the calling thread, since
+     * reading them takes less time than handing the chunks to other threads.
+     */
+    static final int MIN_PARALLEL_BYTES = 128 * 1024;
+
+    /**
+     * The number of chunks created for each thread, so that a thread
+     * that finishes early can pick up the chunks of a slower one.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private ParallelArrayReader() {
+        throw new UnsupportedOperationException("This class is not instantiable");
+    }
+
+    /**
+     * Reads the array in the bytes.
+     *
+     * @param typeAdapter the adapter that reads each element, which must be safe to use
+     *                    from several threads, as the generated type adapters are.
+     * @param json        the UTF-8 encoded document, which must not be modified while it is read.
+     * @param executor    the executor to read the chunks on, for instance a
+     *                    {@link java.util.concurrent.ForkJoinPool}.
+     * @param parallelism the number of threads the chunks are read on.
+     * @param <T>         the type of the elements.
+     * @return the elements in the order they appear in the array, or null
+     * if the document is a JSON null.
+     * @throws IOException if the document could not be read.
+     */
+    @Nullable
+    public static <T> List<T> read(@NotNull TypeAdapter<T> typeAdapter, @NotNull byte[] json,
+                                   @NotNull ExecutorService executor, int parallelism) throws IOException {
+        return read(typeAdapter, json, 0, json.length, executor, parallelism, MIN_PARALLEL_BYTES);
+    }
+
+    /**
+     * Reads the array in a range of the bytes.
+     *
+     * @param typeAdapter the adapter that reads each element, which must be safe to use
+     *                    from several threads, as the generated type adapters are.
+     * @param json        the UTF-8 encoded document, which must not be modified while it is read.
+     * @param offset      the index of the first byte of the document.
+     * @param length      the number of bytes in the document.
+     * @param executor    the executor to read the chunks on, for instance a
+     *                    {@link java.util.concurrent.ForkJoinPool}.
+     * @param parallelism the number of threads the chunks are read on.
+     * @param <T>         the type of the elements.
+     * @return the elements in the order they appear in the array, or null
+     * if the document is a JSON null.
+     * @throws IOException if the document could not be read.
+     */
+    @Nullable
+    public static <T> List<T> read(@NotNull TypeAdapter<T> typeAdapter, @NotNull byte[] json, int offset,
+                                   int length, @NotNull ExecutorService executor,
+                                   int parallelism) throws IOException {
+        return read(typeAdapter, json, offset, length, executor, parallelism, MIN_PARALLEL_BYTES);
+    }
+
+    @Nullable
+    static <T> List<T> read(@NotNull TypeAdapter<T> typeAdapter, @NotNull byte[] json, int offset,
+                            int length, @NotNull ExecutorService executor, int parallelism,
+                            int minParallelBytes) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > json.length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length
+                    + ", size " + json.length);
+        }
+        List<Chunk> chunks = parallelism > 1 && length >= minParallelBytes
+                ? scanChunks(json, offset, offset + length, length / (parallelism * CHUNKS_PER_THREAD)) : null;
+        if (chunks == null || chunks.size() < 2) {
+            return new ListTypeAdapter<>(typeAdapter, new ArrayListInstantiator<T>())
+                    .read(new Utf8JsonReader(json, offset, length));
+        }
+
+        List<Callable<ArrayList<T>>> tasks = new ArrayList<>(chunks.size());
+        for (Chunk chunk : chunks) {
+            tasks.add(new ChunkTask<>(typeAdapter, json, chunk));
+        }
+
+        List<Future<ArrayList<T>>> futures;
+        try {
+            futures = executor.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading the array");
+        }
+
+        Chunk last = chunks.get(chunks.size() - 1);
+        List<T> result = new ArrayList<>(last.mFirstIndex + last.mCount);
+        for (Future<ArrayList<T>> future : futures) {
+            result.addAll(getResult(future));
+        }
+        return result;
+    }
+
+    /**
+     * Waits for the result of a task, and rethrows the exception the task failed with.
+     */
+    static <V> V getResult(@NotNull Future<V> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a chunk");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Splits the array that makes up the bytes between the start and the end into chunks of
+     * contiguous elements, skipping over nested values and strings without reading them. A chunk
+     * ends with the first element that makes it at least the given number of bytes long.
+     *
+     * @return the chunks, or null if the bytes are not an array the scan can split.
+     */
+    @Nullable
+    static List<Chunk> scanChunks(@NotNull byte[] json, int start, int end, int chunkBytes) {
+        int i = skipWhitespace(json, start, end);
+        if (i == end || json[i] != '[') {
+            return null;
+        }
+        List<Chunk> chunks = new ArrayList<>();
+        i = skipWhitespace(json, i + 1, end);
+        if (i < end && json[i] == ']') {
+            return skipWhitespace(json, i + 1, end) == end ? chunks : null;
+        }
+
+        int index = 0;
+        int chunkStart = i;
+        int chunkIndex = 0;
+        int lineNumber = 0;
+        int lineStart = start;
+        int counted = start;
+        while (true) {
+            int elementStart = i;
+            int depth = 0;
+            while (i < end) {
+                byte b = json[i];
+                if (b == '"') {
+                    i = skipString(json, i + 1, end);
+                    if (i < 0) {
+                        return null;
+                    }
+                    continue;
+                }
+                if (b == '[' || b == '{') {
+                    depth++;
+                } else if (b == ']' || b == '}') {
+                    if (depth == 0) {
+                        break;
+                    }
+                    depth--;
+                } else if (b == ',' && depth == 0) {
+                    break;
+                }
+                i++;
+            }
+            if (i == end || json[i] == '}') {
+                return null;
+            }
+
+            int elementEnd = i;
+            while (elementEnd > elementStart && isWhitespace(json[elementEnd - 1])) {
+                elementEnd--;
+            }
+            if (elementEnd == elementStart) {
+                return null;
+            }
+            index++;
+
+            boolean isLast = json[i] == ']';
+            if (isLast || elementEnd - chunkStart >= chunkBytes) {
+                // Readers count every line feed, including those in strings
+                for (; counted < chunkStart; counted++) {
+                    if (json[counted] == '\n') {
+                        lineNumber++;
+                        lineStart = counted + 1;
+                    }
+                }
+                chunks.add(new Chunk(chunkStart, elementEnd, chunkIndex, index - chunkIndex, lineNumber, lineStart));
+                chunkIndex = index;
+            }
+            if (isLast) {
+                return skipWhitespace(json, i + 1, end) == end ? chunks : null;
+            }
+            i = skipWhitespace(json, i + 1, end);
+            if (chunkIndex == index) {
+                chunkStart = i;
+            }
+        }
+    }
+
+    /**
+     * Returns the index after the quote that ends the string, or -1 if the string does not end.
+     */
+    private static int skipString(@NotNull byte[] json, int i, int end) {
+        while (i < end) {
+            byte b = json[i++];
+            if (b == '"') {
+                return i;
+            } else if (b == '\\') {
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(@NotNull byte[] json, int i, int end) {
+        while (i < end && isWhitespace(json[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    /**
+     * A range of contiguous elements of the array, which starts at the first byte of its first
+     * element and ends after the last byte of its last element, and the zero based number and
+     * the first byte of the line it starts on.
+     */
+    static final class Chunk {
+
+        final int mStart;
+        final int mEnd;
+        final int mFirstIndex;
+        final int mCount;
+        final int mLineNumber;
+        final int mLineStart;
+
+        Chunk(int start, int end, int firstIndex, int count, int lineNumber, int lineStart) {
+            mStart = start;
+            mEnd = end;
+            mFirstIndex = firstIndex;
+            mCount = count;
+            mLineNumber = lineNumber;
+            mLineStart = lineStart;
+        }
+    }
+
+    /**
+     * Reads the elements of a chunk, and the commas and whitespace between them, in place.
+     * The elements share one reader, so the names they have in common are only decoded once.
+     */
+    private static final class ChunkTask<T> implements Callable<ArrayList<T>> {
+
+        @NotNull
+        private final TypeAdapter<T> mTypeAdapter;
+        @NotNull
+        private final byte[] mJson;
+        @NotNull
+        private final Chunk mChunk;
+
+        ChunkTask(@NotNull TypeAdapter<T> typeAdapter, @NotNull byte[] json, @NotNull Chunk chunk) {
+            mTypeAdapter = typeAdapter;
+            mJson = json;
+            mChunk = chunk;
+        }
+
+        @Override
+        public ArrayList<T> call() throws IOException {
+            Utf8JsonReader reader = new Utf8JsonReader(mJson, mChunk.mStart, mChunk.mEnd - mChunk.mStart);
+            reader.beginArrayElements(mChunk.mFirstIndex, mChunk.mLineNumber, mChunk.mLineStart);
+            ArrayList<T> elements = new ArrayList<>(mChunk.mCount);
+            for (int i = 0; i < mChunk.mCount; i++) {
+                elements.add(mTypeAdapter.read(reader));
+            }
+            reader.endArrayElements();
+            return elements;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * The MIT License (MIT)
+ * <p/>
+ * Copyright (c) 2018 Vimeo
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.vimeo.stag;
+
+import com.google.gson.TypeAdapter;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Writes a large list as a JSON array on several threads.
+ * <p>
+ * The list is split into contiguous ranges of elements, and each range is written on
+ * the executor to a {@link Utf8JsonWriter} that keeps it in memory. The encoded ranges
+ * are then copied to the target writer in order, separated by commas, as soon as each
+ * one is done, while the later ones are still being written. Only one range per thread
+ * is written ahead of the range being copied, and the next range is only handed to the
+ * executor once a range was copied, so it reuses the writer of that range and at most
+ * one range per thread is kept in memory.
+ * <p>
+ * The ranges are written with the same settings as the target writer, and a
+ * {@link Utf8JsonWriter} does not indent its output, so the bytes are the same
+ * as the ones {@link KnownTypeAdapters.ListTypeAdapter} writes on one thread.
+ */
+public final class ParallelArrayWriter {
+
+    /**
+     * Lists smaller than this are written on the calling thread, since
+     * writing them takes less time than handing the ranges to other threads.
+     */
+    static final int MIN_PARALLEL_ELEMENTS = 1024;
+
+    /**
+     * The number of ranges created for each thread, so that a thread
+     * that finishes early can pick up the ranges of a slower one.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private ParallelArrayWriter() {
+        throw new UnsupportedOperationException("This class is not instantiable");
+    }
+
+    /**
+     * Writes the list as an array.
+     *
+     * @param typeAdapter the adapter that writes each element, which must be safe to use
+     *                    from several threads, as the generated type adapters are.
+     * @param values      the list, which must not be modified while it is written.
+     * @param writer      the writer, positioned where a value can be written.
+     * @param executor    the executor to write the ranges on, for instance a
+     *                    {@link java.util.concurrent.ForkJoinPool}.
+     * @param parallelism the number of threads the ranges are written on.
+     * @param <T>         the type of the elements.
+     * @throws IOException if the array could not be written.
+     */
+    public static <T> void write(@NotNull TypeAdapter<T> typeAdapter, @Nullable List<T> values,
+                                 @NotNull Utf8JsonWriter writer, @NotNull ExecutorService executor,
+                                 int parallelism) throws IOException {
+        write(typeAdapter, values, writer, executor, parallelism, MIN_PARALLEL_ELEMENTS);
+    }
+
+    static <T> void write(@NotNull TypeAdapter<T> typeAdapter, @Nullable List<T> values,
+                          @NotNull Utf8JsonWriter writer, @NotNull ExecutorService executor,
+                          int parallelism, int minParallelElements) throws IOException {
+        if (values == null) {
+            writer.nullValue();
+            return;
+        }
+        int size = values.size();
+        if (parallelism < 2 || size < 2 || size < minParallelElements) {
+            writer.beginArray();
+            for (T value : values) {
+                typeAdapter.write(writer, value);
+            }
+            writer.endArray();
+            return;
+        }
+
+        int chunkCount = Math.min(size, parallelism * CHUNKS_PER_THREAD);
+        Queue<Utf8JsonWriter> pool = new ConcurrentLinkedQueue<>();
+        Queue<Future<Utf8JsonWriter>> futures = new ArrayDeque<>(parallelism);
+        int nextChunk = 0;
+
+        boolean written = false;
+        try {
+            while (nextChunk < Math.min(chunkCount, parallelism)) {
+                futures.add(submitChunk(typeAdapter, values, writer, executor, pool, nextChunk++, chunkCount));
+            }
+            writer.beginArray();
+            Future<Utf8JsonWriter> future;
+            while ((future = futures.poll()) != null) {
+                Utf8JsonWriter chunkWriter = ParallelArrayReader.getResult(future);
+                chunkWriter.writeElementsTo(writer);
+                chunkWriter.reset();
+                pool.offer(chunkWriter);
+                if (nextChunk < chunkCount) {
+                    futures.add(submitChunk(typeAdapter, values, writer, executor, pool, nextChunk++, chunkCount));
+                }
+            }
+            writer.endArray();
+            written = true;
+        } finally {
+            if (!written) {
+                for (Future<Utf8JsonWriter> pending : futures) {
+                    pending.cancel(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Hands the range with the index to the executor.
+     */
+    @NotNull
+    private static <T> Future<Utf8JsonWriter> submitChunk(@NotNull TypeAdapter<T> typeAdapter,
+                                                          @NotNull List<T> values,
+                                                          @NotNull Utf8JsonWriter writer,
+                                                          @NotNull ExecutorService executor,
+                                                          @NotNull Queue<Utf8JsonWriter> pool,
+                                                          int chunk, int chunkCount) {
+        int size = values.size();
+        int from = (int) ((long) size * chunk / chunkCount);
+        int to = (int) ((long) size * (chunk + 1) / chunkCount);
+        return executor.submit(new ChunkTask<>(typeAdapter, values.subList(from, to), writer, pool));
+    }
+
+    /**
+     * Writes a range of the list as an array to a writer that keeps it in memory.
+     */
+    private static final class ChunkTask<T> implements Callable<Utf8JsonWriter> {
+
+        @NotNull
+        private final TypeAdapter<T> mTypeAdapter;
+        @NotNull
+        private final List<T> mValues;
+        private final boolean mSerializeNulls;
+        private final boolean mHtmlSafe;
+        private final boolean mLenient;
+        @NotNull
+        private final Queue<Utf8JsonWriter> mPool;
+
+        ChunkTask(@NotNull TypeAdapter<T> typeAdapter, @NotNull List<T> values,
+                  @NotNull Utf8JsonWriter target, @NotNull Queue<Utf8JsonWriter> pool) {
+            mTypeAdapter = typeAdapter;
+            mValues = values;
+            mSerializeNulls = target.getSerializeNulls();
+            mHtmlSafe = target.isHtmlSafe();
+            mLenient = target.isLenient();
+            mPool = pool;
+        }
+
+        @Override
+        public Utf8JsonWriter call() throws IOException {
+            Utf8JsonWriter writer = mPool.poll();
+            if (writer == null) {
+                writer = new Utf8JsonWriter();
+                writer.setSerializeNulls(mSerializeNulls);
+                writer.setHtmlSafe(mHtmlSafe);
+                writer.setLenient(mLenient);
+            }
+            writer.beginArray();
+            for (T value : mValues) {
+                mTypeAdapter.write(writer, value);
+            }
+            writer.endArray();
+            return writer;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * The MIT License (MIT)
+ * <p/>
+ * Copyright (c) 2018 Vimeo
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.vimeo.stag;
+
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Reads newline delimited JSON like {@link JsonLinesReader}, but decodes the lines on
+ * several threads while they are being read.
+ * <p>
+ * The thread that iterates over the values reads the stream and splits it into batches
+ * of whole lines, which only requires looking for newlines, since a newline can only
+ * appear between JSON values. Each batch is decoded on the executor with a
+ * {@link JsonLinesReader} of its own. Up to two batches per thread are decoded ahead of
+ * the values being returned, and the values are returned in the order of the lines.
+ * <p>
+ * Errors are thrown as {@link JsonSyntaxException} and {@link JsonIOException}, like
+ * {@link JsonLinesReader}. The lines are counted while the batches are split off, so the
+ * line numbers in the messages of syntax errors are the ones of the whole stream.
+ *
+ * @param <T> the type of the values.
+ */
+public final class PipelinedJsonLinesReader<T> implements Iterator<T>, Closeable {
+
+    /**
+     * The number of bytes read before a batch is split off at the last newline.
+     */
+    static final int BATCH_SIZE = 64 * 1024;
+
+    private static final int BATCHES_PER_THREAD = 2;
+
+    @NotNull
+    private final InputStream mIn;
+    @NotNull
+    private final TypeAdapter<T> mTypeAdapter;
+    @NotNull
+    private final ExecutorService mExecutor;
+    private final int mMaxPendingBatches;
+    @NotNull
+    private final Queue<Future<List<T>>> mPendingBatches = new ArrayDeque<>();
+    @NotNull
+    private byte[] mBuffer;
+    private int mCount;
+    private int mLineNumber;
+    private boolean mEndOfStream;
+    @Nullable
+    private Iterator<T> mCurrentBatch;
+
+    /**
+     * @param in          the stream, which should not be buffered.
+     * @param typeAdapter the adapter that reads each value, which must be safe to use
+     *                    from several threads, as the generated type adapters are.
+     * @param executor    the executor to decode the lines on.
+     * @param parallelism the number of threads the lines are decoded on.
+     */
+    public PipelinedJsonLinesReader(@NotNull InputStream in, @NotNull TypeAdapter<T> typeAdapter,
+                                    @NotNull ExecutorService executor, int parallelism) {
+        this(in, typeAdapter, executor, parallelism, BATCH_SIZE);
+    }
+
+    PipelinedJsonLinesReader(@NotNull InputStream in, @NotNull TypeAdapter<T> typeAdapter,
+                             @NotNull ExecutorService executor, int parallelism, int batchSize) {
+        mIn = in;
+        mTypeAdapter = typeAdapter;
+        mExecutor = executor;
+        mMaxPendingBatches = Math.max(1, parallelism) * BATCHES_PER_THREAD;
+        mBuffer = new byte[batchSize];
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            while (mCurrentBatch == null || !mCurrentBatch.hasNext()) {
+                while (mPendingBatches.size() < mMaxPendingBatches) {
+                    byte[] batch = nextBatch();
+                    if (batch == null) {
+                        break;
+                    }
+                    mPendingBatches.add(mExecutor.submit(new BatchTask<>(batch, mLineNumber, mTypeAdapter)));
+                    mLineNumber += countLines(batch);
+                }
+                Future<List<T>> future = mPendingBatches.poll();
+                if (future == null) {
+                    return false;
+                }
+                mCurrentBatch = ParallelArrayReader.getResult(future).iterator();
+            }
+            return true;
+        } catch (IOException e) {
+            throw JsonLinesReader.wrap(e);
+        }
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return mCurrentBatch.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("PipelinedJsonLinesReader does not support remove");
+    }
+
+    /**
+     * Cancels the batches that are being decoded and closes the stream.
+     */
+    @Override
+    public void close() throws IOException {
+        for (Future<List<T>> future : mPendingBatches) {
+            future.cancel(true);
+        }
+        mPendingBatches.clear();
+        mEndOfStream = true;
+        mIn.close();
+    }
+
+    /**
+     * Reads the stream until the buffer is full and splits off the lines in it,
+     * keeping the rest of the last line for the next batch. The buffer is grown
+     * if a single line does not fit in it.
+     *
+     * @return the lines, or null at the end of the stream.
+     */
+    @Nullable
+    private byte[] nextBatch() throws IOException {
+        while (!mEndOfStream) {
+            int read = mIn.read(mBuffer, mCount, mBuffer.length - mCount);
+            if (read == -1) {
+                mEndOfStream = true;
+                break;
+            }
+            mCount += read;
+            if (mCount < mBuffer.length) {
+                continue;
+            }
+            int end = mCount;
+            while (end > 0 && mBuffer[end - 1] != '\n') {
+                end--;
+            }
+            if (end == 0) {
+                mBuffer = Arrays.copyOf(mBuffer, mBuffer.length * 2);
+                continue;
+            }
+            byte[] batch = Arrays.copyOf(mBuffer, end);
+            System.arraycopy(mBuffer, end, mBuffer, 0, mCount - end);
+            mCount -= end;
+            return batch;
+        }
+        if (mCount == 0) {
+            return null;
+        }
+        byte[] batch = Arrays.copyOf(mBuffer, mCount);
+        mCount = 0;
+        return batch;
+    }
+
+    /**
+     * Counts the newlines in the batch, which is the number of lines
+     * the batch holds when it ends with a newline.
+     */
+    private static int countLines(@NotNull byte[] batch) {
+        int lines = 0;
+        for (byte b : batch) {
+            if (b == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Decodes the values on the lines of a batch.
+     */
+    private static final class BatchTask<T> implements Callable<List<T>> {
+
+        @NotNull
+        private final byte[] mBatch;
+        private final int mFirstLineNumber;
+        @NotNull
+        private final TypeAdapter<T> mTypeAdapter;
+
+        /**
+         * @param batch           the lines to decode.
+         * @param firstLineNumber the zero based number of the first line of the batch in the stream.
+         * @param typeAdapter     the adapter that reads each value.
+         */
+        BatchTask(@NotNull byte[] batch, int firstLineNumber, @NotNull TypeAdapter<T> typeAdapter) {
+            mBatch = batch;
+            mFirstLineNumber = firstLineNumber;
+            mTypeAdapter = typeAdapter;
+        }
+
+        @Override
+        public List<T> call() {
+            List<T> values = new ArrayList<>();
+            Utf8JsonReader jsonReader = new Utf8JsonReader(mBatch);
+            jsonReader.setFirstLineNumber(mFirstLineNumber);
+            JsonLinesReader<T> reader = new JsonLinesReader<>(jsonReader, mTypeAdapter);
+            while (reader.hasNext()) {
+                values.add(reader.next());
+            }
+            return values;
+        }
+    }
+}
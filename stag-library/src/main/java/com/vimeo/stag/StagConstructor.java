@@ -0,0 +1,50 @@
+/*
+ * The MIT License (MIT)
+ * <p/>
+ * Copyright (c) 2018 Vimeo
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.vimeo.stag;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Target;
+
+/**
+ * Use this annotation on a constructor of a class annotated with
+ * {@link UseStag} to tell Stag to create instances of the class
+ * through that constructor instead of the no argument constructor.
+ * <p>
+ * Every parameter of the constructor must have the same name and type
+ * as a member variable that Stag processes. If Stag is told to assume
+ * Hungarian notation, the parameter for a member variable named
+ * {@code mName} may also be called {@code name}. The generated TypeAdapter
+ * reads the values of those member variables first and then calls the
+ * constructor once with them, which allows the member variables to be
+ * final. Member variables that are not parameters of the constructor
+ * are set after the instance is created, so they must not be final.
+ * </p>
+ * <p>
+ * Java records do not need this annotation, Stag uses their canonical
+ * constructor.
+ * </p>
+ */
+@Target({ElementType.CONSTRUCTOR})
+public @interface StagConstructor {
+}
@@ -0,0 +1,575 @@
+/*
+ * Copyright (C) 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vimeo.stag;
+
+import com.google.gson.stream.JsonWriter;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * A {@link JsonWriter} that can write member names which were escaped ahead of time,
+ * see {@link JsonFieldName}. Type adapters generated by Stag write the names of the
+ * fields through {@link #name(JsonWriter, JsonFieldName)}, which skips escaping the
+ * name when the writer is a StagJsonWriter and falls back to {@link JsonWriter#name(String)}
+ * otherwise. Everything else is written the same way a {@link JsonWriter} writes it.
+ * <p>
+ * To use it, pass it to {@link com.google.gson.Gson#toJson(Object, java.lang.reflect.Type, JsonWriter)}
+ * or to {@link com.google.gson.TypeAdapter#write(JsonWriter, Object)}.
+ * <p>
+ * To write indented JSON, pass the indent to {@link #StagJsonWriter(Writer, String)}.
+ * {@link JsonWriter#setIndent(String)} is final and cannot be overridden, so an indent
+ * set through it is not seen by this writer, which then keeps writing compact JSON.
+ */
+public class StagJsonWriter extends JsonWriter {
+
+    private static final int EMPTY_ARRAY = 1;
+    private static final int NONEMPTY_ARRAY = 2;
+    private static final int EMPTY_OBJECT = 3;
+    private static final int DANGLING_NAME = 4;
+    private static final int NONEMPTY_OBJECT = 5;
+    private static final int EMPTY_DOCUMENT = 6;
+    private static final int NONEMPTY_DOCUMENT = 7;
+
+    /*
+     * From RFC 7159, "All Unicode characters may be placed within the
+     * quotation marks except for the characters that must be escaped:
+     * quotation mark, reverse solidus, and the control characters
+     * (U+0000 through U+001F)."
+     *
+     * We also escape U+2028 and U+2029, which JavaScript interprets as
+     * newline characters. This prevents eval() from failing with a syntax
+     * error. http://code.google.com/p/google-gson/issues/detail?id=341
+     */
+    private static final String[] REPLACEMENT_CHARS;
+    private static final String[] HTML_SAFE_REPLACEMENT_CHARS;
+
+    static {
+        REPLACEMENT_CHARS = new String[128];
+        for (int i = 0; i <= 0x1f; i++) {
+            REPLACEMENT_CHARS[i] = String.format("\\u%04x", i);
+        }
+        REPLACEMENT_CHARS['"'] = "\\\"";
+        REPLACEMENT_CHARS['\\'] = "\\\\";
+        REPLACEMENT_CHARS['\t'] = "\\t";
+        REPLACEMENT_CHARS['\b'] = "\\b";
+        REPLACEMENT_CHARS['\n'] = "\\n";
+        REPLACEMENT_CHARS['\r'] = "\\r";
+        REPLACEMENT_CHARS['\f'] = "\\f";
+        HTML_SAFE_REPLACEMENT_CHARS = REPLACEMENT_CHARS.clone();
+        HTML_SAFE_REPLACEMENT_CHARS['<'] = "\\u003c";
+        HTML_SAFE_REPLACEMENT_CHARS['>'] = "\\u003e";
+        HTML_SAFE_REPLACEMENT_CHARS['&'] = "\\u0026";
+        HTML_SAFE_REPLACEMENT_CHARS['='] = "\\u003d";
+        HTML_SAFE_REPLACEMENT_CHARS['\''] = "\\u0027";
+    }
+
+    @NotNull private final JsonSink mSink;
+
+    /**
+     * The string repeated for each level of nesting, or null for compact JSON.
+     */
+    @Nullable private String mIndent;
+
+    @NotNull private int[] mStack = new int[32];
+    private int mStackSize = 0;
+
+    @Nullable private String mDeferredName;
+    @Nullable private JsonFieldName mDeferredFieldName;
+
+    /**
+     * Creates a new instance that writes a JSON-encoded stream to {@code out}.
+     * For best performance, ensure {@link Writer} is buffered; wrapping in
+     * {@link java.io.BufferedWriter BufferedWriter} if necessary.
+     */
+    public StagJsonWriter(@NotNull Writer out) {
+        this(out, new WriterSink(out));
+    }
+
+    /**
+     * Creates a new instance that writes a JSON-encoded stream to {@code out},
+     * indented the same way {@link JsonWriter#setIndent(String)} indents it.
+     *
+     * @param out    the writer to write to.
+     * @param indent a string containing only whitespace, repeated for each level
+     *               of nesting, or an empty string for compact JSON.
+     */
+    public StagJsonWriter(@NotNull Writer out, @NotNull String indent) {
+        this(out);
+        mIndent = indent.isEmpty() ? null : indent;
+    }
+
+    /**
+     * @param out  the writer passed to {@link JsonWriter}, which never writes to it.
+     * @param sink the sink the JSON is written to.
+     */
+    StagJsonWriter(@NotNull Writer out, @NotNull JsonSink sink) {
+        super(out);
+        mSink = sink;
+        push(EMPTY_DOCUMENT);
+    }
+
+    /**
+     * Writes the property name. If the writer is a StagJsonWriter, the name is written
+     * as it was escaped ahead of time, otherwise it is passed to {@link JsonWriter#name(String)}.
+     *
+     * @param writer the writer to write the name to.
+     * @param name   the name of the forthcoming value.
+     * @throws IOException if the name could not be written.
+     */
+    public static void name(@NotNull JsonWriter writer, @NotNull JsonFieldName name) throws IOException {
+        if (writer instanceof StagJsonWriter) {
+            ((StagJsonWriter) writer).name(name);
+        } else {
+            writer.name(name.getName());
+        }
+    }
+
+    /**
+     * Encodes the property name, which was escaped ahead of time.
+     *
+     * @param name the name of the forthcoming value.
+     * @return this writer.
+     */
+    public StagJsonWriter name(@NotNull JsonFieldName name) {
+        checkCanWriteName();
+        mDeferredFieldName = name;
+        return this;
+    }
+
+    @Override
+    public StagJsonWriter name(String name) {
+        if (name == null) {
+            throw new NullPointerException("name == null");
+        }
+        checkCanWriteName();
+        mDeferredName = name;
+        return this;
+    }
+
+    @Override
+    public StagJsonWriter beginArray() throws IOException {
+        writeDeferredName();
+        return open(EMPTY_ARRAY, '[');
+    }
+
+    @Override
+    public StagJsonWriter endArray() throws IOException {
+        return close(EMPTY_ARRAY, NONEMPTY_ARRAY, ']');
+    }
+
+    @Override
+    public StagJsonWriter beginObject() throws IOException {
+        writeDeferredName();
+        return open(EMPTY_OBJECT, '{');
+    }
+
+    @Override
+    public StagJsonWriter endObject() throws IOException {
+        return close(EMPTY_OBJECT, NONEMPTY_OBJECT, '}');
+    }
+
+    @Override
+    public StagJsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        writeDeferredName();
+        beforeValue();
+        mSink.writeQuoted(value, getReplacementChars());
+        return this;
+    }
+
+    @Override
+    public StagJsonWriter jsonValue(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        writeDeferredName();
+        beforeValue();
+        mSink.writeRaw(value);
+        return this;
+    }
+
+    @Override
+    public StagJsonWriter nullValue() throws IOException {
+        if (mDeferredName != null || mDeferredFieldName != null) {
+            if (getSerializeNulls()) {
+                writeDeferredName();
+            } else {
+                // skip the name and the value
+                mDeferredName = null;
+                mDeferredFieldName = null;
+                return this;
+            }
+        }
+        beforeValue();
+        mSink.write("null");
+        return this;
+    }
+
+    @Override
+    public StagJsonWriter value(boolean value) throws IOException {
+        writeDeferredName();
+        beforeValue();
+        mSink.write(value ? "true" : "false");
+        return this;
+    }
+
+    @Override
+    public StagJsonWriter value(Boolean value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        return value(value.booleanValue());
+    }
+
+    @Override
+    public StagJsonWriter value(double value) throws IOException {
+        if (!isLenient() && (Double.isNaN(value) || Double.isInfinite(value))) {
+            throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+        }
+        writeDeferredName();
+        beforeValue();
+        mSink.write(Double.toString(value));
+        return this;
+    }
+
+    @Override
+    public StagJsonWriter value(long value) throws IOException {
+        writeDeferredName();
+        beforeValue();
+        mSink.writeLong(value);
+        return this;
+    }
+
+    @Override
+    public StagJsonWriter value(Number value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+
+        String string = value.toString();
+        if (!isLenient() && (string.equals("-Infinity") || string.equals("Infinity") || string.equals("NaN"))) {
+            throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+        }
+        writeDeferredName();
+        beforeValue();
+        mSink.writeRaw(string);
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (mStackSize == 0) {
+            throw new IllegalStateException("JsonWriter is closed.");
+        }
+        mSink.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mSink.close();
+
+        int size = mStackSize;
+        if (size > 1 || size == 1 && mStack[size - 1] != NONEMPTY_DOCUMENT) {
+            throw new IOException("Incomplete document");
+        }
+        mStackSize = 0;
+    }
+
+    /**
+     * Quotes and escapes the value the same way the writer does.
+     *
+     * @param value    the value to quote.
+     * @param htmlSafe true if HTML characters must be escaped as well.
+     * @return the quoted value.
+     */
+    @NotNull
+    static String quote(@NotNull String value, boolean htmlSafe) {
+        StringWriter out = new StringWriter(value.length() + 2);
+        try {
+            writeQuoted(out, value, htmlSafe ? HTML_SAFE_REPLACEMENT_CHARS : REPLACEMENT_CHARS);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return out.toString();
+    }
+
+    private static void writeQuoted(@NotNull Writer out, @NotNull String value,
+                                    @NotNull String[] replacements) throws IOException {
+        out.write('\"');
+        int last = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String replacement;
+            if (c < 128) {
+                replacement = replacements[c];
+                if (replacement == null) {
+                    continue;
+                }
+            } else if (c == '\u2028') {
+                replacement = "\\u2028";
+            } else if (c == '\u2029') {
+                replacement = "\\u2029";
+            } else {
+                continue;
+            }
+            if (last < i) {
+                out.write(value, last, i - last);
+            }
+            out.write(replacement);
+            last = i + 1;
+        }
+        if (last < length) {
+            out.write(value, last, length - last);
+        }
+        out.write('\"');
+    }
+
+    /**
+     * Prepares the writer for a value that is written to the sink directly,
+     * by writing the separator before it and updating the state.
+     */
+    void beforeRawValue() throws IOException {
+        writeDeferredName();
+        beforeValue();
+    }
+
+    /**
+     * Ends the top-level value that was written with a newline, so that the
+     * next value can be written on its own line, as in JSON Lines.
+     */
+    void endLine() throws IOException {
+        if (mStackSize != 1 || mStack[0] != NONEMPTY_DOCUMENT) {
+            throw new IllegalStateException("Incomplete document");
+        }
+        mSink.write('\n');
+        mStack[0] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Clears the state of the writer, so that a new document can be written.
+     */
+    void reset() {
+        mStackSize = 0;
+        mDeferredName = null;
+        mDeferredFieldName = null;
+        push(EMPTY_DOCUMENT);
+    }
+
+    @NotNull
+    private String[] getReplacementChars() {
+        return isHtmlSafe() ? HTML_SAFE_REPLACEMENT_CHARS : REPLACEMENT_CHARS;
+    }
+
+    private void checkCanWriteName() {
+        if (mDeferredName != null || mDeferredFieldName != null) {
+            throw new IllegalStateException();
+        }
+        if (mStackSize == 0) {
+            throw new IllegalStateException("JsonWriter is closed.");
+        }
+    }
+
+    private void writeDeferredName() throws IOException {
+        if (mDeferredFieldName != null) {
+            beforeName();
+            mSink.writeName(mDeferredFieldName, isHtmlSafe());
+            mDeferredFieldName = null;
+        } else if (mDeferredName != null) {
+            beforeName();
+            mSink.writeQuoted(mDeferredName, getReplacementChars());
+            mSink.write(':');
+            mDeferredName = null;
+        } else {
+            return;
+        }
+        if (mIndent != null) {
+            mSink.write(' ');
+        }
+    }
+
+    @NotNull
+    private StagJsonWriter open(int empty, char openBracket) throws IOException {
+        beforeValue();
+        push(empty);
+        mSink.write(openBracket);
+        return this;
+    }
+
+    @NotNull
+    private StagJsonWriter close(int empty, int nonempty, char closeBracket) throws IOException {
+        int context = peek();
+        if (context != nonempty && context != empty) {
+            throw new IllegalStateException("Nesting problem.");
+        }
+        if (mDeferredName != null || mDeferredFieldName != null) {
+            throw new IllegalStateException("Dangling name: " +
+                                            (mDeferredName != null ? mDeferredName : mDeferredFieldName));
+        }
+
+        mStackSize--;
+        if (context == nonempty) {
+            newline();
+        }
+        mSink.write(closeBracket);
+        return this;
+    }
+
+    private void push(int newTop) {
+        if (mStackSize == mStack.length) {
+            mStack = Arrays.copyOf(mStack, mStackSize * 2);
+        }
+        mStack[mStackSize++] = newTop;
+    }
+
+    private int peek() {
+        if (mStackSize == 0) {
+            throw new IllegalStateException("JsonWriter is closed.");
+        }
+        return mStack[mStackSize - 1];
+    }
+
+    private void replaceTop(int topOfStack) {
+        mStack[mStackSize - 1] = topOfStack;
+    }
+
+    /**
+     * Inserts any necessary separators before a name. The name separator
+     * is written with the name, so the name is left dangling until a
+     * value is written.
+     */
+    private void beforeName() throws IOException {
+        int context = peek();
+        if (context == NONEMPTY_OBJECT) {
+            mSink.write(',');
+        } else if (context != EMPTY_OBJECT) {
+            throw new IllegalStateException("Nesting problem.");
+        }
+        newline();
+        replaceTop(DANGLING_NAME);
+    }
+
+    /**
+     * Starts a new line indented to the current level of nesting,
+     * if the writer writes indented JSON.
+     */
+    private void newline() throws IOException {
+        if (mIndent == null) {
+            return;
+        }
+        mSink.write('\n');
+        for (int i = 1; i < mStackSize; i++) {
+            mSink.write(mIndent);
+        }
+    }
+
+    /**
+     * Inserts any necessary separators and whitespace before a literal value,
+     * inline array, or inline object. Also adjusts the stack to expect either a
+     * closing bracket or another element.
+     */
+    private void beforeValue() throws IOException {
+        switch (peek()) {
+            case NONEMPTY_DOCUMENT:
+                if (!isLenient()) {
+                    throw new IllegalStateException("JSON must have only one top-level value.");
+                }
+                break;
+
+            case EMPTY_DOCUMENT: // first in document
+                replaceTop(NONEMPTY_DOCUMENT);
+                break;
+
+            case EMPTY_ARRAY: // first in array
+                replaceTop(NONEMPTY_ARRAY);
+                newline();
+                break;
+
+            case NONEMPTY_ARRAY: // another in array
+                mSink.write(',');
+                newline();
+                break;
+
+            case DANGLING_NAME: // value for name, the separator was written with the name
+                replaceTop(NONEMPTY_OBJECT);
+                break;
+
+            default:
+                throw new IllegalStateException("Nesting problem.");
+        }
+    }
+
+    /**
+     * Writes the JSON to a {@link Writer}.
+     */
+    private static final class WriterSink extends JsonSink {
+
+        @NotNull private final Writer mOut;
+
+        WriterSink(@NotNull Writer out) {
+            mOut = out;
+        }
+
+        @Override
+        void write(char c) throws IOException {
+            mOut.write(c);
+        }
+
+        @Override
+        void write(@NotNull String value) throws IOException {
+            mOut.write(value);
+        }
+
+        @Override
+        void writeLong(long value) throws IOException {
+            mOut.write(Long.toString(value));
+        }
+
+        @Override
+        void writeRaw(@NotNull String value) throws IOException {
+            mOut.write(value);
+        }
+
+        @Override
+        void writeQuoted(@NotNull String value, @NotNull String[] replacements) throws IOException {
+            StagJsonWriter.writeQuoted(mOut, value, replacements);
+        }
+
+        @Override
+        void writeName(@NotNull JsonFieldName name, boolean htmlSafe) throws IOException {
+            char[] token = name.getToken(htmlSafe);
+            mOut.write(token, 0, token.length);
+        }
+
+        @Override
+        void flush() throws IOException {
+            mOut.flush();
+        }
+
+        @Override
+        void close() throws IOException {
+            mOut.close();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * The MIT License (MIT)
+ * <p/>
+ * Copyright (c) 2018 Vimeo
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.vimeo.stag;
+
+import com.google.gson.Gson;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Creates the type adapters of classes ahead of time, so that loading the adapter
+ * classes and creating the adapters is not paid for by the first request that needs them.
+ * The adapters are cached by Gson, which publishes them safely to every other thread.
+ * <p>
+ * The generated {@code Stag.Factory.preload(Gson, Executor)} uses it
+ * to create the adapters of every class known to the factory.
+ */
+public final class StagPreloader {
+
+    private StagPreloader() {
+        throw new UnsupportedOperationException("This class is not instantiable");
+    }
+
+    /**
+     * Asks Gson for the type adapter of each of the classes on the executor, one
+     * task per class. Generic classes are skipped, since their adapters depend
+     * on the type arguments they are used with.
+     *
+     * @param gson     the Gson instance that caches the adapters.
+     * @param executor the executor to create the adapters on.
+     * @param classes  the classes to create the adapters for.
+     * @return a future that is done once every adapter has been created, and that
+     * fails with the first exception thrown while creating an adapter.
+     */
+    @NotNull
+    public static Future<Void> preload(@NotNull final Gson gson, @NotNull Executor executor,
+                                       @NotNull Class<?>... classes) {
+        List<Class<?>> preloadedClasses = new ArrayList<>(classes.length);
+        for (Class<?> clazz : classes) {
+            if (clazz.getTypeParameters().length == 0) {
+                preloadedClasses.add(clazz);
+            }
+        }
+
+        final PreloadFuture future = new PreloadFuture(preloadedClasses.size());
+        for (final Class<?> clazz : preloadedClasses) {
+            Runnable task = new Runnable() {
+                @Override
+                public void run() {
+                    Throwable failure = null;
+                    if (!future.isCancelled()) {
+                        try {
+                            gson.getAdapter(clazz);
+                        } catch (Throwable throwable) {
+                            failure = throwable;
+                        }
+                    }
+                    future.onTaskDone(failure);
+                }
+            };
+            try {
+                executor.execute(task);
+            } catch (RuntimeException exception) {
+                future.onTaskDone(exception);
+            }
+        }
+        return future;
+    }
+
+    private static final class PreloadFuture implements Future<Void> {
+
+        @NotNull private final CountDownLatch mRemainingTasks;
+        @Nullable private volatile Throwable mFailure;
+        private volatile boolean mIsCancelled;
+
+        PreloadFuture(int taskCount) {
+            mRemainingTasks = new CountDownLatch(taskCount);
+        }
+
+        void onTaskDone(@Nullable Throwable failure) {
+            if (failure != null) {
+                synchronized (this) {
+                    if (mFailure == null) {
+                        mFailure = failure;
+                    }
+                }
+            }
+            mRemainingTasks.countDown();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (isDone()) {
+                return false;
+            }
+            mIsCancelled = true;
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return mIsCancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return mIsCancelled || mRemainingTasks.getCount() == 0;
+        }
+
+        @Override
+        public Void get() throws InterruptedException, ExecutionException {
+            if (!mIsCancelled) {
+                mRemainingTasks.await();
+            }
+            return getResult();
+        }
+
+        @Override
+        public Void get(long timeout, @NotNull TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            if (!mIsCancelled && !mRemainingTasks.await(timeout, unit)) {
+                throw new TimeoutException();
+            }
+            return getResult();
+        }
+
+        @Nullable
+        private Void getResult() throws ExecutionException {
+            if (mIsCancelled) {
+                throw new CancellationException();
+            }
+            Throwable failure = mFailure;
+            if (failure != null) {
+                throw new ExecutionException(failure);
+            }
+            return null;
+        }
+    }
+}
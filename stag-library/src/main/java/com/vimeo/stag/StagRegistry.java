@@ -0,0 +1,102 @@
+/*
+ * The MIT License (MIT)
+ * <p/>
+ * Copyright (c) 2018 Vimeo
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.vimeo.stag;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * A {@link TypeAdapterFactory} that merges the generated factories of any number of modules
+ * into a single lookup. Registering one registry with Gson instead of every module's
+ * {@code Stag.Factory} resolves an adapter with one {@link ClassIndex} lookup, no matter
+ * how many modules there are, and leaves classes unknown to every module to Gson in one step.
+ * <p>
+ * If more than one factory supports a class, the factory that was provided first wins,
+ * which is the same order that Gson would have consulted the factories in.
+ */
+public final class StagRegistry implements TypeAdapterFactory {
+
+    @NotNull private final ClassIndex mClassIndex;
+    @NotNull private final StagModuleFactory[] mFactories;
+
+    /**
+     * @param factories the generated factories, usually the {@code Stag.Factory} of each module.
+     */
+    public StagRegistry(@NotNull StagModuleFactory... factories) {
+        Map<Class<?>, StagModuleFactory> factoryMap = new IdentityHashMap<>();
+        List<Class<?>> classes = new ArrayList<>();
+        for (StagModuleFactory factory : factories) {
+            for (Class<?> clazz : factory.getSupportedClasses()) {
+                if (!factoryMap.containsKey(clazz)) {
+                    factoryMap.put(clazz, factory);
+                    classes.add(clazz);
+                }
+            }
+        }
+
+        mClassIndex = new ClassIndex(classes.toArray(new Class<?>[classes.size()]));
+        mFactories = new StagModuleFactory[classes.size()];
+        for (int index = 0; index < mFactories.length; index++) {
+            mFactories[index] = factoryMap.get(classes.get(index));
+        }
+    }
+
+    /**
+     * Creates a registry from the factories of every module on the class path. Stag registers
+     * the {@code Stag.Factory} of each module it processes as a {@link StagModuleFactory}
+     * service, so that it can be found with a {@link ServiceLoader}.
+     * <p>
+     * If the app is obfuscated, the generated factories need to be kept,
+     * as the service files refer to them by name.
+     *
+     * @param classLoader the class loader to load the factories with.
+     * @return the registry.
+     */
+    @NotNull
+    public static StagRegistry load(@NotNull ClassLoader classLoader) {
+        List<StagModuleFactory> factories = new ArrayList<>();
+        for (StagModuleFactory factory : ServiceLoader.load(StagModuleFactory.class, classLoader)) {
+            factories.add(factory);
+        }
+        return new StagRegistry(factories.toArray(new StagModuleFactory[factories.size()]));
+    }
+
+    @Nullable
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        int index = mClassIndex.indexOf(type.getRawType());
+        return index == -1 ? null : mFactories[index].create(gson, type);
+    }
+}
@@ -2,8 +2,10 @@ package com.vimeo.stag;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.lang.reflect.WildcardType;
+import java.util.Arrays;
 
 @SuppressWarnings("unused")
 public final class Types {
@@ -15,6 +17,24 @@ public final class Types {
         return new WildcardTypeImpl(upperBounds, lowerBounds);
     }
 
+    /**
+     * Returns the type arguments of a parameterized type, or {@link Object} for each of
+     * the type parameters if the type is a raw type.
+     *
+     * @param type  the type.
+     * @param count the number of type parameters of the raw type.
+     * @return the type arguments.
+     */
+    @NotNull
+    public static Type[] getTypeArguments(@NotNull Type type, int count) {
+        if (type instanceof ParameterizedType) {
+            return ((ParameterizedType) type).getActualTypeArguments();
+        }
+        Type[] typeArguments = new Type[count];
+        Arrays.fill(typeArguments, Object.class);
+        return typeArguments;
+    }
+
     private static final class WildcardTypeImpl implements WildcardType {
 
         @NotNull
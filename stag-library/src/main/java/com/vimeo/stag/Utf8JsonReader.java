@@ -0,0 +1,1659 @@
+/*
+ * Copyright (C) 2011 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vimeo.stag;
+
+import com.google.gson.internal.JsonReaderInternalAccess;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * A {@link JsonReader} that parses UTF-8 encoded JSON straight from bytes, instead of
+ * reading characters that an {@link java.io.InputStreamReader} decoded first. It reads
+ * from a {@code byte[]} or a {@link ByteBuffer} without copying, or from an
+ * {@link InputStream} through a buffer that is reused by the next reader created on
+ * the same thread once this one is closed.
+ * <p>
+ * It behaves the same as a {@link JsonReader}, including lenient parsing, so it can
+ * be passed to {@link com.google.gson.Gson#fromJson(JsonReader, java.lang.reflect.Type)}
+ * or to {@link com.google.gson.TypeAdapter#read(JsonReader)}. Names that only contain
+ * ASCII characters are looked up in a table of the names read before, so the names
+ * of objects that repeat in a document are only turned into strings once.
+ * <p>
+ * The map adapters of Stag read maps from this reader directly, while the map adapter
+ * of Gson can only read maps from it after {@link #installInternalAccess()} was called.
+ * <p>
+ * Columns in error messages count bytes rather than characters.
+ */
+public class Utf8JsonReader extends JsonReader {
+
+    private static final byte[] NON_EXECUTE_PREFIX = {')', ']', '}', '\'', '\n'};
+    private static final long MIN_INCOMPLETE_INTEGER = Long.MIN_VALUE / 10;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final char REPLACEMENT_CHAR = '\ufffd';
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int NAME_CACHE_SIZE = 64;
+    private static final int MAX_CACHED_NAME_LENGTH = 64;
+
+    private static final int PEEKED_NONE = 0;
+    private static final int PEEKED_BEGIN_OBJECT = 1;
+    private static final int PEEKED_END_OBJECT = 2;
+    private static final int PEEKED_BEGIN_ARRAY = 3;
+    private static final int PEEKED_END_ARRAY = 4;
+    private static final int PEEKED_TRUE = 5;
+    private static final int PEEKED_FALSE = 6;
+    private static final int PEEKED_NULL = 7;
+    private static final int PEEKED_SINGLE_QUOTED = 8;
+    private static final int PEEKED_DOUBLE_QUOTED = 9;
+    private static final int PEEKED_UNQUOTED = 10;
+    /** When this is returned, the string value is stored in peekedString. */
+    private static final int PEEKED_BUFFERED = 11;
+    private static final int PEEKED_SINGLE_QUOTED_NAME = 12;
+    private static final int PEEKED_DOUBLE_QUOTED_NAME = 13;
+    private static final int PEEKED_UNQUOTED_NAME = 14;
+    /** When this is returned, the integer value is stored in peekedLong. */
+    private static final int PEEKED_LONG = 15;
+    private static final int PEEKED_NUMBER = 16;
+    private static final int PEEKED_EOF = 17;
+
+    /* State machine when parsing numbers */
+    private static final int NUMBER_CHAR_NONE = 0;
+    private static final int NUMBER_CHAR_SIGN = 1;
+    private static final int NUMBER_CHAR_DIGIT = 2;
+    private static final int NUMBER_CHAR_DECIMAL = 3;
+    private static final int NUMBER_CHAR_FRACTION_DIGIT = 4;
+    private static final int NUMBER_CHAR_EXP_E = 5;
+    private static final int NUMBER_CHAR_EXP_SIGN = 6;
+    private static final int NUMBER_CHAR_EXP_DIGIT = 7;
+
+    /* The scopes of the stack */
+    private static final int EMPTY_ARRAY = 1;
+    private static final int NONEMPTY_ARRAY = 2;
+    private static final int EMPTY_OBJECT = 3;
+    private static final int DANGLING_NAME = 4;
+    private static final int NONEMPTY_OBJECT = 5;
+    private static final int EMPTY_DOCUMENT = 6;
+    private static final int NONEMPTY_DOCUMENT = 7;
+    private static final int CLOSED = 8;
+
+    /**
+     * The reader passed to {@link JsonReader}, which does not
+     * read anything itself since every method is overridden.
+     */
+    private static final Reader UNUSED_READER = new Reader() {
+        @Override
+        public int read(@NotNull char[] buffer, int offset, int length) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    /**
+     * The buffers of closed readers, which are reused by the next
+     * reader that reads from a stream on the same thread.
+     */
+    private static final ThreadLocal<byte[]> BUFFER_POOL = new ThreadLocal<>();
+
+    /**
+     * The buffer of a reader whose buffer went back to the pool when it was
+     * closed, so that closing it again does not return the buffer twice.
+     */
+    private static final byte[] RELEASED_BUFFER = new byte[0];
+
+    private static boolean sInternalAccessInstalled;
+
+    @Nullable private final InputStream mIn;
+
+    @NotNull private byte[] mBuffer;
+    private int mPos;
+    private int mLimit;
+
+    private int mLineNumber = 0;
+    private int mLineStart = 0;
+    private boolean mMultipleValues;
+
+    private int mPeeked = PEEKED_NONE;
+    private long mPeekedLong;
+    private int mPeekedNumberLength;
+    @Nullable private String mPeekedString;
+
+    @NotNull private int[] mStack = new int[32];
+    private int mStackSize = 0;
+    @NotNull private String[] mPathNames = new String[32];
+    @NotNull private int[] mPathIndices = new int[32];
+
+    @NotNull private char[] mChars = new char[64];
+    @NotNull private final String[] mNameCache = new String[NAME_CACHE_SIZE];
+
+    /**
+     * Creates a reader that parses the bytes, which must not be modified while they are read.
+     */
+    public Utf8JsonReader(@NotNull byte[] bytes) {
+        this(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Creates a reader that parses a range of the bytes, which must not be modified
+     * while they are read.
+     */
+    public Utf8JsonReader(@NotNull byte[] bytes, int offset, int length) {
+        this(null, bytes, offset, offset + length);
+    }
+
+    /**
+     * Creates a reader that parses the remaining bytes of the buffer. The position of
+     * the buffer is not changed. If the buffer is not backed by an array, the bytes are
+     * copied.
+     */
+    public Utf8JsonReader(@NotNull ByteBuffer buffer) {
+        this(null, arrayOf(buffer), startOf(buffer), startOf(buffer) + buffer.remaining());
+    }
+
+    /**
+     * Creates a reader that parses the stream. The reader reads ahead from the stream,
+     * so it should not be buffered.
+     */
+    public Utf8JsonReader(@NotNull InputStream in) {
+        this(in, acquireBuffer(), 0, 0);
+    }
+
+    private Utf8JsonReader(@Nullable InputStream in, @NotNull byte[] buffer, int pos, int limit) {
+        super(UNUSED_READER);
+        mIn = in;
+        mBuffer = buffer;
+        mPos = pos;
+        mLimit = limit;
+        mLineStart = pos;
+        mStack[mStackSize++] = EMPTY_DOCUMENT;
+    }
+
+    @NotNull
+    private static byte[] arrayOf(@NotNull ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            return buffer.array();
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static int startOf(@NotNull ByteBuffer buffer) {
+        return buffer.hasArray() ? buffer.arrayOffset() + buffer.position() : 0;
+    }
+
+    @NotNull
+    private static byte[] acquireBuffer() {
+        byte[] buffer = BUFFER_POOL.get();
+        if (buffer == null) {
+            return new byte[BUFFER_SIZE];
+        }
+        BUFFER_POOL.set(null);
+        return buffer;
+    }
+
+    /**
+     * Allows the reader to read several top-level values one after the other, as in
+     * JSON Lines, without making the rest of the syntax lenient. A document without
+     * any value is read as the end of the document rather than as an error.
+     */
+    void setMultipleValues(boolean multipleValues) {
+        mMultipleValues = multipleValues;
+    }
+
+    /**
+     * Starts reading in the middle of an array, before the element with the index, so that
+     * a range of the elements of a large array can be read in place. The range starts at
+     * an element and ends after an element, without the brackets or commas around it.
+     * The zero based number of the line the range starts on, and the index of the first
+     * byte of that line, make errors report the same location as for the whole document.
+     */
+    void beginArrayElements(int index, int lineNumber, int lineStart) {
+        mStack[0] = NONEMPTY_DOCUMENT;
+        push(EMPTY_ARRAY);
+        mPathIndices[mStackSize - 1] = index;
+        mLineNumber = lineNumber;
+        mLineStart = lineStart;
+    }
+
+    /**
+     * Checks that nothing but whitespace follows the elements of the
+     * range passed to {@link #beginArrayElements(int, int, int)} that were read.
+     */
+    void endArrayElements() throws IOException {
+        if (mPeeked != PEEKED_NONE || nextNonWhitespace(false) != -1) {
+            throw syntaxError("Unterminated array");
+        }
+    }
+
+    /**
+     * Sets the zero based number of the line the input starts on, for input
+     * that was split off a larger document at the start of a line.
+     */
+    void setFirstLineNumber(int lineNumber) {
+        mLineNumber = lineNumber;
+        mLineStart = mPos;
+    }
+
+    /**
+     * @return the zero based number of the line the reader is on.
+     */
+    int getLineNumber() {
+        return mLineNumber;
+    }
+
+    @Override
+    public void beginArray() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+        if (p == PEEKED_BEGIN_ARRAY) {
+            push(EMPTY_ARRAY);
+            mPathIndices[mStackSize - 1] = 0;
+            mPeeked = PEEKED_NONE;
+        } else {
+            throw new IllegalStateException("Expected BEGIN_ARRAY but was " + peek() + locationString());
+        }
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+        if (p == PEEKED_END_ARRAY) {
+            mStackSize--;
+            mPathIndices[mStackSize - 1]++;
+            mPeeked = PEEKED_NONE;
+        } else {
+            throw new IllegalStateException("Expected END_ARRAY but was " + peek() + locationString());
+        }
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+        if (p == PEEKED_BEGIN_OBJECT) {
+            push(EMPTY_OBJECT);
+            mPeeked = PEEKED_NONE;
+        } else {
+            throw new IllegalStateException("Expected BEGIN_OBJECT but was " + peek() + locationString());
+        }
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+        if (p == PEEKED_END_OBJECT) {
+            mStackSize--;
+            mPathNames[mStackSize] = null; // Free the last path name so that it can be garbage collected!
+            mPathIndices[mStackSize - 1]++;
+            mPeeked = PEEKED_NONE;
+        } else {
+            throw new IllegalStateException("Expected END_OBJECT but was " + peek() + locationString());
+        }
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+        return p != PEEKED_END_OBJECT && p != PEEKED_END_ARRAY;
+    }
+
+    @Override
+    public JsonToken peek() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+
+        switch (p) {
+            case PEEKED_BEGIN_OBJECT:
+                return JsonToken.BEGIN_OBJECT;
+            case PEEKED_END_OBJECT:
+                return JsonToken.END_OBJECT;
+            case PEEKED_BEGIN_ARRAY:
+                return JsonToken.BEGIN_ARRAY;
+            case PEEKED_END_ARRAY:
+                return JsonToken.END_ARRAY;
+            case PEEKED_SINGLE_QUOTED_NAME:
+            case PEEKED_DOUBLE_QUOTED_NAME:
+            case PEEKED_UNQUOTED_NAME:
+                return JsonToken.NAME;
+            case PEEKED_TRUE:
+            case PEEKED_FALSE:
+                return JsonToken.BOOLEAN;
+            case PEEKED_NULL:
+                return JsonToken.NULL;
+            case PEEKED_SINGLE_QUOTED:
+            case PEEKED_DOUBLE_QUOTED:
+            case PEEKED_UNQUOTED:
+            case PEEKED_BUFFERED:
+                return JsonToken.STRING;
+            case PEEKED_LONG:
+            case PEEKED_NUMBER:
+                return JsonToken.NUMBER;
+            case PEEKED_EOF:
+                return JsonToken.END_DOCUMENT;
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    @SuppressWarnings("fallthrough")
+    private int doPeek() throws IOException {
+        int peekStack = mStack[mStackSize - 1];
+        if (peekStack == EMPTY_ARRAY) {
+            mStack[mStackSize - 1] = NONEMPTY_ARRAY;
+        } else if (peekStack == NONEMPTY_ARRAY) {
+            // Look for a comma before the next element.
+            int c = nextNonWhitespace(true);
+            switch (c) {
+                case ']':
+                    return mPeeked = PEEKED_END_ARRAY;
+                case ';':
+                    checkLenient(); // fall-through
+                case ',':
+                    break;
+                default:
+                    throw syntaxError("Unterminated array");
+            }
+        } else if (peekStack == EMPTY_OBJECT || peekStack == NONEMPTY_OBJECT) {
+            mStack[mStackSize - 1] = DANGLING_NAME;
+            // Look for a comma before the next element.
+            if (peekStack == NONEMPTY_OBJECT) {
+                int c = nextNonWhitespace(true);
+                switch (c) {
+                    case '}':
+                        return mPeeked = PEEKED_END_OBJECT;
+                    case ';':
+                        checkLenient(); // fall-through
+                    case ',':
+                        break;
+                    default:
+                        throw syntaxError("Unterminated object");
+                }
+            }
+            int c = nextNonWhitespace(true);
+            switch (c) {
+                case '"':
+                    return mPeeked = PEEKED_DOUBLE_QUOTED_NAME;
+                case '\'':
+                    checkLenient();
+                    return mPeeked = PEEKED_SINGLE_QUOTED_NAME;
+                case '}':
+                    if (peekStack != NONEMPTY_OBJECT) {
+                        return mPeeked = PEEKED_END_OBJECT;
+                    } else {
+                        throw syntaxError("Expected name");
+                    }
+                default:
+                    checkLenient();
+                    mPos--; // Don't consume the first character in an unquoted string.
+                    if (isLiteral(c)) {
+                        return mPeeked = PEEKED_UNQUOTED_NAME;
+                    } else {
+                        throw syntaxError("Expected name");
+                    }
+            }
+        } else if (peekStack == DANGLING_NAME) {
+            mStack[mStackSize - 1] = NONEMPTY_OBJECT;
+            // Look for a colon before the value.
+            int c = nextNonWhitespace(true);
+            switch (c) {
+                case ':':
+                    break;
+                case '=':
+                    checkLenient();
+                    if ((mPos < mLimit || fillBuffer(1)) && mBuffer[mPos] == '>') {
+                        mPos++;
+                    }
+                    break;
+                default:
+                    throw syntaxError("Expected ':'");
+            }
+        } else if (peekStack == EMPTY_DOCUMENT) {
+            consumeByteOrderMark();
+            if (isLenient()) {
+                consumeNonExecutePrefix();
+            }
+            mStack[mStackSize - 1] = NONEMPTY_DOCUMENT;
+            if (mMultipleValues) {
+                if (nextNonWhitespace(false) == -1) {
+                    return mPeeked = PEEKED_EOF;
+                }
+                mPos--;
+            }
+        } else if (peekStack == NONEMPTY_DOCUMENT) {
+            int c = nextNonWhitespace(false);
+            if (c == -1) {
+                return mPeeked = PEEKED_EOF;
+            } else {
+                if (!mMultipleValues) {
+                    checkLenient();
+                }
+                mPos--;
+            }
+        } else if (peekStack == CLOSED) {
+            throw new IllegalStateException("JsonReader is closed");
+        }
+
+        int c = nextNonWhitespace(true);
+        switch (c) {
+            case ']':
+                if (peekStack == EMPTY_ARRAY) {
+                    return mPeeked = PEEKED_END_ARRAY;
+                }
+                // fall-through to handle ",]"
+            case ';':
+            case ',':
+                // In lenient mode, a 0-length literal in an array means 'null'.
+                if (peekStack == EMPTY_ARRAY || peekStack == NONEMPTY_ARRAY) {
+                    checkLenient();
+                    mPos--;
+                    return mPeeked = PEEKED_NULL;
+                } else {
+                    throw syntaxError("Unexpected value");
+                }
+            case '\'':
+                checkLenient();
+                return mPeeked = PEEKED_SINGLE_QUOTED;
+            case '"':
+                return mPeeked = PEEKED_DOUBLE_QUOTED;
+            case '[':
+                return mPeeked = PEEKED_BEGIN_ARRAY;
+            case '{':
+                return mPeeked = PEEKED_BEGIN_OBJECT;
+            default:
+                mPos--; // Don't consume the first character in a literal value.
+        }
+
+        int result = peekKeyword();
+        if (result != PEEKED_NONE) {
+            return result;
+        }
+
+        result = peekNumber();
+        if (result != PEEKED_NONE) {
+            return result;
+        }
+
+        if (!isLiteral(mBuffer[mPos])) {
+            throw syntaxError("Expected value");
+        }
+
+        checkLenient();
+        return mPeeked = PEEKED_UNQUOTED;
+    }
+
+    private int peekKeyword() throws IOException {
+        // Figure out which keyword we're matching against by its first character.
+        byte c = mBuffer[mPos];
+        String keyword;
+        String keywordUpper;
+        int peeking;
+        if (c == 't' || c == 'T') {
+            keyword = "true";
+            keywordUpper = "TRUE";
+            peeking = PEEKED_TRUE;
+        } else if (c == 'f' || c == 'F') {
+            keyword = "false";
+            keywordUpper = "FALSE";
+            peeking = PEEKED_FALSE;
+        } else if (c == 'n' || c == 'N') {
+            keyword = "null";
+            keywordUpper = "NULL";
+            peeking = PEEKED_NULL;
+        } else {
+            return PEEKED_NONE;
+        }
+
+        // Confirm that chars [1..length) match the keyword.
+        int length = keyword.length();
+        for (int i = 1; i < length; i++) {
+            if (mPos + i >= mLimit && !fillBuffer(i + 1)) {
+                return PEEKED_NONE;
+            }
+            c = mBuffer[mPos + i];
+            if (c != keyword.charAt(i) && c != keywordUpper.charAt(i)) {
+                return PEEKED_NONE;
+            }
+        }
+
+        if ((mPos + length < mLimit || fillBuffer(length + 1)) && isLiteral(mBuffer[mPos + length])) {
+            return PEEKED_NONE; // Don't match trues, falsey or nullsoft!
+        }
+
+        // We've found the keyword followed either by EOF or by a non-literal character.
+        mPos += length;
+        return mPeeked = peeking;
+    }
+
+    private int peekNumber() throws IOException {
+        // Like nextNonWhitespace, this uses locals 'p' and 'l' to save inner-loop field access.
+        byte[] buffer = mBuffer;
+        int p = mPos;
+        int l = mLimit;
+
+        long value = 0; // Negative to accommodate Long.MIN_VALUE more easily.
+        boolean negative = false;
+        boolean fitsInLong = true;
+        int last = NUMBER_CHAR_NONE;
+
+        int i = 0;
+
+        charactersOfNumber:
+        for (; true; i++) {
+            if (p + i == l) {
+                if (i == buffer.length && mIn != null) {
+                    // Though this looks like a well-formed number, it's too long to continue reading. Give up
+                    // and let the application handle this as an unquoted literal.
+                    return PEEKED_NONE;
+                }
+                if (!fillBuffer(i + 1)) {
+                    break;
+                }
+                buffer = mBuffer;
+                p = mPos;
+                l = mLimit;
+            }
+
+            byte c = buffer[p + i];
+            switch (c) {
+                case '-':
+                    if (last == NUMBER_CHAR_NONE) {
+                        negative = true;
+                        last = NUMBER_CHAR_SIGN;
+                        continue;
+                    } else if (last == NUMBER_CHAR_EXP_E) {
+                        last = NUMBER_CHAR_EXP_SIGN;
+                        continue;
+                    }
+                    return PEEKED_NONE;
+
+                case '+':
+                    if (last == NUMBER_CHAR_EXP_E) {
+                        last = NUMBER_CHAR_EXP_SIGN;
+                        continue;
+                    }
+                    return PEEKED_NONE;
+
+                case 'e':
+                case 'E':
+                    if (last == NUMBER_CHAR_DIGIT || last == NUMBER_CHAR_FRACTION_DIGIT) {
+                        last = NUMBER_CHAR_EXP_E;
+                        continue;
+                    }
+                    return PEEKED_NONE;
+
+                case '.':
+                    if (last == NUMBER_CHAR_DIGIT) {
+                        last = NUMBER_CHAR_DECIMAL;
+                        continue;
+                    }
+                    return PEEKED_NONE;
+
+                default:
+                    if (c < '0' || c > '9') {
+                        if (!isLiteral(c)) {
+                            break charactersOfNumber;
+                        }
+                        return PEEKED_NONE;
+                    }
+                    if (last == NUMBER_CHAR_SIGN || last == NUMBER_CHAR_NONE) {
+                        value = -(c - '0');
+                        last = NUMBER_CHAR_DIGIT;
+                    } else if (last == NUMBER_CHAR_DIGIT) {
+                        if (value == 0) {
+                            return PEEKED_NONE; // Leading '0' prefix is not allowed (since it could be octal).
+                        }
+                        long newValue = value * 10 - (c - '0');
+                        fitsInLong &= value > MIN_INCOMPLETE_INTEGER ||
+                                      (value == MIN_INCOMPLETE_INTEGER && newValue < value);
+                        value = newValue;
+                    } else if (last == NUMBER_CHAR_DECIMAL) {
+                        last = NUMBER_CHAR_FRACTION_DIGIT;
+                    } else if (last == NUMBER_CHAR_EXP_E || last == NUMBER_CHAR_EXP_SIGN) {
+                        last = NUMBER_CHAR_EXP_DIGIT;
+                    }
+            }
+        }
+
+        // We've read a complete number. Decide if it's a PEEKED_LONG or a PEEKED_NUMBER.
+        if (last == NUMBER_CHAR_DIGIT && fitsInLong && (value != Long.MIN_VALUE || negative) &&
+            (value != 0 || !negative)) {
+            mPeekedLong = negative ? value : -value;
+            mPos += i;
+            return mPeeked = PEEKED_LONG;
+        } else if (last == NUMBER_CHAR_DIGIT || last == NUMBER_CHAR_FRACTION_DIGIT || last == NUMBER_CHAR_EXP_DIGIT) {
+            mPeekedNumberLength = i;
+            return mPeeked = PEEKED_NUMBER;
+        } else {
+            return PEEKED_NONE;
+        }
+    }
+
+    @SuppressWarnings("fallthrough")
+    private boolean isLiteral(int c) throws IOException {
+        switch (c) {
+            case '/':
+            case '\\':
+            case ';':
+            case '#':
+            case '=':
+                checkLenient(); // fall-through
+            case '{':
+            case '}':
+            case '[':
+            case ']':
+            case ':':
+            case ',':
+            case ' ':
+            case '\t':
+            case '\f':
+            case '\r':
+            case '\n':
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    @Override
+    public String nextName() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+        String result;
+        if (p == PEEKED_UNQUOTED_NAME) {
+            result = nextUnquotedValue();
+        } else if (p == PEEKED_SINGLE_QUOTED_NAME) {
+            result = nextQuotedValue('\'');
+        } else if (p == PEEKED_DOUBLE_QUOTED_NAME) {
+            result = nextCachedName();
+            if (result == null) {
+                result = nextQuotedValue('"');
+            }
+        } else {
+            throw new IllegalStateException("Expected a name but was " + peek() + locationString());
+        }
+        mPeeked = PEEKED_NONE;
+        mPathNames[mStackSize - 1] = result;
+        return result;
+    }
+
+    @Override
+    public String nextString() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+        String result;
+        if (p == PEEKED_UNQUOTED) {
+            result = nextUnquotedValue();
+        } else if (p == PEEKED_SINGLE_QUOTED) {
+            result = nextQuotedValue('\'');
+        } else if (p == PEEKED_DOUBLE_QUOTED) {
+            result = nextQuotedValue('"');
+        } else if (p == PEEKED_BUFFERED) {
+            result = mPeekedString;
+            mPeekedString = null;
+        } else if (p == PEEKED_LONG) {
+            result = Long.toString(mPeekedLong);
+        } else if (p == PEEKED_NUMBER) {
+            result = asciiString(mPos, mPeekedNumberLength);
+            mPos += mPeekedNumberLength;
+        } else {
+            throw new IllegalStateException("Expected a string but was " + peek() + locationString());
+        }
+        mPeeked = PEEKED_NONE;
+        mPathIndices[mStackSize - 1]++;
+        return result;
+    }
+
+    @Override
+    public boolean nextBoolean() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+        if (p == PEEKED_TRUE) {
+            mPeeked = PEEKED_NONE;
+            mPathIndices[mStackSize - 1]++;
+            return true;
+        } else if (p == PEEKED_FALSE) {
+            mPeeked = PEEKED_NONE;
+            mPathIndices[mStackSize - 1]++;
+            return false;
+        }
+        throw new IllegalStateException("Expected a boolean but was " + peek() + locationString());
+    }
+
+    @Override
+    public void nextNull() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+        if (p == PEEKED_NULL) {
+            mPeeked = PEEKED_NONE;
+            mPathIndices[mStackSize - 1]++;
+        } else {
+            throw new IllegalStateException("Expected null but was " + peek() + locationString());
+        }
+    }
+
+    @Override
+    public double nextDouble() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+
+        if (p == PEEKED_LONG) {
+            mPeeked = PEEKED_NONE;
+            mPathIndices[mStackSize - 1]++;
+            return (double) mPeekedLong;
+        }
+
+        if (p == PEEKED_NUMBER) {
+            mPeekedString = asciiString(mPos, mPeekedNumberLength);
+            mPos += mPeekedNumberLength;
+        } else if (p == PEEKED_SINGLE_QUOTED || p == PEEKED_DOUBLE_QUOTED) {
+            mPeekedString = nextQuotedValue(p == PEEKED_SINGLE_QUOTED ? '\'' : '"');
+        } else if (p == PEEKED_UNQUOTED) {
+            mPeekedString = nextUnquotedValue();
+        } else if (p != PEEKED_BUFFERED) {
+            throw new IllegalStateException("Expected a double but was " + peek() + locationString());
+        }
+
+        mPeeked = PEEKED_BUFFERED;
+        double result = Double.parseDouble(mPeekedString); // don't catch this NumberFormatException.
+        if (!isLenient() && (Double.isNaN(result) || Double.isInfinite(result))) {
+            throw new MalformedJsonException("JSON forbids NaN and infinities: " + result + locationString());
+        }
+        mPeekedString = null;
+        mPeeked = PEEKED_NONE;
+        mPathIndices[mStackSize - 1]++;
+        return result;
+    }
+
+    @Override
+    public long nextLong() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+
+        if (p == PEEKED_LONG) {
+            mPeeked = PEEKED_NONE;
+            mPathIndices[mStackSize - 1]++;
+            return mPeekedLong;
+        }
+
+        if (p == PEEKED_NUMBER) {
+            mPeekedString = asciiString(mPos, mPeekedNumberLength);
+            mPos += mPeekedNumberLength;
+        } else if (p == PEEKED_SINGLE_QUOTED || p == PEEKED_DOUBLE_QUOTED || p == PEEKED_UNQUOTED) {
+            if (p == PEEKED_UNQUOTED) {
+                mPeekedString = nextUnquotedValue();
+            } else {
+                mPeekedString = nextQuotedValue(p == PEEKED_SINGLE_QUOTED ? '\'' : '"');
+            }
+            try {
+                long result = Long.parseLong(mPeekedString);
+                mPeeked = PEEKED_NONE;
+                mPathIndices[mStackSize - 1]++;
+                return result;
+            } catch (NumberFormatException ignored) {
+                // Fall back to parse as a double below.
+            }
+        } else {
+            throw new IllegalStateException("Expected a long but was " + peek() + locationString());
+        }
+
+        mPeeked = PEEKED_BUFFERED;
+        double asDouble = Double.parseDouble(mPeekedString); // don't catch this NumberFormatException.
+        long result = (long) asDouble;
+        if (result != asDouble) { // Make sure no precision was lost casting to 'long'.
+            throw new NumberFormatException("Expected a long but was " + mPeekedString + locationString());
+        }
+        mPeekedString = null;
+        mPeeked = PEEKED_NONE;
+        mPathIndices[mStackSize - 1]++;
+        return result;
+    }
+
+    @Override
+    public int nextInt() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+
+        int result;
+        if (p == PEEKED_LONG) {
+            result = (int) mPeekedLong;
+            if (mPeekedLong != result) { // Make sure no precision was lost casting to 'int'.
+                throw new NumberFormatException("Expected an int but was " + mPeekedLong + locationString());
+            }
+            mPeeked = PEEKED_NONE;
+            mPathIndices[mStackSize - 1]++;
+            return result;
+        }
+
+        if (p == PEEKED_NUMBER) {
+            mPeekedString = asciiString(mPos, mPeekedNumberLength);
+            mPos += mPeekedNumberLength;
+        } else if (p == PEEKED_SINGLE_QUOTED || p == PEEKED_DOUBLE_QUOTED || p == PEEKED_UNQUOTED) {
+            if (p == PEEKED_UNQUOTED) {
+                mPeekedString = nextUnquotedValue();
+            } else {
+                mPeekedString = nextQuotedValue(p == PEEKED_SINGLE_QUOTED ? '\'' : '"');
+            }
+            try {
+                result = Integer.parseInt(mPeekedString);
+                mPeeked = PEEKED_NONE;
+                mPathIndices[mStackSize - 1]++;
+                return result;
+            } catch (NumberFormatException ignored) {
+                // Fall back to parse as a double below.
+            }
+        } else {
+            throw new IllegalStateException("Expected an int but was " + peek() + locationString());
+        }
+
+        mPeeked = PEEKED_BUFFERED;
+        double asDouble = Double.parseDouble(mPeekedString); // don't catch this NumberFormatException.
+        result = (int) asDouble;
+        if (result != asDouble) { // Make sure no precision was lost casting to 'int'.
+            throw new NumberFormatException("Expected an int but was " + mPeekedString + locationString());
+        }
+        mPeekedString = null;
+        mPeeked = PEEKED_NONE;
+        mPathIndices[mStackSize - 1]++;
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mPeeked = PEEKED_NONE;
+        mStack[0] = CLOSED;
+        mStackSize = 1;
+        if (mIn != null) {
+            mIn.close();
+            if (mBuffer != RELEASED_BUFFER) {
+                BUFFER_POOL.set(mBuffer);
+                mBuffer = RELEASED_BUFFER;
+            }
+        }
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        int count = 0;
+        do {
+            int p = mPeeked;
+            if (p == PEEKED_NONE) {
+                p = doPeek();
+            }
+
+            if (p == PEEKED_BEGIN_ARRAY) {
+                push(EMPTY_ARRAY);
+                count++;
+            } else if (p == PEEKED_BEGIN_OBJECT) {
+                push(EMPTY_OBJECT);
+                count++;
+            } else if (p == PEEKED_END_ARRAY) {
+                mStackSize--;
+                count--;
+            } else if (p == PEEKED_END_OBJECT) {
+                mStackSize--;
+                count--;
+            } else if (p == PEEKED_UNQUOTED_NAME || p == PEEKED_UNQUOTED) {
+                skipUnquotedValue();
+            } else if (p == PEEKED_SINGLE_QUOTED || p == PEEKED_SINGLE_QUOTED_NAME) {
+                skipQuotedValue('\'');
+            } else if (p == PEEKED_DOUBLE_QUOTED || p == PEEKED_DOUBLE_QUOTED_NAME) {
+                skipQuotedValue('"');
+            } else if (p == PEEKED_NUMBER) {
+                mPos += mPeekedNumberLength;
+            }
+            mPeeked = PEEKED_NONE;
+        } while (count != 0);
+
+        mPathIndices[mStackSize - 1]++;
+        mPathNames[mStackSize - 1] = "null";
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + locationString();
+    }
+
+    @Override
+    public String getPath() {
+        StringBuilder result = new StringBuilder().append('$');
+        for (int i = 0, size = mStackSize; i < size; i++) {
+            switch (mStack[i]) {
+                case EMPTY_ARRAY:
+                case NONEMPTY_ARRAY:
+                    result.append('[').append(mPathIndices[i]).append(']');
+                    break;
+
+                case EMPTY_OBJECT:
+                case DANGLING_NAME:
+                case NONEMPTY_OBJECT:
+                    result.append('.');
+                    if (mPathNames[i] != null) {
+                        result.append(mPathNames[i]);
+                    }
+                    break;
+
+                case NONEMPTY_DOCUMENT:
+                case EMPTY_DOCUMENT:
+                case CLOSED:
+                    break;
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Lets the map adapter of Gson read the keys of maps from this reader. Gson promotes the
+     * names of maps to values through {@link JsonReaderInternalAccess#INSTANCE}, which reaches
+     * into the state of a {@link JsonReader}, while this reader keeps its state in its own fields.
+     * This replaces that instance, for every Gson instance in the process, with one that handles
+     * this reader and delegates to the previous instance otherwise. Only the first call does so.
+     * <p>
+     * Since this changes the state of Gson for the whole process, it is never called by Stag, and
+     * applications that let Gson read maps from this reader call it once when they start. It relies
+     * on the internals of Gson 2.8.x, where {@link JsonReaderInternalAccess#INSTANCE} is a public
+     * static field that can be set.
+     */
+    public static synchronized void installInternalAccess() {
+        if (sInternalAccessInstalled) {
+            return;
+        }
+        final JsonReaderInternalAccess internalAccess = JsonReaderInternalAccess.INSTANCE;
+        JsonReaderInternalAccess.INSTANCE = new JsonReaderInternalAccess() {
+            @Override
+            public void promoteNameToValue(JsonReader reader) throws IOException {
+                if (reader instanceof Utf8JsonReader) {
+                    ((Utf8JsonReader) reader).promoteNameToValue();
+                } else {
+                    internalAccess.promoteNameToValue(reader);
+                }
+            }
+        };
+        sInternalAccessInstalled = true;
+    }
+
+    /**
+     * Makes the name that was peeked the next value of the reader, which
+     * does not need {@link #installInternalAccess()} for this reader.
+     */
+    static void promoteNameToValue(@NotNull JsonReader reader) throws IOException {
+        if (reader instanceof Utf8JsonReader) {
+            ((Utf8JsonReader) reader).promoteNameToValue();
+        } else {
+            JsonReaderInternalAccess.INSTANCE.promoteNameToValue(reader);
+        }
+    }
+
+    /**
+     * Makes the name that was peeked the next value, the
+     * same way Gson does for the keys of maps.
+     */
+    void promoteNameToValue() throws IOException {
+        int p = mPeeked;
+        if (p == PEEKED_NONE) {
+            p = doPeek();
+        }
+        if (p == PEEKED_DOUBLE_QUOTED_NAME) {
+            mPeeked = PEEKED_DOUBLE_QUOTED;
+        } else if (p == PEEKED_SINGLE_QUOTED_NAME) {
+            mPeeked = PEEKED_SINGLE_QUOTED;
+        } else if (p == PEEKED_UNQUOTED_NAME) {
+            mPeeked = PEEKED_UNQUOTED;
+        } else {
+            throw new IllegalStateException("Expected a name but was " + peek() + locationString());
+        }
+    }
+
+    private void push(int newTop) {
+        if (mStackSize == mStack.length) {
+            int newLength = mStackSize * 2;
+            mStack = Arrays.copyOf(mStack, newLength);
+            mPathIndices = Arrays.copyOf(mPathIndices, newLength);
+            mPathNames = Arrays.copyOf(mPathNames, newLength);
+        }
+        mStack[mStackSize++] = newTop;
+    }
+
+    /**
+     * Returns true once {@code limit - pos >= minimum}. If the data is
+     * exhausted before that many bytes are available, this returns
+     * false. Bytes are only read when the reader reads from a stream,
+     * an array is never modified.
+     */
+    private boolean fillBuffer(int minimum) throws IOException {
+        if (mIn == null) {
+            return false;
+        }
+
+        byte[] buffer = mBuffer;
+        mLineStart -= mPos;
+        if (mLimit != mPos) {
+            mLimit -= mPos;
+            System.arraycopy(buffer, mPos, buffer, 0, mLimit);
+        } else {
+            mLimit = 0;
+        }
+
+        mPos = 0;
+        int total;
+        while ((total = mIn.read(buffer, mLimit, buffer.length - mLimit)) != -1) {
+            mLimit += total;
+            if (mLimit >= minimum) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the next byte in the stream that is neither whitespace nor a
+     * part of a comment. When this returns, the returned byte is always at
+     * {@code buffer[pos-1]}; this means the caller can always push back the
+     * returned byte by decrementing {@code pos}.
+     */
+    private int nextNonWhitespace(boolean throwOnEof) throws IOException {
+        /*
+         * This code uses ugly local variables 'p' and 'l' representing the 'pos'
+         * and 'limit' fields respectively. Using locals rather than fields saves
+         * a few field reads for each whitespace character in a pretty-printed
+         * document, resulting in a 5% speedup. We need to flush 'p' to its field
+         * before any (potentially indirect) call to fillBuffer() and reread both
+         * 'p' and 'l' after any (potentially indirect) call to the same method.
+         */
+        byte[] buffer = mBuffer;
+        int p = mPos;
+        int l = mLimit;
+        while (true) {
+            if (p == l) {
+                mPos = p;
+                if (!fillBuffer(1)) {
+                    break;
+                }
+                p = mPos;
+                l = mLimit;
+            }
+
+            int c = buffer[p++];
+            if (c == '\n') {
+                mLineNumber++;
+                mLineStart = p;
+                continue;
+            } else if (c == ' ' || c == '\r' || c == '\t') {
+                continue;
+            }
+
+            if (c == '/') {
+                mPos = p;
+                if (p == l) {
+                    mPos--; // push back '/' so it's still in the buffer when this method returns
+                    boolean bytesLoaded = fillBuffer(2);
+                    mPos++; // consume the '/' again
+                    if (!bytesLoaded) {
+                        return c;
+                    }
+                }
+
+                checkLenient();
+                byte peek = buffer[mPos];
+                switch (peek) {
+                    case '*':
+                        // skip a /* c-style comment */
+                        mPos++;
+                        if (!skipTo("*/")) {
+                            throw syntaxError("Unterminated comment");
+                        }
+                        p = mPos + 2;
+                        l = mLimit;
+                        continue;
+
+                    case '/':
+                        // skip a // end-of-line comment
+                        mPos++;
+                        skipToEndOfLine();
+                        p = mPos;
+                        l = mLimit;
+                        continue;
+
+                    default:
+                        return c;
+                }
+            } else if (c == '#') {
+                mPos = p;
+                /*
+                 * Skip a # hash end-of-line comment. The JSON RFC doesn't
+                 * specify this behaviour, but it's required to parse
+                 * existing documents. See http://b/2571423.
+                 */
+                checkLenient();
+                skipToEndOfLine();
+                p = mPos;
+                l = mLimit;
+            } else {
+                mPos = p;
+                return c;
+            }
+        }
+        if (throwOnEof) {
+            throw new EOFException("End of input" + locationString());
+        } else {
+            return -1;
+        }
+    }
+
+    private void checkLenient() throws IOException {
+        if (!isLenient()) {
+            throw syntaxError("Use JsonReader.setLenient(true) to accept malformed JSON");
+        }
+    }
+
+    /**
+     * Advances the position until after the next newline character. If the line
+     * is terminated by "\r\n", the '\n' must be consumed as whitespace by the
+     * caller.
+     */
+    private void skipToEndOfLine() throws IOException {
+        while (mPos < mLimit || fillBuffer(1)) {
+            byte c = mBuffer[mPos++];
+            if (c == '\n') {
+                mLineNumber++;
+                mLineStart = mPos;
+                break;
+            } else if (c == '\r') {
+                break;
+            }
+        }
+    }
+
+    /**
+     * @param toFind a string to search for. Must not contain a newline.
+     */
+    private boolean skipTo(@NotNull String toFind) throws IOException {
+        int length = toFind.length();
+        outer:
+        for (; mPos + length <= mLimit || fillBuffer(length); mPos++) {
+            if (mBuffer[mPos] == '\n') {
+                mLineNumber++;
+                mLineStart = mPos + 1;
+                continue;
+            }
+            for (int c = 0; c < length; c++) {
+                if (mBuffer[mPos + c] != toFind.charAt(c)) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Consumes the UTF-8 byte order mark, if the document starts with one.
+     */
+    private void consumeByteOrderMark() throws IOException {
+        if ((mPos + 3 <= mLimit || fillBuffer(3)) && mBuffer[mPos] == (byte) 0xef &&
+            mBuffer[mPos + 1] == (byte) 0xbb && mBuffer[mPos + 2] == (byte) 0xbf) {
+            mPos += 3;
+            mLineStart += 3;
+        }
+    }
+
+    /**
+     * Consumes the non-execute prefix if it exists.
+     */
+    private void consumeNonExecutePrefix() throws IOException {
+        // fast forward through the leading whitespace
+        nextNonWhitespace(true);
+        mPos--;
+
+        if (mPos + NON_EXECUTE_PREFIX.length > mLimit && !fillBuffer(NON_EXECUTE_PREFIX.length)) {
+            return;
+        }
+
+        for (int i = 0; i < NON_EXECUTE_PREFIX.length; i++) {
+            if (mBuffer[mPos + i] != NON_EXECUTE_PREFIX[i]) {
+                return; // not a security token!
+            }
+        }
+
+        // we consumed a security token!
+        mPos += NON_EXECUTE_PREFIX.length;
+    }
+
+    /**
+     * Reads a double quoted name that only contains ASCII characters and is completely in
+     * the buffer from the table of names. The table is indexed by the hash of the name
+     * and each slot keeps the last name that was read with that hash.
+     *
+     * @return the name, or null if the name must be read with {@link #nextQuotedValue(char)}.
+     */
+    @Nullable
+    private String nextCachedName() {
+        byte[] buffer = mBuffer;
+        int start = mPos;
+        int end = Math.min(mLimit, start + MAX_CACHED_NAME_LENGTH);
+        int hash = 0;
+        for (int p = start; p < end; p++) {
+            byte c = buffer[p];
+            if (c == '"') {
+                int length = p - start;
+                int slot = (hash ^ hash >>> 16) & (NAME_CACHE_SIZE - 1);
+                String name = mNameCache[slot];
+                if (name == null || !matches(name, buffer, start, length)) {
+                    name = asciiString(start, length);
+                    mNameCache[slot] = name;
+                }
+                mPos = p + 1;
+                return name;
+            } else if (c < ' ' || c == '\\') {
+                // Escaped, non ASCII and control characters are left to the regular path
+                return null;
+            }
+            hash = 31 * hash + c;
+        }
+        return null;
+    }
+
+    private static boolean matches(@NotNull String name, @NotNull byte[] buffer, int start, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != buffer[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the string up to but not including {@code quote}, unescaping any
+     * character escape sequences encountered along the way and decoding UTF-8.
+     * The opening quote should have already been read. This consumes the closing
+     * quote, but does not include it in the returned string.
+     *
+     * @param quote either ' or ".
+     */
+    @NotNull
+    private String nextQuotedValue(char quote) throws IOException {
+        char[] chars = mChars;
+        int count = 0;
+        while (true) {
+            byte[] buffer = mBuffer;
+            int p = mPos;
+            int l = mLimit;
+            // Every byte decodes to at most one character, except for the lead byte
+            // of a sequence that continues in the next fill of the buffer.
+            if (count + l - p + 2 > chars.length) {
+                chars = mChars = Arrays.copyOf(chars, Math.max(chars.length * 2, count + l - p + 2));
+            }
+            boolean exhausted = true;
+            while (p < l) {
+                int c = buffer[p++];
+                if (c == quote) {
+                    mPos = p;
+                    return new String(chars, 0, count);
+                } else if (c >= 0 && c != '\\') {
+                    if (c == '\n') {
+                        mLineNumber++;
+                        mLineStart = p;
+                    }
+                    chars[count++] = (char) c;
+                } else {
+                    // Escapes and multi-byte characters may refill the buffer
+                    mPos = p;
+                    if (c == '\\') {
+                        chars[count++] = readEscapeCharacter();
+                    } else {
+                        count = decodeCharacter(c, chars, count);
+                    }
+                    exhausted = false;
+                    break;
+                }
+            }
+            if (exhausted) {
+                mPos = p;
+                if (!fillBuffer(1)) {
+                    throw syntaxError("Unterminated string");
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes the character that starts with the lead byte, which was already
+     * consumed, into the characters. Malformed sequences are replaced with
+     * U+FFFD like an {@link java.io.InputStreamReader} does.
+     *
+     * @return the new count of characters.
+     */
+    private int decodeCharacter(int lead, @NotNull char[] chars, int count) throws IOException {
+        int b0 = lead & 0xff;
+        int length;
+        int minimum;
+        int codePoint;
+        if (b0 >= 0xc2 && b0 < 0xe0) {
+            length = 2;
+            minimum = 0x80;
+            codePoint = b0 & 0x1f;
+        } else if (b0 >= 0xe0 && b0 < 0xf0) {
+            length = 3;
+            minimum = 0x800;
+            codePoint = b0 & 0x0f;
+        } else if (b0 >= 0xf0 && b0 < 0xf5) {
+            length = 4;
+            minimum = 0x10000;
+            codePoint = b0 & 0x07;
+        } else {
+            chars[count++] = REPLACEMENT_CHAR;
+            return count;
+        }
+
+        if (mPos + length - 1 > mLimit) {
+            // The buffer is compacted while the lead byte stays consumed
+            mPos--;
+            boolean bytesLoaded = fillBuffer(length);
+            mPos++;
+            if (!bytesLoaded) {
+                throw syntaxError("Unterminated string");
+            }
+        }
+
+        for (int i = 1; i < length; i++) {
+            byte b = mBuffer[mPos];
+            if ((b & 0xc0) != 0x80) {
+                chars[count++] = REPLACEMENT_CHAR;
+                return count;
+            }
+            codePoint = codePoint << 6 | b & 0x3f;
+            mPos++;
+        }
+
+        if (codePoint < minimum || codePoint > Character.MAX_CODE_POINT ||
+            (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+            chars[count++] = REPLACEMENT_CHAR;
+        } else if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            chars[count++] = (char) codePoint;
+        } else {
+            chars[count++] = (char) ((codePoint >>> 10) +
+                                     (Character.MIN_HIGH_SURROGATE - (Character.MIN_SUPPLEMENTARY_CODE_POINT >>> 10)));
+            chars[count++] = (char) ((codePoint & 0x3ff) + Character.MIN_LOW_SURROGATE);
+        }
+        return count;
+    }
+
+    /**
+     * Returns an unquoted value as a string.
+     */
+    @NotNull
+    @SuppressWarnings("fallthrough")
+    private String nextUnquotedValue() throws IOException {
+        StringBuilder builder = null;
+        int i = 0;
+
+        findNonLiteralCharacter:
+        while (true) {
+            for (; mPos + i < mLimit; i++) {
+                switch (mBuffer[mPos + i]) {
+                    case '/':
+                    case '\\':
+                    case ';':
+                    case '#':
+                    case '=':
+                        checkLenient(); // fall-through
+                    case '{':
+                    case '}':
+                    case '[':
+                    case ']':
+                    case ':':
+                    case ',':
+                    case ' ':
+                    case '\t':
+                    case '\f':
+                    case '\r':
+                    case '\n':
+                        break findNonLiteralCharacter;
+                }
+            }
+
+            // Attempt to load the entire literal into the buffer at once.
+            if (i < mBuffer.length) {
+                if (fillBuffer(i + 1)) {
+                    continue;
+                } else {
+                    break;
+                }
+            }
+
+            // use a StringBuilder when the value is too long. This is too long to be a number!
+            if (builder == null) {
+                builder = new StringBuilder(Math.max(i, 16));
+            }
+            builder.append(new String(mBuffer, mPos, i, UTF_8));
+            mPos += i;
+            i = 0;
+            if (!fillBuffer(1)) {
+                break;
+            }
+        }
+
+        String result = builder == null ? new String(mBuffer, mPos, i, UTF_8)
+                : builder.append(new String(mBuffer, mPos, i, UTF_8)).toString();
+        mPos += i;
+        return result;
+    }
+
+    private void skipQuotedValue(char quote) throws IOException {
+        do {
+            byte[] buffer = mBuffer;
+            int p = mPos;
+            int l = mLimit;
+            while (p < l) {
+                int c = buffer[p++];
+                if (c == quote) {
+                    mPos = p;
+                    return;
+                } else if (c == '\\') {
+                    mPos = p;
+                    readEscapeCharacter();
+                    p = mPos;
+                    l = mLimit;
+                    buffer = mBuffer;
+                } else if (c == '\n') {
+                    mLineNumber++;
+                    mLineStart = p;
+                }
+            }
+            mPos = p;
+        } while (fillBuffer(1));
+        throw syntaxError("Unterminated string");
+    }
+
+    @SuppressWarnings("fallthrough")
+    private void skipUnquotedValue() throws IOException {
+        do {
+            int i = 0;
+            for (; mPos + i < mLimit; i++) {
+                switch (mBuffer[mPos + i]) {
+                    case '/':
+                    case '\\':
+                    case ';':
+                    case '#':
+                    case '=':
+                        checkLenient(); // fall-through
+                    case '{':
+                    case '}':
+                    case '[':
+                    case ']':
+                    case ':':
+                    case ',':
+                    case ' ':
+                    case '\t':
+                    case '\f':
+                    case '\r':
+                    case '\n':
+                        mPos += i;
+                        return;
+                }
+            }
+            mPos += i;
+        } while (fillBuffer(1));
+    }
+
+    /**
+     * Unescapes the character identified by the character or characters that
+     * immediately follow a backslash. The backslash '\' should have already
+     * been read. This supports both unicode escapes "u000A" and two-character
+     * escapes "\n".
+     *
+     * @throws NumberFormatException if any unicode escape sequences are
+     *                               malformed.
+     */
+    @SuppressWarnings("fallthrough")
+    private char readEscapeCharacter() throws IOException {
+        if (mPos == mLimit && !fillBuffer(1)) {
+            throw syntaxError("Unterminated escape sequence");
+        }
+
+        byte escaped = mBuffer[mPos++];
+        switch (escaped) {
+            case 'u':
+                if (mPos + 4 > mLimit && !fillBuffer(4)) {
+                    throw syntaxError("Unterminated escape sequence");
+                }
+                // Equivalent to Integer.parseInt(stringPool.get(buffer, pos, 4), 16);
+                char result = 0;
+                for (int i = mPos, end = i + 4; i < end; i++) {
+                    byte c = mBuffer[i];
+                    result <<= 4;
+                    if (c >= '0' && c <= '9') {
+                        result += (c - '0');
+                    } else if (c >= 'a' && c <= 'f') {
+                        result += (c - 'a' + 10);
+                    } else if (c >= 'A' && c <= 'F') {
+                        result += (c - 'A' + 10);
+                    } else {
+                        throw new NumberFormatException("\\u" + asciiString(mPos, 4));
+                    }
+                }
+                mPos += 4;
+                return result;
+
+            case 't':
+                return '\t';
+
+            case 'b':
+                return '\b';
+
+            case 'n':
+                return '\n';
+
+            case 'r':
+                return '\r';
+
+            case 'f':
+                return '\f';
+
+            case '\n':
+                mLineNumber++;
+                mLineStart = mPos;
+                // fall-through
+
+            case '\'':
+            case '"':
+            case '\\':
+            case '/':
+                return (char) escaped;
+
+            default:
+                // throw error when none of the above cases are matched
+                throw syntaxError("Invalid escape sequence");
+        }
+    }
+
+    /**
+     * Creates a string from bytes that are known to be ASCII characters.
+     */
+    @NotNull
+    private String asciiString(int start, int length) {
+        char[] chars = mChars;
+        if (length > chars.length) {
+            chars = mChars = new char[Math.max(chars.length * 2, length)];
+        }
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) mBuffer[start + i];
+        }
+        return new String(chars, 0, length);
+    }
+
+    @NotNull
+    private String locationString() {
+        int line = mLineNumber + 1;
+        int column = mPos - mLineStart + 1;
+        return " at line " + line + " column " + column + " path " + getPath();
+    }
+
+    /**
+     * Throws a new IO exception with the given message and a context snippet
+     * with this reader's content.
+     */
+    @NotNull
+    private IOException syntaxError(@NotNull String message) throws IOException {
+        throw new MalformedJsonException(message + locationString());
+    }
+}
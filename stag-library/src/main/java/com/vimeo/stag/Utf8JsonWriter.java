@@ -0,0 +1,367 @@
+/*
+ * The MIT License (MIT)
+ * <p/>
+ * Copyright (c) 2018 Vimeo
+ * <p/>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p/>
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * <p/>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.vimeo.stag;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * A {@link StagJsonWriter} that encodes the JSON to UTF-8 itself, straight into a byte
+ * array, instead of writing characters that a {@link java.io.OutputStreamWriter} has to
+ * encode again. ASCII characters and digits are copied to the buffer without going
+ * through an encoder.
+ * <p>
+ * Created without a destination, the writer keeps the whole document in memory, see
+ * {@link #toByteArray()} and {@link #toByteBuffer()}, and can be {@link #reset()} to
+ * write the next document into the same buffer. Created with an {@link OutputStream} or
+ * a {@link WritableByteChannel}, the buffer is written to it whenever it is full and when
+ * the writer is flushed or closed.
+ */
+public class Utf8JsonWriter extends StagJsonWriter {
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /**
+     * The writer passed to {@link com.google.gson.stream.JsonWriter}, which
+     * does not write anything itself since every method is overridden.
+     */
+    private static final Writer UNUSED_WRITER = new Writer() {
+        @Override
+        public void write(@NotNull char[] buffer, int offset, int length) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @NotNull private final Utf8Sink mSink;
+
+    /**
+     * Creates a writer that keeps the document in memory.
+     */
+    public Utf8JsonWriter() {
+        this(new Utf8Sink(null, null));
+    }
+
+    /**
+     * Creates a writer that writes the document to the stream.
+     *
+     * @param out the stream, which is not buffered by the writer
+     *            beyond its own buffer.
+     */
+    public Utf8JsonWriter(@NotNull OutputStream out) {
+        this(new Utf8Sink(out, null));
+    }
+
+    /**
+     * Creates a writer that writes the document to the channel.
+     *
+     * @param channel the channel, which must be in blocking mode.
+     */
+    public Utf8JsonWriter(@NotNull WritableByteChannel channel) {
+        this(new Utf8Sink(null, channel));
+    }
+
+    private Utf8JsonWriter(@NotNull Utf8Sink sink) {
+        super(UNUSED_WRITER, sink);
+        mSink = sink;
+    }
+
+    /**
+     * @return the number of bytes in the buffer that were not written to
+     * the destination yet, which is the whole document if there is none.
+     */
+    public int size() {
+        return mSink.mCount;
+    }
+
+    /**
+     * @return a copy of the bytes in the buffer.
+     */
+    @NotNull
+    public byte[] toByteArray() {
+        return Arrays.copyOf(mSink.mBuffer, mSink.mCount);
+    }
+
+    /**
+     * Returns the bytes in the buffer without copying them. The buffer is only
+     * valid until the next value is written or the writer is {@link #reset()}.
+     *
+     * @return a read only buffer positioned at the start of the document.
+     */
+    @NotNull
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(mSink.mBuffer, 0, mSink.mCount).asReadOnlyBuffer();
+    }
+
+    /**
+     * Discards the bytes in the buffer and the state of the writer,
+     * so that another document can be written with the same buffer.
+     * The settings of the writer are kept.
+     */
+    public void reset() {
+        mSink.mCount = 0;
+        super.reset();
+    }
+
+    /**
+     * Writes the elements of the array this writer holds to the target writer, as elements
+     * of the array the target is writing, without encoding them again. This writer must
+     * hold exactly one array, which must not be empty.
+     *
+     * @param target the writer, positioned in an array.
+     * @throws IOException if the elements could not be written.
+     */
+    void writeElementsTo(@NotNull Utf8JsonWriter target) throws IOException {
+        target.beforeRawValue();
+        target.mSink.write(mSink.mBuffer, 1, mSink.mCount - 2);
+    }
+
+    /**
+     * Encodes JSON to UTF-8 in a growable buffer, which is written
+     * to the stream or the channel when it is full, if there is one.
+     */
+    private static final class Utf8Sink extends JsonSink {
+
+        /**
+         * The number of characters encoded between checks of the remaining
+         * space, so that the checks are not made for every character.
+         */
+        private static final int CHUNK_SIZE = 1024;
+
+        /**
+         * An escaped character takes up to six bytes, a backslash, a u and four
+         * digits, and a character outside of the ASCII range takes up to three.
+         */
+        private static final int MAX_BYTES_PER_CHAR = 6;
+
+        private static final String[] NO_REPLACEMENT_CHARS = new String[128];
+
+        private static final byte[] MIN_LONG = "-9223372036854775808".getBytes();
+
+        @Nullable private final OutputStream mOut;
+        @Nullable private final WritableByteChannel mChannel;
+
+        @NotNull byte[] mBuffer = new byte[DEFAULT_BUFFER_SIZE];
+        int mCount;
+
+        Utf8Sink(@Nullable OutputStream out, @Nullable WritableByteChannel channel) {
+            mOut = out;
+            mChannel = channel;
+        }
+
+        /**
+         * Makes room for the number of bytes in the buffer, by writing
+         * it to the destination or by growing it if there is none.
+         */
+        private void require(int length) throws IOException {
+            if (mCount + length <= mBuffer.length) {
+                return;
+            }
+            if (mOut != null || mChannel != null) {
+                writeBuffer();
+            }
+            if (mCount + length > mBuffer.length) {
+                mBuffer = Arrays.copyOf(mBuffer, Math.max(mBuffer.length * 2, mCount + length));
+            }
+        }
+
+        private void writeBuffer() throws IOException {
+            writeToDestination(mBuffer, 0, mCount);
+            mCount = 0;
+        }
+
+        private void writeToDestination(@NotNull byte[] bytes, int offset, int length) throws IOException {
+            if (mOut != null) {
+                mOut.write(bytes, offset, length);
+            } else if (mChannel != null) {
+                ByteBuffer byteBuffer = ByteBuffer.wrap(bytes, offset, length);
+                while (byteBuffer.hasRemaining()) {
+                    mChannel.write(byteBuffer);
+                }
+            }
+        }
+
+        @Override
+        void write(char c) throws IOException {
+            require(1);
+            mBuffer[mCount++] = (byte) c;
+        }
+
+        @Override
+        void write(@NotNull String value) throws IOException {
+            int length = value.length();
+            require(length);
+            byte[] buffer = mBuffer;
+            int count = mCount;
+            for (int i = 0; i < length; i++) {
+                buffer[count++] = (byte) value.charAt(i);
+            }
+            mCount = count;
+        }
+
+        @Override
+        void writeLong(long value) throws IOException {
+            if (value == Long.MIN_VALUE) {
+                write(MIN_LONG);
+                return;
+            }
+            require(20);
+            if (value < 0) {
+                mBuffer[mCount++] = '-';
+                value = -value;
+            }
+            int digits = 1;
+            for (long remaining = value / 10; remaining != 0; remaining /= 10) {
+                digits++;
+            }
+            int position = mCount + digits;
+            mCount = position;
+            do {
+                mBuffer[--position] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value != 0);
+        }
+
+        @Override
+        void writeRaw(@NotNull String value) throws IOException {
+            encode(value, NO_REPLACEMENT_CHARS, false);
+        }
+
+        @Override
+        void writeQuoted(@NotNull String value, @NotNull String[] replacements) throws IOException {
+            write('"');
+            encode(value, replacements, true);
+            write('"');
+        }
+
+        @Override
+        void writeName(@NotNull JsonFieldName name, boolean htmlSafe) throws IOException {
+            write(name.getUtf8Token(htmlSafe));
+        }
+
+        private void write(@NotNull byte[] bytes) throws IOException {
+            write(bytes, 0, bytes.length);
+        }
+
+        /**
+         * Writes bytes that are already encoded. Bytes that would not fit in the buffer
+         * are written straight to the destination rather than growing the buffer.
+         */
+        void write(@NotNull byte[] bytes, int offset, int length) throws IOException {
+            if (length > mBuffer.length && (mOut != null || mChannel != null)) {
+                writeBuffer();
+                writeToDestination(bytes, offset, length);
+                return;
+            }
+            require(length);
+            System.arraycopy(bytes, offset, mBuffer, mCount, length);
+            mCount += length;
+        }
+
+        private void encode(@NotNull String value, @NotNull String[] replacements,
+                            boolean escapeSeparators) throws IOException {
+            int length = value.length();
+            int i = 0;
+            while (i < length) {
+                int end = Math.min(length, i + CHUNK_SIZE);
+                // One more character, since a surrogate pair may end after the chunk
+                require((end - i + 1) * MAX_BYTES_PER_CHAR);
+                byte[] buffer = mBuffer;
+                int count = mCount;
+                for (; i < end; i++) {
+                    char c = value.charAt(i);
+                    if (c < 0x80) {
+                        String replacement = replacements[c];
+                        if (replacement == null) {
+                            buffer[count++] = (byte) c;
+                        } else {
+                            for (int j = 0; j < replacement.length(); j++) {
+                                buffer[count++] = (byte) replacement.charAt(j);
+                            }
+                        }
+                    } else if (c < 0x800) {
+                        buffer[count++] = (byte) (0xc0 | c >> 6);
+                        buffer[count++] = (byte) (0x80 | c & 0x3f);
+                    } else if (escapeSeparators && (c == '\u2028' || c == '\u2029')) {
+                        buffer[count++] = '\\';
+                        buffer[count++] = 'u';
+                        buffer[count++] = '2';
+                        buffer[count++] = '0';
+                        buffer[count++] = '2';
+                        buffer[count++] = (byte) (c == '\u2028' ? '8' : '9');
+                    } else if (c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE) {
+                        buffer[count++] = (byte) (0xe0 | c >> 12);
+                        buffer[count++] = (byte) (0x80 | c >> 6 & 0x3f);
+                        buffer[count++] = (byte) (0x80 | c & 0x3f);
+                    } else if (Character.isHighSurrogate(c) && i + 1 < length &&
+                               Character.isLowSurrogate(value.charAt(i + 1))) {
+                        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                        buffer[count++] = (byte) (0xf0 | codePoint >> 18);
+                        buffer[count++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                        buffer[count++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                        buffer[count++] = (byte) (0x80 | codePoint & 0x3f);
+                    } else {
+                        // An unpaired surrogate cannot be encoded, replace it like an OutputStreamWriter does
+                        buffer[count++] = '?';
+                    }
+                }
+                mCount = count;
+            }
+        }
+
+        @Override
+        void flush() throws IOException {
+            if (mOut != null) {
+                writeBuffer();
+                mOut.flush();
+            } else if (mChannel != null) {
+                writeBuffer();
+            }
+        }
+
+        @Override
+        void close() throws IOException {
+            flush();
+            if (mOut != null) {
+                mOut.close();
+            } else if (mChannel != null) {
+                mChannel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.vimeo.stag;
+
+import org.junit.Test;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ClassIndexTest {
+
+    @Test
+    public void indexOf_returnsPositionOfEachClass() {
+        Class<?>[] classes = {String.class, Integer.class, List.class, Map.class, int[].class, ClassIndex.class};
+        ClassIndex classIndex = new ClassIndex(classes);
+
+        for (int index = 0; index < classes.length; index++) {
+            assertEquals(index, classIndex.indexOf(classes[index]));
+        }
+    }
+
+    @Test
+    public void indexOf_returnsMinusOneForUnknownClasses() {
+        ClassIndex classIndex = new ClassIndex(String.class, Integer.class);
+
+        assertEquals(-1, classIndex.indexOf(Long.class));
+        assertEquals(-1, classIndex.indexOf(CharSequence.class));
+        assertEquals(-1, classIndex.indexOf(null));
+    }
+
+    @Test
+    public void indexOf_emptyIndex() {
+        ClassIndex classIndex = new ClassIndex();
+
+        assertEquals(-1, classIndex.indexOf(String.class));
+    }
+
+    @Test
+    public void indexOf_manyClasses() throws Exception {
+        List<Class<?>> classes = new ArrayList<>();
+        for (Class<?> clazz : Class.forName("java.util.Collections").getDeclaredClasses()) {
+            classes.add(clazz);
+        }
+        ClassIndex classIndex = new ClassIndex(classes.toArray(new Class<?>[classes.size()]));
+
+        for (int index = 0; index < classes.size(); index++) {
+            assertEquals(index, classIndex.indexOf(classes.get(index)));
+        }
+        assertEquals(-1, classIndex.indexOf(String.class));
+    }
+
+    @Test
+    public void getTypeArguments_parameterizedType() throws Exception {
+        Type type = ClassIndexTest.class.getDeclaredField("sMap").getGenericType();
+
+        assertArrayEquals(((ParameterizedType) type).getActualTypeArguments(), Types.getTypeArguments(type, 2));
+    }
+
+    @Test
+    public void getTypeArguments_rawType() {
+        assertArrayEquals(new Type[]{Object.class, Object.class}, Types.getTypeArguments(Map.class, 2));
+    }
+
+    @SuppressWarnings("unused")
+    private static Map<String, Integer> sMap;
+}
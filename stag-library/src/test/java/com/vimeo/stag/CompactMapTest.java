@@ -0,0 +1,90 @@
+package com.vimeo.stag;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CompactMapTest {
+
+    @Test
+    public void put_get_remove_matchHashMap() {
+        CompactMap map = new CompactMap();
+        Map<String, Object> expected = new HashMap<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 5000; i++) {
+            String key = "key" + random.nextInt(40);
+            if (random.nextInt(4) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(expected.hashCode(), map.hashCode());
+        for (int i = 0; i < 45; i++) {
+            assertEquals(expected.containsKey("key" + i), map.containsKey("key" + i));
+        }
+    }
+
+    @Test
+    public void keepsInsertionOrder() {
+        CompactMap map = new CompactMap(2);
+        List<String> keys = new ArrayList<>();
+        for (int i = 20; i > 0; i--) {
+            map.put("k" + i, i);
+            keys.add("k" + i);
+        }
+        map.put("k5", "replaced");
+
+        assertEquals(keys, new ArrayList<>(map.keySet()));
+        assertEquals("replaced", map.get("k5"));
+        assertNull(map.get(5));
+    }
+
+    @Test
+    public void entryIterator_removeAndSetValue() {
+        CompactMap map = new CompactMap();
+        for (int i = 0; i < 12; i++) {
+            map.put(String.valueOf(i), i);
+        }
+
+        Iterator<Map.Entry<String, Object>> iterator = map.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Object> entry = iterator.next();
+            if ((Integer) entry.getValue() % 2 == 0) {
+                iterator.remove();
+            } else {
+                entry.setValue(-1);
+            }
+        }
+
+        assertEquals(6, map.size());
+        assertFalse(map.containsKey("0"));
+        assertEquals(-1, map.get("11"));
+        assertEquals(Arrays.asList("1", "3", "5", "7", "9", "11"), new ArrayList<>(map.keySet()));
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get("1"));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void put_rejectsNullKeys() {
+        new CompactMap().put(null, 1);
+    }
+}
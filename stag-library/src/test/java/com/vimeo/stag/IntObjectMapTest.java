@@ -0,0 +1,110 @@
+package com.vimeo.stag;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.internal.bind.TypeAdapters;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IntObjectMapTest {
+
+    @Test
+    public void put_get_remove_matchHashMap() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 10000; i++) {
+            int key = random.nextInt(500) - 250;
+            String value = random.nextInt(10) == 0 ? null : String.valueOf(i);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+
+        for (int key = -260; key < 260; key++) {
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+
+    @Test
+    public void cursor_visitsEveryMapping() {
+        IntObjectMap<String> map = new IntObjectMap<>(2);
+        map.put(0, "zero");
+        map.put(Integer.MIN_VALUE, null);
+        map.put(17, "seventeen");
+
+        Map<Integer, String> visited = new HashMap<>();
+        IntObjectMap<String>.Cursor cursor = map.cursor();
+        while (cursor.moveToNext()) {
+            visited.put(cursor.key(), cursor.value());
+        }
+
+        assertEquals(3, visited.size());
+        assertEquals("zero", visited.get(0));
+        assertTrue(visited.containsKey(Integer.MIN_VALUE));
+        assertNull(visited.get(Integer.MIN_VALUE));
+        assertEquals("seventeen", visited.get(17));
+    }
+
+    @Test
+    public void equalsAndHashCode() {
+        IntObjectMap<String> first = new IntObjectMap<>();
+        IntObjectMap<String> second = new IntObjectMap<>(100);
+        for (int i = 0; i < 50; i++) {
+            first.put(i, "v" + i);
+            second.put(49 - i, "v" + (49 - i));
+        }
+
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+
+        second.put(3, null);
+        assertFalse(first.equals(second));
+    }
+
+    @Test
+    public void longObjectMap_putAndGet() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        for (long key = 0; key < 1000; key++) {
+            map.put(key << 32, "v" + key);
+        }
+
+        assertEquals(1000, map.size());
+        assertEquals("v999", map.get(999L << 32));
+        assertNull(map.get(999L));
+        assertEquals("v5", map.remove(5L << 32));
+        assertFalse(map.containsKey(5L << 32));
+    }
+
+    @Test
+    public void typeAdapter_readsObjectAndArrayForms() throws Exception {
+        KnownTypeAdapters.IntObjectMapTypeAdapter<String> typeAdapter =
+                new KnownTypeAdapters.IntObjectMapTypeAdapter<>(TypeAdapters.STRING);
+
+        IntObjectMap<String> map = typeAdapter.fromJson("{\"1\":\"a\",\"-2\":null}");
+        assertEquals(2, map.size());
+        assertEquals("a", map.get(1));
+        assertTrue(map.containsKey(-2));
+
+        assertEquals(map, typeAdapter.fromJson("[[1,\"a\"],[-2,null]]"));
+        assertEquals(map, typeAdapter.fromJson(typeAdapter.toJson(map)));
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void typeAdapter_rejectsDuplicateKeys() throws Exception {
+        new KnownTypeAdapters.IntObjectMapTypeAdapter<>(TypeAdapters.STRING).fromJson("{\"1\":null,\"1\":\"b\"}");
+    }
+}
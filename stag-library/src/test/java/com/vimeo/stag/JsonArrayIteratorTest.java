@@ -0,0 +1,80 @@
+package com.vimeo.stag;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JsonArrayIteratorTest {
+
+    @Test
+    public void iteratesElementsLazily() throws Exception {
+        final int[] charsRead = new int[1];
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 100000; i++) {
+            json.append(i == 0 ? "" : ",").append(i);
+        }
+        json.append(']');
+        Reader reader = new StringReader(json.toString()) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                int read = super.read(buffer, offset, length);
+                charsRead[0] += Math.max(read, 0);
+                return read;
+            }
+        };
+
+        JsonArrayIterator<Integer> iterator = new JsonArrayIterator<>(new JsonReader(reader), KnownTypeAdapters.INTEGER);
+        assertTrue(iterator.hasNext());
+        assertEquals(Integer.valueOf(0), iterator.next());
+        assertTrue(charsRead[0] < json.length());
+
+        int expected = 1;
+        while (iterator.hasNext()) {
+            assertEquals(Integer.valueOf(expected++), iterator.next());
+        }
+        assertEquals(100000, expected);
+        iterator.close();
+    }
+
+    @Test
+    public void readsArrayNestedInObject() throws Exception {
+        JsonReader reader = new JsonReader(new StringReader("{\"items\":[\"a\",null,\"b\"],\"count\":3}"));
+        reader.beginObject();
+        assertEquals("items", reader.nextName());
+
+        JsonArrayIterator<String> iterator = JsonArrayIterator.create(new Gson(), reader, String.class);
+        assertEquals("a", iterator.next());
+        assertEquals(null, iterator.next());
+        assertEquals("b", iterator.next());
+        assertFalse(iterator.hasNext());
+        assertFalse(iterator.hasNext());
+
+        assertEquals("count", reader.nextName());
+        assertEquals(3, reader.nextInt());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void nullIsEmpty() {
+        JsonArrayIterator<String> iterator = JsonArrayIterator.create(new Gson(), new JsonReader(new StringReader("null")), String.class);
+        assertFalse(iterator.hasNext());
+        iterator.next();
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void malformedJsonThrowsJsonSyntaxException() {
+        JsonArrayIterator<Integer> iterator = new JsonArrayIterator<>(new JsonReader(new StringReader("[1,}")), KnownTypeAdapters.INTEGER);
+        assertEquals(Integer.valueOf(1), iterator.next());
+        iterator.hasNext();
+    }
+}
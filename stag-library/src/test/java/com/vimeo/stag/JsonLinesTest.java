@@ -0,0 +1,204 @@
+package com.vimeo.stag;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JsonLinesTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ExecutorService mExecutor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(UTF_8));
+    }
+
+    private static <T> List<T> toList(Iterator<T> iterator) {
+        List<T> values = new ArrayList<>();
+        while (iterator.hasNext()) {
+            values.add(iterator.next());
+        }
+        return values;
+    }
+
+    private static String getSyntaxError(Iterator<Integer> reader) {
+        try {
+            toList(reader);
+        } catch (JsonSyntaxException e) {
+            return e.getMessage();
+        }
+        throw new AssertionError("Expected a JsonSyntaxException");
+    }
+
+    @Test
+    public void readsOneValuePerLine() throws Exception {
+        JsonLinesReader<Integer> reader = new JsonLinesReader<>(stream("1\n\n 2 \r\n3"), KnownTypeAdapters.INTEGER);
+        assertEquals(Arrays.asList(1, 2, 3), toList(reader));
+        assertFalse(reader.hasNext());
+        reader.close();
+    }
+
+    @Test
+    public void readsObjectsWithGsonAdapter() throws Exception {
+        JsonLinesReader<Map> reader = JsonLinesReader.create(new Gson(), stream("{\"a\":1}\n{\"a\":[2,\n3]}\n"), Map.class);
+        List<Map> values = toList(reader);
+        assertEquals(2, values.size());
+        assertEquals(Arrays.asList(2.0, 3.0), values.get(1).get("a"));
+    }
+
+    @Test
+    public void readsEmptyStream() throws Exception {
+        assertEquals(Collections.emptyList(), toList(new JsonLinesReader<>(stream(""), KnownTypeAdapters.INTEGER)));
+        assertEquals(Collections.emptyList(), toList(new JsonLinesReader<>(stream("\n \n"), KnownTypeAdapters.INTEGER)));
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void throwsForTwoValuesOnOneLine() {
+        toList(new JsonLinesReader<>(stream("1\n2 3\n"), KnownTypeAdapters.INTEGER));
+    }
+
+    @Test(expected = JsonSyntaxException.class)
+    public void throwsForMalformedLine() {
+        toList(new JsonLinesReader<>(stream("{}\n{\"a\"}\n"), new Gson().getAdapter(Map.class)));
+    }
+
+    @Test
+    public void pipelinedReaderReturnsValuesInOrder() throws Exception {
+        StringBuilder json = new StringBuilder();
+        List<Map<String, Object>> expected = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            Map<String, Object> value = new LinkedHashMap<>();
+            value.put("id", (double) i);
+            value.put("name", "line " + i);
+            expected.add(value);
+            json.append("{\"id\":").append(i).append(",\"name\":\"line ").append(i).append("\"}\n");
+        }
+        TypeAdapter<Map<String, Object>> typeAdapter = new Gson().getAdapter(new TypeToken<Map<String, Object>>() {});
+
+        for (int batchSize : new int[]{1, 16, 1000, 1 << 20}) {
+            PipelinedJsonLinesReader<Map<String, Object>> reader =
+                    new PipelinedJsonLinesReader<>(stream(json.toString()), typeAdapter, mExecutor, 4, batchSize);
+            assertEquals(expected, toList(reader));
+            reader.close();
+        }
+    }
+
+    @Test
+    public void pipelinedReaderReadsLastLineWithoutNewline() {
+        PipelinedJsonLinesReader<Integer> reader =
+                new PipelinedJsonLinesReader<>(stream("1\n2\n3"), KnownTypeAdapters.INTEGER, mExecutor, 2, 2);
+        assertEquals(Arrays.asList(1, 2, 3), toList(reader));
+        assertFalse(reader.hasNext());
+    }
+
+    @Test
+    public void pipelinedReaderThrowsForMalformedLine() {
+        PipelinedJsonLinesReader<Integer> reader =
+                new PipelinedJsonLinesReader<>(stream("1\n2\nx y\n4\n"), KnownTypeAdapters.INTEGER, mExecutor, 2, 4);
+        assertEquals(Integer.valueOf(1), reader.next());
+        try {
+            toList(reader);
+            fail("Expected a JsonSyntaxException");
+        } catch (JsonSyntaxException expected) {
+        }
+    }
+
+    @Test
+    public void pipelinedReaderReportsLinesOfTheWholeStream() {
+        String json = "1\n2\n3\n4\n5\nx y\n7\n";
+        String expected = getSyntaxError(new JsonLinesReader<>(stream(json), KnownTypeAdapters.INTEGER));
+        assertTrue(expected, expected.contains("line 6"));
+
+        for (int batchSize = 1; batchSize <= json.length(); batchSize++) {
+            PipelinedJsonLinesReader<Integer> reader =
+                    new PipelinedJsonLinesReader<>(stream(json), KnownTypeAdapters.INTEGER, mExecutor, 2, batchSize);
+            assertEquals("batch size " + batchSize, expected, getSyntaxError(reader));
+        }
+    }
+
+    @Test
+    public void writesOneValuePerLine() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Gson gson = new GsonBuilder().serializeNulls().create();
+        JsonLinesWriter<Map> writer = JsonLinesWriter.create(gson, out, Map.class, 0);
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("a", "<b>");
+        value.put("c", null);
+        writer.write(value);
+        writer.write(null);
+        writer.write(Collections.emptyMap());
+        writer.close();
+
+        assertEquals("{\"a\":\"\\u003cb\\u003e\",\"c\":null}\nnull\n{}\n", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void writerFlushesEveryLinesPerFlush() throws Exception {
+        final int[] flushes = new int[1];
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void flush() throws IOException {
+                flushes[0]++;
+            }
+        };
+        JsonLinesWriter<Integer> writer = new JsonLinesWriter<>(out, KnownTypeAdapters.INTEGER, 3);
+        for (int i = 0; i < 7; i++) {
+            writer.write(i);
+        }
+        assertEquals(2, flushes[0]);
+        assertEquals("0\n1\n2\n3\n4\n5\n", out.toString("UTF-8"));
+        writer.flush();
+        assertEquals(3, flushes[0]);
+        assertEquals("0\n1\n2\n3\n4\n5\n6\n", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void writtenLinesAreReadBack() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonLinesWriter<Integer> writer = new JsonLinesWriter<>(out, KnownTypeAdapters.INTEGER, 0);
+        for (int i = 0; i < 5000; i++) {
+            writer.write(i);
+        }
+        writer.close();
+
+        JsonLinesReader<Integer> reader =
+                new JsonLinesReader<>(new ByteArrayInputStream(out.toByteArray()), KnownTypeAdapters.INTEGER);
+        int expected = 0;
+        while (reader.hasNext()) {
+            assertEquals(Integer.valueOf(expected++), reader.next());
+        }
+        assertEquals(5000, expected);
+        assertTrue(out.size() > 0);
+    }
+}
@@ -0,0 +1,148 @@
+package com.vimeo.stag;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.MalformedJsonException;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class JsonPushParserTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final class RecordingListener<T> implements JsonPushParser.Listener<T> {
+
+        final List<T> mValues = new ArrayList<>();
+
+        @Override
+        public void onValue(T value) {
+            mValues.add(value);
+        }
+    }
+
+    /**
+     * Feeds the JSON in chunks of the size, and checks that every value
+     * is passed to the listener as soon as its last byte is fed.
+     */
+    private static <T> List<T> feedInChunks(JsonPushParser<T> parser, RecordingListener<T> listener,
+                                            String json, int chunkSize) throws IOException {
+        byte[] bytes = json.getBytes(UTF_8);
+        for (int i = 0; i < bytes.length; i += chunkSize) {
+            parser.feed(ByteBuffer.wrap(bytes, i, Math.min(chunkSize, bytes.length - i)));
+        }
+        parser.finish();
+        return listener.mValues;
+    }
+
+    @Test
+    public void readsTopLevelValuesFedInChunks() throws Exception {
+        String json = "{\"a\":\"}]\\\"\",\"b\":[1,{\"c\":null}]}\n\"x\\\\\" 12 true\n[]{}null -3.5";
+        for (int chunkSize : new int[]{1, 2, 3, 7, 1000}) {
+            RecordingListener<Object> listener = new RecordingListener<>();
+            JsonPushParser<Object> parser = JsonPushParser.forValues(new Gson().getAdapter(Object.class), listener);
+            List<Object> values = feedInChunks(parser, listener, json, chunkSize);
+
+            assertEquals(8, values.size());
+            assertEquals("}]\"", ((Map<?, ?>) values.get(0)).get("a"));
+            assertEquals("x\\", values.get(1));
+            assertEquals(12.0, values.get(2));
+            assertEquals(true, values.get(3));
+            assertEquals(Collections.emptyList(), values.get(4));
+            assertEquals(null, values.get(6));
+            assertEquals(-3.5, values.get(7));
+        }
+    }
+
+    @Test
+    public void passesValuesAsSoonAsTheyAreComplete() throws Exception {
+        RecordingListener<Integer> listener = new RecordingListener<>();
+        JsonPushParser<Integer> parser = JsonPushParser.forArrayElements(KnownTypeAdapters.INTEGER, listener);
+        parser.feed("[1, 2".getBytes(UTF_8), 0, 5);
+        assertEquals(Collections.singletonList(1), listener.mValues);
+        parser.feed("3,".getBytes(UTF_8), 0, 2);
+        assertEquals(Arrays.asList(1, 23), listener.mValues);
+        parser.feed("4]".getBytes(UTF_8), 0, 2);
+        assertEquals(Arrays.asList(1, 23, 4), listener.mValues);
+        parser.finish();
+    }
+
+    @Test
+    public void readsArrayElementsFedInChunks() throws Exception {
+        StringBuilder json = new StringBuilder(" [ ");
+        for (int i = 0; i < 2000; i++) {
+            json.append(i == 0 ? "" : " ,\n").append("{\"id\":").append(i).append(",\"name\":\"caf\u00e9 [").append(i).append("]\"}");
+        }
+        json.append(" ] ");
+        for (int chunkSize : new int[]{1, 5, 4096, 1 << 20}) {
+            RecordingListener<Map> listener = new RecordingListener<>();
+            JsonPushParser<Map> parser = JsonPushParser.forArrayElements(new Gson(), Map.class, listener);
+            List<Map> values = feedInChunks(parser, listener, json.toString(), chunkSize);
+            assertEquals(2000, values.size());
+            for (int i = 0; i < values.size(); i++) {
+                assertEquals((double) i, values.get(i).get("id"));
+                assertEquals("caf\u00e9 [" + i + "]", values.get(i).get("name"));
+            }
+        }
+    }
+
+    @Test
+    public void readsEmptyArray() throws Exception {
+        RecordingListener<Integer> listener = new RecordingListener<>();
+        JsonPushParser<Integer> parser = JsonPushParser.forArrayElements(KnownTypeAdapters.INTEGER, listener);
+        assertEquals(Collections.emptyList(), feedInChunks(parser, listener, "[ ]", 1));
+    }
+
+    @Test
+    public void readsFromChannel() throws Exception {
+        ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream("[1,2,3]".getBytes(UTF_8)));
+        RecordingListener<Integer> listener = new RecordingListener<>();
+        JsonPushParser<Integer> parser = JsonPushParser.forArrayElements(KnownTypeAdapters.INTEGER, listener);
+        while (parser.readFrom(channel) != -1) {
+        }
+        assertEquals(Arrays.asList(1, 2, 3), listener.mValues);
+    }
+
+    @Test
+    public void throwsForMalformedJson() throws Exception {
+        for (String json : Arrays.asList("[1 2]", "[1,]", "[1]]", "{}", "[1", "[\"a", "[[1]")) {
+            RecordingListener<Object> listener = new RecordingListener<>();
+            JsonPushParser<Object> parser = JsonPushParser.forArrayElements(new Gson().getAdapter(Object.class), listener);
+            try {
+                feedInChunks(parser, listener, json, 1);
+                fail("Expected a MalformedJsonException for " + json);
+            } catch (MalformedJsonException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void throwsForMalformedValueAndFails() throws Exception {
+        RecordingListener<Integer> listener = new RecordingListener<>();
+        JsonPushParser<Integer> parser = JsonPushParser.forValues(KnownTypeAdapters.INTEGER, listener);
+        try {
+            feedInChunks(parser, listener, "1 2x 3", 10);
+            fail("Expected an IOException");
+        } catch (IOException expected) {
+        }
+        assertEquals(Collections.singletonList(1), listener.mValues);
+        try {
+            parser.feed(new byte[]{' '}, 0, 1);
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException expected) {
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.vimeo.stag;
 
+import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
 import com.google.gson.TypeAdapter;
 import com.google.gson.internal.bind.TypeAdapters;
 import com.google.gson.stream.JsonReader;
@@ -12,13 +14,19 @@ import org.junit.Test;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 
 import verification.Utils;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 
 @SuppressWarnings("MagicNumber")
 public class KnownTypeAdaptersTest {
@@ -535,6 +543,107 @@ public class KnownTypeAdaptersTest {
         assertEquals(input, readValue);
     }
 
+    @Test
+    public void primitiveArrayAdaptersReadLargeArrays() throws Exception {
+        // Larger than the buffers that are kept between reads
+        int length = ArrayBuffers.MAX_POOLED_LENGTH * 2 + 3;
+        long[] longs = new long[length];
+        double[] doubles = new double[length];
+        for (int index = 0; index < length; index++) {
+            longs[index] = Long.MAX_VALUE - index;
+            doubles[index] = index / 4.0;
+        }
+
+        for (int iteration = 0; iteration < 2; iteration++) {
+            StringWriter stringWriter = new StringWriter();
+            KnownTypeAdapters.PrimitiveLongArrayAdapter.write(new JsonWriter(stringWriter), longs);
+            long[] readLongs = KnownTypeAdapters.PrimitiveLongArrayAdapter.read(new JsonReader(new StringReader(stringWriter.toString())));
+            assertArrayEquals(longs, readLongs);
+
+            stringWriter = new StringWriter();
+            KnownTypeAdapters.PrimitiveDoubleArrayAdapter.write(new JsonWriter(stringWriter), doubles);
+            double[] readDoubles = KnownTypeAdapters.PrimitiveDoubleArrayAdapter.read(new JsonReader(new StringReader(stringWriter.toString())));
+            assertArrayEquals(doubles, readDoubles, 0);
+
+            // A short array read after a long one is trimmed to its own length
+            int[] readInts = KnownTypeAdapters.PrimitiveIntegerArrayAdapter.read(new JsonReader(new StringReader("[1,2,3]")));
+            assertArrayEquals(new int[]{1, 2, 3}, readInts);
+        }
+    }
+
+    @Test
+    public void primitiveArrayAdaptersReadEmptyArrays() throws Exception {
+        assertEquals(0, KnownTypeAdapters.PrimitiveIntegerArrayAdapter.read(new JsonReader(new StringReader("[]"))).length);
+        assertEquals(0, KnownTypeAdapters.PrimitiveByteArrayAdapter.read(new JsonReader(new StringReader("[]"))).length);
+        assertArrayEquals(new boolean[]{true, false},
+                          KnownTypeAdapters.PrimitiveBooleanArrayAdapter.read(new JsonReader(new StringReader("[\"true\",false]"))));
+    }
+
+    @Test
+    public void arrayAdaptersReturnBuffersWhenReadFails() throws Exception {
+        ArrayBuffers buffers = ArrayBuffers.get();
+        int[] ints = buffers.takeInts();
+        buffers.recycle(ints);
+        try {
+            KnownTypeAdapters.PrimitiveIntegerArrayAdapter.read(new JsonReader(new StringReader("[1,\"a\"]")));
+            fail("Expected a JsonSyntaxException");
+        } catch (JsonSyntaxException expected) {
+        }
+        assertSame(ints, buffers.takeInts());
+        buffers.recycle(ints);
+
+        Object[] objects = buffers.takeObjects();
+        buffers.recycle(objects, 0);
+        KnownTypeAdapters.ArrayTypeAdapter<String> stringArrayAdapter =
+                new KnownTypeAdapters.ArrayTypeAdapter<>(TypeAdapters.STRING, new KnownTypeAdapters.PrimitiveArrayConstructor<String>() {
+                    @Override
+                    public String[] construct(int size) {
+                        return new String[size];
+                    }
+                });
+        try {
+            stringArrayAdapter.read(new JsonReader(new StringReader("[\"a\",{}]")));
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException expected) {
+        }
+        assertSame(objects, buffers.takeObjects());
+        assertNull(objects[0]);
+        buffers.recycle(objects, 0);
+    }
+
+    @Test
+    public void arrayTypeAdapterReadsNestedArrays() throws Exception {
+        KnownTypeAdapters.ArrayTypeAdapter<String> stringArrayAdapter =
+                new KnownTypeAdapters.ArrayTypeAdapter<>(TypeAdapters.STRING, new KnownTypeAdapters.PrimitiveArrayConstructor<String>() {
+                    @Override
+                    public String[] construct(int size) {
+                        return new String[size];
+                    }
+                });
+        KnownTypeAdapters.ArrayTypeAdapter<String[]> nestedArrayAdapter =
+                new KnownTypeAdapters.ArrayTypeAdapter<>(stringArrayAdapter, new KnownTypeAdapters.PrimitiveArrayConstructor<String[]>() {
+                    @Override
+                    public String[][] construct(int size) {
+                        return new String[size][];
+                    }
+                });
+
+        StringBuilder json = new StringBuilder("[[\"a\",null],[],[");
+        String[] longArray = new String[40];
+        for (int index = 0; index < longArray.length; index++) {
+            longArray[index] = String.valueOf(index);
+            json.append(index == 0 ? "" : ",").append('"').append(index).append('"');
+        }
+        json.append("]]");
+
+        String[][] result = nestedArrayAdapter.read(new JsonReader(new StringReader(json.toString())));
+
+        assertEquals(3, result.length);
+        assertArrayEquals(new String[]{"a", null}, result[0]);
+        assertArrayEquals(new String[0], result[1]);
+        assertArrayEquals(longArray, result[2]);
+    }
+
     /**
      * Test for {@link KnownTypeAdapters.PrimitiveCharTypeAdapter}
      */
@@ -729,6 +838,131 @@ public class KnownTypeAdaptersTest {
         assertThat(readValue).isEqualTo(dummyMap);
     }
 
+    /**
+     * Test for {@link KnownTypeAdapters.StringKeyMapTypeAdapter}
+     */
+    @Test
+    public void stringKeyMapTypeAdapterMatchesMapTypeAdapter() throws Exception {
+        LinkedHashMap<String, Integer> map = new LinkedHashMap<>();
+        map.put("first", 1);
+        map.put("sec\"ond", null);
+        map.put(null, 3);
+
+        TypeAdapter<LinkedHashMap<String, Integer>> mapTypeAdapter =
+                new KnownTypeAdapters.MapTypeAdapter<>(TypeAdapters.STRING, KnownTypeAdapters.INTEGER,
+                                                       new KnownTypeAdapters.LinkedHashMapInstantiator<String, Integer>());
+        TypeAdapter<LinkedHashMap<String, Integer>> stringKeyMapTypeAdapter =
+                new KnownTypeAdapters.StringKeyMapTypeAdapter<>(KnownTypeAdapters.INTEGER,
+                                                                new KnownTypeAdapters.LinkedHashMapInstantiator<String, Integer>());
+
+        String json = stringKeyMapTypeAdapter.toJson(map);
+        assertEquals(mapTypeAdapter.toJson(map), json);
+
+        map.remove(null);
+        map.put("null", 3);
+        assertEquals(map, stringKeyMapTypeAdapter.fromJson(json));
+        assertEquals(mapTypeAdapter.fromJson(json), stringKeyMapTypeAdapter.fromJson(json));
+    }
+
+    /**
+     * Test for {@link KnownTypeAdapters.IntegerKeyMapTypeAdapter} and {@link KnownTypeAdapters.LongKeyMapTypeAdapter}
+     */
+    @Test
+    public void numberKeyMapTypeAdaptersMatchMapTypeAdapter() throws Exception {
+        LinkedHashMap<Integer, String> intMap = new LinkedHashMap<>();
+        intMap.put(-1, "a");
+        intMap.put(Integer.MAX_VALUE, "b");
+
+        TypeAdapter<LinkedHashMap<Integer, String>> intKeyMapTypeAdapter =
+                new KnownTypeAdapters.IntegerKeyMapTypeAdapter<>(TypeAdapters.STRING,
+                                                                 new KnownTypeAdapters.LinkedHashMapInstantiator<Integer, String>());
+        String json = intKeyMapTypeAdapter.toJson(intMap);
+        assertEquals(new KnownTypeAdapters.MapTypeAdapter<>(KnownTypeAdapters.INTEGER, TypeAdapters.STRING,
+                                                            new KnownTypeAdapters.LinkedHashMapInstantiator<Integer, String>())
+                             .toJson(intMap), json);
+        assertEquals(intMap, intKeyMapTypeAdapter.fromJson(json));
+
+        LinkedHashMap<Long, String> longMap = new LinkedHashMap<>();
+        longMap.put(Long.MIN_VALUE, "a");
+        longMap.put(7L, null);
+
+        TypeAdapter<LinkedHashMap<Long, String>> longKeyMapTypeAdapter =
+                new KnownTypeAdapters.LongKeyMapTypeAdapter<>(TypeAdapters.STRING,
+                                                              new KnownTypeAdapters.LinkedHashMapInstantiator<Long, String>());
+        json = longKeyMapTypeAdapter.toJson(longMap);
+        assertEquals("{\"-9223372036854775808\":\"a\",\"7\":null}", json);
+        assertEquals(longMap, longKeyMapTypeAdapter.fromJson(json));
+
+        // maps written in the array form can still be read
+        assertEquals(longMap, longKeyMapTypeAdapter.fromJson("[[-9223372036854775808,\"a\"],[7,null]]"));
+    }
+
+    /**
+     * Test for {@link KnownTypeAdapters.ObjectTypeAdapter}
+     */
+    @Test
+    public void objectTypeAdapterWritesMixedValues() throws Exception {
+        Gson gson = new Gson();
+        KnownTypeAdapters.ObjectTypeAdapter typeAdapter = new KnownTypeAdapters.ObjectTypeAdapter(gson);
+
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            values.add("value" + i);
+            values.add(i);
+            values.add(i);
+            values.add(i % 2 == 0);
+        }
+        values.add(null);
+        values.add(new Object());
+
+        // written twice, so that the second pass only uses cached adapters
+        for (int pass = 0; pass < 2; pass++) {
+            StringWriter stringWriter = new StringWriter();
+            JsonWriter writer = new JsonWriter(stringWriter);
+            writer.beginArray();
+            for (Object value : values) {
+                typeAdapter.write(writer, value);
+            }
+            writer.endArray();
+            assertEquals(gson.toJson(values), stringWriter.toString());
+        }
+    }
+
+    @Test
+    public void objectTypeAdapterReadsCompactValues() throws Exception {
+        Gson gson = new Gson();
+        KnownTypeAdapters.ObjectTypeAdapter typeAdapter = new KnownTypeAdapters.ObjectTypeAdapter(gson, true);
+
+        String json = "{\"int\":-2147483648,\"long\":2147483648,\"double\":1.50,\"list\":[1,\"a\",true,null],\"nested\":{}}";
+        Object value = typeAdapter.fromJson(json);
+
+        assertThat(value).isInstanceOf(CompactMap.class);
+        CompactMap map = (CompactMap) value;
+        assertEquals(Integer.MIN_VALUE, map.get("int"));
+        assertEquals(new LazyNumber("2147483648"), map.get("long"));
+        assertEquals(2147483648L, ((Number) map.get("long")).longValue());
+        assertEquals(1.5, ((Number) map.get("double")).doubleValue(), 0);
+        assertEquals(Arrays.asList(1, "a", true, null), map.get("list"));
+        assertThat(map.get("nested")).isInstanceOf(CompactMap.class);
+
+        // numbers are written back as they were read, through the stag adapter and through Gson
+        assertEquals(json, typeAdapter.toJson(value));
+        assertEquals(json, gson.toJson(value));
+    }
+
+    @Test
+    public void objectTypeAdapterKeepsNegativeZero() throws Exception {
+        KnownTypeAdapters.ObjectTypeAdapter typeAdapter = new KnownTypeAdapters.ObjectTypeAdapter(new Gson(), true);
+
+        Object value = typeAdapter.fromJson("[-0,0]");
+
+        List<?> list = (List<?>) value;
+        assertEquals(new LazyNumber("-0"), list.get(0));
+        assertEquals(Double.doubleToLongBits(-0.0), Double.doubleToLongBits(((Number) list.get(0)).doubleValue()));
+        assertEquals(0, list.get(1));
+        assertEquals("[-0,0]", typeAdapter.toJson(value));
+    }
+
     /**
      * Test for {@link KnownTypeAdapters#JSON_OBJECT}
      */
@@ -0,0 +1,187 @@
+package com.vimeo.stag;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.internal.bind.TypeAdapters;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class ParallelArrayReaderTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ExecutorService mExecutor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    @Test
+    public void scanFindsTopLevelElements() {
+        byte[] json = " [ 1 , \"a,]\\\"}\" ,{\"b\":[1,{}]} ,[[]],null ] ".getBytes(UTF_8);
+        List<ParallelArrayReader.Chunk> chunks = ParallelArrayReader.scanChunks(json, 0, json.length, 0);
+
+        String[] elements = new String[chunks.size()];
+        for (int i = 0; i < elements.length; i++) {
+            ParallelArrayReader.Chunk chunk = chunks.get(i);
+            assertEquals(i, chunk.mFirstIndex);
+            assertEquals(1, chunk.mCount);
+            elements[i] = new String(json, chunk.mStart, chunk.mEnd - chunk.mStart, UTF_8);
+        }
+        assertArrayEquals(new String[]{"1", "\"a,]\\\"}\"", "{\"b\":[1,{}]}", "[[]]", "null"}, elements);
+        assertEquals(0, ParallelArrayReader.scanChunks("[ ]".getBytes(UTF_8), 0, 3, 0).size());
+    }
+
+    @Test
+    public void scanGroupsElementsIntoChunks() {
+        byte[] json = "[10, 20, 30, 40, 50]".getBytes(UTF_8);
+        List<ParallelArrayReader.Chunk> chunks = ParallelArrayReader.scanChunks(json, 0, json.length, 5);
+
+        assertEquals(3, chunks.size());
+        String[] ranges = new String[chunks.size()];
+        for (int i = 0; i < ranges.length; i++) {
+            ParallelArrayReader.Chunk chunk = chunks.get(i);
+            ranges[i] = chunk.mFirstIndex + ":" + chunk.mCount + ":" + new String(json, chunk.mStart, chunk.mEnd - chunk.mStart, UTF_8);
+        }
+        assertArrayEquals(new String[]{"0:2:10, 20", "2:2:30, 40", "4:1:50"}, ranges);
+    }
+
+    @Test
+    public void scanRejectsDocumentsItCannotSplit() {
+        for (String json : Arrays.asList("null", "{}", "[1,2", "[1,,2]", "[1}", "[\"a]", "[1] 2")) {
+            byte[] bytes = json.getBytes(UTF_8);
+            assertNull(json, ParallelArrayReader.scanChunks(bytes, 0, bytes.length, 0));
+        }
+    }
+
+    @Test
+    public void readsElementsInOrder() throws Exception {
+        Gson gson = new Gson();
+        TypeAdapter<Map<String, Object>> typeAdapter = gson.getAdapter(new TypeToken<Map<String, Object>>() {});
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 5000; i++) {
+            json.append(i == 0 ? "" : ",\n  ").append("{\"id\":").append(i)
+                    .append(",\"name\":\"caf\u00e9 [").append(i).append("]\",\"tags\":[\"x\",{\"y\":null}]}");
+        }
+        json.append(']');
+        List<Map<String, Object>> expected =
+                gson.fromJson(json.toString(), new TypeToken<List<Map<String, Object>>>() {}.getType());
+
+        byte[] bytes = json.toString().getBytes(UTF_8);
+        List<Map<String, Object>> parallel = ParallelArrayReader.read(typeAdapter, bytes, 0, bytes.length, mExecutor, 4, 0);
+        assertEquals(expected, parallel);
+        assertEquals(ParallelArrayReader.read(typeAdapter, bytes, mExecutor, 1), parallel);
+    }
+
+    @Test
+    public void readsRangeOfBytes() throws Exception {
+        byte[] bytes = "xx[1,2,3,4,5]yy".getBytes(UTF_8);
+        List<Integer> values = ParallelArrayReader.read(KnownTypeAdapters.INTEGER, bytes, 2, 11, mExecutor, 4, 0);
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), values);
+    }
+
+    @Test
+    public void readsSmallArraysAndNull() throws Exception {
+        assertEquals(Collections.emptyList(), read("[]"));
+        assertEquals(Collections.singletonList(7), read("[7]"));
+        assertNull(read("null"));
+    }
+
+    @Test
+    public void throwsMalformedJsonFromChunk() throws Exception {
+        try {
+            read("[1,2,3,x y,5]");
+            fail("Expected a MalformedJsonException");
+        } catch (MalformedJsonException expected) {
+        }
+        try {
+            read("[1,2,3 4,5]");
+            fail("Expected a MalformedJsonException");
+        } catch (MalformedJsonException expected) {
+        }
+        try {
+            read("[1,2,3,\"a\",5]");
+            fail("Expected a JsonSyntaxException");
+        } catch (JsonSyntaxException expected) {
+        }
+    }
+
+    @Test
+    public void reportsErrorsAtTheirPositionInTheDocument() throws Exception {
+        for (String json : Arrays.asList("[1,\n 2,\n \"\n\",\n x y,\n 5]", "xx[1, 2,\r\n 3 4, 5]")) {
+            byte[] bytes = json.getBytes(UTF_8);
+            int offset = json.indexOf('[');
+            String sequential = null;
+            try {
+                ParallelArrayReader.read(TypeAdapters.STRING, bytes, offset, bytes.length - offset, mExecutor, 1, 0);
+                fail("Expected a MalformedJsonException");
+            } catch (MalformedJsonException expected) {
+                sequential = expected.getMessage();
+            }
+            try {
+                ParallelArrayReader.read(TypeAdapters.STRING, bytes, offset, bytes.length - offset, mExecutor, 4, 0);
+                fail("Expected a MalformedJsonException");
+            } catch (MalformedJsonException expected) {
+                assertEquals(sequential, expected.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void throwsMalformedJsonFromSequentialRead() throws Exception {
+        try {
+            read("[1,2,");
+            fail("Expected an IOException");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void readsChunksOnExecutor() throws Exception {
+        final Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+        TypeAdapter<Integer> typeAdapter = new TypeAdapter<Integer>() {
+            @Override
+            public void write(JsonWriter out, Integer value) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Integer read(JsonReader in) throws IOException {
+                threads.add(Thread.currentThread().getName());
+                return in.nextInt();
+            }
+        };
+        byte[] bytes = "[1,2,3,4,5,6,7,8]".getBytes(UTF_8);
+        ParallelArrayReader.read(typeAdapter, bytes, 0, bytes.length, mExecutor, 4, 0);
+        assertFalse(threads.contains(Thread.currentThread().getName()));
+    }
+
+    private List<Integer> read(String json) throws IOException {
+        byte[] bytes = json.getBytes(UTF_8);
+        return ParallelArrayReader.read(KnownTypeAdapters.INTEGER, bytes, 0, bytes.length, mExecutor, 4, 0);
+    }
+}
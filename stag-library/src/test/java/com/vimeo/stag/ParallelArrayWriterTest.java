@@ -0,0 +1,194 @@
+package com.vimeo.stag;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ParallelArrayWriterTest {
+
+    private final ExecutorService mExecutor = Executors.newFixedThreadPool(4);
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    private static List<Map<String, Object>> createValues(int count) {
+        List<Map<String, Object>> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (i % 100 == 7) {
+                values.add(null);
+                continue;
+            }
+            Map<String, Object> value = new LinkedHashMap<>();
+            value.put("id", i);
+            value.put("name", "caf\u00e9 <" + i + "> \"\u2028\"");
+            value.put("missing", null);
+            value.put("tags", Arrays.asList("x", i % 2 == 0));
+            values.add(value);
+        }
+        return values;
+    }
+
+    private byte[] write(List<Map<String, Object>> values, int parallelism, boolean serializeNulls,
+                         boolean htmlSafe) throws IOException {
+        TypeAdapter<Map<String, Object>> typeAdapter = new Gson().getAdapter(new TypeToken<Map<String, Object>>() {});
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        writer.setSerializeNulls(serializeNulls);
+        writer.setHtmlSafe(htmlSafe);
+        ParallelArrayWriter.write(typeAdapter, values, writer, mExecutor, parallelism, 0);
+        return writer.toByteArray();
+    }
+
+    @Test
+    public void writesSameBytesAsSequentialWrite() throws Exception {
+        List<Map<String, Object>> values = createValues(5000);
+        for (boolean serializeNulls : new boolean[]{false, true}) {
+            for (boolean htmlSafe : new boolean[]{false, true}) {
+                byte[] expected = write(values, 1, serializeNulls, htmlSafe);
+                assertArrayEquals(expected, write(values, 4, serializeNulls, htmlSafe));
+                assertArrayEquals(expected, write(values, 3, serializeNulls, htmlSafe));
+            }
+        }
+    }
+
+    @Test
+    public void writesSameBytesAsListTypeAdapter() throws Exception {
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            values.add(i % 10 == 0 ? null : i);
+        }
+        Utf8JsonWriter expected = new Utf8JsonWriter();
+        new KnownTypeAdapters.ListTypeAdapter<>(KnownTypeAdapters.INTEGER, new KnownTypeAdapters.ArrayListInstantiator<Integer>())
+                .write(expected, new ArrayList<>(values));
+
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        ParallelArrayWriter.write(KnownTypeAdapters.INTEGER, values, writer, mExecutor, 4);
+        assertArrayEquals(expected.toByteArray(), writer.toByteArray());
+    }
+
+    @Test
+    public void writesArrayAsMemberToStream() throws Exception {
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 200000; i++) {
+            values.add(i);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Utf8JsonWriter writer = new Utf8JsonWriter(out);
+        writer.beginObject();
+        writer.name("before").value(1);
+        writer.name("values");
+        ParallelArrayWriter.write(KnownTypeAdapters.INTEGER, values, writer, mExecutor, 4, 0);
+        writer.name("after").value(2);
+        writer.endObject();
+        writer.close();
+
+        String json = out.toString("UTF-8");
+        JsonReader reader = new JsonReader(new StringReader(json));
+        reader.beginObject();
+        assertEquals("before", reader.nextName());
+        assertEquals(1, reader.nextInt());
+        assertEquals("values", reader.nextName());
+        reader.beginArray();
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(i, reader.nextInt());
+        }
+        reader.endArray();
+        assertEquals("after", reader.nextName());
+        assertEquals(2, reader.nextInt());
+        reader.endObject();
+    }
+
+    @Test
+    public void writesNullAndSmallLists() throws Exception {
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        writer.beginArray();
+        ParallelArrayWriter.write(KnownTypeAdapters.INTEGER, null, writer, mExecutor, 4, 0);
+        ParallelArrayWriter.write(KnownTypeAdapters.INTEGER, Collections.<Integer>emptyList(), writer, mExecutor, 4, 0);
+        ParallelArrayWriter.write(KnownTypeAdapters.INTEGER, Collections.singletonList(1), writer, mExecutor, 4, 0);
+        ParallelArrayWriter.write(KnownTypeAdapters.INTEGER, Arrays.asList(1, 2, 3), writer, mExecutor, 4, 0);
+        writer.endArray();
+        assertEquals("[null,[],[1],[1,2,3]]", new String(writer.toByteArray(), "UTF-8"));
+    }
+
+    @Test
+    public void reusesOneWriterPerThread() throws Exception {
+        final Set<JsonWriter> chunkWriters =
+                Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<JsonWriter, Boolean>()));
+        TypeAdapter<Integer> typeAdapter = new TypeAdapter<Integer>() {
+            @Override
+            public void write(JsonWriter out, Integer value) throws IOException {
+                chunkWriters.add(out);
+                out.value(value);
+            }
+
+            @Override
+            public Integer read(JsonReader in) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            values.add(i);
+        }
+        Utf8JsonWriter expected = new Utf8JsonWriter();
+        ParallelArrayWriter.write(KnownTypeAdapters.INTEGER, values, expected, mExecutor, 1, 0);
+
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        ParallelArrayWriter.write(typeAdapter, values, writer, mExecutor, 3, 0);
+
+        assertArrayEquals(expected.toByteArray(), writer.toByteArray());
+        assertEquals(3, chunkWriters.size());
+    }
+
+    @Test
+    public void throwsExceptionOfChunk() throws Exception {
+        TypeAdapter<Integer> typeAdapter = new TypeAdapter<Integer>() {
+            @Override
+            public void write(JsonWriter out, Integer value) throws IOException {
+                if (value == 50) {
+                    throw new IOException("Failed on " + value);
+                }
+                out.value(value);
+            }
+
+            @Override
+            public Integer read(JsonReader in) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            values.add(i);
+        }
+        try {
+            ParallelArrayWriter.write(typeAdapter, values, new Utf8JsonWriter(), mExecutor, 4, 0);
+            fail("Expected an IOException");
+        } catch (IOException expected) {
+            assertEquals("Failed on 50", expected.getMessage());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.vimeo.stag;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class PrimitiveListsTest {
+
+    @Test
+    public void intList_growsAndBehavesLikeList() {
+        IntList list = new IntList();
+        for (int i = 0; i < 100; i++) {
+            list.addInt(i);
+        }
+        list.addInt(0, -1);
+        assertEquals(101, list.size());
+        assertEquals(-1, list.getInt(0));
+        assertEquals(Integer.valueOf(99), list.get(100));
+        assertEquals(-1, list.removeIntAt(0));
+        assertEquals(5, list.setInt(5, 50));
+        assertEquals(50, list.getInt(5));
+        assertEquals(5, list.indexOf(50));
+    }
+
+    @Test
+    public void intList_equalsAndHashCodeMatchList() {
+        List<Integer> expected = Arrays.asList(1, 2, 3);
+        IntList list = IntList.copyOf(new int[]{1, 2, 3});
+
+        assertEquals(expected, list);
+        assertEquals(list, expected);
+        assertEquals(expected.hashCode(), list.hashCode());
+        assertEquals(IntList.copyOf(new int[]{1, 2, 3}), list);
+        assertFalse(list.equals(IntList.copyOf(new int[]{1, 2})));
+    }
+
+    @Test
+    public void longList_hashCodeMatchesList() {
+        LongList list = LongList.copyOf(new long[]{Long.MAX_VALUE, -1L});
+
+        assertEquals(Arrays.asList(Long.MAX_VALUE, -1L).hashCode(), list.hashCode());
+        assertArrayEquals(new long[]{Long.MAX_VALUE, -1L}, list.toLongArray());
+    }
+
+    @Test
+    public void doubleList_equalsMatchesDouble() {
+        DoubleList list = DoubleList.copyOf(new double[]{Double.NaN, 0.5});
+
+        assertEquals(Arrays.asList(Double.NaN, 0.5), list);
+        assertEquals(Arrays.asList(Double.NaN, 0.5).hashCode(), list.hashCode());
+        assertEquals(DoubleList.copyOf(new double[]{Double.NaN, 0.5}), list);
+        assertFalse(DoubleList.copyOf(new double[]{0.0}).equals(DoubleList.copyOf(new double[]{-0.0})));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void intList_getOutOfBounds() {
+        IntList list = new IntList(10);
+        list.addInt(1);
+        list.getInt(1);
+    }
+
+    @Test
+    public void knownTypeAdapters_readAndWritePrimitiveLists() throws Exception {
+        IntList ints = KnownTypeAdapters.INT_LIST.fromJson("[1,2,3]");
+        assertArrayEquals(new int[]{1, 2, 3}, ints.toIntArray());
+        assertEquals("[1,2,3]", KnownTypeAdapters.INT_LIST.toJson(ints));
+
+        LongList longs = KnownTypeAdapters.LONG_LIST.fromJson("[9007199254740993]");
+        assertEquals(9007199254740993L, longs.getLong(0));
+        assertEquals("[9007199254740993]", KnownTypeAdapters.LONG_LIST.toJson(longs));
+
+        DoubleList doubles = KnownTypeAdapters.DOUBLE_LIST.fromJson("[1.5,-2.0]");
+        assertEquals("[1.5,-2.0]", KnownTypeAdapters.DOUBLE_LIST.toJson(doubles));
+
+        assertNull(KnownTypeAdapters.INT_LIST.fromJson("null"));
+        assertEquals("null", KnownTypeAdapters.INT_LIST.toJson(null));
+    }
+}
@@ -0,0 +1,163 @@
+package com.vimeo.stag;
+
+import com.google.gson.stream.JsonWriter;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class StagJsonWriterTest {
+
+    private static final JsonFieldName NAME = new JsonFieldName("name");
+    private static final JsonFieldName ESCAPED_NAME = new JsonFieldName("<\"quoted\"\n>");
+
+    /**
+     * Writes the same document with the provided writer, using the
+     * {@link StagJsonWriter#name(JsonWriter, JsonFieldName)} fast path.
+     */
+    static void writeDocument(JsonWriter writer) throws IOException {
+        writer.beginObject();
+        StagJsonWriter.name(writer, NAME);
+        writer.value("value \u2028 <tag> & 'quote' \u00e9");
+        StagJsonWriter.name(writer, ESCAPED_NAME);
+        writer.beginArray();
+        writer.value(1);
+        writer.value(1.5);
+        writer.value(true);
+        writer.value((Boolean) null);
+        writer.value(Long.valueOf(42));
+        writer.jsonValue("{\"raw\":1}");
+        writer.nullValue();
+        writer.beginObject().endObject();
+        writer.beginArray().endArray();
+        writer.endArray();
+        writer.name("null");
+        writer.nullValue();
+        writer.name("nested");
+        writer.beginObject();
+        StagJsonWriter.name(writer, NAME);
+        writer.value(false);
+        writer.endObject();
+        writer.endObject();
+    }
+
+    static String writeWithJsonWriter(boolean htmlSafe, boolean serializeNulls) throws IOException {
+        StringWriter stringWriter = new StringWriter();
+        JsonWriter writer = new JsonWriter(stringWriter);
+        writer.setHtmlSafe(htmlSafe);
+        writer.setSerializeNulls(serializeNulls);
+        writeDocument(writer);
+        writer.close();
+        return stringWriter.toString();
+    }
+
+    private static String writeWithStagJsonWriter(boolean htmlSafe, boolean serializeNulls) throws IOException {
+        StringWriter stringWriter = new StringWriter();
+        StagJsonWriter writer = new StagJsonWriter(stringWriter);
+        writer.setHtmlSafe(htmlSafe);
+        writer.setSerializeNulls(serializeNulls);
+        writeDocument(writer);
+        writer.close();
+        return stringWriter.toString();
+    }
+
+    @Test
+    public void outputMatchesJsonWriter() throws Exception {
+        assertEquals(writeWithJsonWriter(false, true), writeWithStagJsonWriter(false, true));
+        assertEquals(writeWithJsonWriter(true, true), writeWithStagJsonWriter(true, true));
+        assertEquals(writeWithJsonWriter(false, false), writeWithStagJsonWriter(false, false));
+        assertEquals(writeWithJsonWriter(true, false), writeWithStagJsonWriter(true, false));
+    }
+
+    @Test
+    public void fieldNameIsWrittenToOtherWriters() throws Exception {
+        StringWriter stringWriter = new StringWriter();
+        JsonWriter writer = new JsonWriter(stringWriter);
+        writer.beginObject();
+        StagJsonWriter.name(writer, ESCAPED_NAME);
+        writer.value(1);
+        writer.endObject();
+
+        assertEquals("{\"<\\\"quoted\\\"\\n>\":1}", stringWriter.toString());
+    }
+
+    @Test
+    public void topLevelValuesAreWritten() throws Exception {
+        StringWriter stringWriter = new StringWriter();
+        StagJsonWriter writer = new StagJsonWriter(stringWriter);
+        writer.value("value");
+        writer.close();
+
+        assertEquals("\"value\"", stringWriter.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonFiniteValuesAreRejected() throws Exception {
+        new StagJsonWriter(new StringWriter()).beginArray().value(Double.NaN);
+    }
+
+    @Test
+    public void nonFiniteValuesAreWrittenWhenLenient() throws Exception {
+        StringWriter stringWriter = new StringWriter();
+        StagJsonWriter writer = new StagJsonWriter(stringWriter);
+        writer.setLenient(true);
+        writer.beginArray().value(Double.NaN).value(Double.valueOf(Double.NEGATIVE_INFINITY)).endArray();
+
+        assertEquals("[NaN,-Infinity]", stringWriter.toString());
+    }
+
+    @Test
+    public void indentedOutputMatchesJsonWriter() throws Exception {
+        StringWriter expected = new StringWriter();
+        JsonWriter jsonWriter = new JsonWriter(expected);
+        jsonWriter.setIndent("  ");
+        writeDocument(jsonWriter);
+        jsonWriter.close();
+
+        StringWriter actual = new StringWriter();
+        StagJsonWriter writer = new StagJsonWriter(actual, "  ");
+        writeDocument(writer);
+        writer.close();
+
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    @Test
+    public void emptyIndentWritesCompactJson() throws Exception {
+        StringWriter stringWriter = new StringWriter();
+        StagJsonWriter writer = new StagJsonWriter(stringWriter, "");
+        writer.beginObject().name("a").beginArray().value(1).endArray().endObject();
+
+        assertEquals("{\"a\":[1]}", stringWriter.toString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void danglingNameIsRejected() throws Exception {
+        new StagJsonWriter(new StringWriter()).beginObject().name(NAME).endObject();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void nameOutsideOfObjectIsRejected() throws Exception {
+        new StagJsonWriter(new StringWriter()).beginArray().name(NAME).value(1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void mismatchedBracketIsRejected() throws Exception {
+        new StagJsonWriter(new StringWriter()).beginArray().endObject();
+    }
+
+    @Test
+    public void incompleteDocumentIsRejected() throws Exception {
+        StagJsonWriter writer = new StagJsonWriter(new StringWriter());
+        writer.beginArray();
+        try {
+            writer.close();
+            fail("Closing an incomplete document should fail");
+        } catch (IOException expected) {
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.vimeo.stag;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StagPreloaderTest {
+
+    private static final class Model {
+        String mName;
+    }
+
+    private static final class GenericModel<T> {
+        T mValue;
+    }
+
+    /**
+     * Collects the classes that Gson is asked to create adapters for.
+     */
+    private static final class RecordingFactory implements TypeAdapterFactory {
+
+        final List<Class<?>> mRequestedClasses = Collections.synchronizedList(new ArrayList<Class<?>>());
+
+        @Override
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            mRequestedClasses.add(type.getRawType());
+            if (type.getRawType() == Integer.class) {
+                throw new IllegalStateException("Failure");
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Runs the tasks once {@link #runAll()} is called.
+     */
+    private static final class QueueExecutor implements Executor {
+
+        final List<Runnable> mTasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            mTasks.add(command);
+        }
+
+        void runAll() {
+            for (Runnable task : mTasks) {
+                task.run();
+            }
+        }
+    }
+
+    @Test
+    public void preload_createsAdaptersOfNonGenericClasses() throws Exception {
+        RecordingFactory factory = new RecordingFactory();
+        Gson gson = new GsonBuilder().registerTypeAdapterFactory(factory).create();
+        QueueExecutor executor = new QueueExecutor();
+
+        Future<Void> future = StagPreloader.preload(gson, executor, Model.class, GenericModel.class);
+        assertEquals(1, executor.mTasks.size());
+        assertFalse(future.isDone());
+
+        executor.runAll();
+        assertTrue(future.isDone());
+        assertNull(future.get());
+        assertTrue(factory.mRequestedClasses.contains(Model.class));
+        assertFalse(factory.mRequestedClasses.contains(GenericModel.class));
+    }
+
+    @Test
+    public void preload_reportsFailures() throws Exception {
+        Gson gson = new GsonBuilder().registerTypeAdapterFactory(new RecordingFactory()).create();
+        QueueExecutor executor = new QueueExecutor();
+
+        Future<Void> future = StagPreloader.preload(gson, executor, Model.class, Integer.class);
+        executor.runAll();
+
+        try {
+            future.get();
+            fail("Expected the failure to be reported");
+        } catch (ExecutionException exception) {
+            assertTrue(exception.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void preload_reportsRejectedTasks() throws Exception {
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        };
+
+        Future<Void> future = StagPreloader.preload(new Gson(), executor, Model.class);
+
+        assertTrue(future.isDone());
+        try {
+            future.get();
+            fail("Expected the rejection to be reported");
+        } catch (ExecutionException exception) {
+            assertTrue(exception.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    @Test
+    public void preload_cancelSkipsRemainingTasks() throws Exception {
+        RecordingFactory factory = new RecordingFactory();
+        Gson gson = new GsonBuilder().registerTypeAdapterFactory(factory).create();
+        QueueExecutor executor = new QueueExecutor();
+
+        Future<Void> future = StagPreloader.preload(gson, executor, Model.class);
+        assertTrue(future.cancel(false));
+        executor.runAll();
+
+        assertTrue(future.isCancelled());
+        assertFalse(factory.mRequestedClasses.contains(Model.class));
+    }
+}
@@ -0,0 +1,331 @@
+package com.vimeo.stag;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.internal.bind.TypeAdapters;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class Utf8JsonReaderTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String DOCUMENT = "{\"string\":\"value\",\"escaped\":\"\\\"\\\\\\/\\b\\f\\n\\r\\t\\u00e9\\u2028\"," +
+                                           "\"unicode\":\"a\u00e9\u0800\uffff\ud83d\ude00z\",\"\u00e9t\u00e9\":1," +
+                                           "\"numbers\":[0,-1,1234567890123,9223372036854775807,-9223372036854775808," +
+                                           "9223372036854775808,1.5,-0,-0.0,1e10,2.5E-3],\"booleans\":[true,false]," +
+                                           "\"null\":null,\"empty\":{},\"nested\":[[],[{\"a\":[1,{\"b\":\"c\"}]}]]," +
+                                           "\"string\":\"repeated\"}";
+
+    /**
+     * Returns at most one byte per read, so every token
+     * crosses the boundary of the reader's buffer.
+     */
+    private static final class TrickleInputStream extends InputStream {
+
+        private final InputStream mDelegate;
+
+        TrickleInputStream(byte[] bytes) {
+            mDelegate = new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return mDelegate.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return mDelegate.read(b, off, Math.min(len, 1));
+        }
+    }
+
+    /**
+     * Reads every token of the document, describing each of them with the path where it
+     * was read.
+     */
+    private static List<String> readTokens(JsonReader reader) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        JsonToken token;
+        while ((token = reader.peek()) != JsonToken.END_DOCUMENT) {
+            String path = reader.getPath();
+            switch (token) {
+                case BEGIN_ARRAY:
+                    reader.beginArray();
+                    break;
+                case END_ARRAY:
+                    reader.endArray();
+                    break;
+                case BEGIN_OBJECT:
+                    reader.beginObject();
+                    break;
+                case END_OBJECT:
+                    reader.endObject();
+                    break;
+                case NAME:
+                    tokens.add(token + " " + reader.nextName());
+                    continue;
+                case STRING:
+                    tokens.add(token + " " + reader.nextString());
+                    continue;
+                case NUMBER:
+                    tokens.add(token + " " + reader.getPath() + " " + reader.nextString());
+                    continue;
+                case BOOLEAN:
+                    tokens.add(token + " " + reader.nextBoolean());
+                    continue;
+                case NULL:
+                    reader.nextNull();
+                    break;
+            }
+            tokens.add(token + " " + path + " " + reader.hasNext());
+        }
+        return tokens;
+    }
+
+    private static List<String> readTokensWithJsonReader(String json, boolean lenient) throws IOException {
+        JsonReader reader = new JsonReader(new StringReader(json));
+        reader.setLenient(lenient);
+        return readTokens(reader);
+    }
+
+    private static void assertReadsLikeJsonReader(String json, boolean lenient) throws IOException {
+        List<String> expected = readTokensWithJsonReader(json, lenient);
+        byte[] bytes = json.getBytes(UTF_8);
+
+        List<JsonReader> readers = new ArrayList<>();
+        readers.add(new Utf8JsonReader(bytes));
+        readers.add(new Utf8JsonReader(new TrickleInputStream(bytes)));
+        readers.add(new Utf8JsonReader(new ByteArrayInputStream(bytes)));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        readers.add(new Utf8JsonReader(direct));
+
+        byte[] padded = new byte[bytes.length + 4];
+        System.arraycopy(bytes, 0, padded, 2, bytes.length);
+        readers.add(new Utf8JsonReader(padded, 2, bytes.length));
+
+        for (JsonReader reader : readers) {
+            reader.setLenient(lenient);
+            assertEquals(reader.toString(), expected, readTokens(reader));
+            reader.close();
+        }
+    }
+
+    private static String getErrorWithJsonReader(String json) {
+        try {
+            readTokens(new JsonReader(new StringReader(json)));
+            return null;
+        } catch (Exception e) {
+            return e.getClass().getName() + ": " + e.getMessage();
+        }
+    }
+
+    private static String getErrorWithUtf8JsonReader(byte[] bytes) {
+        try {
+            readTokens(new Utf8JsonReader(bytes));
+            return null;
+        } catch (Exception e) {
+            return e.getClass().getName() + ": " + e.getMessage();
+        }
+    }
+
+    @Test
+    public void documentIsReadLikeJsonReader() throws Exception {
+        assertReadsLikeJsonReader(DOCUMENT, false);
+        assertReadsLikeJsonReader(DOCUMENT, true);
+    }
+
+    @Test
+    public void topLevelValuesAreReadLikeJsonReader() throws Exception {
+        assertReadsLikeJsonReader("\"value\"", false);
+        assertReadsLikeJsonReader("12", false);
+        assertReadsLikeJsonReader(" true ", false);
+        assertReadsLikeJsonReader("null", false);
+        assertReadsLikeJsonReader("[]", false);
+    }
+
+    @Test
+    public void lenientDocumentIsReadLikeJsonReader() throws Exception {
+        assertReadsLikeJsonReader(")]}'\n{unquoted:'single quoted' ; # comment\n" +
+                                  "\"equals\"=>[1;2,,NaN,-Infinity,nul,True], // comment\r\n" +
+                                  "/* comment */ 'name' = \"\u00e9\" } [1] 2", true);
+    }
+
+    @Test
+    public void longDocumentIsReadLikeJsonReader() throws Exception {
+        StringBuilder builder = new StringBuilder("[");
+        StringBuilder longString = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            builder.append(DOCUMENT).append(',').append(i).append(',').append(-i * 1.25).append(',');
+            longString.append("\u00e9\ud83d\ude00\\n").append(i);
+        }
+        builder.append('"').append(longString).append("\",").append(longString.length()).append(']');
+
+        assertReadsLikeJsonReader(builder.toString(), false);
+    }
+
+    @Test
+    public void byteOrderMarkIsSkipped() throws Exception {
+        byte[] json = "\ufeff{\"a\":1}".getBytes(UTF_8);
+        Utf8JsonReader reader = new Utf8JsonReader(json);
+
+        reader.beginObject();
+        assertEquals("a", reader.nextName());
+        assertEquals(1, reader.nextInt());
+        reader.endObject();
+        assertEquals(JsonToken.END_DOCUMENT, reader.peek());
+    }
+
+    @Test
+    public void skippedValuesAreReadLikeJsonReader() throws Exception {
+        JsonReader expected = new JsonReader(new StringReader(DOCUMENT));
+        Utf8JsonReader actual = new Utf8JsonReader(new TrickleInputStream(DOCUMENT.getBytes(UTF_8)));
+
+        expected.beginObject();
+        actual.beginObject();
+        while (expected.hasNext()) {
+            assertTrue(actual.hasNext());
+            assertEquals(expected.nextName(), actual.nextName());
+            expected.skipValue();
+            actual.skipValue();
+            assertEquals(expected.getPath(), actual.getPath());
+        }
+        expected.endObject();
+        actual.endObject();
+        assertEquals(expected.peek(), actual.peek());
+    }
+
+    @Test
+    public void numbersAreConvertedLikeJsonReader() throws Exception {
+        String[] numbers = {"1", "-1", "1.0", "1.5", "1e2", "2147483648", "9223372036854775808", "\"12\"", "\"1.5\""};
+        for (String number : numbers) {
+            for (int method = 0; method < 3; method++) {
+                assertEquals(number, readNumberAs(new JsonReader(new StringReader(number)), method),
+                             readNumberAs(new Utf8JsonReader(number.getBytes(UTF_8)), method));
+            }
+        }
+    }
+
+    private static String readNumberAs(JsonReader reader, int method) {
+        try {
+            switch (method) {
+                case 0:
+                    return String.valueOf(reader.nextInt());
+                case 1:
+                    return String.valueOf(reader.nextLong());
+                default:
+                    return String.valueOf(reader.nextDouble());
+            }
+        } catch (Exception e) {
+            return e.getClass().getName();
+        }
+    }
+
+    @Test
+    public void malformedDocumentsFailLikeJsonReader() throws Exception {
+        String[] documents = {"{\"a\":1", "[1 2]", "{\"a\" 1}", "{a:1}", "[\"unterminated]", "[\"\\x\"]",
+                              "[\"\\u12\"]", "[1,]", "[NaN]", "[01]", "{\"a\":1,}", "[1] [2]", "", "{\"a\":{\"b\":[true,"};
+        for (String document : documents) {
+            String expected = getErrorWithJsonReader(document);
+            assertTrue(document, expected != null);
+            assertEquals(document, expected, getErrorWithUtf8JsonReader(document.getBytes(UTF_8)));
+        }
+    }
+
+    @Test
+    public void malformedUtf8IsReplaced() throws Exception {
+        byte[] json = {'"', 'a', (byte) 0xff, 'b', (byte) 0xc3, 'c', (byte) 0xed, (byte) 0xa0, (byte) 0x80, '"'};
+        Utf8JsonReader reader = new Utf8JsonReader(json);
+
+        assertEquals(new String(json, 1, json.length - 2, UTF_8).charAt(1), reader.nextString().charAt(1));
+    }
+
+    @Test
+    public void mapsAreReadByGson() throws Exception {
+        Utf8JsonReader.installInternalAccess();
+        Map<String, Integer> map = new Gson().fromJson(new Utf8JsonReader("{\"a\":1,\"b\":2}".getBytes(UTF_8)),
+                                                       new TypeToken<Map<String, Integer>>() {}.getType());
+
+        assertEquals(2, map.size());
+        assertEquals(Integer.valueOf(1), map.get("a"));
+        assertEquals(Integer.valueOf(2), map.get("b"));
+    }
+
+    @Test
+    public void complexMapKeysAreReadByGson() throws Exception {
+        Utf8JsonReader.installInternalAccess();
+        Utf8JsonReader.installInternalAccess();
+        Gson gson = new GsonBuilder().enableComplexMapKeySerialization().create();
+        Map<Long, Map<Boolean, Double>> map = gson.fromJson(
+                new Utf8JsonReader("{\"1\":{\"true\":1.5},'2':{false:-0.5}}".getBytes(UTF_8)),
+                new TypeToken<Map<Long, Map<Boolean, Double>>>() {}.getType());
+
+        assertEquals(2, map.size());
+        assertEquals(Double.valueOf(1.5), map.get(1L).get(true));
+        assertEquals(Double.valueOf(-0.5), map.get(2L).get(false));
+
+        Map<String, String> fromStringReader = gson.fromJson(new JsonReader(new StringReader("{\"a\":\"b\"}")),
+                                                             new TypeToken<Map<String, String>>() {}.getType());
+        assertEquals("b", fromStringReader.get("a"));
+    }
+
+    @Test
+    public void mapsAreReadByKnownTypeAdapters() throws Exception {
+        Map<Integer, String> map = new KnownTypeAdapters.MapTypeAdapter<>(KnownTypeAdapters.INTEGER, TypeAdapters.STRING,
+                                                                              new KnownTypeAdapters.MapInstantiator<Integer, String>())
+                .read(new Utf8JsonReader("{\"1\":\"a\",\"2\":\"b\"}".getBytes(UTF_8)));
+
+        assertEquals(2, map.size());
+        assertEquals("a", map.get(1));
+        assertEquals("b", map.get(2));
+    }
+
+    @Test
+    public void closingTwiceReturnsTheBufferOnce() throws Exception {
+        Utf8JsonReader closed = new Utf8JsonReader(new ByteArrayInputStream("[]".getBytes(UTF_8)));
+        closed.close();
+        Utf8JsonReader first = new Utf8JsonReader(new ByteArrayInputStream("[1,2]".getBytes(UTF_8)));
+        closed.close();
+        Utf8JsonReader second = new Utf8JsonReader(new ByteArrayInputStream("[\"a\",\"b\"]".getBytes(UTF_8)));
+        first.beginArray();
+        second.beginArray();
+        assertEquals(1, first.nextInt());
+        assertEquals("a", second.nextString());
+        assertEquals(2, first.nextInt());
+        assertEquals("b", second.nextString());
+        first.endArray();
+        second.endArray();
+    }
+
+    @Test
+    public void closedReaderThrows() throws Exception {
+        Utf8JsonReader reader = new Utf8JsonReader(new ByteArrayInputStream("[]".getBytes(UTF_8)));
+        reader.close();
+
+        try {
+            reader.peek();
+            fail("Expected the closed reader to throw");
+        } catch (IllegalStateException expected) {
+            assertEquals("JsonReader is closed", expected.getMessage());
+        }
+    }
+}
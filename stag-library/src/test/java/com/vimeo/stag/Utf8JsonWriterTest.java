@@ -0,0 +1,116 @@
+package com.vimeo.stag;
+
+import com.google.gson.stream.JsonWriter;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class Utf8JsonWriterTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static String writeWithUtf8JsonWriter(boolean htmlSafe, boolean serializeNulls) throws Exception {
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        writer.setHtmlSafe(htmlSafe);
+        writer.setSerializeNulls(serializeNulls);
+        StagJsonWriterTest.writeDocument(writer);
+        writer.close();
+        return new String(writer.toByteArray(), UTF_8);
+    }
+
+    private static String writeString(JsonWriter writer, StringWriter stringWriter, String value) throws Exception {
+        writer.beginArray();
+        writer.value(value);
+        writer.jsonValue("\"" + value + "\"");
+        writer.endArray();
+        writer.close();
+        return stringWriter != null ? stringWriter.toString() : null;
+    }
+
+    @Test
+    public void outputMatchesJsonWriter() throws Exception {
+        assertEquals(StagJsonWriterTest.writeWithJsonWriter(false, true), writeWithUtf8JsonWriter(false, true));
+        assertEquals(StagJsonWriterTest.writeWithJsonWriter(true, true), writeWithUtf8JsonWriter(true, true));
+        assertEquals(StagJsonWriterTest.writeWithJsonWriter(false, false), writeWithUtf8JsonWriter(false, false));
+        assertEquals(StagJsonWriterTest.writeWithJsonWriter(true, false), writeWithUtf8JsonWriter(true, false));
+    }
+
+    @Test
+    public void nonAsciiCharactersAreEncoded() throws Exception {
+        String value = "a\u00e9\u0800\uffff\ud83d\ude00z\ud800";
+
+        StringWriter stringWriter = new StringWriter();
+        String expected = writeString(new JsonWriter(stringWriter), stringWriter, value);
+
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        writeString(writer, null, value);
+
+        assertArrayEquals(expected.getBytes(UTF_8), writer.toByteArray());
+    }
+
+    @Test
+    public void longValuesAreWritten() throws Exception {
+        long[] values = {0, 7, -7, 10, -10, 1234567890123L, Long.MAX_VALUE, Long.MIN_VALUE};
+
+        StringWriter stringWriter = new StringWriter();
+        JsonWriter jsonWriter = new JsonWriter(stringWriter);
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        jsonWriter.beginArray();
+        writer.beginArray();
+        for (long value : values) {
+            jsonWriter.value(value);
+            writer.value(value);
+        }
+        jsonWriter.endArray();
+        writer.endArray();
+
+        assertEquals(stringWriter.toString(), new String(writer.toByteArray(), UTF_8));
+    }
+
+    @Test
+    public void valuesLargerThanTheBufferAreWrittenToTheStream() throws Exception {
+        char[] chars = new char[20000];
+        Arrays.fill(chars, '\u00e9');
+        chars[4095] = '\ud83d';
+        chars[4096] = '\ude00';
+        String value = new String(chars);
+
+        StringWriter stringWriter = new StringWriter();
+        String expected = writeString(new JsonWriter(stringWriter), stringWriter, value);
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        writeString(new Utf8JsonWriter(stream), null, value);
+        assertArrayEquals(expected.getBytes(UTF_8), stream.toByteArray());
+
+        ByteArrayOutputStream channelStream = new ByteArrayOutputStream();
+        writeString(new Utf8JsonWriter(Channels.newChannel(channelStream)), null, value);
+        assertArrayEquals(expected.getBytes(UTF_8), channelStream.toByteArray());
+
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        writeString(writer, null, value);
+        assertArrayEquals(expected.getBytes(UTF_8), writer.toByteArray());
+    }
+
+    @Test
+    public void writerCanBeReset() throws Exception {
+        Utf8JsonWriter writer = new Utf8JsonWriter();
+        writer.beginObject().name("first").value(1).endObject();
+        writer.reset();
+        writer.beginObject().name("second").value(2).endObject();
+
+        assertEquals(12, writer.size());
+        ByteBuffer byteBuffer = writer.toByteBuffer();
+        byte[] bytes = new byte[byteBuffer.remaining()];
+        byteBuffer.get(bytes);
+        assertEquals("{\"second\":2}", new String(bytes, UTF_8));
+    }
+}